@@ -0,0 +1,50 @@
+package com.clinic.bench;
+
+import java.util.List;
+
+import com.clinic.ClinicConnection;
+import com.clinic.Pagination;
+import com.clinic.abstracts.AbstractEntityRepository;
+import com.clinic.factories.EntityRegistry;
+import com.clinic.factories.EntityRepositoryFactory;
+
+/**
+ * Measures how long the persistence layer takes to become usable without the
+ * JavaFX toolkit: connecting, creating every repository and fetching their
+ * first page.
+ * 
+ * Usage: <code>mvn -pl clinic-bench -am package exec:java</code>
+ * 
+ * @author Jose Ryu Leonesta <jose.leonesta@student.matanauniversity.ac.id>
+ */
+public class HeadlessStartup {
+    public static void main(String[] args) {
+        long start = System.nanoTime();
+
+        ClinicConnection.connect();
+        long connected = System.nanoTime();
+        print("connect", start, connected);
+
+        for (Class<? extends AbstractEntityRepository<?>> repositoryClass : EntityRegistry.REPOSITORIES)
+            EntityRepositoryFactory.getRepository(repositoryClass);
+        long created = System.nanoTime();
+        print("create " + EntityRegistry.REPOSITORIES.size() + " repositories", connected, created);
+
+        for (Class<? extends AbstractEntityRepository<?>> repositoryClass : EntityRegistry.REPOSITORIES) {
+            long fetchStart = System.nanoTime();
+            try {
+                List<?> entities = EntityRepositoryFactory.getRepository(repositoryClass).get(new Pagination());
+                print("first page of " + repositoryClass.getSimpleName() + " (" + entities.size() + " rows)",
+                        fetchStart, System.nanoTime());
+            } catch (Exception e) {
+                System.out.println("Exception caught in HeadlessStartup.main(): " + e.toString());
+            }
+        }
+        print("total", start, System.nanoTime());
+        System.exit(0);
+    }
+
+    private static void print(String step, long start, long end) {
+        System.out.printf("%-60s %8.1f ms%n", step, (end - start) / 1e6);
+    }
+}
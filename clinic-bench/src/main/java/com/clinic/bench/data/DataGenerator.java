@@ -0,0 +1,261 @@
+package com.clinic.bench.data;
+
+import java.math.BigDecimal;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.clinic.ClinicConnection;
+import com.clinic.Cursor;
+import com.clinic.doctor.repository.CheckUpCategoryRepository;
+import com.clinic.doctor.repository.MedicalRecordRepository;
+import com.clinic.drug.domain.PrescriptionRecipe;
+import com.clinic.drug.repository.DosageFormCategoryRepository;
+import com.clinic.drug.repository.DosageFormRepository;
+import com.clinic.drug.repository.MedicineRepository;
+import com.clinic.drug.repository.MedicineStockRepository;
+import com.clinic.drug.repository.PrescriptionHeaderRepository;
+import com.clinic.drug.repository.PrescriptionIngredientRepository;
+import com.clinic.drug.repository.PrescriptionRecipeRepository;
+import com.clinic.drug.repository.PurchaseMedicineDetailRepository;
+import com.clinic.drug.repository.PurchaseMedicineHeaderRepository;
+import com.clinic.drug.repository.QtyUnitRepository;
+import com.clinic.drug.repository.SellMedicineDetailRepository;
+import com.clinic.drug.repository.SellMedicineHeaderRepository;
+import com.clinic.receptionist.domain.Appointment;
+import com.clinic.receptionist.domain.Patient;
+import com.clinic.receptionist.repository.AppointmentRepository;
+import com.clinic.receptionist.repository.DoctorRepository;
+import com.clinic.receptionist.repository.PatientRepository;
+
+/**
+ * Fills the database with a synthetic clinic with consistent foreign keys.
+ * The rows are appended after the existing ones, using explicit ids, with
+ * multi-row inserts run in parallel.<br>
+ * Usage: <code>java -cp clinic-bench/target/benchmarks.jar com.clinic.bench.data.DataGenerator
+ * [--scale 1.0] [--threads 8] [--batch 1000]</code>
+ * <ul>
+ *  <li><code>scale</code>: multiplies the row counts, 1.0 is about 12 million rows</li>
+ *  <li><code>threads</code>: number of parallel inserts, each with a connection</li>
+ *  <li><code>batch</code>: rows per insert statement</li>
+ * </ul>
+ * 
+ * @author Jose Ryu Leonesta <jose.leonesta@student.matanauniversity.ac.id>
+ */
+public class DataGenerator {
+    private final static LocalDate FIRST_DATE = LocalDate.now().minusYears(2);
+
+    private double scale = 1.0;
+    private int threads = 8;
+    private int batchSize = 1000;
+    private Map<String, TableSpec> tables = new LinkedHashMap<>();
+
+    public DataGenerator(String[] args) {
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            switch (args[i]) {
+                case "--scale":
+                    scale = Double.parseDouble(args[i + 1]);
+                    break;
+                case "--threads":
+                    threads = Integer.parseInt(args[i + 1]);
+                    break;
+                case "--batch":
+                    batchSize = Integer.parseInt(args[i + 1]);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        DataGenerator generator = new DataGenerator(args);
+        generator.planClinic();
+        generator.run();
+        System.exit(0);
+    }
+
+    /**
+     * Add a table to generate, after the tables it refers to
+     */
+    public TableSpec addTable(TableSpec table) {
+        tables.put(table.getTableName(), table);
+        return table;
+    }
+
+    /**
+     * Plan the tables of a clinic, the row counts are for a scale of 1.0
+     */
+    public void planClinic() {
+        addTable(new TableSpec(DosageFormCategoryRepository.class, 10));
+        addTable(new TableSpec(DosageFormRepository.class, 40));
+        addTable(new TableSpec(QtyUnitRepository.class, 20));
+        addTable(new TableSpec(CheckUpCategoryRepository.class, 30));
+        TableSpec medicines = addTable(new TableSpec(MedicineRepository.class, scaled(5_000))
+                .distribute("generic_name", (row, random) -> "Generic " + row / 4)
+                .distribute("medicine_type", Distributions.oneOf("Generic", "Patent")));
+        TableSpec doctors = addTable(new TableSpec(DoctorRepository.class, scaled(200))
+                .distribute("gender", Distributions.oneOf(Patient.MALE, Patient.FEMALE))
+                .distribute("dob", Distributions.dateBetween(LocalDate.of(1960, 1, 1), LocalDate.of(1995, 1, 1))));
+        TableSpec patients = addTable(new TableSpec(PatientRepository.class, scaled(300_000))
+                .distribute("gender", Distributions.oneOf(Patient.MALE, Patient.FEMALE))
+                .distribute("dob", Distributions.dateBetween(LocalDate.of(1940, 1, 1), LocalDate.now()))
+                .distribute("no_ktp", (row, random) -> String.format("%016d", row))
+                .distribute("telp", (row, random) -> String.format("08%010d", row)));
+
+        TableSpec purchaseHeaders = addTable(new TableSpec(PurchaseMedicineHeaderRepository.class, scaled(30_000)));
+        TableSpec purchaseDetails = addTable(new TableSpec(PurchaseMedicineDetailRepository.class, scaled(300_000))
+                .distribute("purchase_medicine_header_id", Distributions.parentKey(purchaseHeaders, 10))
+                .distribute("qty", Distributions.uniformDecimal(10, 500))
+                .distribute("price_per_unit", Distributions.uniformInt(500, 50_000)));
+        // One stock batch per purchase detail
+        TableSpec stocks = addTable(new TableSpec(MedicineStockRepository.class, scaled(300_000))
+                .distribute("medicine_id", Distributions.skewedForeignKey(medicines, 2))
+                .distribute("purchase_medicine_detail_id", Distributions.parentKey(purchaseDetails, 1))
+                .distribute("exp_date", Distributions.dateBetween(LocalDate.now().minusDays(30), LocalDate.now().plusYears(3)))
+                .distribute("qty_available", Distributions.uniformDecimal(0, 500))
+                .distribute("qty_to_dosage_form_multiplier", Distributions.constant(BigDecimal.ONE))
+                .distribute("batch_number", Distributions.sequence("B"))
+                .distribute("highest_retail_price", Distributions.uniformInt(1_000, 100_000)));
+
+        addTable(new TableSpec(AppointmentRepository.class, scaled(3_000_000))
+                .distribute("doctor_id", Distributions.foreignKey(doctors))
+                .distribute("patient_id", Distributions.skewedForeignKey(patients, 1.5))
+                .distribute("category", Distributions.oneOf(Appointment.APPOINTMENT, Appointment.QUEUE, Appointment.CONTROL))
+                .distribute("status", Distributions.oneOf(Appointment.NOT_PRESENT, Appointment.WAITING,
+                        Appointment.CONSULTING, Appointment.DONE)));
+        addTable(new TableSpec(MedicalRecordRepository.class, scaled(600_000))
+                .distribute("patient_id", Distributions.skewedForeignKey(patients, 1.5))
+                .distribute("check_up_date", Distributions.dateBetween(FIRST_DATE, LocalDate.now())));
+        TableSpec prescriptions = addTable(new TableSpec(PrescriptionHeaderRepository.class, scaled(400_000))
+                .distribute("patient_id", Distributions.skewedForeignKey(patients, 1.5)));
+        TableSpec recipes = addTable(new TableSpec(PrescriptionRecipeRepository.class, scaled(800_000))
+                .distribute("prescription_header_id", Distributions.parentKey(prescriptions, 2))
+                .distribute("recipe_type", Distributions.oneOf(PrescriptionRecipe.COMPUND_TYPE, PrescriptionRecipe.GENERIC_TYPE))
+                .distribute("qty", Distributions.uniformDecimal(1, 30)));
+        addTable(new TableSpec(PrescriptionIngredientRepository.class, scaled(1_000_000))
+                .distribute("prescription_recipe_id", Distributions.parentKey(recipes, 1))
+                .distribute("medicine_stock_id", Distributions.skewedForeignKey(stocks, 2))
+                .distribute("qty", Distributions.uniformDecimal(1, 5)));
+
+        TableSpec sellHeaders = addTable(new TableSpec(SellMedicineHeaderRepository.class, scaled(1_500_000)));
+        TableSpec sellDetails = new TableSpec(SellMedicineDetailRepository.class, scaled(4_000_000));
+        addTable(sellDetails
+                .distribute("sell_medicine_header_id", Distributions.spreadKey(sellHeaders, sellDetails))
+                .distribute("medicine_stock_id", Distributions.skewedForeignKey(stocks, 2))
+                .distribute("qty", Distributions.uniformDecimal(1, 10))
+                .distribute("price_per_unit", Distributions.uniformInt(1_000, 100_000)));
+    }
+
+    private long scaled(long rows) {
+        return Math.max(1, Math.round(rows * scale));
+    }
+
+    public void run() throws Exception {
+        ClinicConnection.connect(threads + 1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        long start = System.nanoTime();
+        long totalRows = 0;
+        Map<String, TableSpec> filledTables = new LinkedHashMap<>();
+        try {
+            for (TableSpec table : tables.values()) {
+                table.setIdOffset(maxId(table.getTableName()));
+                long tableStart = System.nanoTime();
+                fill(table, filledTables, executor);
+                filledTables.put(table.getTableName(), table);
+                totalRows += table.getRows();
+                System.out.printf("%-28s %10d rows %8.1f s%n", table.getTableName(), table.getRows(),
+                        (System.nanoTime() - tableStart) / 1e9);
+            }
+        } finally {
+            executor.shutdown();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%d rows in %.1f s (%.0f rows/s)%n", totalRows, seconds, totalRows / seconds);
+    }
+
+    private long maxId(String tableName) throws SQLException {
+        try (Cursor cursor = ClinicConnection.openCursor("SELECT COALESCE(MAX(id), 0) FROM " + tableName + ";")) {
+            cursor.next();
+            return cursor.getResultSet().getLong(1);
+        }
+    }
+
+    /**
+     * Insert the rows of a table in batches spread over the executor
+     * @param filledTables the tables already filled, which the foreign keys
+     * can refer to
+     */
+    private void fill(TableSpec table, Map<String, TableSpec> filledTables, ExecutorService executor)
+            throws Exception {
+        List<String> fieldNames = table.getFieldNames();
+        List<ValueDistribution> distributions = table.resolveDistributions(filledTables);
+        String insertPrefix = "INSERT INTO " + table.getTableName() + " (`id`, `" + String.join("`, `", fieldNames)
+                + "`) VALUES ";
+
+        AtomicLong nextBatch = new AtomicLong();
+        long batchCount = (table.getRows() + batchSize - 1) / batchSize;
+        List<Future<?>> workers = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            long seed = table.getTableName().hashCode() * 31L + i;
+            workers.add(executor.submit(() -> {
+                Random random = new Random(seed);
+                disableChecks();
+                for (long batch = nextBatch.getAndIncrement(); batch < batchCount; batch = nextBatch.getAndIncrement()) {
+                    long firstRow = batch * batchSize;
+                    long lastRow = Math.min(firstRow + batchSize, table.getRows());
+                    ClinicConnection.execute(buildInsert(insertPrefix, table, distributions, firstRow, lastRow, random));
+                }
+                return null;
+            }));
+        }
+        for (Future<?> worker : workers)
+            worker.get();
+    }
+
+    /**
+     * The generated keys are consistent by construction, the checks are
+     * turned off on the connection of the current thread for speed
+     */
+    private static void disableChecks() throws SQLException {
+        ClinicConnection.execute("SET foreign_key_checks = 0;");
+        ClinicConnection.execute("SET unique_checks = 0;");
+    }
+
+    private static String buildInsert(String insertPrefix, TableSpec table, List<ValueDistribution> distributions,
+            long firstRow, long lastRow, Random random) {
+        StringBuilder query = new StringBuilder(insertPrefix);
+        for (long row = firstRow; row < lastRow; row++) {
+            if (row != firstRow)
+                query.append(',');
+            query.append('(').append(table.getIdOffset() + 1 + row);
+            for (ValueDistribution distribution : distributions) {
+                query.append(',');
+                appendValue(query, distribution.next(row, random));
+            }
+            query.append(')');
+        }
+        return query.append(';').toString();
+    }
+
+    private static void appendValue(StringBuilder query, Object value) {
+        if (value == null)
+            query.append("NULL");
+        else if (value instanceof Number)
+            query.append(value instanceof BigDecimal ? ((BigDecimal) value).toPlainString() : value.toString());
+        else if (value instanceof LocalDateTime)
+            query.append('\'').append(Timestamp.valueOf((LocalDateTime) value)).append('\'');
+        else
+            query.append('\'').append(value.toString().replace("\\", "\\\\").replace("'", "''")).append('\'');
+    }
+}
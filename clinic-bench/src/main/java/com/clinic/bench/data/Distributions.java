@@ -0,0 +1,100 @@
+package com.clinic.bench.data;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Common <code>ValueDistribution</code>s of the data generator
+ * 
+ * @author Jose Ryu Leonesta <jose.leonesta@student.matanauniversity.ac.id>
+ */
+public class Distributions {
+    /**
+     * The same value for every row
+     */
+    public static ValueDistribution constant(Object value) {
+        return (row, random) -> value;
+    }
+
+    /**
+     * An integer between <code>min</code> and <code>max</code> inclusive
+     */
+    public static ValueDistribution uniformInt(int min, int max) {
+        return (row, random) -> min + random.nextInt(max - min + 1);
+    }
+
+    /**
+     * A decimal between <code>min</code> and <code>max</code> with 2 fraction
+     * digits
+     */
+    public static ValueDistribution uniformDecimal(int min, int max) {
+        return (row, random) -> BigDecimal.valueOf(min * 100L + random.nextInt((max - min) * 100 + 1), 2);
+    }
+
+    /**
+     * One of <code>values</code>, all equally likely
+     */
+    public static ValueDistribution oneOf(Object... values) {
+        return (row, random) -> values[random.nextInt(values.length)];
+    }
+
+    /**
+     * A unique text made of a prefix and the row number
+     */
+    public static ValueDistribution sequence(String prefix) {
+        return (row, random) -> prefix + row;
+    }
+
+    /**
+     * A date between <code>from</code> and <code>to</code> inclusive
+     */
+    public static ValueDistribution dateBetween(LocalDate from, LocalDate to) {
+        int days = (int) (to.toEpochDay() - from.toEpochDay());
+        return (row, random) -> from.plusDays(random.nextInt(days + 1));
+    }
+
+    /**
+     * A date and time between the start of <code>from</code> and the end of
+     * <code>to</code>, on the minute
+     */
+    public static ValueDistribution dateTimeBetween(LocalDate from, LocalDate to) {
+        int minutes = (int) (to.toEpochDay() - from.toEpochDay() + 1) * 24 * 60;
+        LocalDateTime start = from.atStartOfDay();
+        return (row, random) -> start.plusMinutes(random.nextInt(minutes));
+    }
+
+    /**
+     * The id of a row of another table, all rows equally likely
+     */
+    public static ValueDistribution foreignKey(TableSpec table) {
+        return (row, random) -> table.getIdOffset() + 1 + (long) (random.nextDouble() * table.getRows());
+    }
+
+    /**
+     * The id of a row of another table where the first rows are the most
+     * likely, like popular medicines or regular patients. With a
+     * <code>skew</code> of 1 it is uniform, the higher the more skewed.
+     */
+    public static ValueDistribution skewedForeignKey(TableSpec table, double skew) {
+        return (row, random) -> table.getIdOffset() + 1
+                + (long) (Math.pow(random.nextDouble(), skew) * table.getRows());
+    }
+
+    /**
+     * The id of the row of another table with the same row number divided
+     * by <code>rowsPerParent</code>, for details that follow their header
+     */
+    public static ValueDistribution parentKey(TableSpec table, int rowsPerParent) {
+        return (row, random) -> table.getIdOffset() + 1 + Math.min(row / rowsPerParent, table.getRows() - 1);
+    }
+
+    /**
+     * The id of a row of another table, spreading the rows of
+     * <code>child</code> evenly and in order over the rows of
+     * <code>parent</code>, for details that follow their header
+     */
+    public static ValueDistribution spreadKey(TableSpec parent, TableSpec child) {
+        return (row, random) -> parent.getIdOffset() + 1 + row * parent.getRows() / Math.max(1, child.getRows());
+    }
+}
@@ -0,0 +1,129 @@
+package com.clinic.bench.data;
+
+import java.lang.reflect.Method;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.clinic.abstracts.AbstractEntityRepository;
+import com.clinic.factories.EntityRepositoryFactory;
+
+/**
+ * A table to fill by the data generator: its columns come from the entity's
+ * <code>getTableFieldNames()</code>, each with a <code>ValueDistribution</code>
+ * picked from the column type unless one is set with
+ * <code>distribute()</code>.
+ * 
+ * @author Jose Ryu Leonesta <jose.leonesta@student.matanauniversity.ac.id>
+ */
+public class TableSpec {
+    private final static LocalDate FIRST_DATE = LocalDate.now().minusYears(2);
+
+    private AbstractEntityRepository<?> repository;
+    private long rows;
+    private long idOffset = 0;
+    private Map<String, ValueDistribution> distributions = new HashMap<>();
+
+    public TableSpec(Class<? extends AbstractEntityRepository<?>> repositoryClass, long rows) {
+        this.repository = EntityRepositoryFactory.getRepository(repositoryClass);
+        this.rows = rows;
+    }
+
+    public String getTableName() {
+        return repository.getTableName();
+    }
+
+    public long getRows() {
+        return rows;
+    }
+
+    public TableSpec setRows(long rows) {
+        this.rows = rows;
+        return this;
+    }
+
+    /**
+     * Get the highest id of the table before the generated rows, the
+     * generated ids follow it
+     */
+    public long getIdOffset() {
+        return idOffset;
+    }
+
+    public TableSpec setIdOffset(long idOffset) {
+        this.idOffset = idOffset;
+        return this;
+    }
+
+    /**
+     * Set the distribution of a column
+     * @param fieldName the snake cased column name
+     */
+    public TableSpec distribute(String fieldName, ValueDistribution distribution) {
+        distributions.put(fieldName, distribution);
+        return this;
+    }
+
+    /**
+     * Get the columns of the table, without the id
+     */
+    public List<String> getFieldNames() {
+        List<String> fieldNames;
+        try {
+            fieldNames = repository.entityClass.getConstructor().newInstance().getTableFieldNames();
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Cannot instantiate " + repository.entityClass.getName(), e);
+        }
+        if (fieldNames != null)
+            return new ArrayList<>(fieldNames);
+
+        List<String> result = new ArrayList<>();
+        for (Method getter : repository.getEntityAttributeGetters())
+            result.add(AbstractEntityRepository.normalizeFieldName(getter.getName().substring(3)));
+        return result;
+    }
+
+    /**
+     * Get the distribution of every column in the order of
+     * <code>getFieldNames()</code>. A column without a set distribution gets
+     * a default one by its type, <code>xxx_id</code> columns refer to the
+     * table <code>xxx</code> of <code>tables</code> if it is there.
+     * @param tables the tables generated before this one
+     */
+    public List<ValueDistribution> resolveDistributions(Map<String, TableSpec> tables) {
+        Map<String, Class<?>> fieldTypes = new HashMap<>();
+        for (Method getter : repository.getEntityAttributeGetters()) {
+            fieldTypes.put(AbstractEntityRepository.normalizeFieldName(getter.getName().substring(3)),
+                    getter.getReturnType());
+        }
+
+        List<ValueDistribution> result = new ArrayList<>();
+        for (String fieldName : getFieldNames()) {
+            ValueDistribution distribution = distributions.get(fieldName);
+            if (distribution == null && fieldName.endsWith("_id")) {
+                TableSpec parent = tables.get(fieldName.substring(0, fieldName.length() - 3));
+                distribution = parent != null ? Distributions.foreignKey(parent) : Distributions.constant(0);
+            }
+            if (distribution == null)
+                distribution = defaultDistribution(fieldName, fieldTypes.get(fieldName));
+            result.add(distribution);
+        }
+        return result;
+    }
+
+    private static ValueDistribution defaultDistribution(String fieldName, Class<?> type) {
+        if (type == Integer.class)
+            return Distributions.uniformInt(0, 999);
+        else if (type == BigDecimal.class)
+            return Distributions.uniformDecimal(0, 999);
+        else if (type == LocalDate.class)
+            return Distributions.dateBetween(FIRST_DATE, LocalDate.now());
+        else if (type == LocalDateTime.class)
+            return Distributions.dateTimeBetween(FIRST_DATE, LocalDate.now());
+        return Distributions.sequence(fieldName + "-");
+    }
+}
@@ -0,0 +1,17 @@
+package com.clinic.bench.data;
+
+import java.util.Random;
+
+/**
+ * Generates the values of a column for the data generator
+ * 
+ * @author Jose Ryu Leonesta <jose.leonesta@student.matanauniversity.ac.id>
+ */
+public interface ValueDistribution {
+    /**
+     * Get the value of a row
+     * @param row the row number, starting from 0
+     * @param random the random generator of the thread generating the row
+     */
+    Object next(long row, Random random);
+}
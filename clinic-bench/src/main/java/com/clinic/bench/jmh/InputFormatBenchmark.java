@@ -0,0 +1,45 @@
+package com.clinic.bench.jmh;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.clinic.InputFormat;
+
+/**
+ * Measures the checks and conversions that the number fields of
+ * <code>GridFormBuilder</code> run on every keystroke.
+ * 
+ * @author Jose Ryu Leonesta <jose.leonesta@student.matanauniversity.ac.id>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class InputFormatBenchmark {
+    @Param({ "", "1234567", "1234567.", "1234567.8901", "12a" })
+    public String text;
+
+    @Benchmark
+    public boolean isInteger() {
+        return InputFormat.isInteger(text);
+    }
+
+    @Benchmark
+    public void isDecimalThenParse(Blackhole blackhole) {
+        if (InputFormat.isDecimal(text))
+            blackhole.consume(InputFormat.parseDecimal(text));
+    }
+}
@@ -0,0 +1,65 @@
+package com.clinic.bench.jmh;
+
+import java.sql.ResultSet;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.clinic.drug.repository.DosageFormRepository;
+import com.clinic.drug.repository.MedicineRepository;
+import com.clinic.drug.repository.MedicineStockRepository;
+
+/**
+ * Measures mapping whole results into entities, as done when a page or a join
+ * is fetched: <code>mapEntity()</code> for a single table and
+ * <code>mapJoinedRow()</code> for a 3 table join.
+ * 
+ * @author Jose Ryu Leonesta <jose.leonesta@student.matanauniversity.ac.id>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MapEntityBenchmark {
+    @Param({ "1000", "100000", "1000000" })
+    public int rows;
+
+    private MedicineStockRepository stockRepository = new MedicineStockRepository();
+    private MedicineRepository medicineRepository = new MedicineRepository();
+    private DosageFormRepository dosageFormRepository = new DosageFormRepository();
+    private SyntheticResultSet stocks;
+    private SyntheticResultSet joinedStocks;
+
+    @Setup
+    public void setUp() {
+        stocks = SyntheticData.medicineStocks(rows, "");
+        joinedStocks = SyntheticData.medicineStocksJoined(rows);
+    }
+
+    @Benchmark
+    public void mapEntity(Blackhole blackhole) throws Exception {
+        ResultSet result = stocks.rewind().asResultSet();
+        while (result.next())
+            blackhole.consume(stockRepository.mapEntity(result));
+    }
+
+    @Benchmark
+    public void mapJoinedRow(Blackhole blackhole) throws Exception {
+        ResultSet result = joinedStocks.rewind().asResultSet();
+        while (result.next())
+            blackhole.consume(stockRepository.mapJoinedRow(result, medicineRepository, dosageFormRepository));
+    }
+}
@@ -0,0 +1,55 @@
+package com.clinic.bench.jmh;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.clinic.abstracts.AbstractEntityRepository;
+import com.clinic.drug.domain.MedicineStock;
+import com.clinic.drug.repository.MedicineStockRepository;
+
+/**
+ * Measures building the queries of <code>create()</code>,
+ * <code>edit()</code> and <code>search()</code>, and the field name
+ * conversion they all rely on.
+ * 
+ * @author Jose Ryu Leonesta <jose.leonesta@student.matanauniversity.ac.id>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SqlBuilderBenchmark {
+    private MedicineStockRepository repository = new MedicineStockRepository();
+    private MedicineStock stock = SyntheticData.medicineStock(42);
+
+    @Benchmark
+    public String buildInsertQuery() throws Exception {
+        return repository.buildInsertQuery(stock);
+    }
+
+    @Benchmark
+    public String buildUpdateQuery() throws Exception {
+        return repository.buildUpdateQuery(stock);
+    }
+
+    @Benchmark
+    public String searchCondition() {
+        return repository.searchCondition("para_50%");
+    }
+
+    @Benchmark
+    public String normalizeFieldName() {
+        return AbstractEntityRepository.normalizeFieldName("QtyToDosageFormMultiplier");
+    }
+}
@@ -0,0 +1,73 @@
+package com.clinic.bench.jmh;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+
+import com.clinic.drug.domain.MedicineStock;
+
+/**
+ * Synthetic rows of the medicine stock, medicine and dosage form tables
+ * 
+ * @author Jose Ryu Leonesta <jose.leonesta@student.matanauniversity.ac.id>
+ */
+public class SyntheticData {
+    private final static LocalDate FIRST_DATE = LocalDate.of(2022, 1, 1);
+
+    /**
+     * Rows of <code>medicine_stock</code>
+     * @param rowCount number of rows
+     * @param alias the alias of the table in the query, empty if not aliased
+     */
+    public static SyntheticResultSet medicineStocks(int rowCount, String alias) {
+        String prefix = alias.length() != 0 ? alias + "." : "";
+        return addMedicineStockColumns(new SyntheticResultSet(rowCount), prefix);
+    }
+
+    /**
+     * Rows of <code>medicine_stock a JOIN medicine b JOIN dosage_form c</code>
+     * @param rowCount number of rows
+     */
+    public static SyntheticResultSet medicineStocksJoined(int rowCount) {
+        return addMedicineStockColumns(new SyntheticResultSet(rowCount), "a.")
+                .addColumn("b.brand_name", (row) -> "Brand " + (row % 500))
+                .addColumn("b.generic_name", (row) -> "Generic " + (row % 200))
+                .addColumn("b.medicine_type", (row) -> row % 2 == 0 ? "Generic" : "Patent")
+                .addColumn("c.name", (row) -> "Dosage form " + (row % 20))
+                .addColumn("c.dosage_form_category_id", (row) -> row % 5 + 1);
+    }
+
+    private static SyntheticResultSet addMedicineStockColumns(SyntheticResultSet result, String prefix) {
+        return result
+                .addColumn("id", (row) -> row + 1)
+                .addColumn(prefix + "received_date",
+                        (row) -> Timestamp.valueOf(FIRST_DATE.plusDays(row % 365).atTime(12, 0)))
+                .addColumn(prefix + "exp_date", (row) -> Date.valueOf(FIRST_DATE.plusDays(365 + row % 730)))
+                .addColumn(prefix + "qty_available", (row) -> BigDecimal.valueOf(row % 1000, 2))
+                .addColumn(prefix + "qty_to_dosage_form_multiplier", (row) -> BigDecimal.TEN)
+                .addColumn(prefix + "medicine_id", (row) -> row % 500 + 1)
+                .addColumn(prefix + "batch_number", (row) -> "B" + row)
+                .addColumn(prefix + "dosage_form_id", (row) -> row % 20 + 1)
+                .addColumn(prefix + "qty_unit_id", (row) -> row % 4 + 1)
+                .addColumn(prefix + "purchase_medicine_detail_id", (row) -> row + 1)
+                .addColumn(prefix + "highest_retail_price", (row) -> 1000 + row % 9000);
+    }
+
+    /**
+     * A medicine stock with every table field set
+     */
+    public static MedicineStock medicineStock(int id) {
+        return new MedicineStock(id)
+                .setReceivedDate(FIRST_DATE.atStartOfDay())
+                .setExpDate(FIRST_DATE.plusYears(2))
+                .setQtyAvailable(new BigDecimal("12.5"))
+                .setQtyToDosageFormMultiplier(BigDecimal.TEN)
+                .setMedicineId(7)
+                .setBatchNumber("B" + id)
+                .setDosageFormId(3)
+                .setQtyUnitId(2)
+                .setPurchaseMedicineDetailId(id)
+                .setHighestRetailPrice(15000);
+    }
+}
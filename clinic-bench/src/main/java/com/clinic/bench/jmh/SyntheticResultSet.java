@@ -0,0 +1,86 @@
+package com.clinic.bench.jmh;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.IntFunction;
+
+/**
+ * An in-memory stand-in for a <code>ResultSet</code> so the mapping code can
+ * be measured without a database. The values are generated from the row
+ * number when they are read, so a million rows take no memory.<br>
+ * Only the getters used by the repositories are supported.
+ * 
+ * @author Jose Ryu Leonesta <jose.leonesta@student.matanauniversity.ac.id>
+ */
+public class SyntheticResultSet implements InvocationHandler {
+    private int rowCount;
+    private int row = -1;
+    private Map<String, IntFunction<Object>> columns = new HashMap<>();
+
+    public SyntheticResultSet(int rowCount) {
+        this.rowCount = rowCount;
+    }
+
+    /**
+     * Add a column which value is computed from the row number
+     * @param label the label used to read the column, example: "a.name"
+     * @param value computes the value of a row
+     */
+    public SyntheticResultSet addColumn(String label, IntFunction<Object> value) {
+        columns.put(label, value);
+        return this;
+    }
+
+    /**
+     * Move back before the first row, so the result can be read again
+     */
+    public SyntheticResultSet rewind() {
+        row = -1;
+        return this;
+    }
+
+    public ResultSet asResultSet() {
+        return (ResultSet) Proxy.newProxyInstance(ResultSet.class.getClassLoader(),
+                new Class<?>[] { ResultSet.class }, this);
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) {
+        switch (method.getName()) {
+            case "next":
+                return ++row < rowCount;
+            case "close":
+                return null;
+            case "isClosed":
+                return false;
+            case "getInt":
+                Object number = value(args[0]);
+                return number == null ? 0 : ((Number) number).intValue();
+            case "getString":
+                Object text = value(args[0]);
+                return text == null ? null : text.toString();
+            case "getBigDecimal":
+                return (BigDecimal) value(args[0]);
+            case "getDate":
+                return (Date) value(args[0]);
+            case "getTimestamp":
+                return (Timestamp) value(args[0]);
+            default:
+                throw new UnsupportedOperationException(method.getName());
+        }
+    }
+
+    private Object value(Object label) {
+        IntFunction<Object> column = columns.get(label);
+        if (column == null)
+            throw new IllegalArgumentException("Unknown column " + label);
+        return column.apply(row);
+    }
+}
@@ -0,0 +1,183 @@
+package com.clinic.bench.load;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+
+import com.clinic.ClinicConnection;
+import com.clinic.Cursor;
+import com.clinic.drug.repository.MedicineStockSummary;
+import com.clinic.drug.service.SalesRollup;
+import com.clinic.metrics.MetricsServer;
+import com.clinic.stats.QueryScope;
+import com.clinic.stats.QueryStats;
+
+/**
+ * Replays a mix of clinic operations from simulated users against the local
+ * database, then reports the throughput, latency percentiles and lock waits
+ * of every operation, and the slowest query shapes.<br>
+ * Usage: <code>java -cp clinic-bench/target/benchmarks.jar com.clinic.bench.load.LoadDriver
+ * [--users 20] [--duration 60] [--think 200]
+ * [--mix appointment=30,sell=30,purchase=10,prescription=15,record=15]</code>
+ * <ul>
+ *  <li><code>users</code>: number of simulated users, each with a connection</li>
+ *  <li><code>duration</code>: seconds to run</li>
+ *  <li><code>think</code>: average milliseconds a user waits between operations</li>
+ *  <li><code>mix</code>: relative weight of every operation</li>
+ * </ul>
+ * The run can be scraped by Prometheus with <code>-Dclinic.metrics.port=9404</code>.
+ * 
+ * @author Jose Ryu Leonesta <jose.leonesta@student.matanauniversity.ac.id>
+ */
+public class LoadDriver {
+    private int users = 20;
+    private int durationSeconds = 60;
+    private int thinkMillis = 200;
+    private Map<String, Integer> mix = new LinkedHashMap<>();
+    private Map<String, OperationStats> stats = new LinkedHashMap<>();
+    private Workload workload = new Workload();
+
+    public LoadDriver(String[] args) {
+        mix.put("appointment", 30);
+        mix.put("sell", 30);
+        mix.put("purchase", 10);
+        mix.put("prescription", 15);
+        mix.put("record", 15);
+
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            switch (args[i]) {
+                case "--users":
+                    users = Integer.parseInt(args[i + 1]);
+                    break;
+                case "--duration":
+                    durationSeconds = Integer.parseInt(args[i + 1]);
+                    break;
+                case "--think":
+                    thinkMillis = Integer.parseInt(args[i + 1]);
+                    break;
+                case "--mix":
+                    mix.clear();
+                    for (String weight : args[i + 1].split(",")) {
+                        String[] nameAndWeight = weight.split("=");
+                        mix.put(nameAndWeight[0].trim(), Integer.parseInt(nameAndWeight[1].trim()));
+                    }
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+        for (String operation : mix.keySet())
+            stats.put(operation, new OperationStats(operation));
+    }
+
+    public static void main(String[] args) throws Exception {
+        new LoadDriver(args).run();
+        System.exit(0);
+    }
+
+    public void run() throws Exception {
+        ClinicConnection.connect(users + 1);
+        workload.loadReferenceData();
+        MedicineStockSummary.start();
+        SalesRollup.start();
+        MetricsServer.startFromProperty();
+        Map<String, Long> lockStatusBefore = rowLockStatus();
+
+        System.out.println("Running " + users + " users for " + durationSeconds + "s, mix " + mix);
+        long end = System.nanoTime() + durationSeconds * 1_000_000_000L;
+        CountDownLatch finished = new CountDownLatch(users);
+        for (int i = 0; i < users; i++) {
+            Random random = new Random(i);
+            Thread user = new Thread(() -> {
+                try {
+                    simulateUser(random, end);
+                } finally {
+                    finished.countDown();
+                }
+            }, "clinic-load-user-" + i);
+            user.start();
+        }
+        finished.await();
+
+        Map<String, Long> lockStatusAfter = rowLockStatus();
+        report(lockStatusBefore, lockStatusAfter);
+    }
+
+    private void simulateUser(Random random, long end) {
+        List<String> operations = new ArrayList<>(mix.keySet());
+        int totalWeight = mix.values().stream().mapToInt(Integer::intValue).sum();
+        while (System.nanoTime() < end) {
+            String operation = pickOperation(operations, totalWeight, random);
+            long start = System.nanoTime();
+            try (QueryScope scope = QueryScope.open(operation)) {
+                workload.run(operation, random);
+                stats.get(operation).recordSuccess(System.nanoTime() - start);
+            } catch (Exception e) {
+                stats.get(operation).recordFailure(e);
+            }
+
+            if (thinkMillis > 0) {
+                try {
+                    // Exponential think time, as users act independently
+                    Thread.sleep((long) (-Math.log(1 - random.nextDouble()) * thinkMillis));
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private String pickOperation(List<String> operations, int totalWeight, Random random) {
+        int pick = random.nextInt(totalWeight);
+        for (String operation : operations) {
+            pick -= mix.get(operation);
+            if (pick < 0)
+                return operation;
+        }
+        return operations.get(operations.size() - 1);
+    }
+
+    /**
+     * Read the InnoDB row lock counters of the server
+     */
+    private Map<String, Long> rowLockStatus() {
+        Map<String, Long> status = new HashMap<>();
+        try (Cursor cursor = ClinicConnection.openCursor("SHOW GLOBAL STATUS LIKE 'Innodb_row_lock%';")) {
+            ResultSet result = cursor.getResultSet();
+            while (result.next())
+                status.put(result.getString(1), result.getLong(2));
+        } catch (SQLException e) {
+            System.out.println("Exception caught in LoadDriver.rowLockStatus(): " + e.toString());
+        }
+        return status;
+    }
+
+    private void report(Map<String, Long> lockStatusBefore, Map<String, Long> lockStatusAfter) {
+        System.out.printf("%-14s %9s %9s %9s %9s %9s %9s %9s %7s%n", "operation", "ok", "ops/s", "p50 ms",
+                "p95 ms", "p99 ms", "max ms", "failed", "locks");
+        for (OperationStats operation : stats.values()) {
+            System.out.printf("%-14s %9d %9.1f %9.1f %9.1f %9.1f %9.1f %9d %7d%n", operation.getName(),
+                    operation.getCount(), operation.getCount() / (double) durationSeconds,
+                    operation.getPercentileMillis(50), operation.getPercentileMillis(95),
+                    operation.getPercentileMillis(99), operation.getPercentileMillis(100),
+                    operation.getFailures(), operation.getLockFailures());
+        }
+
+        long waits = lockStatusAfter.getOrDefault("Innodb_row_lock_waits", 0L)
+                - lockStatusBefore.getOrDefault("Innodb_row_lock_waits", 0L);
+        long waitMillis = lockStatusAfter.getOrDefault("Innodb_row_lock_time", 0L)
+                - lockStatusBefore.getOrDefault("Innodb_row_lock_time", 0L);
+        System.out.println("Row lock waits: " + waits + ", total wait " + waitMillis + " ms"
+                + ", max wait " + lockStatusAfter.getOrDefault("Innodb_row_lock_time_max", 0L) + " ms");
+        System.out.println();
+        System.out.println(QueryStats.report(20));
+        System.out.println("Queries repeated more than " + QueryScope.REPEAT_THRESHOLD + " times in an operation:");
+        System.out.println(QueryScope.report(20));
+    }
+}
@@ -0,0 +1,77 @@
+package com.clinic.bench.load;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Latencies and failures of one kind of operation of the load driver
+ * 
+ * @author Jose Ryu Leonesta <jose.leonesta@student.matanauniversity.ac.id>
+ */
+public class OperationStats {
+    /**
+     * MySQL/MariaDB error codes of a lock wait timeout and a deadlock
+     */
+    private final static int LOCK_WAIT_TIMEOUT = 1205, DEADLOCK = 1213;
+
+    private String name;
+    private List<Long> latencies = new ArrayList<>();
+    private int failures = 0;
+    private int lockFailures = 0;
+
+    public OperationStats(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public synchronized void recordSuccess(long latencyNanos) {
+        latencies.add(latencyNanos);
+    }
+
+    /**
+     * Record a failed operation, counting it as a lock failure when it was
+     * caused by a lock wait timeout or a deadlock
+     */
+    public synchronized void recordFailure(Exception e) {
+        failures++;
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SQLException) {
+                int errorCode = ((SQLException) cause).getErrorCode();
+                if (errorCode == LOCK_WAIT_TIMEOUT || errorCode == DEADLOCK) {
+                    lockFailures++;
+                    break;
+                }
+            }
+        }
+    }
+
+    public synchronized int getCount() {
+        return latencies.size();
+    }
+
+    public synchronized int getFailures() {
+        return failures;
+    }
+
+    public synchronized int getLockFailures() {
+        return lockFailures;
+    }
+
+    /**
+     * Get a latency percentile in milliseconds
+     * @param percentile between 0 and 100
+     */
+    public synchronized double getPercentileMillis(double percentile) {
+        if (latencies.isEmpty())
+            return 0;
+        List<Long> sorted = new ArrayList<>(latencies);
+        Collections.sort(sorted);
+        int index = (int) Math.ceil(percentile / 100 * sorted.size()) - 1;
+        return sorted.get(Math.max(0, Math.min(index, sorted.size() - 1))) / 1e6;
+    }
+}
@@ -0,0 +1,217 @@
+package com.clinic.bench.load;
+
+import java.math.BigDecimal;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import com.clinic.Pagination;
+import com.clinic.abstracts.AbstractEntity;
+import com.clinic.abstracts.AbstractEntityRepository;
+import com.clinic.doctor.domain.MedicalRecord;
+import com.clinic.doctor.repository.MedicalRecordRepository;
+import com.clinic.drug.domain.BaseTransactionDetail;
+import com.clinic.drug.domain.MedicineStock;
+import com.clinic.drug.domain.PrescriptionHeader;
+import com.clinic.drug.domain.PrescriptionIngredient;
+import com.clinic.drug.domain.PrescriptionRecipe;
+import com.clinic.drug.domain.PurchaseMedicineDetail;
+import com.clinic.drug.domain.PurchaseMedicineHeader;
+import com.clinic.drug.domain.SellMedicineHeader;
+import com.clinic.drug.repository.DosageFormRepository;
+import com.clinic.drug.repository.MedicineRepository;
+import com.clinic.drug.repository.MedicineStockRepository;
+import com.clinic.drug.repository.QtyUnitRepository;
+import com.clinic.drug.service.MedicineTransactionService;
+import com.clinic.drug.service.PrescriptionService;
+import com.clinic.drug.service.StockAllocator;
+import com.clinic.factories.EntityRepositoryFactory;
+import com.clinic.receptionist.domain.Appointment;
+import com.clinic.receptionist.repository.AppointmentRepository;
+import com.clinic.receptionist.repository.DoctorRepository;
+import com.clinic.receptionist.repository.PatientRepository;
+
+/**
+ * The operations simulated by the load driver. They go through the same
+ * repositories and services as the screens doing them:
+ * <ul>
+ *  <li><code>appointment</code>: a receptionist registers an appointment</li>
+ *  <li><code>sell</code>: a pharmacist sells medicines from the stock</li>
+ *  <li><code>purchase</code>: a pharmacist restocks medicines</li>
+ *  <li><code>prescription</code>: a doctor writes a prescription</li>
+ *  <li><code>record</code>: a doctor writes a medical record</li>
+ * </ul>
+ * 
+ * @author Jose Ryu Leonesta <jose.leonesta@student.matanauniversity.ac.id>
+ */
+public class Workload {
+    public final static String[] OPERATIONS = { "appointment", "sell", "purchase", "prescription", "record" };
+    private final static int REFERENCE_ROWS = 1000;
+
+    private List<Integer> doctorIds, patientIds, medicineIds, stockIds, dosageFormIds, qtyUnitIds;
+
+    /**
+     * Load the ids of the records the operations refer to, the first
+     * <code>REFERENCE_ROWS</code> of every table
+     */
+    public void loadReferenceData() throws SQLException {
+        doctorIds = ids(DoctorRepository.class);
+        patientIds = ids(PatientRepository.class);
+        medicineIds = ids(MedicineRepository.class);
+        stockIds = ids(MedicineStockRepository.class);
+        dosageFormIds = ids(DosageFormRepository.class);
+        qtyUnitIds = ids(QtyUnitRepository.class);
+        System.out.println("Reference data: " + doctorIds.size() + " doctors, " + patientIds.size() + " patients, "
+                + medicineIds.size() + " medicines, " + stockIds.size() + " stocks");
+        if (doctorIds.isEmpty() || patientIds.isEmpty() || medicineIds.isEmpty() || stockIds.isEmpty()
+                || dosageFormIds.isEmpty() || qtyUnitIds.isEmpty())
+            throw new IllegalStateException("The database has no doctors, patients, medicines, stocks, "
+                    + "dosage forms or quantity units to refer to");
+    }
+
+    private <T extends AbstractEntity> List<Integer> ids(
+            Class<? extends AbstractEntityRepository<T>> repositoryClass) throws SQLException {
+        List<Integer> ids = new ArrayList<>();
+        for (T entity : EntityRepositoryFactory.getRepository(repositoryClass)
+                .get(new Pagination().setRecordsPerPage(REFERENCE_ROWS)))
+            ids.add(entity.getId());
+        return ids;
+    }
+
+    /**
+     * Run one operation
+     * @param operation one of <code>OPERATIONS</code>
+     */
+    public void run(String operation, Random random) throws SQLException {
+        switch (operation) {
+            case "appointment":
+                createAppointment(random);
+                break;
+            case "sell":
+                sell(random);
+                break;
+            case "purchase":
+                purchase(random);
+                break;
+            case "prescription":
+                createPrescription(random);
+                break;
+            case "record":
+                createMedicalRecord(random);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown operation " + operation);
+        }
+    }
+
+    private void createAppointment(Random random) throws SQLException {
+        Appointment appointment = new Appointment()
+                .setDoctorId(pick(doctorIds, random))
+                .setPatientId(pick(patientIds, random))
+                .setAppointmentDateTime(LocalDateTime.now().plusMinutes(random.nextInt(7 * 24 * 60)))
+                .setCategory(Appointment.APPOINTMENT)
+                .setStatus(Appointment.NOT_PRESENT);
+        EntityRepositoryFactory.getRepository(AppointmentRepository.class).create(appointment);
+    }
+
+    private void sell(Random random) throws SQLException {
+        Map<BaseTransactionDetail, MedicineStock> details = new LinkedHashMap<>();
+        int detailCount = 1 + random.nextInt(3);
+        for (int i = 0; i < detailCount; i++) {
+            int medicineId = pick(medicineIds, random);
+            List<MedicineStock> stocks = StockAllocator.getAvailableStocks(medicineId);
+            if (stocks.isEmpty())
+                continue;
+            BigDecimal qty = BigDecimal.valueOf(1 + random.nextInt(3));
+            try {
+                details.putAll(StockAllocator.allocate(medicineId, qty, stocks.get(0).getHighestRetailPrice(),
+                        details.keySet()));
+            } catch (SQLException e) {
+                // Not enough stock left of the medicine, it is not sold
+            }
+        }
+
+        SellMedicineHeader header = new SellMedicineHeader();
+        header.setPrescriptionHeaderId(0);
+        header.setPurchaseDate(LocalDate.now());
+        MedicineTransactionService.saveSell(header, details);
+    }
+
+    private void purchase(Random random) throws SQLException {
+        Map<BaseTransactionDetail, MedicineStock> details = new LinkedHashMap<>();
+        int detailCount = 1 + random.nextInt(5);
+        for (int i = 0; i < detailCount; i++) {
+            BigDecimal qty = BigDecimal.valueOf(10 + random.nextInt(90));
+            int price = 1000 + random.nextInt(50) * 500;
+            PurchaseMedicineDetail detail = new PurchaseMedicineDetail();
+            detail.setPricePerUnit(price);
+            detail.setQty(qty);
+            MedicineStock stock = new MedicineStock()
+                    .setReceivedDate(LocalDateTime.now())
+                    .setExpDate(LocalDate.now().plusDays(90 + random.nextInt(700)))
+                    .setQtyAvailable(qty)
+                    .setQtyToDosageFormMultiplier(BigDecimal.ONE)
+                    .setMedicineId(pick(medicineIds, random))
+                    .setBatchNumber("LOAD-" + random.nextInt(1000000))
+                    .setDosageFormId(pick(dosageFormIds, random))
+                    .setQtyUnitId(pick(qtyUnitIds, random))
+                    .setHighestRetailPrice(price * 2);
+            details.put(detail, stock);
+        }
+
+        PurchaseMedicineHeader header = new PurchaseMedicineHeader();
+        header.setPurchaseDate(LocalDate.now());
+        MedicineTransactionService.savePurchase(header, details);
+    }
+
+    private void createPrescription(Random random) throws SQLException {
+        PrescriptionHeader header = new PrescriptionHeader()
+                .setCreatedDate(LocalDate.now())
+                .setDoctorId(pick(doctorIds, random))
+                .setPatientId(pick(patientIds, random))
+                .setMedicalRecordId(0);
+
+        Map<PrescriptionRecipe, List<PrescriptionIngredient>> recipes = new LinkedHashMap<>();
+        int recipeCount = 1 + random.nextInt(3);
+        for (int i = 0; i < recipeCount; i++) {
+            PrescriptionRecipe recipe = new PrescriptionRecipe()
+                    .setUsageInstruction("3 times a day")
+                    .setLatinUsageInstruction("t.d.d.")
+                    .setLatinMakingInstruction("m.f.")
+                    .setExpDate(LocalDate.now().plusDays(30))
+                    .setQty(BigDecimal.valueOf(10))
+                    .setRecipeType(PrescriptionRecipe.GENERIC_TYPE)
+                    .setDosageFormId(pick(dosageFormIds, random))
+                    .setQtyUnitId(pick(qtyUnitIds, random));
+            List<PrescriptionIngredient> ingredients = new ArrayList<>();
+            int ingredientCount = 1 + random.nextInt(3);
+            for (int j = 0; j < ingredientCount; j++) {
+                ingredients.add(new PrescriptionIngredient()
+                        .setQty(BigDecimal.ONE)
+                        .setMedicineStockId(pick(stockIds, random)));
+            }
+            recipes.put(recipe, ingredients);
+        }
+        PrescriptionService.save(header, recipes);
+    }
+
+    private void createMedicalRecord(Random random) throws SQLException {
+        MedicalRecord record = new MedicalRecord()
+                .setPatientId(pick(patientIds, random))
+                .setDoctorId(pick(doctorIds, random))
+                .setPrescriptionHeaderId(0)
+                .setSymptom("Fever and cough")
+                .setTreatment("Rest and fluids")
+                .setCheckUpDate(LocalDate.now());
+        EntityRepositoryFactory.getRepository(MedicalRecordRepository.class).create(record);
+    }
+
+    private static Integer pick(List<Integer> ids, Random random) {
+        return ids.get(random.nextInt(ids.size()));
+    }
+}
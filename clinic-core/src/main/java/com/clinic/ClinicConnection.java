@@ -0,0 +1,539 @@
+package com.clinic;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.clinic.stats.DatabaseQueryEvent;
+import com.clinic.stats.QueryScope;
+import com.clinic.stats.QueryShape;
+import com.clinic.stats.QueryStats;
+
+/**
+ * This is the connection for the database with the table name "clinic" that
+ * connects to a mariadb server.<br>
+ * A small pool of connections is opened, every thread is bound to one of them
+ * so the JavaFX Application Thread and the database executor do not wait for
+ * each other's queries. The threads of an <code>ExecutionLane</code> have
+ * connections of their own.<br>
+ * The reads run by <code>readFromReplica()</code> may go to the read replica
+ * of <code>ReplicaRouter</code>, all the other queries go to the primary.
+ * 
+ * @author Jose Ryu Leonesta <jose.leonesta@student.matanauniversity.ac.id>
+ */
+public class ClinicConnection {
+    public final static int POOL_SIZE = 3;
+    /**
+     * The idle connections kept for the transactions of the threads sharing
+     * a connection of the pool, set by the
+     * <code>clinic.db.transactionPoolSize</code> system property
+     */
+    public final static int TRANSACTION_POOL_SIZE = Integer.getInteger("clinic.db.transactionPoolSize", POOL_SIZE);
+    private final static String URL = "jdbc:mysql://localhost:3307/clinic";
+    final static String USER = "root";
+    final static String PASSWORD = "RoseCat21*";
+    private static volatile List<Connection> pool = new ArrayList<>();
+    private static AtomicInteger nextConnection = new AtomicInteger();
+    private static ThreadLocal<Connection> threadConnection = new ThreadLocal<>();
+    private static Deque<Connection> idleTransactionConnections = new ConcurrentLinkedDeque<>();
+    private static Map<Connection, Map<String, PreparedStatement>> transactionStatements = new ConcurrentHashMap<>();
+    private static ThreadLocal<Map<String, PreparedStatement>> preparedStatements = ThreadLocal
+            .withInitial(HashMap::new);
+    private static ThreadLocal<Integer> queryTimeoutSeconds = ThreadLocal.withInitial(() -> 0);
+    private static ThreadLocal<Boolean> replicaReads = ThreadLocal.withInitial(() -> false);
+    private static ThreadLocal<Boolean> ownConnection = ThreadLocal.withInitial(() -> false);
+    private static ThreadLocal<List<Runnable>> commitActions = new ThreadLocal<>();
+    private static ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+            new LinkedBlockingQueue<>(), (runnable) -> {
+                Thread thread = new Thread(runnable, "clinic-db");
+                thread.setDaemon(true);
+                return thread;
+            }) {
+        @Override
+        public void execute(Runnable command) {
+            super.execute(QueryScope.propagate(command));
+        }
+    };
+    private static Map<Thread, Statement> runningStatements = new ConcurrentHashMap<>();
+    private static Map<Thread, String> runningQueries = new ConcurrentHashMap<>();
+
+    /**
+     * Open the connections of the pool in parallel
+     */
+    public static void connect() {
+        connect(POOL_SIZE);
+    }
+
+    /**
+     * Open a pool of <code>poolSize</code> connections in parallel. Headless
+     * tools running many threads use one connection per thread.
+     * @param poolSize number of connections
+     */
+    public static void connect(int poolSize) {
+        List<CompletableFuture<Connection>> openings = new ArrayList<>();
+        for (int i = 0; i < poolSize; i++) {
+            openings.add(CompletableFuture.supplyAsync(() -> {
+                try {
+                    return openConnection();
+                } catch (SQLException e) {
+                    throw new CompletionException(e);
+                }
+            }));
+        }
+
+        try {
+            List<Connection> connections = new ArrayList<>();
+            for (CompletableFuture<Connection> opening : openings)
+                connections.add(opening.join());
+            pool = connections;
+        } catch (CompletionException e) {
+            System.out.println(e.getCause().getMessage());
+            System.out.println("Failed to connect to database, exiting...");
+            System.exit(1);
+        }
+        ReplicaRouter.connect(poolSize);
+    }
+
+    /**
+     * Run a trivial query on every connection of the pool so the first real
+     * queries do not pay for the connection setup
+     */
+    public static void warmUp() throws SQLException {
+        for (Connection connection : pool) {
+            try (Statement statement = connection.createStatement()) {
+                statement.executeQuery("SELECT 1;").close();
+            }
+        }
+    }
+
+    /**
+     * Open a new connection outside the pool
+     */
+    static Connection openConnection() throws SQLException {
+        return DriverManager.getConnection(URL, USER, PASSWORD);
+    }
+
+    /**
+     * Bind a connection to the current thread instead of a connection of the
+     * pool, the prepared statements of the previous connection are dropped
+     * @param connection the connection, <code>null</code> to go back to the pool
+     */
+    static void bindConnection(Connection connection) {
+        preparedStatements.remove();
+        ownConnection.set(connection != null);
+        if (connection != null)
+            threadConnection.set(connection);
+        else
+            threadConnection.remove();
+    }
+
+    /**
+     * Run a call in a database transaction: its writes are committed
+     * together, or rolled back together when it throws. A thread sharing a
+     * connection of the pool runs the transaction on a transaction connection
+     * so the other threads' queries do not join it, up to
+     * <code>TRANSACTION_POOL_SIZE</code> of them are kept idle between
+     * transactions. A transaction inside a
+     * transaction joins the outer one.
+     * @param call the call
+     * @return the result of the call
+     */
+    public static <R> R inTransaction(DatabaseCall<R> call) throws SQLException {
+        if (isInTransaction())
+            return call.run();
+
+        boolean shared = !ownConnection.get();
+        Connection previousConnection = threadConnection.get();
+        Map<String, PreparedStatement> previousStatements = preparedStatements.get();
+        Connection connection = shared ? takeTransactionConnection() : getConnection();
+        if (shared) {
+            threadConnection.set(connection);
+            preparedStatements.set(transactionStatements.computeIfAbsent(connection, (key) -> new HashMap<>()));
+        }
+
+        List<Runnable> actions = new ArrayList<>();
+        commitActions.set(actions);
+        R result;
+        Exception failure = null;
+        try {
+            connection.setAutoCommit(false);
+            result = call.run();
+            connection.commit();
+        } catch (SQLException | RuntimeException e) {
+            failure = e;
+            try {
+                connection.rollback();
+            } catch (SQLException rollbackException) {
+                e.addSuppressed(rollbackException);
+            }
+            throw e;
+        } finally {
+            commitActions.remove();
+            if (shared) {
+                threadConnection.set(previousConnection);
+                preparedStatements.set(previousStatements);
+                releaseTransactionConnection(connection);
+            } else {
+                restoreAutoCommit(connection, failure);
+            }
+        }
+
+        for (Runnable action : actions)
+            action.run();
+        return result;
+    }
+
+    /**
+     * Put the connection of the current thread back in auto commit after a
+     * transaction. A connection that fails to is closed and the thread goes
+     * back to the pool, the failure is added to the failure of the
+     * transaction, or logged if it was committed.
+     */
+    private static void restoreAutoCommit(Connection connection, Exception failure) {
+        try {
+            connection.setAutoCommit(true);
+            return;
+        } catch (SQLException e) {
+            if (failure != null)
+                failure.addSuppressed(e);
+            else
+                System.out.println("Exception caught in ClinicConnection.inTransaction(): " + e.toString());
+        }
+        bindConnection(null);
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            System.out.println("Exception caught in ClinicConnection.inTransaction(): " + e.toString());
+        }
+    }
+
+    /**
+     * Tell whether the current thread is running a transaction of
+     * <code>inTransaction()</code>
+     */
+    public static boolean isInTransaction() {
+        return commitActions.get() != null;
+    }
+
+    /**
+     * Run an action once the transaction of the current thread is committed,
+     * it is dropped if the transaction is rolled back. Outside a transaction
+     * the action runs at once.
+     * @param action the action
+     */
+    public static void afterCommit(Runnable action) {
+        List<Runnable> actions = commitActions.get();
+        if (actions != null)
+            actions.add(action);
+        else
+            action.run();
+    }
+
+    /**
+     * Set the time the queries of the current thread may run before they are
+     * cancelled by the driver
+     * @param seconds the timeout, 0 for no timeout
+     */
+    public static void setQueryTimeout(int seconds) {
+        queryTimeoutSeconds.set(seconds);
+    }
+
+    /**
+     * Get the query timeout of the current thread in seconds, 0 for no timeout
+     */
+    public static int getQueryTimeout() {
+        return queryTimeoutSeconds.get();
+    }
+
+    /**
+     * Run a call whose reads may go to the read replica, such as a listing,
+     * a search or a report. The reads go to the primary when no replica is
+     * configured, when it lags behind or right after a write. Prepared
+     * statements and writes in the call still go to the primary.
+     * @param call the call
+     * @return the result of the call
+     */
+    public static <R> R readFromReplica(DatabaseCall<R> call) throws SQLException {
+        boolean previous = replicaReads.get();
+        replicaReads.set(true);
+        try {
+            return call.run();
+        } finally {
+            replicaReads.set(previous);
+        }
+    }
+
+    /**
+     * Get the connection for a read of the current thread, the replica
+     * connection inside <code>readFromReplica()</code> when it can be used
+     */
+    private static Connection getReadConnection() throws SQLException {
+        if (replicaReads.get() && ReplicaRouter.isConfigured()) {
+            Connection connection = ReplicaRouter.connectionForRead();
+            if (connection != null)
+                return connection;
+        }
+        return getConnection();
+    }
+
+    /**
+     * Get the connection bound to the current thread, a thread is bound to a
+     * connection of the pool on its first query
+     * @throws SQLException if the pool is not connected yet
+     */
+    protected static Connection getConnection() throws SQLException {
+        Connection connection = threadConnection.get();
+        if (connection != null)
+            return connection;
+
+        List<Connection> connections = pool;
+        if (connections.isEmpty())
+            throw new SQLException("Not connected to the database, connect() has not completed");
+        connection = connections.get(Math.floorMod(nextConnection.getAndIncrement(), connections.size()));
+        threadConnection.set(connection);
+        return connection;
+    }
+
+    /**
+     * Get an idle transaction connection, or open one
+     */
+    private static Connection takeTransactionConnection() throws SQLException {
+        Connection connection;
+        while ((connection = idleTransactionConnections.pollFirst()) != null) {
+            if (connection.isValid(1))
+                return connection;
+            closeTransactionConnection(connection);
+        }
+        return openConnection();
+    }
+
+    /**
+     * Keep a transaction connection for the next transaction, or close it if
+     * enough are kept
+     */
+    private static void releaseTransactionConnection(Connection connection) {
+        try {
+            if (!connection.isClosed() && idleTransactionConnections.size() < TRANSACTION_POOL_SIZE) {
+                idleTransactionConnections.offerFirst(connection);
+                return;
+            }
+        } catch (SQLException e) {
+            System.out.println("Exception caught in ClinicConnection.releaseTransactionConnection(): " + e.toString());
+        }
+        closeTransactionConnection(connection);
+    }
+
+    private static void closeTransactionConnection(Connection connection) {
+        transactionStatements.remove(connection);
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            System.out.println("Exception caught in ClinicConnection.closeTransactionConnection(): " + e.toString());
+        }
+    }
+
+    /**
+     * Get a prepared statement of the current thread's connection, the
+     * statement is prepared once per thread and then reused
+     * @param sqlQuery the query with <code>?</code> parameters
+     */
+    public static PreparedStatement prepare(String sqlQuery) throws SQLException {
+        Map<String, PreparedStatement> statements = preparedStatements.get();
+        PreparedStatement statement = statements.get(sqlQuery);
+        if (statement == null || statement.isClosed()) {
+            statement = getConnection().prepareStatement(sqlQuery);
+            statements.put(sqlQuery, statement);
+        }
+        return statement;
+    }
+
+    /**
+     * Get the executor for running database work in the background, so it
+     * does not block the JavaFX Application Thread. The tasks run in the
+     * <code>QueryScope</code> of the thread submitting them.
+     */
+    public static ExecutorService getExecutor() {
+        return executor;
+    }
+
+    /**
+     * Get the number of connections in the pool
+     */
+    public static int getPoolSize() {
+        return pool.size();
+    }
+
+    /**
+     * Get the number of queries waiting for the database right now
+     */
+    public static int getRunningQueryCount() {
+        return runningQueries.size();
+    }
+
+    /**
+     * Get the queries waiting for the database right now by the thread
+     * running them
+     */
+    public static Map<Thread, String> getRunningQueries() {
+        return new HashMap<>(runningQueries);
+    }
+
+    /**
+     * Get the number of tasks waiting for the database executor
+     */
+    public static int getExecutorQueueLength() {
+        return executor.getQueue().size();
+    }
+
+    /**
+     * Excecute <code>sqlQuery</code> to the clinic database
+     * @param sqlQuery
+     * @return <code>Cursor</code> over the result of the query, which must be
+     * closed
+     */
+    public static Cursor openCursor(String sqlQuery) throws SQLException {
+        Connection connection = getReadConnection();
+        Statement statement = connection.createStatement();
+        statement.setQueryTimeout(getQueryTimeout());
+        runningStatements.put(Thread.currentThread(), statement);
+        try {
+            ResultSet resultSet = timed(sqlQuery, () -> statement.executeQuery(sqlQuery));
+            return new Cursor(connection, statement, true, resultSet, sqlQuery);
+        } catch (SQLException | RuntimeException e) {
+            statement.close();
+            throw e;
+        } finally {
+            runningStatements.remove(Thread.currentThread(), statement);
+        }
+    }
+
+    /**
+     * Excecute a prepared statement returned by <code>prepare()</code>. The
+     * statement is kept open for reuse when the cursor is closed.
+     * @param statement the statement with its parameters set
+     * @param sqlQuery the query of the statement, for the statistics
+     * @return <code>Cursor</code> over the result of the query, which must be
+     * closed
+     */
+    public static Cursor openCursor(PreparedStatement statement, String sqlQuery) throws SQLException {
+        statement.setQueryTimeout(getQueryTimeout());
+        runningStatements.put(Thread.currentThread(), statement);
+        try {
+            ResultSet resultSet = timed(sqlQuery, statement::executeQuery);
+            return new Cursor(statement.getConnection(), statement, false, resultSet, sqlQuery);
+        } finally {
+            runningStatements.remove(Thread.currentThread(), statement);
+        }
+    }
+
+    /**
+     * Cancel the query that <code>thread</code> is waiting for, the query
+     * throws a <code>SQLException</code> in that thread
+     * @param thread the thread running the query
+     */
+    public static void cancelRunningQuery(Thread thread) {
+        Statement statement = runningStatements.get(thread);
+        if (statement == null)
+            return;
+
+        try {
+            statement.cancel();
+        } catch (SQLException e) {
+            System.out.println("Exception caught in ClinicConnection.cancelRunningQuery(): " + e.toString());
+        }
+    }
+
+    /**
+     * Excecute <code>sqlQuery</code> to the clinic database
+     * @param sqlQuery
+     * @return <code>Boolean</code> representing successfully excecuted or not
+     */
+    public static Boolean execute(String sqlQuery) throws SQLException {
+        try (Statement statement = getConnection().createStatement()) {
+            statement.setQueryTimeout(getQueryTimeout());
+            runningStatements.put(Thread.currentThread(), statement);
+            try {
+                timed(sqlQuery, () -> statement.execute(sqlQuery));
+            } finally {
+                runningStatements.remove(Thread.currentThread(), statement);
+            }
+            ReplicaRouter.recordWrite();
+            return statement.getUpdateCount() > 0;
+        }
+    }
+
+    /**
+     * Excecute <code>sqlQuery</code> to the clinic database
+     * @param sqlQuery
+     * @return <code>Integer</code> representing the created key
+     */
+    public static Integer executeInsert(String sqlQuery) throws SQLException {
+        try (PreparedStatement statement = getConnection().prepareStatement(sqlQuery,
+                Statement.RETURN_GENERATED_KEYS)) {
+            statement.setQueryTimeout(getQueryTimeout());
+            runningStatements.put(Thread.currentThread(), statement);
+            try {
+                timed(sqlQuery, statement::execute);
+            } finally {
+                runningStatements.remove(Thread.currentThread(), statement);
+            }
+            ReplicaRouter.recordWrite();
+            try (ResultSet generatedKeys = statement.getGeneratedKeys()) {
+                if (generatedKeys.next())
+                    return generatedKeys.getInt(1);
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * Run a call to the database driver, counting it in the current
+     * <code>QueryScope</code> and recording its time into
+     * <code>QueryStats</code> and a <code>DatabaseQueryEvent</code>
+     * @param sqlQuery the query run by the call
+     * @param call the call
+     */
+    private static <R> R timed(String sqlQuery, DatabaseCall<R> call) throws SQLException {
+        QueryScope.recordQuery(sqlQuery);
+        DatabaseQueryEvent event = new DatabaseQueryEvent();
+        event.begin();
+        runningQueries.put(Thread.currentThread(), sqlQuery);
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            R result = call.run();
+            failed = false;
+            return result;
+        } finally {
+            runningQueries.remove(Thread.currentThread());
+            QueryStats.recordQuery(sqlQuery, System.nanoTime() - start, failed);
+            event.end();
+            if (event.shouldCommit()) {
+                event.shape = QueryShape.normalize(sqlQuery);
+                event.failed = failed;
+                event.commit();
+            }
+        }
+    }
+
+    public interface DatabaseCall<R> {
+        R run() throws SQLException;
+    }
+}
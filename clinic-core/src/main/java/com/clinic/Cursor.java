@@ -0,0 +1,76 @@
+package com.clinic;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * The result of a query together with the statement and the connection that
+ * produced it. Closing the cursor closes the result set and, unless it is a
+ * reused prepared statement, the statement, so it should always be opened in
+ * a try-with-resources block:
+ * <pre>
+ * try (Cursor cursor = openCursor("SELECT ...")) {
+ *     ResultSet result = cursor.getResultSet();
+ *     ...
+ * }
+ * </pre>
+ * A cursor that is never closed is reported by <code>CursorTracker</code>.
+ *
+ * @author Jose Ryu Leonesta <jose.leonesta@student.matanauniversity.ac.id>
+ */
+public class Cursor implements AutoCloseable {
+    private final Connection connection;
+    private final Statement statement;
+    private final ResultSet resultSet;
+    private final CursorTracker.Registration registration;
+
+    /**
+     * @param connection the connection the query ran on
+     * @param statement the statement that ran the query
+     * @param ownsStatement whether closing the cursor closes the statement
+     * @param resultSet the result of the query
+     * @param sqlQuery the query, for the leak reports
+     */
+    Cursor(Connection connection, Statement statement, boolean ownsStatement, ResultSet resultSet,
+            String sqlQuery) {
+        this.connection = connection;
+        this.statement = statement;
+        this.resultSet = resultSet;
+        this.registration = CursorTracker.register(this, ownsStatement ? statement : null, resultSet, sqlQuery);
+    }
+
+    public ResultSet getResultSet() {
+        return resultSet;
+    }
+
+    public Statement getStatement() {
+        return statement;
+    }
+
+    public Connection getConnection() {
+        return connection;
+    }
+
+    /**
+     * Move to the next row of the result
+     * @return <code>false</code> if there are no more rows
+     */
+    public boolean next() throws SQLException {
+        return resultSet.next();
+    }
+
+    public boolean isClosed() {
+        return registration.isClosed();
+    }
+
+    /**
+     * Close the result set and the statement if it is owned by the cursor,
+     * closing it again does nothing
+     */
+    @Override
+    public void close() {
+        registration.close();
+    }
+}
@@ -0,0 +1,145 @@
+package com.clinic;
+
+import java.lang.ref.Cleaner;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps track of the open cursors. A cursor that is garbage collected without
+ * being closed is a leak: it is reported, and its result set and statement are
+ * closed.<br>
+ * In debug mode, enabled by the <code>clinic.cursor.debug</code> system
+ * property, the stack trace where every cursor was opened is kept and printed
+ * with the leak, and <code>reportOpen()</code> shows where the open cursors
+ * were opened.
+ *
+ * @author Jose Ryu Leonesta <jose.leonesta@student.matanauniversity.ac.id>
+ */
+public class CursorTracker {
+    public final static boolean DEBUG = Boolean.getBoolean("clinic.cursor.debug");
+
+    private static Cleaner cleaner = Cleaner.create((runnable) -> {
+        Thread thread = new Thread(runnable, "clinic-cursor-cleaner");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private static Map<Registration, Boolean> openCursors = new ConcurrentHashMap<>();
+    private static AtomicLong leaks = new AtomicLong();
+
+    /**
+     * Track a new cursor
+     * @param cursor the cursor
+     * @param statement the statement to close with the cursor, <code>null</code>
+     * if the statement is reused
+     * @param resultSet the result set to close with the cursor
+     * @param sqlQuery the query of the cursor
+     */
+    static Registration register(Cursor cursor, Statement statement, ResultSet resultSet, String sqlQuery) {
+        Registration registration = new Registration(statement, resultSet, sqlQuery,
+                DEBUG ? new Throwable("Cursor opened on " + Thread.currentThread().getName()) : null);
+        registration.cleanable = cleaner.register(cursor, registration);
+        openCursors.put(registration, Boolean.TRUE);
+        return registration;
+    }
+
+    /**
+     * Get the number of cursors not closed yet
+     */
+    public static int getOpenCount() {
+        return openCursors.size();
+    }
+
+    /**
+     * Get the number of cursors garbage collected without being closed
+     */
+    public static long getLeakCount() {
+        return leaks.get();
+    }
+
+    /**
+     * Describe the open cursors, oldest first, with the stack trace where
+     * they were opened in debug mode
+     */
+    public static String reportOpen() {
+        List<Registration> registrations = new ArrayList<>(openCursors.keySet());
+        registrations.sort(Comparator.comparingLong((registration) -> registration.openedAt));
+        StringBuilder report = new StringBuilder(registrations.size() + " open cursors").append(System.lineSeparator());
+        for (Registration registration : registrations) {
+            report.append(registration.describe());
+        }
+        return report.toString();
+    }
+
+    /**
+     * The resources of a cursor, closed either by the cursor or by the
+     * cleaner when the cursor is leaked. It must not reference the cursor.
+     */
+    static class Registration implements Runnable {
+        private final Statement statement;
+        private final ResultSet resultSet;
+        private final String sqlQuery;
+        private final Throwable openedBy;
+        private final long openedAt = System.nanoTime();
+        private Cleaner.Cleanable cleanable;
+        private volatile boolean closedByCursor = false;
+        private volatile boolean closed = false;
+
+        private Registration(Statement statement, ResultSet resultSet, String sqlQuery, Throwable openedBy) {
+            this.statement = statement;
+            this.resultSet = resultSet;
+            this.sqlQuery = sqlQuery;
+            this.openedBy = openedBy;
+        }
+
+        void close() {
+            closedByCursor = true;
+            cleanable.clean();
+        }
+
+        boolean isClosed() {
+            return closed;
+        }
+
+        /**
+         * Close the resources, called once either by <code>close()</code>
+         * or by the cleaner
+         */
+        @Override
+        public void run() {
+            closed = true;
+            openCursors.remove(this);
+            if (!closedByCursor) {
+                leaks.incrementAndGet();
+                System.out.print("Cursor leaked, it was never closed: " + describe());
+            }
+
+            try {
+                if (resultSet != null)
+                    resultSet.close();
+                if (statement != null)
+                    statement.close();
+            } catch (SQLException e) {
+                System.out.println("Exception caught in CursorTracker.Registration.run(): " + e.toString());
+            }
+        }
+
+        private String describe() {
+            StringBuilder description = new StringBuilder(sqlQuery).append(" (opened ")
+                    .append(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - openedAt)).append(" ms ago)")
+                    .append(System.lineSeparator());
+            if (openedBy != null) {
+                for (StackTraceElement frame : openedBy.getStackTrace())
+                    description.append("    at ").append(frame).append(System.lineSeparator());
+            }
+            return description.toString();
+        }
+    }
+}
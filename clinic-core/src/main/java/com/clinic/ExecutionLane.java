@@ -0,0 +1,173 @@
+package com.clinic;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.clinic.stats.QueryScope;
+
+/**
+ * A bounded lane of database work for one module of the clinic, so a slow
+ * module cannot starve the others. A lane runs at most <code>threads</code>
+ * tasks at a time, queues at most <code>queueCapacity</code> more and rejects
+ * the rest with a <code>RejectedExecutionException</code>.<br>
+ * Every thread of a lane has its own connection, opened when the thread
+ * starts and closed when it has been idle for <code>IDLE_SECONDS</code>, and
+ * the queries of the lane are cancelled by the driver after the timeout of
+ * the lane.
+ *
+ * @author Jose Ryu Leonesta <jose.leonesta@student.matanauniversity.ac.id>
+ */
+public class ExecutionLane implements Executor {
+    public final static int IDLE_SECONDS = 60;
+
+    public final static ExecutionLane RECEPTIONIST = new ExecutionLane("receptionist", 2, 50, 15),
+            DOCTOR = new ExecutionLane("doctor", 2, 50, 15),
+            PHARMACY = new ExecutionLane("pharmacy", 2, 50, 10),
+            REPORTING = new ExecutionLane("reporting", 1, 10, 120);
+    public final static List<ExecutionLane> LANES = Arrays.asList(RECEPTIONIST, DOCTOR, PHARMACY, REPORTING);
+
+    private final String name;
+    private final int queryTimeoutSeconds;
+    private final ThreadPoolExecutor executor;
+    private final AtomicLong rejected = new AtomicLong();
+
+    /**
+     * @param name the name of the lane, example: "pharmacy"
+     * @param threads the number of tasks run at a time
+     * @param queueCapacity the number of tasks waiting at most
+     * @param queryTimeoutSeconds the query timeout of the tasks, 0 for none
+     */
+    public ExecutionLane(String name, int threads, int queueCapacity, int queryTimeoutSeconds) {
+        this.name = name;
+        this.queryTimeoutSeconds = queryTimeoutSeconds;
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, IDLE_SECONDS, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), (runnable) -> {
+                    Thread thread = new Thread(() -> runWithOwnConnection(runnable),
+                            "clinic-" + name + "-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Get the lane of a module by the package of its class, the pharmacy
+     * lane for classes outside the modules
+     * @param packageName example: "com.clinic.receptionist.controller"
+     */
+    public static ExecutionLane forPackage(String packageName) {
+        if (packageName.startsWith("com.clinic.receptionist"))
+            return RECEPTIONIST;
+        if (packageName.startsWith("com.clinic.doctor"))
+            return DOCTOR;
+        return PHARMACY;
+    }
+
+    /**
+     * Run a task in the lane, in the <code>QueryScope</code> of the caller
+     * @throws RejectedExecutionException when the queue of the lane is full
+     */
+    @Override
+    public void execute(Runnable task) {
+        Runnable scopedTask = QueryScope.propagate(task);
+        try {
+            executor.execute(() -> {
+                ClinicConnection.setQueryTimeout(queryTimeoutSeconds);
+                scopedTask.run();
+            });
+        } catch (RejectedExecutionException e) {
+            rejected.incrementAndGet();
+            throw new RejectedExecutionException("The " + name + " lane is full", e);
+        }
+    }
+
+    /**
+     * Run a call in the lane
+     * @return the future result of the call, failed with a
+     * <code>RejectedExecutionException</code> when the lane is full
+     */
+    public <V> CompletableFuture<V> submit(Callable<V> call) {
+        CompletableFuture<V> future = new CompletableFuture<>();
+        try {
+            execute(() -> {
+                if (future.isDone())
+                    return;
+                try {
+                    future.complete(call.call());
+                } catch (Exception e) {
+                    future.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getQueryTimeoutSeconds() {
+        return queryTimeoutSeconds;
+    }
+
+    /**
+     * Get the number of tasks running
+     */
+    public int getActiveCount() {
+        return executor.getActiveCount();
+    }
+
+    /**
+     * Get the number of tasks waiting
+     */
+    public int getQueueLength() {
+        return executor.getQueue().size();
+    }
+
+    /**
+     * Get the number of tasks rejected because the lane was full
+     */
+    public long getRejectedCount() {
+        return rejected.get();
+    }
+
+    /**
+     * Run the work of a lane thread on a connection of its own, the thread
+     * falls back to the pool if the connection cannot be opened
+     */
+    private void runWithOwnConnection(Runnable work) {
+        Connection connection = null;
+        try {
+            connection = ClinicConnection.openConnection();
+            ClinicConnection.bindConnection(connection);
+        } catch (SQLException e) {
+            System.out.println("Exception caught in ExecutionLane.runWithOwnConnection(): " + e.toString());
+        }
+
+        try {
+            work.run();
+        } finally {
+            ClinicConnection.bindConnection(null);
+            if (connection != null)
+                try {
+                    connection.close();
+                } catch (SQLException e) {
+                    System.out.println("Exception caught in ExecutionLane.runWithOwnConnection(): " + e.toString());
+                }
+        }
+    }
+}
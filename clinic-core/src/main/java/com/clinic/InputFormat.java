@@ -0,0 +1,49 @@
+package com.clinic;
+
+import java.math.BigDecimal;
+import java.util.regex.Pattern;
+
+/**
+ * The formats accepted by the number fields of the forms. The patterns are
+ * compiled once since they are checked on every keystroke.
+ * 
+ * @author Jose Ryu Leonesta <jose.leonesta@student.matanauniversity.ac.id>
+ */
+public class InputFormat {
+    private final static Pattern INTEGER = Pattern.compile("\\d{0,9}");
+    private final static Pattern DECIMAL = Pattern.compile("\\d{0,7}([\\.]\\d{0,4})?");
+    private final static Pattern DECIMAL_WITHOUT_FRACTION = Pattern.compile("\\d{0,7}([\\.])");
+
+    /**
+     * Check whether <code>text</code> is a (possibly empty) integer of at most
+     * 9 digits
+     */
+    public static boolean isInteger(String text) {
+        return INTEGER.matcher(text).matches();
+    }
+
+    /**
+     * Check whether <code>text</code> is a (possibly empty) decimal of at most
+     * 7 integer digits and 4 fraction digits
+     */
+    public static boolean isDecimal(String text) {
+        return DECIMAL.matcher(text).matches();
+    }
+
+    /**
+     * Parse an integer accepted by <code>isInteger()</code>, an empty text is 0
+     */
+    public static Integer parseInteger(String text) {
+        return text.length() == 0 ? 0 : Integer.parseInt(text);
+    }
+
+    /**
+     * Parse a decimal accepted by <code>isDecimal()</code>, an empty text is 0
+     * and a trailing point is ignored
+     */
+    public static BigDecimal parseDecimal(String text) {
+        if (DECIMAL_WITHOUT_FRACTION.matcher(text).matches())
+            text = text.replaceAll("[^\\d]", "");
+        return text.length() == 0 ? new BigDecimal(0) : new BigDecimal(text);
+    }
+}
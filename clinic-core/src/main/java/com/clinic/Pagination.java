@@ -92,4 +92,17 @@ public class Pagination {
         this.sortOrder.setValue(sortOrder);
         return this;
     }
+
+    /**
+     * Create a new pagination with the same page size, page number and
+     * sorting, without any bindings to this pagination
+     */
+    public Pagination copy() {
+        return new Pagination()
+                .setRecordsPerPage(getRecordsPerPage())
+                .setPageNumber(getPageNumber())
+                .setTotalRecords(getTotalRecords())
+                .setSortBy(getSortBy())
+                .setSortOrder(getSortOrder());
+    }
 }
@@ -0,0 +1,215 @@
+package com.clinic;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Routes the reads that allow it to a read replica of the clinic database.
+ * The replica is used when the <code>clinic.replica.url</code> system property
+ * is set, for example <code>jdbc:mysql://localhost:3308/clinic</code>, with
+ * the credentials of the primary unless <code>clinic.replica.user</code> and
+ * <code>clinic.replica.password</code> are set.<br>
+ * A read goes to the primary instead when:
+ * <ul>
+ *  <li>the replica lags behind more than <code>clinic.replica.maxLagSeconds</code>
+ *  (5 by default), its replication is stopped or it cannot be reached, as
+ *  checked every <code>CHECK_SECONDS</code>, or</li>
+ *  <li>the last write is more recent than the lag of the replica plus a
+ *  margin, so the user reads their own writes.</li>
+ * </ul>
+ * A stand-in replica that is not replicating, such as a second local
+ * MariaDB, counts as having no lag. When a check cannot reach the replica
+ * its connections are closed and opened again by the next check.<br>
+ * Like the primary pool, the replica pool has one connection per connection
+ * of the primary pool and every thread is bound round robin to one of them,
+ * so the reading threads share the connections.
+ *
+ * @author Jose Ryu Leonesta <jose.leonesta@student.matanauniversity.ac.id>
+ */
+public class ReplicaRouter {
+    public final static int CHECK_SECONDS = 2;
+    public final static int MAX_LAG_SECONDS = Integer.getInteger("clinic.replica.maxLagSeconds", 5);
+    /**
+     * Time added to the lag of the replica before a write is assumed to be
+     * replicated
+     */
+    public final static long WRITE_MARGIN_MILLIS = 1000;
+    public final static String LAG_QUERY = "SHOW SLAVE STATUS;";
+
+    private static volatile List<Connection> pool = new ArrayList<>();
+    private static int poolSize;
+    private static AtomicInteger nextConnection = new AtomicInteger();
+    private static ThreadLocal<Connection> threadConnection = new ThreadLocal<>();
+    private static ScheduledExecutorService monitor;
+    private static volatile boolean healthy = false;
+    private static volatile long lagMillis = -1;
+    private static volatile long lastWriteAt = 0;
+    private static LongAdder replicaReads = new LongAdder();
+    private static LongAdder primaryReads = new LongAdder();
+
+    /**
+     * Open the replica pool and start checking its lag, if a replica is
+     * configured. The application keeps working on the primary alone when
+     * the replica cannot be reached.
+     * @param poolSize number of connections
+     */
+    static synchronized void connect(int poolSize) {
+        String url = System.getProperty("clinic.replica.url");
+        if (url == null || monitor != null)
+            return;
+
+        ReplicaRouter.poolSize = poolSize;
+        try {
+            pool = openPool();
+        } catch (SQLException e) {
+            System.out.println("Exception caught in ReplicaRouter.connect(): " + e.toString());
+            System.out.println("Reading from the primary only");
+            return;
+        }
+
+        monitor = Executors.newSingleThreadScheduledExecutor((runnable) -> {
+            Thread thread = new Thread(runnable, "clinic-replica-monitor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        monitor.scheduleWithFixedDelay(ReplicaRouter::checkLag, 0, CHECK_SECONDS, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Get the replica connection of the current thread for a read
+     * @return the connection, or <code>null</code> if the read should go to
+     * the primary
+     */
+    static Connection connectionForRead() {
+        if (!healthy || System.currentTimeMillis() - lastWriteAt < lagMillis + WRITE_MARGIN_MILLIS) {
+            primaryReads.increment();
+            return null;
+        }
+        List<Connection> connections = pool;
+        Connection connection = threadConnection.get();
+        if (connection == null || !connections.contains(connection)) {
+            // First read of the thread, or the pool was opened again
+            if (connections.isEmpty()) {
+                primaryReads.increment();
+                return null;
+            }
+            connection = connections.get(Math.floorMod(nextConnection.getAndIncrement(), connections.size()));
+            threadConnection.set(connection);
+        }
+        replicaReads.increment();
+        return connection;
+    }
+
+    /**
+     * Record a write to the primary, the following reads go to the primary
+     * until the replica has caught up
+     */
+    static void recordWrite() {
+        lastWriteAt = System.currentTimeMillis();
+    }
+
+    public static boolean isConfigured() {
+        return monitor != null;
+    }
+
+    public static boolean isHealthy() {
+        return healthy;
+    }
+
+    /**
+     * Get the last measured lag of the replica in milliseconds, -1 if unknown
+     */
+    public static long getLagMillis() {
+        return lagMillis;
+    }
+
+    /**
+     * Get the number of reads that allowed the replica and were sent to it
+     */
+    public static long getReplicaReadCount() {
+        return replicaReads.sum();
+    }
+
+    /**
+     * Get the number of reads that allowed the replica but were sent to the
+     * primary
+     */
+    public static long getPrimaryReadCount() {
+        return primaryReads.sum();
+    }
+
+    private static void checkLag() {
+        if (pool.isEmpty()) {
+            try {
+                pool = openPool();
+            } catch (SQLException e) {
+                return;
+            }
+            System.out.println("Replica connections opened again");
+        }
+
+        try (Statement statement = pool.get(0).createStatement()) {
+            statement.setQueryTimeout(CHECK_SECONDS);
+            try (ResultSet status = statement.executeQuery(LAG_QUERY)) {
+                long lag = 0;
+                if (status.next()) {
+                    long secondsBehind = status.getLong("Seconds_Behind_Master");
+                    // NULL when the replication is stopped
+                    lag = status.wasNull() ? -1 : TimeUnit.SECONDS.toMillis(secondsBehind);
+                }
+                lagMillis = lag;
+                healthy = lag >= 0 && lag <= TimeUnit.SECONDS.toMillis(MAX_LAG_SECONDS);
+            }
+        } catch (SQLException e) {
+            if (healthy)
+                System.out.println("Exception caught in ReplicaRouter.checkLag(): " + e.toString());
+            lagMillis = -1;
+            healthy = false;
+            closePool();
+        }
+    }
+
+    private static List<Connection> openPool() throws SQLException {
+        List<Connection> connections = new ArrayList<>();
+        try {
+            for (int i = 0; i < poolSize; i++)
+                connections.add(DriverManager.getConnection(System.getProperty("clinic.replica.url"),
+                        System.getProperty("clinic.replica.user", ClinicConnection.USER),
+                        System.getProperty("clinic.replica.password", ClinicConnection.PASSWORD)));
+        } catch (SQLException e) {
+            for (Connection connection : connections)
+                close(connection);
+            throw e;
+        }
+        return connections;
+    }
+
+    /**
+     * Close the connections of the pool, the threads bound to them are bound
+     * again once the pool is opened again
+     */
+    private static void closePool() {
+        List<Connection> connections = pool;
+        pool = new ArrayList<>();
+        for (Connection connection : connections)
+            close(connection);
+    }
+
+    private static void close(Connection connection) {
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            System.out.println("Exception caught in ReplicaRouter.close(): " + e.toString());
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package com.clinic.abstracts;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javafx.beans.property.IntegerProperty;
+import javafx.beans.property.SimpleIntegerProperty;
+
+/**
+ * Abstract class for creating entity class. <br>
+ * This class is used for <code>AbstractRepository</code> to build queries. Here
+ * are the main requirement for the entity class that derives from this class:
+ * <ol>
+ *  <li>
+ *      Table fields should has getter and setter that is written in camelCase
+ *  </li>
+ *  <li>
+ *      Super constructor should be called inside child's constructor for
+ *      initializing the id of an entity. On default, id should be 
+ *      <code>null</code>
+ *  </li>
+ * </ol>
+ * 
+ * @author Jose Ryu Leonesta <jose.leonesta@student.matanauniversity.ac.id>
+ */
+public abstract class AbstractEntity {
+    private static Map<Class<?>, List<Method>> contentGetters = new ConcurrentHashMap<>();
+    private IntegerProperty id;
+
+    public Integer getId() {
+        return id.get();
+    };
+
+    /**
+     * Get the field names for the table schema. This information is used for
+     * building query. <br>
+     * 
+     * Field names should be defined in lower_case_snake_case. <br>
+     * 
+     * Do not override this function if you want to use the default function
+     * of this class
+     */
+    public List<String> getTableFieldNames() {
+        return null;
+    }
+
+    /**
+     * Hash of the table field values and of the joined child entities. Two
+     * entities with the same id and the same content hash are displayed the
+     * same way, so this is used as the version of a row when a table is
+     * refreshed.
+     */
+    public int contentHash() {
+        int hash = Objects.hashCode(getId());
+        for (Method getter : getContentGetters()) {
+            try {
+                Object value = getter.invoke(this);
+                hash = 31 * hash + (value instanceof AbstractEntity
+                        ? ((AbstractEntity) value).contentHash()
+                        : Objects.hashCode(value));
+            } catch (Exception e) {
+                hash = 31 * hash;
+            }
+        }
+        return hash;
+    }
+
+    /**
+     * Copy the table fields and the joined child entities of an entity into a
+     * new entity of the same class. The child entities are copied too, so the
+     * copy can be edited without changing the original.
+     * @param entity the entity to copy
+     * @return the copy, <code>null</code> if <code>entity</code> is
+     * <code>null</code>
+     */
+    @SuppressWarnings("unchecked")
+    public static <E extends AbstractEntity> E copyOf(E entity) {
+        if (entity == null)
+            return null;
+        try {
+            E copy = (E) entity.getClass().getConstructor(Integer.class).newInstance(entity.getId());
+            for (Method getter : ((AbstractEntity) entity).getContentGetters()) {
+                Method setter;
+                try {
+                    setter = entity.getClass().getMethod("set" + getter.getName().substring(3), getter.getReturnType());
+                } catch (NoSuchMethodException e) {
+                    continue;
+                }
+                Object value = getter.invoke(entity);
+                if (value == null && getter.getReturnType().isPrimitive())
+                    continue;
+                setter.invoke(copy, value instanceof AbstractEntity ? copyOf((AbstractEntity) value) : value);
+            }
+            return copy;
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Cannot copy " + entity.getClass().getSimpleName(), e);
+        }
+    }
+
+    /**
+     * Gets the getters of the table fields and the joined child entities of
+     * this entity class. The result is cached per class.
+     */
+    private List<Method> getContentGetters() {
+        return contentGetters.computeIfAbsent(getClass(), (theClass) -> {
+            List<String> fieldNames = getTableFieldNames();
+            List<Method> result = new ArrayList<>();
+            for (Method method : theClass.getMethods()) {
+                if (!Modifier.isPublic(method.getModifiers())
+                        || method.getParameterCount() != 0
+                        || !method.getName().matches("get\\D+")
+                        || method.getName().matches("getId|getTableFieldNames|getClass"))
+                    continue;
+
+                if (fieldNames == null
+                        || fieldNames.contains(AbstractEntityRepository.normalizeFieldName(method.getName().substring(3)))
+                        || AbstractEntity.class.isAssignableFrom(method.getReturnType()))
+                    result.add(method);
+            }
+            return result;
+        });
+    }
+
+    public AbstractEntity(Integer id) {
+        this.id = new SimpleIntegerProperty();
+        if (id != null)
+            this.id.setValue(id);
+    }
+}
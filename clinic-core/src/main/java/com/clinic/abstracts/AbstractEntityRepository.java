@@ -0,0 +1,580 @@
+package com.clinic.abstracts;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import com.clinic.ClinicConnection;
+import com.clinic.Cursor;
+import com.clinic.Pagination;
+import com.clinic.cache.ResultCache;
+import com.clinic.interfaces.IRepositoryChangeListener;
+import com.clinic.stats.QueryStats;
+
+/**
+ * Abstract class for creating an entity repository. Provides basic CRUD
+ * function.
+ * 
+ * @author Jose Ryu Leonesta <jose.leonesta@student.matanauniversity.ac.id>
+ */
+public abstract class AbstractEntityRepository<T extends AbstractEntity> extends ClinicConnection {
+    public Class<T> entityClass;
+    private List<IRepositoryChangeListener> changeListeners = new CopyOnWriteArrayList<>();
+
+    protected AbstractEntityRepository(Class<T> entityClass) {
+        this.entityClass = entityClass;
+    }
+
+    /**
+     * Add a listener that is notified after every create, edit and delete
+     * done by this repository
+     * @param listener
+     */
+    public void addChangeListener(IRepositoryChangeListener listener) {
+        changeListeners.add(listener);
+    }
+
+    public void removeChangeListener(IRepositoryChangeListener listener) {
+        changeListeners.remove(listener);
+    }
+
+    /**
+     * Remove the cached pages of the table and notify the change listeners
+     * that a record has been written
+     * @param action <code>IRepositoryChangeListener.CREATED</code>, 
+     * <code>UPDATED</code> or <code>DELETED</code>
+     * @param id id of the written record
+     */
+    protected void notifyChange(int action, Integer id) {
+        String table = tableName();
+        ResultCache.invalidate(table);
+        // Again once committed, a page read before the commit may be cached meanwhile
+        if (isInTransaction())
+            afterCommit(() -> ResultCache.invalidate(table));
+        for (IRepositoryChangeListener listener : changeListeners) {
+            listener.onRepositoryChanged(this, action, id);
+        }
+    }
+    /**
+     * Start an operation of this repository for the query statistics, it
+     * must be finished with <code>finish()</code>
+     * @param operation example: "get", "create"
+     */
+    protected QueryStats.Operation startOperation(String operation) {
+        return QueryStats.start(entityClass.getSimpleName(), operation);
+    }
+
+    /**
+     * Get an entity by id
+     * @param id the id of the entity
+     */
+    public T get(Integer id) throws SQLException {
+        QueryStats.Operation operation = startOperation("get");
+        try (Cursor cursor = openCursor("SELECT * FROM " + tableName()
+                + " WHERE id=" + id + ";")) {
+            ResultSet queryResult = cursor.getResultSet();
+            if (!queryResult.next()) return null;
+            operation.addRows(1);
+            return mapEntity(queryResult);
+        } finally {
+            operation.finish();
+        }
+    }
+
+    /**
+     * Delete a record in the database
+     * @param id
+     * @return
+     */
+    public Boolean delete(Integer id) throws SQLException {
+        QueryStats.Operation operation = startOperation("delete");
+        Boolean deleted;
+        try {
+            deleted = execute("DELETE FROM " + tableName() + " WHERE id=" + id + ";");
+            operation.addRows(deleted ? 1 : 0);
+        } finally {
+            operation.finish();
+        }
+        notifyChange(IRepositoryChangeListener.DELETED, id);
+        return deleted;
+    }
+
+    /**
+     * Get list of entity records with pagination along with the where clause
+     * query example: "WHERE foreign_id=1", the table alias is "a". The page
+     * is taken from the <code>ResultCache</code> when it is cached.
+     * @param pagination
+     * @return <code>List<T></code> with T as the entity type
+     */
+    public List<T> get(Pagination pagination, String whereClause) throws SQLException {
+        String fetchQuery = "SELECT * FROM " + tableName() + " a";
+        fetchQuery += " " + whereClause + " ";
+        fetchQuery += orderAndLimitClause(pagination, "a") + ";";
+        String pageQuery = fetchQuery;
+        return ResultCache.get(entityClass.getSimpleName(), pageQuery, pagination,
+                (requestPage) -> fetchPage(requestPage, whereClause, pageQuery), AbstractEntity::copyOf, tableName());
+    }
+
+    /**
+     * Query a page and its total records
+     */
+    private List<T> fetchPage(Pagination pagination, String whereClause, String fetchQuery) throws SQLException {
+        QueryStats.Operation operation = startOperation("get page");
+        try {
+            try (Cursor countCursor = openCursor("SELECT count(a.id) as number FROM "
+                    + tableName() + " a " + whereClause + ";")) {
+                countCursor.next();
+                pagination.setTotalRecords(countCursor.getResultSet().getInt(1));
+            }
+
+            List<T> entities = new ArrayList<>();
+            try (Cursor cursor = openCursor(fetchQuery)) {
+                ResultSet queryResult = cursor.getResultSet();
+                while (queryResult.next()) {
+                    entities.add(mapEntity(queryResult));
+                }
+            }
+            operation.addRows(entities.size());
+
+            return entities;
+        } finally {
+            operation.finish();
+        }
+    }
+
+    /**
+     * Build the ORDER BY and LIMIT clause of a page
+     * @param pagination the page to fetch
+     * @param alias the alias of the table in the query, empty if not aliased
+     */
+    private String orderAndLimitClause(Pagination pagination, String alias) {
+        String clause = "";
+        if (pagination.getSortBy() != null
+                && pagination.getSortOrder() != null) {
+            clause += " ORDER BY " + (alias.length() != 0 ? alias + "." : "")
+                    + normalizeFieldName(pagination.getSortBy())
+                    + " " + pagination.getSortOrder();
+        }
+
+        int recordsPerPage = pagination.getRecordsPerPage() != 0
+                ? pagination.getRecordsPerPage()
+                : 10;
+
+        int skip = (pagination.getPageNumber() != 0 ? pagination.getPageNumber() - 1 : 0)
+                * recordsPerPage;
+        return clause + " LIMIT " + skip + "," + recordsPerPage;
+    }
+
+    /**
+     * Join entity with another entity using repository
+     * the fields to join the two entities. Example: a.field_id = b.id
+     * @param childRepo
+     * @param foreignKeyInParent
+     * @param primaryKeyInChild
+     * @return
+     * @throws SQLException
+     * @author Veronica Yose Ardilla
+     */
+    public List<T> join(AbstractEntityRepository<?> childRepo, String foreignKeyInParent, String primaryKeyInChild) {
+        return queryJoined("SELECT * FROM " + joinClause(childRepo, foreignKeyInParent, primaryKeyInChild) + ";",
+                childRepo);
+    }
+
+    public List<T> join(AbstractEntityRepository<?> childRepo, String foreignKeyInParent) throws SQLException {
+        return join(childRepo, foreignKeyInParent, "id");
+    }
+
+    /**
+     * Join entity with another entity using repository, fetching only the
+     * records of a page
+     * @param childRepo
+     * @param foreignKeyInParent
+     * @param whereClause the where clause, the parent table alias is "a"
+     * @param pagination the page to fetch
+     */
+    public List<T> join(AbstractEntityRepository<?> childRepo, String foreignKeyInParent, String whereClause, Pagination pagination) throws SQLException {
+        String fromClause = joinClause(childRepo, foreignKeyInParent, "id") + " " + whereClause;
+        String joinQuery = "SELECT * FROM " + fromClause + orderAndLimitClause(pagination, "a") + ";";
+        return ResultCache.get(entityClass.getSimpleName(), joinQuery, pagination, (requestPage) -> {
+            countJoined(fromClause, requestPage);
+            return queryJoined(joinQuery, childRepo);
+        }, AbstractEntity::copyOf, tableName(), childRepo.tableName());
+    }
+
+    /**
+     * Join 3 entity using repository
+     * @param childRepo1
+     * @param childRepo2
+     * @param foreignKeyInParent1
+     * @param foreignKeyInParent2
+     * @param whereClause
+     * @param primaryKeyInChild
+     * @return
+     * @throws SQLException
+     * @author Veronica Yose Ardilla
+     */
+    public List<T> join(AbstractEntityRepository<?> childRepo1, AbstractEntityRepository<?> childRepo2, String foreignKeyInParent1, String foreignKeyInParent2, String whereClause, String primaryKeyInChild) {
+        return queryJoined("SELECT * FROM " + joinClause(childRepo1, childRepo2, foreignKeyInParent1, foreignKeyInParent2, primaryKeyInChild)
+                + " " + whereClause + ";", childRepo1, childRepo2);
+    }
+
+    public List<T> join(AbstractEntityRepository<?> childRepo1, AbstractEntityRepository<?> childRepo2, String foreignKeyInParent1, String foreignKeyInParent2, String whereClause) throws SQLException {
+        return join(childRepo1, childRepo2, foreignKeyInParent1, foreignKeyInParent2, whereClause, "id");
+    }
+
+    public List<T> join(AbstractEntityRepository<?> childRepo1, AbstractEntityRepository<?> childRepo2, String foreignKeyInParent1, String foreignKeyInParent2) throws SQLException {
+        return join(childRepo1, childRepo2, foreignKeyInParent1, foreignKeyInParent2, "", "id");
+    }
+
+    /**
+     * Join 3 entity using repository, fetching only the records of a page
+     * @param childRepo1
+     * @param childRepo2
+     * @param foreignKeyInParent1
+     * @param foreignKeyInParent2
+     * @param whereClause the where clause, the parent table alias is "a"
+     * @param pagination the page to fetch
+     */
+    public List<T> join(AbstractEntityRepository<?> childRepo1, AbstractEntityRepository<?> childRepo2, String foreignKeyInParent1, String foreignKeyInParent2, String whereClause, Pagination pagination) throws SQLException {
+        String fromClause = joinClause(childRepo1, childRepo2, foreignKeyInParent1, foreignKeyInParent2, "id")
+                + " " + whereClause;
+        String joinQuery = "SELECT * FROM " + fromClause + orderAndLimitClause(pagination, "a") + ";";
+        return ResultCache.get(entityClass.getSimpleName(), joinQuery, pagination, (requestPage) -> {
+            countJoined(fromClause, requestPage);
+            return queryJoined(joinQuery, childRepo1, childRepo2);
+        }, AbstractEntity::copyOf, tableName(), childRepo1.tableName(), childRepo2.tableName());
+    }
+
+    private String joinClause(AbstractEntityRepository<?> childRepo, String foreignKeyInParent, String primaryKeyInChild) {
+        return tableName() + " a JOIN " + childRepo.tableName() + 
+                " b ON a." + foreignKeyInParent + " = b." + primaryKeyInChild;
+    }
+
+    private String joinClause(AbstractEntityRepository<?> childRepo1, AbstractEntityRepository<?> childRepo2, String foreignKeyInParent1, String foreignKeyInParent2, String primaryKeyInChild) {
+        return joinClause(childRepo1, foreignKeyInParent1, primaryKeyInChild) + " JOIN " + childRepo2.tableName() + 
+                " c ON a." + foreignKeyInParent2 + " = c." + primaryKeyInChild;
+    }
+
+    /**
+     * Count the records of a join and set it as the total records of the
+     * pagination
+     */
+    private void countJoined(String fromClause, Pagination pagination) throws SQLException {
+        QueryStats.Operation operation = startOperation("count join");
+        try (Cursor countCursor = openCursor("SELECT count(a.id) as number FROM " + fromClause + ";")) {
+            countCursor.next();
+            pagination.setTotalRecords(countCursor.getResultSet().getInt(1));
+        } finally {
+            operation.finish();
+        }
+    }
+
+    /**
+     * Run a join query and map every row with <code>mapJoinedRow()</code>
+     * @author Veronica Yose Ardilla
+     */
+    private List<T> queryJoined(String joinQuery, AbstractEntityRepository<?>... childRepos) {
+        QueryStats.Operation operation = startOperation("join");
+        try (Cursor cursor = openCursor(joinQuery)) {
+            ResultSet queryResult = cursor.getResultSet();
+            List<T> entities = new ArrayList<>();
+            while(queryResult.next()){
+                entities.add(mapJoinedRow(queryResult, childRepos));
+            }
+            operation.addRows(entities.size());
+            return entities;
+        } catch (Exception e) {
+            System.out.println("Exception found in AbstractEntityRepository.join(): " + e.toString());
+        } finally {
+            operation.finish();
+        }
+
+        return null;
+    }
+
+    /**
+     * Map the current row of a join query into the parent entity with the
+     * child entities set. The parent is aliased as "a" and the child
+     * repositories as "b" and "c" in the order they are given.
+     * @param queryResult the result of a join query, on the row to map
+     * @param childRepos the repositories of the joined tables
+     * @author Veronica Yose Ardilla
+     */
+    public T mapJoinedRow(ResultSet queryResult, AbstractEntityRepository<?>... childRepos)
+            throws ReflectiveOperationException {
+        String[] childAliases = { "b", "c" };
+        T resultEntity = mapEntity(queryResult, "a");
+        for (int i = 0; i < childRepos.length; i++) {
+            String childSetterName = "set" + childRepos[i].entityClass.getSimpleName();
+            Method method = resultEntity.getClass().getMethod(childSetterName, childRepos[i].entityClass);
+            method.invoke(resultEntity, childRepos[i].mapEntity(queryResult, childAliases[i]));
+        }
+        return resultEntity;
+    }
+
+    /**
+     * Search with input as "word"
+     * @param pagination
+     * @param word
+     * @return
+     * @throws SQLException
+     * @author Sabrina Yose Amelia
+     */
+    public List<T> search(Pagination pagination, String word) throws SQLException {
+        String condition = searchCondition(word);
+        return get(pagination, condition.length() != 0 ? "WHERE " + condition : "");
+    }
+
+    /**
+     * Build the condition matching the records which table fields contain
+     * <code>word</code>. The table alias is "a" and the wildcards and quotes in
+     * the word are escaped.
+     * @param word the searched word
+     * @return the condition in parentheses, or an empty string if the word is
+     * empty
+     */
+    public String searchCondition(String word) {
+        if (word == null || word.trim().length() == 0)
+            return "";
+
+        String escapedWord = word.trim()
+                .replace("\\", "\\\\\\\\")
+                .replace("'", "''")
+                .replace("%", "\\%")
+                .replace("_", "\\_");
+        String condition = "";
+        try {
+            List<String> fieldNames = entityClass.getConstructor().newInstance().getTableFieldNames();
+            if (fieldNames == null || fieldNames.isEmpty())
+                return "";
+
+            for (String field : fieldNames) {
+                condition += "a." + field + " LIKE '%" + escapedWord + "%' OR ";
+            }
+            return "(" + condition.substring(0, condition.length() - 4) + ")";
+        } catch (Exception e) {
+            System.out.println("Exception found in AbstractEntityRepository.searchCondition(): " + e.toString());
+        }
+        return "";
+    }
+
+    /**
+     * Get list of entity with pagination
+     */
+    public List<T> get(Pagination pagination) throws SQLException {
+        return get(pagination, "");
+    }
+
+    /**
+     * Edit the entity in the database.
+     * @param entity
+     * @return <code>boolean</code> representing successfully edited or not
+     * @throws SQLException
+     */
+    public Boolean edit(T entity) throws SQLException {
+        Boolean edited;
+        QueryStats.Operation operation = startOperation("edit");
+        try {
+            edited = execute(buildUpdateQuery(entity));
+            operation.addRows(edited ? 1 : 0);
+        } catch (SQLException e) {
+            throw e;
+        } catch (Exception e) {
+            System.out.println("Exception found in AbstractEntityRepository.edit(): " + e.toString());
+            return false;
+        } finally {
+            operation.finish();
+        }
+        notifyChange(IRepositoryChangeListener.UPDATED, entity.getId());
+        return edited;
+    }
+
+    /**
+     * Build the UPDATE query of <code>edit()</code>
+     * @param entity the edited entity
+     */
+    public String buildUpdateQuery(T entity) throws ReflectiveOperationException {
+        String query = "UPDATE " + tableName() + " SET ";
+        for (Map.Entry<String, Method> field : getEntityAttributesInSnakeCase().entrySet()) {
+            if (entity.getTableFieldNames() == null || entity.getTableFieldNames().contains(field.getKey()))
+                query += (field.getKey() + "='" + field.getValue().invoke(entity)
+                        + "', ");
+        }
+        return query.replaceFirst(",\\s$", " WHERE id=" + entity.getId()
+                + ";");
+    }
+
+    /**
+     * Inserts an entity record to the database
+     * @param entity
+     * @return <code>Integer</code> representing the generated key
+     * @throws SQLException
+     */
+    public Integer create(T entity) throws SQLException {
+        Integer generatedId;
+        QueryStats.Operation operation = startOperation("create");
+        try {
+            generatedId = executeInsert(buildInsertQuery(entity));
+            operation.addRows(1);
+        } catch (SQLException e) {
+            throw e;
+        } catch (Exception e) {
+            System.out.println("Exception found in AbstractEntityRepository.create(): " + e.getMessage());
+            return 0;
+        } finally {
+            operation.finish();
+        }
+        notifyChange(IRepositoryChangeListener.CREATED, generatedId);
+        return generatedId;
+    }
+
+    /**
+     * Build the INSERT query of <code>create()</code>
+     * @param entity the created entity
+     */
+    public String buildInsertQuery(T entity) throws ReflectiveOperationException {
+        String query = "INSERT INTO " + tableName() + " (";
+        for (Map.Entry<String, Method> field : getEntityAttributesInSnakeCase().entrySet()) {
+            if (entity.getTableFieldNames() == null || entity.getTableFieldNames().contains(field.getKey()))
+                query += "`" + (field.getKey() + "`, ");
+        }
+        query = query.replaceFirst(",\\s$", ") VALUES (");
+        for (Map.Entry<String, Method> field : getEntityAttributesInSnakeCase().entrySet()) {
+            if (entity.getTableFieldNames() == null || entity.getTableFieldNames().contains(field.getKey()))
+                query += "'" + (field.getValue().invoke(entity) + "', ");
+        }
+        return query.replaceFirst(",\\s$", ");");
+    }
+
+    /**
+     * Maps a <code>ResultSet</code> into a single entity
+     * @param queryResult the result of getting an entity
+     * @param alias the alias of the entity int the query
+     */
+    public T mapEntity(ResultSet queryResult, String alias) {
+        try {
+            T resultEntity = entityClass.getConstructor(Integer.class).newInstance(
+                    queryResult.getInt("id"));
+
+            for (Method method : getEntityAttributeSetters()) {
+                String fieldName = normalizeFieldName(method.getName().substring(3));
+                if (resultEntity.getTableFieldNames() != null && !resultEntity.getTableFieldNames().contains(fieldName))
+                    continue;
+
+                fieldName = (alias.length() != 0 ? alias + "." : "") + normalizeFieldName(fieldName);
+
+                if (method.getParameterTypes()[0] == Integer.class)
+                    method.invoke(resultEntity, queryResult.getInt(fieldName));
+                else if (method.getParameterTypes()[0] == String.class)
+                    method.invoke(resultEntity, queryResult.getString(fieldName));
+                else if (method.getParameterTypes()[0] == BigDecimal.class)
+                    method.invoke(resultEntity, queryResult.getBigDecimal(fieldName));
+                else if (method.getParameterTypes()[0] == Date.class)
+                    method.invoke(resultEntity, queryResult.getDate(fieldName));
+                else if (method.getParameterTypes()[0] == Timestamp.class)
+                    method.invoke(resultEntity, queryResult.getTimestamp(fieldName));
+                else if (method.getParameterTypes()[0] == LocalDate.class)
+                    method.invoke(resultEntity, queryResult.getDate(fieldName).toLocalDate());
+                else if (method.getParameterTypes()[0] == LocalDateTime.class)
+                    method.invoke(resultEntity, queryResult.getTimestamp(fieldName).toLocalDateTime());
+            }
+            return resultEntity;
+        } catch (Exception e) {
+            System.out.println("Exception found in AbstractEntityRepository.mapEntity(): " + e.toString());
+        }
+
+        return null;
+    };
+
+    public T mapEntity(ResultSet queryResult) {
+        return mapEntity(queryResult, "");
+    }
+
+    /**
+     * Gets a <code>Map</code> with snake cased database's field names as key 
+     * and the getter method for the entity class as value
+     * @param theClass
+     * @return <code>Map<String, Method></code>
+     */
+    private Map<String, Method> getEntityAttributesInSnakeCase() {
+        Map<String, Method> result = new HashMap<String, Method>();
+        for (Method method : getEntityAttributeGetters()) {
+            result.put(
+                normalizeFieldName(method.getName().substring(3)),
+                method
+            );
+        }
+        return result;
+    }
+
+    /**
+     * Gets a list of getter method that publicly declared in the 
+     * <code>entityClass</code> (id getter not included)
+     * @return <code>List</code> of <code>Method</code>
+     */
+    public List<Method> getEntityAttributeGetters() {
+        List<Method> result = new ArrayList<>();
+        String excludedGetters = "getId|getTableFieldNames|getClass";
+        for (Method method : entityClass.getMethods()) {
+            int modifiers = method.getModifiers();
+            if (Modifier.isPublic(modifiers)
+                && method.getName().matches("get\\D+")
+                && !method.getName().matches(excludedGetters)
+            ) {
+                result.add(method);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Gets a list of setter method that publicly declared in the 
+     * <code>entityClass</code> (id getter not included)
+     * @return <code>List</code> of <code>Method</code>
+     */
+    public List<Method> getEntityAttributeSetters() {
+        List<Method> result = new ArrayList<>();
+        for (Method method : entityClass.getMethods()) {
+            int modifiers = method.getModifiers();
+            if (Modifier.isPublic(modifiers)
+                && method.getName().matches("set\\D+")
+            ) {
+                result.add(method);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Normalize a database field name from camelCase to snake_case.
+     * Example: <code>dosageFormCategory</code> -> 
+     * <code>dosage_form_category</code>
+     * @param camelCaseField the field
+     */
+    public static String normalizeFieldName(String camelCaseField) {
+        return camelCaseField.replaceAll("([a-z])([A-Z])", "$1_$2").toLowerCase();
+    }
+
+    /**
+     * Get the name of the table in the database
+     */
+    protected abstract String tableName();
+
+    /**
+     * Get the name of the table in the database
+     */
+    public String getTableName() {
+        return tableName();
+    }
+}
\ No newline at end of file
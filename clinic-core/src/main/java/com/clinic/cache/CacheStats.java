@@ -0,0 +1,69 @@
+package com.clinic.cache;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Hit and miss counters of a kind of cache. The caches of the same kind, for
+ * example the page caches of every controller, share one counter.
+ *
+ * @author Jose Ryu Leonesta <jose.leonesta@student.matanauniversity.ac.id>
+ */
+public class CacheStats {
+    private static Map<String, CacheStats> caches = new ConcurrentHashMap<>();
+
+    private String name;
+    private LongAdder hits = new LongAdder();
+    private LongAdder misses = new LongAdder();
+
+    private CacheStats(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Get the counters of a kind of cache
+     * @param name example: "page"
+     */
+    public static CacheStats get(String name) {
+        return caches.computeIfAbsent(name, CacheStats::new);
+    }
+
+    /**
+     * Get the counters of every kind of cache
+     */
+    public static List<CacheStats> all() {
+        return new ArrayList<>(caches.values());
+    }
+
+    public void recordHit() {
+        hits.increment();
+    }
+
+    public void recordMiss() {
+        misses.increment();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * Get the ratio of lookups that were hits, between 0 and 1
+     */
+    public double getHitRate() {
+        long hitCount = hits.sum();
+        long total = hitCount + misses.sum();
+        return total == 0 ? 0 : (double) hitCount / total;
+    }
+}
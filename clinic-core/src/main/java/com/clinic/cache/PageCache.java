@@ -0,0 +1,138 @@
+package com.clinic.cache;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.UnaryOperator;
+
+import com.clinic.Pagination;
+
+/**
+ * A least recently used cache of fetched pages. A page is keyed by its where
+ * clause, page number, records per page and sorting.
+ *
+ * Every <code>invalidate()</code> increments the generation of the cache, a
+ * page fetched before the invalidation is not stored by <code>put()</code> so
+ * a background fetch cannot bring back stale data.
+ *
+ * Like the <code>ResultCache</code> it sits in front of, a page is dropped
+ * once it is older than <code>ResultCache.MAX_AGE_NANOS</code>, and the
+ * cache keeps its own copy of a page and hands out copies of it.
+ */
+public class PageCache<T> {
+    private final static CacheStats stats = CacheStats.get("page");
+
+    private final int capacity;
+    private final UnaryOperator<T> copy;
+    private long generation = 0;
+    private Map<String, Page<T>> pages;
+
+    /**
+     * @param capacity the number of pages kept
+     * @param copy copies an entity, the cached entities are never handed out
+     */
+    public PageCache(int capacity, UnaryOperator<T> copy) {
+        this.capacity = capacity;
+        this.copy = copy;
+        this.pages = new LinkedHashMap<>(capacity + 1, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Page<T>> eldest) {
+                return size() > PageCache.this.capacity;
+            }
+        };
+    }
+
+    /**
+     * Get the key of a page
+     * @param pagination the pagination with the page number to fetch
+     * @param whereClause the where clause of the fetch
+     */
+    public static String key(Pagination pagination, String whereClause) {
+        return whereClause + "|" + pagination.getPageNumber()
+                + "|" + pagination.getRecordsPerPage()
+                + "|" + pagination.getSortBy()
+                + "|" + pagination.getSortOrder();
+    }
+
+    /**
+     * Get a copy of a cached page
+     * @return the page, or <code>null</code> if the page is not cached
+     */
+    public synchronized Page<T> get(String key) {
+        Page<T> page = getFresh(key);
+        if (page != null)
+            stats.recordHit();
+        else
+            stats.recordMiss();
+        return page != null ? page.copy(copy) : null;
+    }
+
+    public synchronized boolean contains(String key) {
+        return getFresh(key) != null;
+    }
+
+    /**
+     * Store a fetched page
+     * @param key the key of the page
+     * @param page the page
+     * @param fetchGeneration the generation of the cache when the fetch started
+     */
+    public synchronized void put(String key, Page<T> page, long fetchGeneration) {
+        if (fetchGeneration != generation)
+            return;
+        pages.put(key, page.copy(copy));
+    }
+
+    /**
+     * Remove every cached page
+     */
+    public synchronized void invalidate() {
+        generation++;
+        pages.clear();
+    }
+
+    public synchronized long getGeneration() {
+        return generation;
+    }
+
+    private Page<T> getFresh(String key) {
+        Page<T> page = pages.get(key);
+        if (page != null && System.nanoTime() - page.cachedAt > ResultCache.MAX_AGE_NANOS) {
+            pages.remove(key);
+            return null;
+        }
+        return page;
+    }
+
+    /**
+     * A fetched page with the total records of the fetch
+     */
+    public static class Page<T> {
+        private final List<T> entities;
+        private final int totalRecords;
+        private final long cachedAt = System.nanoTime();
+
+        public Page(List<T> entities, int totalRecords) {
+            this.entities = entities;
+            this.totalRecords = totalRecords;
+        }
+
+        private Page<T> copy(UnaryOperator<T> copy) {
+            List<T> copies = new ArrayList<>(entities.size());
+            for (T entity : entities)
+                copies.add(copy.apply(entity));
+            return new Page<>(copies, totalRecords);
+        }
+
+        public List<T> getEntities() {
+            return entities;
+        }
+
+        public int getTotalRecords() {
+            return totalRecords;
+        }
+    }
+}
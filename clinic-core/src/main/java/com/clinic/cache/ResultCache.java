@@ -0,0 +1,229 @@
+package com.clinic.cache;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.UnaryOperator;
+
+import com.clinic.ClinicConnection;
+import com.clinic.Pagination;
+
+/**
+ * A least recently used cache of the pages queried by the repositories, shared
+ * by every controller and pick dialog. A page is keyed by its entity and its
+ * normalized query, which holds the predicate, the sorting and the page.<br>
+ * Every page records the tables it was read from. A write to one of the
+ * tables removes its pages, and a page fetched while one of its tables was
+ * written is not stored. Concurrent fetches of the same page share one
+ * database call. The reads made in a transaction bypass the cache.<br>
+ * Only the writes of this workstation remove pages, so a page is also dropped
+ * once it is older than <code>clinic.resultCache.maxAgeSeconds</code>
+ * (30 by default) to pick up the writes of the other workstations. Every
+ * caller gets its own copy of the entities of a page.<br>
+ * The capacity is set by the <code>clinic.resultCache.capacity</code> system
+ * property, 0 disables the cache.
+ *
+ * @author Jose Ryu Leonesta <jose.leonesta@student.matanauniversity.ac.id>
+ */
+public class ResultCache {
+    public final static int CAPACITY = Integer.getInteger("clinic.resultCache.capacity", 500);
+    public final static long MAX_AGE_NANOS = TimeUnit.SECONDS.toNanos(
+            Long.getLong("clinic.resultCache.maxAgeSeconds", 30));
+
+    private final static CacheStats stats = CacheStats.get("result");
+    private final static Object lock = new Object();
+    private static Map<String, Result> results = new LinkedHashMap<>(16, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Result> eldest) {
+            return size() > CAPACITY;
+        }
+    };
+    private static Map<String, Long> tableGenerations = new HashMap<>();
+    private static long generation = 0;
+    private static SingleFlight<String, Result> fetches = new SingleFlight<>(ClinicConnection::cancelRunningQuery);
+
+    /**
+     * Get a page from the cache, or fetch it and store it. The total records
+     * of the page are set into <code>pagination</code> either way.
+     * @param entityName the name of the entity of the page, example: "Medicine"
+     * @param fetchQuery the query of the page
+     * @param pagination the page to fetch
+     * @param fetch fetches the page, setting its total records into the
+     * pagination it is given
+     * @param copy copies an entity, the cached entities are never returned
+     * @param tables the tables read by the query
+     * @return copies of the cached entities, <code>null</code> if the fetch
+     * returned <code>null</code>
+     */
+    public static <T> List<T> get(String entityName, String fetchQuery, Pagination pagination, Fetch<T> fetch,
+            UnaryOperator<T> copy, String... tables) throws SQLException {
+        // A read in a transaction sees its uncommitted writes, it is neither
+        // shared with other threads nor served pages without them
+        if (CAPACITY <= 0 || ClinicConnection.isInTransaction())
+            return fetch.run(pagination);
+
+        String key = entityName + "|" + normalize(fetchQuery);
+        Result result;
+        synchronized (lock) {
+            result = results.get(key);
+            if (result != null && System.nanoTime() - result.cachedAt > MAX_AGE_NANOS) {
+                results.remove(key);
+                result = null;
+            }
+        }
+        if (result != null) {
+            stats.recordHit();
+        } else {
+            stats.recordMiss();
+            long[] generations = getGenerations(tables);
+            Pagination requestPage = pagination.copy();
+            try {
+                // Runs on this thread, or joins the fetch of the same page on another thread
+                result = fetches.submit(key, Runnable::run, () -> {
+                    List<T> entities = fetch.run(requestPage);
+                    if (entities == null)
+                        return null;
+                    Result fetched = new Result(entities, requestPage.getTotalRecords(), tables);
+                    put(key, fetched, generations);
+                    return fetched;
+                }).get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SQLException("Interrupted while waiting for " + key, e);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof SQLException)
+                    throw (SQLException) e.getCause();
+                throw new SQLException(e.getCause());
+            }
+            if (result == null)
+                return null;
+        }
+
+        pagination.setTotalRecords(result.totalRecords);
+        @SuppressWarnings("unchecked")
+        List<T> cached = (List<T>) result.entities;
+        List<T> entities = new ArrayList<>(cached.size());
+        for (T entity : cached)
+            entities.add(copy.apply(entity));
+        return entities;
+    }
+
+    /**
+     * Remove the pages read from a table, called after every write to it
+     * @param table the name of the table
+     */
+    public static void invalidate(String table) {
+        synchronized (lock) {
+            tableGenerations.merge(table, 1L, Long::sum);
+            Iterator<Result> iterator = results.values().iterator();
+            while (iterator.hasNext()) {
+                if (Arrays.asList(iterator.next().tables).contains(table))
+                    iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * Remove every page
+     */
+    public static void invalidateAll() {
+        synchronized (lock) {
+            generation++;
+            results.clear();
+        }
+    }
+
+    /**
+     * Get the number of pages in the cache
+     */
+    public static int size() {
+        synchronized (lock) {
+            return results.size();
+        }
+    }
+
+    /**
+     * Normalize a query so the same query written with other spacing gets
+     * the same key. Runs of whitespace outside of string literals become one
+     * space and the trailing semicolon is dropped.
+     * @param sqlQuery the query
+     */
+    public static String normalize(String sqlQuery) {
+        StringBuilder normalized = new StringBuilder(sqlQuery.length());
+        char quote = 0;
+        boolean space = false;
+        for (int i = 0; i < sqlQuery.length(); i++) {
+            char c = sqlQuery.charAt(i);
+            if (quote != 0) {
+                normalized.append(c);
+                if (c == quote)
+                    quote = 0;
+                continue;
+            }
+            if (Character.isWhitespace(c)) {
+                space = true;
+                continue;
+            }
+            if (space && normalized.length() > 0)
+                normalized.append(' ');
+            space = false;
+            if (c == '\'' || c == '"')
+                quote = c;
+            normalized.append(c);
+        }
+        int end = normalized.length();
+        while (end > 0 && (normalized.charAt(end - 1) == ';' || normalized.charAt(end - 1) == ' '))
+            end--;
+        return normalized.substring(0, end);
+    }
+
+    private static long[] getGenerations(String[] tables) {
+        long[] generations = new long[tables.length + 1];
+        synchronized (lock) {
+            for (int i = 0; i < tables.length; i++)
+                generations[i] = tableGenerations.getOrDefault(tables[i], 0L);
+            generations[tables.length] = generation;
+        }
+        return generations;
+    }
+
+    private static void put(String key, Result result, long[] fetchGenerations) {
+        synchronized (lock) {
+            if (generation != fetchGenerations[result.tables.length])
+                return;
+            for (int i = 0; i < result.tables.length; i++)
+                if (tableGenerations.getOrDefault(result.tables[i], 0L) != fetchGenerations[i])
+                    return;
+            results.put(key, result);
+        }
+    }
+
+    /**
+     * Fetches a page from the database
+     */
+    public interface Fetch<T> {
+        List<T> run(Pagination pagination) throws SQLException;
+    }
+
+    private static class Result {
+        private final List<?> entities;
+        private final int totalRecords;
+        private final String[] tables;
+        private final long cachedAt = System.nanoTime();
+
+        private Result(List<?> entities, int totalRecords, String[] tables) {
+            this.entities = entities;
+            this.totalRecords = totalRecords;
+            this.tables = tables;
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.clinic.cache;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Coalesces identical concurrent calls. While a call for a key is in flight,
+ * every <code>submit()</code> of the same key shares its result instead of
+ * running the call again.<br>
+ * A caller that is no longer interested in the result should
+ * <code>abandon()</code> it, the call is cancelled when every caller of the
+ * key has abandoned it. Waiting for a cancelled call throws
+ * <code>CancellationException</code>, a normal outcome for its callers.
+ */
+public class SingleFlight<K, V> {
+    private final Map<K, Flight<V>> flights = new ConcurrentHashMap<>();
+    private final Consumer<Thread> runningCallCanceller;
+
+    /**
+     * @param runningCallCanceller interrupts the work of a call that is
+     * running on the given thread, for example by cancelling its statement
+     */
+    public SingleFlight(Consumer<Thread> runningCallCanceller) {
+        this.runningCallCanceller = runningCallCanceller;
+    }
+
+    public SingleFlight() {
+        this((thread) -> {});
+    }
+
+    /**
+     * Run <code>call</code> on the executor, or join the call of the same key
+     * that is already in flight
+     * @param key the key identifying identical calls
+     * @param executor the executor to run a new call on
+     * @param call the call
+     * @return the future result of the call
+     */
+    public CompletableFuture<V> submit(K key, Executor executor, Callable<V> call) {
+        boolean[] created = { false };
+        Flight<V> flight = flights.compute(key, (theKey, existing) -> {
+            if (existing != null) {
+                existing.waiters.incrementAndGet();
+                return existing;
+            }
+            created[0] = true;
+            return new Flight<>();
+        });
+        if (created[0])
+            try {
+                executor.execute(() -> {
+                    flight.run(call);
+                    flights.remove(key, flight);
+                });
+            } catch (RejectedExecutionException e) {
+                flights.remove(key, flight);
+                flight.future.completeExceptionally(e);
+            }
+        return flight.future;
+    }
+
+    /**
+     * Get the future of the call in flight for a key
+     * @return the future, or <code>null</code> if no call is in flight
+     */
+    public CompletableFuture<V> get(K key) {
+        Flight<V> flight = flights.get(key);
+        return flight != null ? flight.future : null;
+    }
+
+    /**
+     * Tell that a caller is no longer interested in the result of a call. The
+     * call is cancelled when nobody is waiting for it anymore.
+     * @param key the key of the call
+     * @param future the future returned by <code>submit()</code>
+     */
+    public void abandon(K key, CompletableFuture<V> future) {
+        // Atomic with the joins of submit(), a caller joining the call either
+        // keeps it running or gets a new one
+        List<Flight<V>> abandoned = new ArrayList<>(1);
+        flights.computeIfPresent(key, (theKey, flight) -> {
+            if (flight.future != future || flight.waiters.decrementAndGet() > 0)
+                return flight;
+            abandoned.add(flight);
+            return null;
+        });
+        for (Flight<V> flight : abandoned)
+            flight.cancel(runningCallCanceller);
+    }
+
+    private static class Flight<V> {
+        private final CompletableFuture<V> future = new CompletableFuture<>();
+        private final AtomicInteger waiters = new AtomicInteger(1);
+        private Thread runner;
+
+        private void run(Callable<V> call) {
+            synchronized (this) {
+                if (future.isDone())
+                    return;
+                runner = Thread.currentThread();
+            }
+            try {
+                future.complete(call.call());
+            } catch (Exception e) {
+                future.completeExceptionally(e);
+            } finally {
+                synchronized (this) {
+                    runner = null;
+                }
+            }
+        }
+
+        private synchronized void cancel(Consumer<Thread> runningCallCanceller) {
+            future.cancel(false);
+            if (runner != null)
+                runningCallCanceller.accept(runner);
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.clinic.drug.repository;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.clinic.Cursor;
+import com.clinic.abstracts.AbstractEntityRepository;
+import com.clinic.drug.domain.MedicineRequest;
+import com.clinic.stats.QueryStats;
+
+public class MedicineRequestRepository extends AbstractEntityRepository<MedicineRequest> {
+    public final static String OUTSTANDING_QUERY = "SELECT * FROM medicine_request"
+            + " WHERE status = " + MedicineRequest.NOT_AVAILABLE + " ORDER BY id;";
+
+    public MedicineRequestRepository() {
+        super(MedicineRequest.class);
+    }
+
+    /**
+     * Get the requests of medicines that are not available yet, the oldest
+     * first
+     */
+    public List<MedicineRequest> getOutstanding() throws SQLException {
+        QueryStats.Operation operation = startOperation("get outstanding");
+        try {
+            List<MedicineRequest> requests = new ArrayList<>();
+            try (Cursor cursor = openCursor(OUTSTANDING_QUERY)) {
+                ResultSet queryResult = cursor.getResultSet();
+                while (queryResult.next())
+                    requests.add(mapEntity(queryResult));
+            }
+            operation.addRows(requests.size());
+            return requests;
+        } finally {
+            operation.finish();
+        }
+    }
+
+    @Override
+    protected String tableName() {
+        return "medicine_request";
+    }
+}
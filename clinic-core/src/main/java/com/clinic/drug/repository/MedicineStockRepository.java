@@ -0,0 +1,154 @@
+package com.clinic.drug.repository;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.clinic.Cursor;
+import com.clinic.abstracts.AbstractEntityRepository;
+import com.clinic.drug.domain.MedicineStock;
+import com.clinic.interfaces.IRepositoryChangeListener;
+import com.clinic.stats.QueryStats;
+
+public class MedicineStockRepository extends AbstractEntityRepository<MedicineStock> {
+    public final static String AVAILABLE_QUERY = "SELECT * FROM medicine_stock"
+            + " WHERE medicine_id = ? AND qty_available > 0;";
+    public final static String LATEST_QUERY = "SELECT * FROM medicine_stock"
+            + " WHERE medicine_id = ? ORDER BY received_date DESC, id DESC LIMIT 1;";
+
+    public MedicineStockRepository() {
+        super(MedicineStock.class);
+    }
+
+    /**
+     * Get the stocks of a medicine that still have quantity available
+     * @param medicineId the id of the medicine
+     */
+    public List<MedicineStock> getAvailable(int medicineId) throws SQLException {
+        QueryStats.Operation operation = startOperation("get available");
+        try {
+            PreparedStatement statement = prepare(AVAILABLE_QUERY);
+            statement.setInt(1, medicineId);
+            List<MedicineStock> stocks = new ArrayList<>();
+            try (Cursor cursor = openCursor(statement, AVAILABLE_QUERY)) {
+                ResultSet queryResult = cursor.getResultSet();
+                while (queryResult.next())
+                    stocks.add(mapEntity(queryResult));
+            }
+            operation.addRows(stocks.size());
+            return stocks;
+        } finally {
+            operation.finish();
+        }
+    }
+
+    /**
+     * Get the stock of a medicine received last, available or not
+     * @param medicineId the id of the medicine
+     * @return <code>null</code> if the medicine was never stocked
+     */
+    public MedicineStock getLatest(int medicineId) throws SQLException {
+        QueryStats.Operation operation = startOperation("get latest");
+        try {
+            PreparedStatement statement = prepare(LATEST_QUERY);
+            statement.setInt(1, medicineId);
+            try (Cursor cursor = openCursor(statement, LATEST_QUERY)) {
+                ResultSet queryResult = cursor.getResultSet();
+                if (!queryResult.next())
+                    return null;
+                operation.addRows(1);
+                return mapEntity(queryResult);
+            }
+        } finally {
+            operation.finish();
+        }
+    }
+
+    /**
+     * Insert a stock and add its quantity to the <code>MedicineStockSummary</code>
+     */
+    @Override
+    public Integer create(MedicineStock stock) throws SQLException {
+        if (!MedicineStockSummary.isStarted())
+            return super.create(stock);
+        return inTransaction(() -> {
+            Integer generatedId = super.create(stock);
+            if (generatedId != null && generatedId > 0)
+                MedicineStockSummary.add(stock.getMedicineId(), stock.getDosageFormId(), stock.getQtyAvailable());
+            return generatedId;
+        });
+    }
+
+    /**
+     * Edit a stock and move its quantity in the <code>MedicineStockSummary</code>
+     */
+    @Override
+    public Boolean edit(MedicineStock stock) throws SQLException {
+        if (!MedicineStockSummary.isStarted())
+            return super.edit(stock);
+        return inTransaction(() -> {
+            MedicineStock previous = get(stock.getId());
+            Boolean edited = super.edit(stock);
+            if (edited && previous != null) {
+                MedicineStockSummary.take(previous.getMedicineId(), previous.getDosageFormId(),
+                        previous.getQtyAvailable());
+                MedicineStockSummary.add(stock.getMedicineId(), stock.getDosageFormId(), stock.getQtyAvailable());
+            }
+            return edited;
+        });
+    }
+
+    /**
+     * Delete a stock and take its quantity out of the <code>MedicineStockSummary</code>
+     */
+    @Override
+    public Boolean delete(Integer id) throws SQLException {
+        if (!MedicineStockSummary.isStarted())
+            return super.delete(id);
+        return inTransaction(() -> {
+            MedicineStock previous = get(id);
+            Boolean deleted = super.delete(id);
+            if (deleted && previous != null)
+                MedicineStockSummary.take(previous.getMedicineId(), previous.getDosageFormId(),
+                        previous.getQtyAvailable());
+            return deleted;
+        });
+    }
+
+    /**
+     * Take a quantity out of a stock, only if the stock still has that much
+     * available. The check and the decrement are one statement, so two sales
+     * of the same stock cannot both take its last quantity. The quantity is
+     * taken out of the <code>MedicineStockSummary</code> too.
+     * @param stock the stock, with its medicine and dosage form
+     * @param qty the quantity to take
+     * @return <code>false</code> if the stock does not have enough quantity
+     */
+    public boolean takeQty(MedicineStock stock, BigDecimal qty) throws SQLException {
+        return inTransaction(() -> {
+            Boolean taken;
+            QueryStats.Operation operation = startOperation("take qty");
+            try {
+                taken = execute("UPDATE " + tableName() + " SET qty_available = qty_available - " + qty.toPlainString()
+                        + " WHERE id=" + stock.getId() + " AND qty_available >= " + qty.toPlainString() + ";");
+                operation.addRows(taken ? 1 : 0);
+            } finally {
+                operation.finish();
+            }
+            if (taken) {
+                MedicineStockSummary.take(stock.getMedicineId(), stock.getDosageFormId(), qty);
+                notifyChange(IRepositoryChangeListener.UPDATED, stock.getId());
+            }
+            return taken;
+        });
+    }
+
+    @Override
+    protected String tableName() {
+        return "medicine_stock";
+    }
+
+}
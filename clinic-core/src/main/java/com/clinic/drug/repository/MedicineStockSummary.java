@@ -0,0 +1,219 @@
+package com.clinic.drug.repository;
+
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import com.clinic.ClinicConnection;
+import com.clinic.Cursor;
+
+/**
+ * The quantity available of every medicine by dosage form, summed over its
+ * stocks. It is kept in the <code>medicine_stock_summary</code> table and in
+ * memory, so reading it never scans the stocks.<br>
+ * <code>MedicineStockRepository</code> adds the quantity it writes into a
+ * stock to the summary in the same transaction, this covers the purchases,
+ * the sales, the prescriptions sold and the stocks edited by hand. Once the
+ * write is committed the quantities of the medicine are read back into
+ * memory, so the writes of other workstations to the same medicine are
+ * picked up and a concurrent reload never loses or counts a write twice.<br>
+ * The summary is compared with the stocks on <code>start()</code> and then
+ * every <code>RECONCILE_MINUTES</code>, to correct the writes made outside
+ * the application. Only the quantities that differ are written, each one
+ * only if no other write changed it since it was compared, so every
+ * workstation can reconcile without fighting the sales.
+ *
+ * @author Jose Ryu Leonesta <jose.leonesta@student.matanauniversity.ac.id>
+ */
+public class MedicineStockSummary {
+    public final static int RECONCILE_MINUTES = Integer.getInteger("clinic.stockSummary.reconcileMinutes", 15);
+
+    public final static String CREATE_TABLE_QUERY = "CREATE TABLE IF NOT EXISTS medicine_stock_summary ("
+            + "medicine_id INT NOT NULL, dosage_form_id INT NOT NULL, qty_available DECIMAL(20,4) NOT NULL DEFAULT 0,"
+            + " PRIMARY KEY (medicine_id, dosage_form_id));";
+    public final static String STOCK_TOTAL_QUERY = "SELECT medicine_id, dosage_form_id,"
+            + " SUM(qty_available) AS qty_available FROM medicine_stock GROUP BY medicine_id, dosage_form_id;";
+    public final static String LOAD_QUERY = "SELECT medicine_id, dosage_form_id, qty_available"
+            + " FROM medicine_stock_summary;";
+
+    private static Map<Long, BigDecimal> qtyByDosageForm = new ConcurrentHashMap<>();
+    private static Map<Integer, BigDecimal> qtyByMedicine = new ConcurrentHashMap<>();
+    private static ScheduledExecutorService reconciler;
+    private static volatile boolean started = false;
+
+    /**
+     * Create the summary table if needed, reconcile it and start reconciling
+     * it in the background. The database must be connected.
+     */
+    public static synchronized void start() throws SQLException {
+        if (started)
+            return;
+
+        ClinicConnection.execute(CREATE_TABLE_QUERY);
+        reconcile();
+        started = true;
+
+        reconciler = Executors.newSingleThreadScheduledExecutor((runnable) -> {
+            Thread thread = new Thread(runnable, "clinic-stock-summary");
+            thread.setDaemon(true);
+            return thread;
+        });
+        reconciler.scheduleWithFixedDelay(() -> {
+            try {
+                int corrected = reconcile();
+                if (corrected > 0)
+                    System.out.println("Stock summary reconciled, " + corrected + " quantities corrected");
+            } catch (SQLException e) {
+                System.out.println("Exception caught in MedicineStockSummary.reconcile(): " + e.toString());
+            }
+        }, RECONCILE_MINUTES, RECONCILE_MINUTES, TimeUnit.MINUTES);
+    }
+
+    public static boolean isStarted() {
+        return started;
+    }
+
+    /**
+     * Get the quantity available of a medicine in a dosage form
+     */
+    public static BigDecimal getQtyAvailable(int medicineId, int dosageFormId) {
+        return qtyByDosageForm.getOrDefault(key(medicineId, dosageFormId), BigDecimal.ZERO);
+    }
+
+    /**
+     * Get the quantity available of a medicine in every dosage form
+     */
+    public static BigDecimal getQtyAvailable(int medicineId) {
+        return qtyByMedicine.getOrDefault(medicineId, BigDecimal.ZERO);
+    }
+
+    /**
+     * Add a quantity written into a stock to the summary, in the transaction
+     * of the write. The medicine is read back into memory once it is
+     * committed. Nothing is done before <code>start()</code>.
+     * @param medicineId the medicine of the stock
+     * @param dosageFormId the dosage form of the stock
+     * @param qty the quantity added, negative when taken
+     */
+    static void add(Integer medicineId, Integer dosageFormId, BigDecimal qty) throws SQLException {
+        if (!started || medicineId == null || dosageFormId == null || qty == null || qty.signum() == 0)
+            return;
+
+        ClinicConnection.execute("INSERT INTO medicine_stock_summary (medicine_id, dosage_form_id, qty_available)"
+                + " VALUES (" + medicineId + ", " + dosageFormId + ", " + qty.toPlainString() + ")"
+                + " ON DUPLICATE KEY UPDATE qty_available = qty_available + VALUES(qty_available);");
+        ClinicConnection.afterCommit(() -> {
+            try {
+                loadMedicine(medicineId);
+            } catch (SQLException e) {
+                System.out.println("Exception caught in MedicineStockSummary.add(): " + e.toString());
+            }
+        });
+    }
+
+    /**
+     * Subtract a quantity taken out of a stock from the summary
+     * @see #add(Integer, Integer, BigDecimal)
+     */
+    static void take(Integer medicineId, Integer dosageFormId, BigDecimal qty) throws SQLException {
+        if (qty != null)
+            add(medicineId, dosageFormId, qty.negate());
+    }
+
+    /**
+     * Correct the quantities of the summary table that differ from the sum of
+     * the stocks, then load the table into memory
+     * @return the number of quantities of the table that were corrected
+     */
+    public static int reconcile() throws SQLException {
+        int corrected = ClinicConnection.inTransaction(() -> {
+            // Both are read from the same snapshot of the transaction
+            Map<Long, BigDecimal> stockTotals = readQuantities(STOCK_TOTAL_QUERY);
+            Map<Long, BigDecimal> summary = readQuantities(LOAD_QUERY);
+            int written = 0;
+            for (Map.Entry<Long, BigDecimal> total : stockTotals.entrySet()) {
+                BigDecimal known = summary.get(total.getKey());
+                if (known == null || known.compareTo(total.getValue()) != 0)
+                    written += correct(total.getKey(), known, total.getValue()) ? 1 : 0;
+            }
+            for (Map.Entry<Long, BigDecimal> known : summary.entrySet())
+                if (!stockTotals.containsKey(known.getKey()) && known.getValue().signum() != 0)
+                    written += correct(known.getKey(), known.getValue(), BigDecimal.ZERO) ? 1 : 0;
+            return written;
+        });
+
+        synchronized (MedicineStockSummary.class) {
+            Map<Long, BigDecimal> loaded = readQuantities(LOAD_QUERY);
+            Map<Integer, BigDecimal> loadedByMedicine = new HashMap<>();
+            for (Map.Entry<Long, BigDecimal> qty : loaded.entrySet())
+                loadedByMedicine.merge((int) (qty.getKey() >> 32), qty.getValue(), BigDecimal::add);
+            qtyByDosageForm.keySet().retainAll(loaded.keySet());
+            qtyByDosageForm.putAll(loaded);
+            qtyByMedicine.keySet().retainAll(loadedByMedicine.keySet());
+            qtyByMedicine.putAll(loadedByMedicine);
+        }
+        return corrected;
+    }
+
+    /**
+     * Set a quantity of the summary table if it still holds the quantity it
+     * was compared with
+     * @param known the quantity compared, <code>null</code> if there was no
+     * row
+     * @return <code>true</code> if it was written
+     */
+    private static boolean correct(long key, BigDecimal known, BigDecimal total) throws SQLException {
+        int medicineId = (int) (key >> 32);
+        int dosageFormId = (int) key;
+        if (known == null)
+            return ClinicConnection.execute("INSERT IGNORE INTO medicine_stock_summary"
+                    + " (medicine_id, dosage_form_id, qty_available) VALUES (" + medicineId + ", " + dosageFormId
+                    + ", " + total.toPlainString() + ");");
+        return ClinicConnection.execute("UPDATE medicine_stock_summary SET qty_available = " + total.toPlainString()
+                + " WHERE medicine_id=" + medicineId + " AND dosage_form_id=" + dosageFormId
+                + " AND qty_available = " + known.toPlainString() + ";");
+    }
+
+    /**
+     * Read the quantities of a medicine from the summary table into memory.
+     * Runs under the lock of the reload of <code>reconcile()</code>, the
+     * later read wins.
+     */
+    private static void loadMedicine(int medicineId) throws SQLException {
+        synchronized (MedicineStockSummary.class) {
+            Map<Long, BigDecimal> loaded = readQuantities("SELECT medicine_id, dosage_form_id, qty_available"
+                    + " FROM medicine_stock_summary WHERE medicine_id=" + medicineId + ";");
+            BigDecimal total = BigDecimal.ZERO;
+            for (Map.Entry<Long, BigDecimal> qty : loaded.entrySet()) {
+                qtyByDosageForm.put(qty.getKey(), qty.getValue());
+                total = total.add(qty.getValue());
+            }
+            qtyByMedicine.put(medicineId, total);
+        }
+    }
+
+    /**
+     * Read the quantities of a query selecting <code>medicine_id</code>,
+     * <code>dosage_form_id</code> and <code>qty_available</code>
+     */
+    private static Map<Long, BigDecimal> readQuantities(String sqlQuery) throws SQLException {
+        Map<Long, BigDecimal> quantities = new HashMap<>();
+        try (Cursor cursor = ClinicConnection.openCursor(sqlQuery)) {
+            ResultSet result = cursor.getResultSet();
+            while (result.next())
+                quantities.put(key(result.getInt("medicine_id"), result.getInt("dosage_form_id")),
+                        result.getBigDecimal("qty_available"));
+        }
+        return quantities;
+    }
+
+    private static long key(int medicineId, int dosageFormId) {
+        return ((long) medicineId << 32) | (dosageFormId & 0xffffffffL);
+    }
+}
@@ -0,0 +1,62 @@
+package com.clinic.drug.repository;
+
+import java.sql.Date;
+import java.sql.SQLException;
+import java.time.LocalDate;
+
+import com.clinic.Cursor;
+import com.clinic.abstracts.AbstractEntityRepository;
+import com.clinic.drug.domain.SellMedicineDetail;
+import com.clinic.drug.service.SalesRollup;
+
+public class SellMedicineDetailRepository extends AbstractEntityRepository<SellMedicineDetail> {
+    public SellMedicineDetailRepository() {
+        super(SellMedicineDetail.class);
+    }
+
+    /**
+     * Get the purchase date of the header of a sell detail
+     * @param id the id of the sell detail
+     * @return <code>null</code> if the detail or its header does not exist
+     */
+    public LocalDate getSaleDate(Integer id) throws SQLException {
+        try (Cursor cursor = openCursor("SELECT h.purchase_date FROM sell_medicine_detail d"
+                + " JOIN sell_medicine_header h ON h.id = d.sell_medicine_header_id WHERE d.id=" + id + ";")) {
+            if (!cursor.next())
+                return null;
+            Date saleDate = cursor.getResultSet().getDate("purchase_date");
+            return saleDate != null ? saleDate.toLocalDate() : null;
+        }
+    }
+
+    /**
+     * Edit a sell detail, the sales rollups of the date of its previous and
+     * new header are rebuilt once committed
+     */
+    @Override
+    public Boolean edit(SellMedicineDetail entity) throws SQLException {
+        LocalDate previousSaleDate = getSaleDate(entity.getId());
+        Boolean edited = super.edit(entity);
+        if (edited)
+            SalesRollup.rebuildAfterCommit(previousSaleDate, getSaleDate(entity.getId()));
+        return edited;
+    }
+
+    /**
+     * Delete a sell detail, the sales rollups of its date are rebuilt once
+     * committed
+     */
+    @Override
+    public Boolean delete(Integer id) throws SQLException {
+        LocalDate saleDate = getSaleDate(id);
+        Boolean deleted = super.delete(id);
+        if (deleted)
+            SalesRollup.rebuildAfterCommit(saleDate);
+        return deleted;
+    }
+
+    @Override
+    protected String tableName() {
+        return "sell_medicine_detail";
+    }
+}
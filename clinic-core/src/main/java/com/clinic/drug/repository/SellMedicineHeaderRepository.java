@@ -0,0 +1,45 @@
+package com.clinic.drug.repository;
+
+import java.sql.SQLException;
+
+import com.clinic.abstracts.AbstractEntityRepository;
+import com.clinic.drug.domain.SellMedicineHeader;
+import com.clinic.drug.service.SalesRollup;
+
+public class SellMedicineHeaderRepository extends AbstractEntityRepository<SellMedicineHeader> {
+    public SellMedicineHeaderRepository() {
+        super(SellMedicineHeader.class);
+    }
+
+    /**
+     * Edit a sell header, the sales rollups of its previous and new purchase
+     * date are rebuilt once committed
+     */
+    @Override
+    public Boolean edit(SellMedicineHeader entity) throws SQLException {
+        SellMedicineHeader previous = get(entity.getId());
+        Boolean edited = super.edit(entity);
+        if (edited)
+            SalesRollup.rebuildAfterCommit(previous != null ? previous.getPurchaseDate() : null,
+                    entity.getPurchaseDate());
+        return edited;
+    }
+
+    /**
+     * Delete a sell header, the sales rollups of its purchase date are
+     * rebuilt once committed
+     */
+    @Override
+    public Boolean delete(Integer id) throws SQLException {
+        SellMedicineHeader previous = get(id);
+        Boolean deleted = super.delete(id);
+        if (deleted && previous != null)
+            SalesRollup.rebuildAfterCommit(previous.getPurchaseDate());
+        return deleted;
+    }
+
+    @Override
+    protected String tableName() {
+        return "sell_medicine_header";
+    }
+}
@@ -0,0 +1,47 @@
+package com.clinic.drug.repository;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import com.clinic.Cursor;
+import com.clinic.abstracts.AbstractEntityRepository;
+import com.clinic.drug.domain.User;
+import com.clinic.stats.QueryStats;
+
+public class UserRepository extends AbstractEntityRepository<User> {
+    public final static String LOGIN_QUERY = "SELECT * FROM user WHERE username LIKE ? AND password LIKE ?;";
+
+    public UserRepository() {
+        super(User.class);
+    }
+
+    /**
+     * Get the user with the given credential
+     * @param username
+     * @param password
+     * @return the user, or <code>null</code> if the credential is not correct
+     */
+    public User login(String username, String password) throws SQLException {
+        QueryStats.Operation operation = startOperation("login");
+        try {
+            PreparedStatement statement = prepare(LOGIN_QUERY);
+            statement.setString(1, username);
+            statement.setString(2, password);
+            try (Cursor cursor = openCursor(statement, LOGIN_QUERY)) {
+                ResultSet userResult = cursor.getResultSet();
+                if (!userResult.next())
+                    return null;
+                operation.addRows(1);
+                return mapEntity(userResult);
+            }
+        } finally {
+            operation.finish();
+        }
+    }
+
+    @Override
+    protected String tableName() {
+        return "user";
+    }
+}
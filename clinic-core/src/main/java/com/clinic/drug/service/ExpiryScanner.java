@@ -0,0 +1,393 @@
+package com.clinic.drug.service;
+
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import com.clinic.ClinicConnection;
+import com.clinic.Cursor;
+import com.clinic.drug.repository.MedicineStockRepository;
+import com.clinic.factories.EntityRepositoryFactory;
+import com.clinic.interfaces.IRepositoryChangeListener;
+
+/**
+ * Warns about the medicine stocks approaching their exp date. The available
+ * stocks are loaded once into an index sorted by exp date, and the index is
+ * then kept up to date from the writes of <code>MedicineStockRepository</code>
+ * instead of scanning the stocks again.<br>
+ * Every <code>CHECK_SECONDS</code> the written stocks are reloaded, and the
+ * stocks that crossed a horizon since the last check raise an alert. The
+ * whole index is reloaded every <code>clinic.expiry.reloadMinutes</code>
+ * (15 by default) to pick up the writes of other workstations. The smallest
+ * horizon alerted for a stock is kept in the
+ * <code>medicine_stock_expiry_alert</code> table, so a horizon is alerted
+ * once even when the application is restarted, and a horizon crossed while
+ * it was closed is alerted on the first check. The
+ * horizons are set in days by the <code>clinic.expiry.horizons</code> system
+ * property, "90,30,7" by default. An expired stock raises an alert at
+ * horizon 0. Only the start of the index, up to the largest horizon, is read
+ * by a check.
+ *
+ * @author Jose Ryu Leonesta <jose.leonesta@student.matanauniversity.ac.id>
+ */
+public class ExpiryScanner {
+    public final static int CHECK_SECONDS = 60;
+    public final static int RELOAD_MINUTES = Integer.getInteger("clinic.expiry.reloadMinutes", 15);
+    public final static int[] HORIZONS = parseHorizons(System.getProperty("clinic.expiry.horizons", "90,30,7"));
+
+    public final static String CREATE_ALERT_TABLE_QUERY = "CREATE TABLE IF NOT EXISTS medicine_stock_expiry_alert ("
+            + "medicine_stock_id INT NOT NULL, exp_date DATE NOT NULL, alerted_horizon INT NOT NULL,"
+            + " PRIMARY KEY (medicine_stock_id));";
+    public final static String LOAD_QUERY = "SELECT s.id, s.medicine_id, m.brand_name, s.batch_number, s.exp_date,"
+            + " s.qty_available, x.alerted_horizon FROM medicine_stock s JOIN medicine m ON m.id = s.medicine_id"
+            + " LEFT JOIN medicine_stock_expiry_alert x ON x.medicine_stock_id = s.id AND x.exp_date = s.exp_date"
+            + " WHERE s.qty_available > 0 AND s.exp_date IS NOT NULL";
+
+    private static TreeMap<LocalDate, Map<Integer, ExpiringStock>> stocksByExpDate = new TreeMap<>();
+    private static Map<Integer, ExpiringStock> stocksById = new HashMap<>();
+    private static Set<Integer> writtenStockIds = ConcurrentHashMap.newKeySet();
+    private static List<Consumer<ExpiringStock>> alertListeners = new CopyOnWriteArrayList<>();
+    private static List<Runnable> changeListeners = new CopyOnWriteArrayList<>();
+    private static ScheduledExecutorService scanner;
+    private static volatile boolean reloadAll = false;
+    private static long lastLoadAll = 0;
+    private static boolean tableCreated = false;
+
+    /**
+     * Load the index and start checking it in the background. The database
+     * must be connected.
+     */
+    public static synchronized void start() {
+        if (scanner != null)
+            return;
+
+        EntityRepositoryFactory.getRepository(MedicineStockRepository.class)
+                .addChangeListener((repository, action, id) -> {
+                    if (id == null)
+                        return;
+                    // A purchase shows its new stocks at once, sales wait for the next check
+                    ClinicConnection.afterCommit(() -> {
+                        writtenStockIds.add(id);
+                        if (action == IRepositoryChangeListener.CREATED)
+                            checkSoon();
+                    });
+                });
+
+        reloadAll = true;
+        scanner = Executors.newSingleThreadScheduledExecutor((runnable) -> {
+            Thread thread = new Thread(runnable, "clinic-expiry-scanner");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scanner.scheduleWithFixedDelay(ExpiryScanner::check, 0, CHECK_SECONDS, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Check the index now, for example after a purchase was saved, instead
+     * of waiting for the next check
+     */
+    public static void checkSoon() {
+        if (scanner != null)
+            scanner.execute(ExpiryScanner::check);
+    }
+
+    /**
+     * Add a listener called from the scanner thread once for every stock
+     * crossing a horizon
+     */
+    public static void addAlertListener(Consumer<ExpiringStock> listener) {
+        alertListeners.add(listener);
+    }
+
+    /**
+     * Add a listener called from the scanner thread when the list of stocks
+     * expiring soon may have changed
+     */
+    public static void addChangeListener(Runnable listener) {
+        changeListeners.add(listener);
+    }
+
+    /**
+     * Get the stocks expiring within the largest horizon, or expired, the
+     * first to expire first
+     */
+    public static List<ExpiringStock> getExpiringSoon() {
+        return getExpiringWithin(HORIZONS.length > 0 ? HORIZONS[0] : 0);
+    }
+
+    /**
+     * Get the stocks expiring within a number of days, or expired, the first
+     * to expire first
+     * @param days example: 30
+     */
+    public static synchronized List<ExpiringStock> getExpiringWithin(int days) {
+        List<ExpiringStock> expiring = new ArrayList<>();
+        for (Map<Integer, ExpiringStock> stocks : stocksByExpDate.headMap(LocalDate.now().plusDays(days), true).values())
+            expiring.addAll(stocks.values());
+        return expiring;
+    }
+
+    /**
+     * Get the number of stocks within every horizon, example: {90=12, 30=3, 7=0}
+     */
+    public static synchronized Map<Integer, Integer> countByHorizon() {
+        Map<Integer, Integer> counts = new LinkedHashMap<>();
+        for (int horizon : HORIZONS) {
+            int count = 0;
+            for (Map<Integer, ExpiringStock> stocks : stocksByExpDate
+                    .headMap(LocalDate.now().plusDays(horizon), true).values())
+                count += stocks.size();
+            counts.put(horizon, count);
+        }
+        return counts;
+    }
+
+    private static void check() {
+        try {
+            if (System.nanoTime() - lastLoadAll >= TimeUnit.MINUTES.toNanos(RELOAD_MINUTES))
+                reloadAll = true;
+            boolean changed = reloadAll ? loadAll() : loadWritten();
+            List<ExpiringStock> alerts = findCrossedHorizons();
+            for (ExpiringStock stock : alerts) {
+                saveAlertedHorizon(stock);
+                System.out.println("Medicine stock " + (stock.getAlertedHorizon() == 0 ? "expired" : "expiring within "
+                        + stock.getAlertedHorizon() + " days") + ": " + stock);
+                for (Consumer<ExpiringStock> listener : alertListeners)
+                    listener.accept(stock);
+            }
+            if (changed || !alerts.isEmpty())
+                for (Runnable listener : changeListeners)
+                    listener.run();
+        } catch (Exception e) {
+            System.out.println("Exception caught in ExpiryScanner.check(): " + e.toString());
+        }
+    }
+
+    /**
+     * Load every available stock into the index, the alerts already raised
+     * are kept
+     */
+    private static boolean loadAll() throws SQLException {
+        if (!tableCreated) {
+            ClinicConnection.execute(CREATE_ALERT_TABLE_QUERY);
+            tableCreated = true;
+        }
+        writtenStockIds.clear();
+        List<ExpiringStock> loaded = query(LOAD_QUERY + ";");
+        synchronized (ExpiryScanner.class) {
+            Map<Integer, ExpiringStock> previous = new HashMap<>(stocksById);
+            stocksByExpDate.clear();
+            stocksById.clear();
+            for (ExpiringStock stock : loaded)
+                put(stock, previous.get(stock.getStockId()));
+        }
+        lastLoadAll = System.nanoTime();
+        reloadAll = false;
+        return true;
+    }
+
+    /**
+     * Reload the stocks written since the last check, a stock that is no
+     * longer available leaves the index
+     */
+    private static boolean loadWritten() throws SQLException {
+        if (writtenStockIds.isEmpty())
+            return false;
+        List<Integer> ids = new ArrayList<>(writtenStockIds);
+        writtenStockIds.removeAll(ids);
+
+        StringBuilder idList = new StringBuilder();
+        for (Integer id : ids)
+            idList.append(idList.length() == 0 ? "" : ",").append(id);
+        List<ExpiringStock> loaded = query(LOAD_QUERY + " AND s.id IN (" + idList + ");");
+        synchronized (ExpiryScanner.class) {
+            Map<Integer, ExpiringStock> previous = new HashMap<>();
+            for (Integer id : ids)
+                previous.put(id, remove(id));
+            for (ExpiringStock stock : loaded)
+                put(stock, previous.get(stock.getStockId()));
+        }
+        return true;
+    }
+
+    /**
+     * Find the stocks that crossed a horizon they have not been alerted for
+     */
+    private static synchronized List<ExpiringStock> findCrossedHorizons() {
+        List<ExpiringStock> crossed = new ArrayList<>();
+        LocalDate today = LocalDate.now();
+        int largestHorizon = HORIZONS.length > 0 ? HORIZONS[0] : 0;
+        for (Map<Integer, ExpiringStock> stocks : stocksByExpDate.headMap(today.plusDays(largestHorizon), true).values()) {
+            for (ExpiringStock stock : stocks.values()) {
+                int horizon = horizonOf(ChronoUnit.DAYS.between(today, stock.getExpDate()));
+                if (horizon < stock.alertedHorizon) {
+                    stock.alertedHorizon = horizon;
+                    crossed.add(stock);
+                }
+            }
+        }
+        return crossed;
+    }
+
+    /**
+     * Keep the horizon alerted for a stock, a failure only means the horizon
+     * may be alerted again after a restart
+     */
+    private static void saveAlertedHorizon(ExpiringStock stock) {
+        try {
+            ClinicConnection.execute("INSERT INTO medicine_stock_expiry_alert"
+                    + " (medicine_stock_id, exp_date, alerted_horizon) VALUES (" + stock.getStockId() + ", '"
+                    + stock.getExpDate() + "', " + stock.getAlertedHorizon() + ")"
+                    + " ON DUPLICATE KEY UPDATE exp_date = VALUES(exp_date),"
+                    + " alerted_horizon = VALUES(alerted_horizon);");
+        } catch (SQLException e) {
+            System.out.println("Exception caught in ExpiryScanner.saveAlertedHorizon(): " + e.toString());
+        }
+    }
+
+    /**
+     * Get the smallest horizon a number of days until the exp date is within,
+     * 0 if expired
+     */
+    private static int horizonOf(long daysLeft) {
+        if (daysLeft < 0)
+            return 0;
+        int horizon = Integer.MAX_VALUE;
+        for (int candidate : HORIZONS)
+            if (daysLeft <= candidate)
+                horizon = candidate;
+        return horizon;
+    }
+
+    private static List<ExpiringStock> query(String sqlQuery) throws SQLException {
+        List<ExpiringStock> stocks = new ArrayList<>();
+        try (Cursor cursor = ClinicConnection.openCursor(sqlQuery)) {
+            ResultSet result = cursor.getResultSet();
+            while (result.next()) {
+                ExpiringStock stock = new ExpiringStock(result.getInt("id"), result.getInt("medicine_id"),
+                        result.getString("brand_name"), result.getString("batch_number"), result.getDate("exp_date").toLocalDate(),
+                        result.getBigDecimal("qty_available"));
+                int alertedHorizon = result.getInt("alerted_horizon");
+                if (!result.wasNull())
+                    stock.alertedHorizon = alertedHorizon;
+                stocks.add(stock);
+            }
+        }
+        return stocks;
+    }
+
+    private static void put(ExpiringStock stock, ExpiringStock previous) {
+        // A stock keeps its alerts unless its exp date was changed
+        if (previous != null && previous.getExpDate().equals(stock.getExpDate()))
+            stock.alertedHorizon = Math.min(stock.alertedHorizon, previous.alertedHorizon);
+        stocksById.put(stock.getStockId(), stock);
+        stocksByExpDate.computeIfAbsent(stock.getExpDate(), (expDate) -> new LinkedHashMap<>())
+                .put(stock.getStockId(), stock);
+    }
+
+    private static ExpiringStock remove(int stockId) {
+        ExpiringStock stock = stocksById.remove(stockId);
+        if (stock == null)
+            return null;
+        Map<Integer, ExpiringStock> stocks = stocksByExpDate.get(stock.getExpDate());
+        stocks.remove(stockId);
+        if (stocks.isEmpty())
+            stocksByExpDate.remove(stock.getExpDate());
+        return stock;
+    }
+
+    private static int[] parseHorizons(String horizons) {
+        return Arrays.stream(horizons.split(","))
+                .map(String::trim)
+                .filter((horizon) -> !horizon.isEmpty())
+                .mapToInt(Integer::parseInt)
+                .map((horizon) -> -horizon)
+                .sorted()
+                .map((horizon) -> -horizon)
+                .toArray();
+    }
+
+    /**
+     * An available stock in the index
+     */
+    public static class ExpiringStock {
+        private final int stockId;
+        private final int medicineId;
+        private final String brandName;
+        private final String batchNumber;
+        private final LocalDate expDate;
+        private final BigDecimal qtyAvailable;
+        private volatile int alertedHorizon = Integer.MAX_VALUE;
+
+        private ExpiringStock(int stockId, int medicineId, String brandName, String batchNumber,
+                LocalDate expDate, BigDecimal qtyAvailable) {
+            this.stockId = stockId;
+            this.medicineId = medicineId;
+            this.brandName = brandName;
+            this.batchNumber = batchNumber;
+            this.expDate = expDate;
+            this.qtyAvailable = qtyAvailable;
+        }
+
+        public int getStockId() {
+            return stockId;
+        }
+
+        public int getMedicineId() {
+            return medicineId;
+        }
+
+        public String getBrandName() {
+            return brandName;
+        }
+
+        public String getBatchNumber() {
+            return batchNumber;
+        }
+
+        public LocalDate getExpDate() {
+            return expDate;
+        }
+
+        public BigDecimal getQtyAvailable() {
+            return qtyAvailable;
+        }
+
+        /**
+         * Get the days until the exp date, negative once expired
+         */
+        public long getDaysLeft() {
+            return ChronoUnit.DAYS.between(LocalDate.now(), expDate);
+        }
+
+        /**
+         * Get the smallest horizon alerted for the stock, 0 once expired,
+         * <code>Integer.MAX_VALUE</code> if none yet
+         */
+        public int getAlertedHorizon() {
+            return alertedHorizon;
+        }
+
+        @Override
+        public String toString() {
+            return "stock " + stockId + " of " + brandName + ", batch " + batchNumber + ", exp date "
+                    + expDate + ", qty " + qtyAvailable.toPlainString();
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package com.clinic.drug.service;
+
+import java.sql.SQLException;
+import java.util.Map;
+
+import com.clinic.ClinicConnection;
+import com.clinic.drug.domain.BaseTransactionDetail;
+import com.clinic.drug.domain.MedicineStock;
+import com.clinic.drug.domain.PurchaseMedicineDetail;
+import com.clinic.drug.domain.PurchaseMedicineHeader;
+import com.clinic.drug.domain.SellMedicineDetail;
+import com.clinic.drug.domain.SellMedicineHeader;
+import com.clinic.drug.repository.MedicineStockRepository;
+import com.clinic.drug.repository.PurchaseMedicineDetailRepository;
+import com.clinic.drug.repository.PurchaseMedicineHeaderRepository;
+import com.clinic.drug.repository.SellMedicineDetailRepository;
+import com.clinic.drug.repository.SellMedicineHeaderRepository;
+import com.clinic.factories.EntityRepositoryFactory;
+import com.clinic.stats.TransactionSaveEvent;
+
+/**
+ * Saves the purchase and sell transactions of medicines with their effect on
+ * the medicine stocks. Used by the transaction screen and the headless tools.
+ * 
+ * @author Jose Ryu Leonesta <jose.leonesta@student.matanauniversity.ac.id>
+ */
+public class MedicineTransactionService {
+    /**
+     * Save a purchase in one transaction: the header, then for every detail
+     * the detail and the new medicine stock it brings
+     * @param purchaseHeader the header to create
+     * @param transactionAndStockMap the purchase details with their new stock
+     * @throws SQLException with the message of the failed step, nothing is
+     * kept
+     */
+    public static void savePurchase(PurchaseMedicineHeader purchaseHeader,
+            Map<BaseTransactionDetail, MedicineStock> transactionAndStockMap) throws SQLException {
+        TransactionSaveEvent event = new TransactionSaveEvent();
+        event.begin();
+        try {
+            ClinicConnection.inTransaction(() -> {
+                insertPurchase(purchaseHeader, transactionAndStockMap);
+                return null;
+            });
+        } catch (SQLException e) {
+            event.error = e.getMessage();
+            throw e;
+        } finally {
+            event.kind = TransactionSaveEvent.PURCHASE;
+            event.details = transactionAndStockMap.size();
+            event.commit();
+        }
+    }
+
+    private static void insertPurchase(PurchaseMedicineHeader purchaseHeader,
+            Map<BaseTransactionDetail, MedicineStock> transactionAndStockMap) throws SQLException {
+        PurchaseMedicineHeaderRepository purchaseHeaderRepo = EntityRepositoryFactory
+                .getRepository(PurchaseMedicineHeaderRepository.class);
+        PurchaseMedicineDetailRepository purchaseDetailRepo = EntityRepositoryFactory
+                .getRepository(PurchaseMedicineDetailRepository.class);
+        MedicineStockRepository medicineStockRepo = EntityRepositoryFactory
+                .getRepository(MedicineStockRepository.class);
+        int purchaseHeaderId;
+        try {
+            purchaseHeaderId = purchaseHeaderRepo.create(purchaseHeader);
+        } catch (SQLException e) {
+            throw new SQLException("Failed to save purchase header", e);
+        }
+
+        for (BaseTransactionDetail baseDetail : transactionAndStockMap.keySet()) {
+            PurchaseMedicineDetail purchaseDetail = (PurchaseMedicineDetail) baseDetail;
+            MedicineStock medicineStock = transactionAndStockMap.get(purchaseDetail);
+            purchaseDetail.setPurchaseMedicineHeaderId(purchaseHeaderId);
+            try {
+                int purchaseDetailId = purchaseDetailRepo.create(purchaseDetail);
+                medicineStock.setPurchaseMedicineDetailId(purchaseDetailId);
+            } catch (SQLException e) {
+                throw new SQLException("Failed to save purchase detail", e);
+            }
+
+            try {
+                medicineStockRepo.create(medicineStock);
+            } catch (SQLException e) {
+                throw new SQLException("Failed to save medicine stock", e);
+            }
+        }
+    }
+
+    /**
+     * Save a sale in one transaction: the header, then for every detail the
+     * detail, the decrement of the medicine stock it is taken from and its
+     * addition to the <code>SalesRollup</code>. The
+     * decrement only happens if the stock still has the quantity, else the
+     * whole sale is rolled back.
+     * @param sellHeader the header to create
+     * @param transactionAndStockMap the sell details with their stock, as
+     * allocated by <code>StockAllocator</code>
+     * @throws SQLException with the message of the failed step, nothing is
+     * kept
+     */
+    public static void saveSell(SellMedicineHeader sellHeader,
+            Map<BaseTransactionDetail, MedicineStock> transactionAndStockMap) throws SQLException {
+        TransactionSaveEvent event = new TransactionSaveEvent();
+        event.begin();
+        try {
+            // A sale saved before the startup started the rollups starts
+            // them, it waits for the tables to be created
+            if (!SalesRollup.isStarted())
+                SalesRollup.start();
+            ClinicConnection.inTransaction(() -> {
+                insertSell(sellHeader, transactionAndStockMap);
+                return null;
+            });
+        } catch (SQLException e) {
+            event.error = e.getMessage();
+            throw e;
+        } finally {
+            event.kind = TransactionSaveEvent.SELL;
+            event.details = transactionAndStockMap.size();
+            event.commit();
+        }
+    }
+
+    private static void insertSell(SellMedicineHeader sellHeader,
+            Map<BaseTransactionDetail, MedicineStock> transactionAndStockMap) throws SQLException {
+        SellMedicineHeaderRepository sellHeaderRepo = EntityRepositoryFactory
+                .getRepository(SellMedicineHeaderRepository.class);
+        SellMedicineDetailRepository sellDetailRepo = EntityRepositoryFactory
+                .getRepository(SellMedicineDetailRepository.class);
+        MedicineStockRepository medicineStockRepo = EntityRepositoryFactory
+                .getRepository(MedicineStockRepository.class);
+        int sellHeaderId;
+        try {
+            sellHeaderId = sellHeaderRepo.create(sellHeader);
+        } catch (SQLException e) {
+            throw new SQLException("Failed to save sell header", e);
+        }
+
+        for (BaseTransactionDetail baseDetail : transactionAndStockMap.keySet()) {
+            SellMedicineDetail sellDetail = (SellMedicineDetail) baseDetail;
+            MedicineStock medicineStock = transactionAndStockMap.get(sellDetail);
+            sellDetail.setSellMedicineHeaderId(sellHeaderId);
+            sellDetail.setMedicineStockId(medicineStock.getId());
+            try {
+                sellDetailRepo.create(sellDetail);
+            } catch (SQLException e) {
+                throw new SQLException("Failed to save sell detail", e);
+            }
+
+            boolean taken;
+            try {
+                taken = medicineStockRepo.takeQty(medicineStock, sellDetail.getQty());
+            } catch (SQLException e) {
+                throw new SQLException("Failed to save medicine stock", e);
+            }
+            if (!taken) {
+                // Sold by another workstation since it was allocated
+                StockAllocator.forget(medicineStock.getMedicineId());
+                throw new SQLException("Medicine available stock is not enough");
+            }
+
+            try {
+                SalesRollup.add(sellHeader.getPurchaseDate(), medicineStock.getMedicineId(),
+                        medicineStock.getDosageFormId(), medicineStock.getPurchaseMedicineDetailId(),
+                        sellDetail.getQty(), sellDetail.getPricePerUnit());
+            } catch (SQLException e) {
+                throw new SQLException("Failed to save sales rollup", e);
+            }
+            ReorderEngine.recordSale(medicineStock.getMedicineId(), sellDetail.getQty(), sellHeader.getPurchaseDate());
+        }
+    }
+}
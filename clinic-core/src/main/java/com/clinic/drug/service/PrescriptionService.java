@@ -0,0 +1,79 @@
+package com.clinic.drug.service;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+
+import com.clinic.drug.domain.PrescriptionHeader;
+import com.clinic.drug.domain.PrescriptionIngredient;
+import com.clinic.drug.domain.PrescriptionRecipe;
+import com.clinic.drug.repository.PrescriptionHeaderRepository;
+import com.clinic.drug.repository.PrescriptionIngredientRepository;
+import com.clinic.drug.repository.PrescriptionRecipeRepository;
+import com.clinic.factories.EntityRepositoryFactory;
+import com.clinic.stats.TransactionSaveEvent;
+
+/**
+ * Saves the prescriptions written by the doctors
+ * 
+ * @author Jose Ryu Leonesta <jose.leonesta@student.matanauniversity.ac.id>
+ */
+public class PrescriptionService {
+    /**
+     * Save a prescription: the header, its recipes and the ingredients of
+     * every recipe. An ingredient that fails to save is skipped.
+     * @param header the header to create
+     * @param recipes the recipes in order, with their ingredients
+     * @return the id of the prescription header
+     * @throws SQLException if the header or a recipe fails to save
+     */
+    public static int save(PrescriptionHeader header, Map<PrescriptionRecipe, List<PrescriptionIngredient>> recipes)
+            throws SQLException {
+        TransactionSaveEvent event = new TransactionSaveEvent();
+        event.begin();
+        try {
+            return insert(header, recipes);
+        } catch (SQLException e) {
+            event.error = e.getMessage();
+            throw e;
+        } finally {
+            event.kind = TransactionSaveEvent.PRESCRIPTION;
+            event.details = recipes.size();
+            event.commit();
+        }
+    }
+
+    private static int insert(PrescriptionHeader header, Map<PrescriptionRecipe, List<PrescriptionIngredient>> recipes)
+            throws SQLException {
+        int prescriptionHeaderId;
+        try {
+            prescriptionHeaderId = EntityRepositoryFactory.getRepository(PrescriptionHeaderRepository.class)
+                    .create(header);
+        } catch (SQLException e) {
+            throw new SQLException("Failed to save prescription header", e);
+        }
+
+        for (Map.Entry<PrescriptionRecipe, List<PrescriptionIngredient>> recipe : recipes.entrySet()) {
+            recipe.getKey().setPrescriptionHeaderId(prescriptionHeaderId);
+            int recipeId;
+            try {
+                recipeId = EntityRepositoryFactory
+                    .getRepository(PrescriptionRecipeRepository.class)
+                    .create(recipe.getKey());
+            } catch (SQLException e) {
+                throw new SQLException("Failed to save recipe", e);
+            }
+
+            for (PrescriptionIngredient ingredient : recipe.getValue()) {
+                ingredient.setPrescriptionRecipeId(recipeId);
+                try {
+                    EntityRepositoryFactory.getRepository(PrescriptionIngredientRepository.class)
+                        .create(ingredient);
+                } catch (SQLException e) {
+                    System.out.println("Failed to save ingredient: " + e.toString());
+                }
+            }
+        }
+        return prescriptionHeaderId;
+    }
+}
@@ -0,0 +1,517 @@
+package com.clinic.drug.service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+import com.clinic.ClinicConnection;
+import com.clinic.Cursor;
+import com.clinic.drug.domain.BaseTransactionDetail;
+import com.clinic.drug.domain.MedicineRequest;
+import com.clinic.drug.domain.MedicineStock;
+import com.clinic.drug.domain.PurchaseMedicineDetail;
+import com.clinic.drug.domain.PurchaseMedicineHeader;
+import com.clinic.drug.repository.DosageFormRepository;
+import com.clinic.drug.repository.MedicineRepository;
+import com.clinic.drug.repository.MedicineRequestRepository;
+import com.clinic.drug.repository.MedicineStockRepository;
+import com.clinic.drug.repository.MedicineStockSummary;
+import com.clinic.drug.repository.PurchaseMedicineDetailRepository;
+import com.clinic.drug.repository.QtyUnitRepository;
+import com.clinic.factories.EntityRepositoryFactory;
+
+/**
+ * Suggests the medicines to reorder from how fast they are sold.<br>
+ * The daily consumption of every medicine, in qty unit, is an exponentially
+ * weighted moving average of its daily sales. It is computed once by
+ * streaming the sales of the last <code>HISTORY_DAYS</code> grouped by day,
+ * then every sale saved is added as it is committed. The sales committed
+ * while the history is read are kept aside and added after it, unless they
+ * were committed before the history query was sent. A medicine is reordered
+ * when its quantity on hand no longer covers the lead time and the safety
+ * days, and the quantity suggested brings it up to <code>COVER_DAYS</code>
+ * more. The outstanding <code>MedicineRequest</code>s are merged by generic
+ * name into the medicine sold most under that name.<br>
+ * Set by the <code>clinic.reorder.alpha</code>,
+ * <code>clinic.reorder.historyDays</code>,
+ * <code>clinic.reorder.leadTimeDays</code>,
+ * <code>clinic.reorder.safetyDays</code> and
+ * <code>clinic.reorder.coverDays</code> system properties.
+ *
+ * @author Jose Ryu Leonesta <jose.leonesta@student.matanauniversity.ac.id>
+ */
+public class ReorderEngine {
+    public final static double ALPHA = Double.parseDouble(System.getProperty("clinic.reorder.alpha", "0.2"));
+    public final static int HISTORY_DAYS = Integer.getInteger("clinic.reorder.historyDays", 180);
+    public final static int LEAD_TIME_DAYS = Integer.getInteger("clinic.reorder.leadTimeDays", 7);
+    public final static int SAFETY_DAYS = Integer.getInteger("clinic.reorder.safetyDays", 3);
+    public final static int COVER_DAYS = Integer.getInteger("clinic.reorder.coverDays", 30);
+
+    public final static String HISTORY_QUERY = "SELECT s.medicine_id, h.purchase_date, SUM(d.qty) AS qty"
+            + " FROM sell_medicine_detail d"
+            + " JOIN sell_medicine_header h ON h.id = d.sell_medicine_header_id"
+            + " JOIN medicine_stock s ON s.id = d.medicine_stock_id"
+            + " WHERE h.purchase_date >= '%s'"
+            + " GROUP BY s.medicine_id, h.purchase_date ORDER BY h.purchase_date;";
+    public final static String MEDICINES_QUERY = "SELECT id, brand_name, generic_name FROM medicine;";
+    public final static String QTY_ON_HAND_QUERY = "SELECT medicine_id, SUM(qty_available) AS qty"
+            + " FROM medicine_stock GROUP BY medicine_id;";
+
+    private static Map<Integer, Consumption> consumptions = new ConcurrentHashMap<>();
+    private static volatile boolean started = false;
+    private static final Object pendingLock = new Object();
+    private static List<PendingSale> pendingSales = null;
+
+    /**
+     * Compute the consumption of every medicine from the sales history. The
+     * database must be connected.
+     */
+    public static synchronized void start() throws SQLException {
+        if (started)
+            return;
+
+        beginLoading();
+        Map<Integer, Consumption> loaded = new HashMap<>();
+        String historyQuery = String.format(HISTORY_QUERY, LocalDate.now().minusDays(HISTORY_DAYS));
+        long historyReadAt = System.nanoTime();
+        try (Cursor cursor = ClinicConnection.openCursor(historyQuery)) {
+            ResultSet result = cursor.getResultSet();
+            while (result.next())
+                loaded.computeIfAbsent(result.getInt("medicine_id"), (medicineId) -> new Consumption())
+                        .add(result.getDate("purchase_date").toLocalDate(), result.getDouble("qty"));
+        } catch (SQLException e) {
+            synchronized (pendingLock) {
+                pendingSales = null;
+            }
+            throw e;
+        }
+        finishLoading(loaded, historyReadAt);
+    }
+
+    /**
+     * Keep aside the sales committed from now on, until
+     * <code>finishLoading()</code>
+     */
+    static void beginLoading() {
+        synchronized (pendingLock) {
+            pendingSales = new ArrayList<>();
+        }
+    }
+
+    /**
+     * Set the consumptions read from the history and add the sales kept
+     * aside that the history missed
+     * @param loaded the consumptions read from the history
+     * @param historyReadAt the <code>System.nanoTime()</code> the history
+     * query was sent, the sales committed before are in the history
+     */
+    static void finishLoading(Map<Integer, Consumption> loaded, long historyReadAt) {
+        synchronized (pendingLock) {
+            consumptions.putAll(loaded);
+            for (PendingSale sale : pendingSales) {
+                if (sale.committedAt - historyReadAt >= 0)
+                    addSale(sale.medicineId, sale.day, sale.qty);
+            }
+            pendingSales = null;
+            started = true;
+        }
+    }
+
+    public static boolean isStarted() {
+        return started;
+    }
+
+    /**
+     * Add a quantity sold to the consumption of a medicine once the
+     * transaction of the sale is committed. Nothing is done when it is
+     * committed before <code>start()</code>.
+     * @param medicineId the medicine of the stock sold
+     * @param qty the quantity sold, in qty unit
+     * @param saleDate the date of the sale, today if <code>null</code>
+     */
+    public static void recordSale(Integer medicineId, BigDecimal qty, LocalDate saleDate) {
+        if (medicineId == null || qty == null)
+            return;
+        LocalDate day = saleDate != null ? saleDate : LocalDate.now();
+        ClinicConnection.afterCommit(() -> recordCommittedSale(medicineId, day, qty.doubleValue(), System.nanoTime()));
+    }
+
+    /**
+     * Add a committed sale, or keep it aside while the history is read
+     * @param committedAt the <code>System.nanoTime()</code> the sale was
+     * committed
+     */
+    static void recordCommittedSale(int medicineId, LocalDate day, double qty, long committedAt) {
+        if (!started) {
+            synchronized (pendingLock) {
+                if (pendingSales != null) {
+                    pendingSales.add(new PendingSale(medicineId, day, qty, committedAt));
+                    return;
+                }
+                if (!started)
+                    return;
+            }
+        }
+        addSale(medicineId, day, qty);
+    }
+
+    private static void addSale(int medicineId, LocalDate day, double qty) {
+        consumptions.computeIfAbsent(medicineId, (id) -> new Consumption()).add(day, qty);
+    }
+
+    /**
+     * Get the daily consumption of a medicine, in qty unit
+     */
+    public static double getDailyRate(int medicineId) {
+        Consumption consumption = consumptions.get(medicineId);
+        return consumption != null ? consumption.getDailyRate(LocalDate.now()) : 0;
+    }
+
+    /**
+     * Find the medicines to reorder, the one running out first first
+     */
+    public static List<Suggestion> suggest() throws SQLException {
+        Map<Integer, String[]> medicines = new LinkedHashMap<>();
+        try (Cursor cursor = ClinicConnection.openCursor(MEDICINES_QUERY)) {
+            ResultSet result = cursor.getResultSet();
+            while (result.next())
+                medicines.put(result.getInt("id"),
+                        new String[] { result.getString("brand_name"), result.getString("generic_name") });
+        }
+        Function<Integer, BigDecimal> qtyOnHand = loadQtyOnHand();
+
+        // The requests of a generic name go to its medicine sold most
+        Map<String, List<MedicineRequest>> requestsByGenericName = new LinkedHashMap<>();
+        for (MedicineRequest request : EntityRepositoryFactory.getRepository(MedicineRequestRepository.class)
+                .getOutstanding())
+            requestsByGenericName.computeIfAbsent(genericKey(request.getGenericName()), (key) -> new ArrayList<>())
+                    .add(request);
+        Map<String, Integer> requestedMedicines = new HashMap<>();
+        Map<String, BigDecimal> genericQtyOnHand = new HashMap<>();
+        for (Map.Entry<Integer, String[]> medicine : medicines.entrySet()) {
+            String key = genericKey(medicine.getValue()[1]);
+            if (!requestsByGenericName.containsKey(key))
+                continue;
+            genericQtyOnHand.merge(key, qtyOnHand.apply(medicine.getKey()), BigDecimal::add);
+            Integer best = requestedMedicines.get(key);
+            if (best == null || getDailyRate(medicine.getKey()) > getDailyRate(best))
+                requestedMedicines.put(key, medicine.getKey());
+        }
+
+        List<Suggestion> suggestions = new ArrayList<>();
+        for (Map.Entry<Integer, String[]> medicine : medicines.entrySet()) {
+            int medicineId = medicine.getKey();
+            String key = genericKey(medicine.getValue()[1]);
+            List<MedicineRequest> requests = Integer.valueOf(medicineId).equals(requestedMedicines.get(key))
+                    ? requestsByGenericName.get(key)
+                    : Collections.emptyList();
+            double dailyRate = getDailyRate(medicineId);
+            BigDecimal onHand = qtyOnHand.apply(medicineId);
+            BigDecimal reorderPoint = qtyFor(dailyRate, LEAD_TIME_DAYS + SAFETY_DAYS);
+            boolean belowReorderPoint = dailyRate > 0 && onHand.compareTo(reorderPoint) <= 0;
+            // A request only reorders a generic name that is out of stock
+            boolean requested = !requests.isEmpty() && genericQtyOnHand.get(key).signum() <= 0;
+            if (!belowReorderPoint && !requested)
+                continue;
+
+            BigDecimal suggestedQty = qtyFor(dailyRate, LEAD_TIME_DAYS + SAFETY_DAYS + COVER_DAYS).subtract(onHand)
+                    .max(BigDecimal.ONE);
+            suggestions.add(new Suggestion(medicineId, medicine.getValue()[0], medicine.getValue()[1], dailyRate,
+                    onHand, reorderPoint, suggestedQty, requests));
+        }
+        suggestions.sort(Comparator.comparingDouble(Suggestion::getDaysLeft));
+        return suggestions;
+    }
+
+    /**
+     * Draft a purchase of the suggested quantities. Every medicine is bought
+     * in the dosage form, qty unit and price of its stock received last.
+     * Nothing is written, the draft is completed with the batch numbers and
+     * exp dates and saved with
+     * <code>MedicineTransactionService.savePurchase()</code>.
+     * @param suggestions the suggestions to buy, from <code>suggest()</code>
+     */
+    public static DraftPurchase draftPurchase(List<Suggestion> suggestions) throws SQLException {
+        MedicineStockRepository stockRepo = EntityRepositoryFactory.getRepository(MedicineStockRepository.class);
+        DraftPurchase draft = new DraftPurchase();
+        draft.unmatchedRequests.addAll(getUnknownRequests());
+        for (Suggestion suggestion : suggestions) {
+            MedicineStock latest = stockRepo.getLatest(suggestion.getMedicineId());
+            if (latest == null) {
+                // Never stocked, the dosage form to buy is not known
+                draft.unmatchedRequests.addAll(suggestion.getRequests());
+                continue;
+            }
+
+            PurchaseMedicineDetail detail = new PurchaseMedicineDetail();
+            detail.setQty(suggestion.getSuggestedQty());
+            detail.setPricePerUnit(getLastPricePerUnit(latest));
+            MedicineStock stock = new MedicineStock()
+                    .setReceivedDate(LocalDateTime.now())
+                    .setQtyAvailable(suggestion.getSuggestedQty())
+                    .setQtyToDosageFormMultiplier(latest.getQtyToDosageFormMultiplier())
+                    .setMedicineId(latest.getMedicineId())
+                    .setDosageFormId(latest.getDosageFormId())
+                    .setQtyUnitId(latest.getQtyUnitId())
+                    .setHighestRetailPrice(latest.getHighestRetailPrice())
+                    .setMedicine(EntityRepositoryFactory.getRepository(MedicineRepository.class)
+                            .get(latest.getMedicineId()))
+                    .setDosageForm(EntityRepositoryFactory.getRepository(DosageFormRepository.class)
+                            .get(latest.getDosageFormId()))
+                    .setQtyUnit(EntityRepositoryFactory.getRepository(QtyUnitRepository.class)
+                            .get(latest.getQtyUnitId()));
+            draft.details.put(detail, stock);
+            if (!suggestion.getRequests().isEmpty())
+                draft.mergedRequests.put(suggestion.getGenericName(), suggestion.getRequests());
+        }
+        return draft;
+    }
+
+    /**
+     * Get the outstanding requests of the generic names no medicine is known
+     * by
+     */
+    private static List<MedicineRequest> getUnknownRequests() throws SQLException {
+        Map<String, Boolean> knownGenericNames = new HashMap<>();
+        try (Cursor cursor = ClinicConnection.openCursor(MEDICINES_QUERY)) {
+            ResultSet result = cursor.getResultSet();
+            while (result.next())
+                knownGenericNames.put(genericKey(result.getString("generic_name")), true);
+        }
+        List<MedicineRequest> unknown = new ArrayList<>();
+        for (MedicineRequest request : EntityRepositoryFactory.getRepository(MedicineRequestRepository.class)
+                .getOutstanding())
+            if (!knownGenericNames.containsKey(genericKey(request.getGenericName())))
+                unknown.add(request);
+        return unknown;
+    }
+
+    /**
+     * Get the quantity on hand of the medicines from the
+     * <code>MedicineStockSummary</code>, or summed from the stocks before it
+     * is started
+     */
+    private static Function<Integer, BigDecimal> loadQtyOnHand() throws SQLException {
+        if (MedicineStockSummary.isStarted())
+            return MedicineStockSummary::getQtyAvailable;
+
+        Map<Integer, BigDecimal> qtyOnHand = new HashMap<>();
+        try (Cursor cursor = ClinicConnection.openCursor(QTY_ON_HAND_QUERY)) {
+            ResultSet result = cursor.getResultSet();
+            while (result.next())
+                qtyOnHand.put(result.getInt("medicine_id"), result.getBigDecimal("qty"));
+        }
+        return (medicineId) -> qtyOnHand.getOrDefault(medicineId, BigDecimal.ZERO);
+    }
+
+    private static int getLastPricePerUnit(MedicineStock stock) throws SQLException {
+        if (stock.getPurchaseMedicineDetailId() == null)
+            return 0;
+        PurchaseMedicineDetail purchaseDetail = EntityRepositoryFactory
+                .getRepository(PurchaseMedicineDetailRepository.class)
+                .get(stock.getPurchaseMedicineDetailId());
+        return purchaseDetail != null && purchaseDetail.getPricePerUnit() != null
+                ? purchaseDetail.getPricePerUnit()
+                : 0;
+    }
+
+    private static BigDecimal qtyFor(double dailyRate, int days) {
+        return BigDecimal.valueOf(dailyRate * days).setScale(0, RoundingMode.CEILING);
+    }
+
+    private static String genericKey(String genericName) {
+        return genericName != null ? genericName.trim().toLowerCase() : "";
+    }
+
+    /**
+     * A sale committed while the history is read
+     */
+    private static class PendingSale {
+        private final int medicineId;
+        private final LocalDate day;
+        private final double qty;
+        private final long committedAt;
+
+        private PendingSale(int medicineId, LocalDate day, double qty, long committedAt) {
+            this.medicineId = medicineId;
+            this.day = day;
+            this.qty = qty;
+            this.committedAt = committedAt;
+        }
+    }
+
+    /**
+     * The exponentially weighted daily consumption of a medicine. The days
+     * before the day of the last sale are closed into the average, the day
+     * of the last sale is still open. A sale dated before it is added to it.
+     */
+    static class Consumption {
+        private LocalDate firstDay;
+        private LocalDate openDay;
+        private double openQty;
+        private double closedRate;
+
+        synchronized void add(LocalDate day, double qty) {
+            if (firstDay == null) {
+                firstDay = day;
+                openDay = day;
+            }
+            if (day.isAfter(openDay)) {
+                closedRate = rateBefore(day);
+                openDay = day;
+                openQty = 0;
+            }
+            openQty += qty;
+        }
+
+        /**
+         * Get the average through the day before <code>day</code>, the days
+         * without sales count as 0
+         */
+        private double rateBefore(LocalDate day) {
+            long emptyDays = Math.max(ChronoUnit.DAYS.between(openDay, day) - 1, 0);
+            return ((1 - ALPHA) * closedRate + ALPHA * openQty) * Math.pow(1 - ALPHA, emptyDays);
+        }
+
+        synchronized double getDailyRate(LocalDate today) {
+            double rate = today.isAfter(openDay) ? rateBefore(today) : closedRate;
+            long closedDays = ChronoUnit.DAYS.between(firstDay, today.isAfter(openDay) ? today : openDay);
+            if (closedDays <= 0)
+                return openQty;
+            // The average starts at 0 on the first day sold, scaled up so a
+            // short history is not read as a slow one
+            return rate / (1 - Math.pow(1 - ALPHA, closedDays));
+        }
+    }
+
+    /**
+     * A medicine to reorder
+     */
+    public static class Suggestion {
+        private final int medicineId;
+        private final String brandName;
+        private final String genericName;
+        private final double dailyRate;
+        private final BigDecimal qtyOnHand;
+        private final BigDecimal reorderPoint;
+        private final BigDecimal suggestedQty;
+        private final List<MedicineRequest> requests;
+
+        private Suggestion(int medicineId, String brandName, String genericName, double dailyRate,
+                BigDecimal qtyOnHand, BigDecimal reorderPoint, BigDecimal suggestedQty,
+                List<MedicineRequest> requests) {
+            this.medicineId = medicineId;
+            this.brandName = brandName;
+            this.genericName = genericName;
+            this.dailyRate = dailyRate;
+            this.qtyOnHand = qtyOnHand;
+            this.reorderPoint = reorderPoint;
+            this.suggestedQty = suggestedQty;
+            this.requests = requests;
+        }
+
+        public int getMedicineId() {
+            return medicineId;
+        }
+
+        public String getBrandName() {
+            return brandName;
+        }
+
+        public String getGenericName() {
+            return genericName;
+        }
+
+        /**
+         * Get the daily consumption, in qty unit
+         */
+        public double getDailyRate() {
+            return dailyRate;
+        }
+
+        public BigDecimal getQtyOnHand() {
+            return qtyOnHand;
+        }
+
+        /**
+         * Get the quantity on hand at or below which the medicine is reordered
+         */
+        public BigDecimal getReorderPoint() {
+            return reorderPoint;
+        }
+
+        public BigDecimal getSuggestedQty() {
+            return suggestedQty;
+        }
+
+        /**
+         * Get the outstanding requests merged into this medicine
+         */
+        public List<MedicineRequest> getRequests() {
+            return requests;
+        }
+
+        /**
+         * Get the days the quantity on hand lasts, 0 if none is left
+         */
+        public double getDaysLeft() {
+            if (qtyOnHand.signum() <= 0)
+                return 0;
+            return dailyRate > 0 ? qtyOnHand.doubleValue() / dailyRate : Double.MAX_VALUE;
+        }
+    }
+
+    /**
+     * A purchase drafted from suggestions, not saved
+     */
+    public static class DraftPurchase {
+        private final PurchaseMedicineHeader header = new PurchaseMedicineHeader();
+        private final Map<BaseTransactionDetail, MedicineStock> details = new LinkedHashMap<>();
+        private final Map<String, List<MedicineRequest>> mergedRequests = new LinkedHashMap<>();
+        private final List<MedicineRequest> unmatchedRequests = new ArrayList<>();
+
+        private DraftPurchase() {
+            header.setPurchaseDate(LocalDate.now());
+        }
+
+        public PurchaseMedicineHeader getHeader() {
+            return header;
+        }
+
+        /**
+         * Get the purchase details with their new stock, without batch
+         * number and exp date
+         */
+        public Map<BaseTransactionDetail, MedicineStock> getDetails() {
+            return details;
+        }
+
+        /**
+         * Get the outstanding requests covered by the draft by generic name
+         */
+        public Map<String, List<MedicineRequest>> getMergedRequests() {
+            return mergedRequests;
+        }
+
+        /**
+         * Get the outstanding requests of medicines that are not known or
+         * were never stocked, they are bought by hand
+         */
+        public List<MedicineRequest> getUnmatchedRequests() {
+            return unmatchedRequests;
+        }
+    }
+}
@@ -0,0 +1,430 @@
+package com.clinic.drug.service;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import com.clinic.ClinicConnection;
+import com.clinic.Cursor;
+
+/**
+ * Keeps the sales rolled up by day and by month, per medicine and dosage
+ * form, in the <code>sales_daily_rollup</code> and
+ * <code>sales_monthly_rollup</code> tables, so a sales report over any
+ * range of dates reads a few rollup rows instead of every sell detail.<br>
+ * <code>MedicineTransactionService</code> adds every sell detail to both
+ * rollups in the transaction of the sale. The rollups are rebuilt from the
+ * sell details month by month, the months in parallel, when they are
+ * created and on <code>rebuild()</code>. The current month is rebuilt on
+ * every <code>start()</code>, for the sales saved while the rollups were not
+ * started. The sell details and headers edited or deleted through their
+ * repositories have the months of their dates before and after the write
+ * rebuilt once committed. A report reads the whole months of
+ * its range from the monthly rollup and the days left from the daily one.
+ * <br>
+ * The cost of a sale is its quantity at the price per unit of the purchase
+ * its stock came from, the margin is the revenue less the cost. The rebuild
+ * runs <code>PARALLELISM</code> months at a time, set by the
+ * <code>clinic.rollup.parallelism</code> system property.
+ *
+ * @author Jose Ryu Leonesta <jose.leonesta@student.matanauniversity.ac.id>
+ */
+public class SalesRollup {
+    public final static int TOTAL = 0, BY_MEDICINE = 1, BY_DOSAGE_FORM = 2, BY_MEDICINE_AND_DOSAGE_FORM = 3,
+            BY_DAY = 4, BY_MONTH = 5;
+    public final static int PARALLELISM = Integer.getInteger("clinic.rollup.parallelism", 4);
+
+    public final static String CREATE_DAILY_QUERY = "CREATE TABLE IF NOT EXISTS sales_daily_rollup ("
+            + "sale_date DATE NOT NULL, medicine_id INT NOT NULL, dosage_form_id INT NOT NULL,"
+            + " qty DECIMAL(20,4) NOT NULL DEFAULT 0, revenue DECIMAL(20,4) NOT NULL DEFAULT 0,"
+            + " cost DECIMAL(20,4) NOT NULL DEFAULT 0, line_count INT NOT NULL DEFAULT 0,"
+            + " PRIMARY KEY (sale_date, medicine_id, dosage_form_id));";
+    public final static String CREATE_MONTHLY_QUERY = "CREATE TABLE IF NOT EXISTS sales_monthly_rollup ("
+            + "sale_month DATE NOT NULL, medicine_id INT NOT NULL, dosage_form_id INT NOT NULL,"
+            + " qty DECIMAL(20,4) NOT NULL DEFAULT 0, revenue DECIMAL(20,4) NOT NULL DEFAULT 0,"
+            + " cost DECIMAL(20,4) NOT NULL DEFAULT 0, line_count INT NOT NULL DEFAULT 0,"
+            + " PRIMARY KEY (sale_month, medicine_id, dosage_form_id));";
+    public final static String EMPTY_QUERY = "SELECT 1 FROM sales_daily_rollup LIMIT 1;";
+    public final static String SALE_DATES_QUERY = "SELECT MIN(purchase_date) AS first_date,"
+            + " MAX(purchase_date) AS last_date FROM sell_medicine_header;";
+    public final static String REBUILD_DAILY_QUERY = "INSERT INTO sales_daily_rollup"
+            + " (sale_date, medicine_id, dosage_form_id, qty, revenue, cost, line_count)"
+            + " SELECT h.purchase_date, s.medicine_id, s.dosage_form_id, SUM(d.qty),"
+            + " SUM(d.qty * d.price_per_unit), SUM(d.qty * COALESCE(p.price_per_unit, 0)), COUNT(*)"
+            + " FROM sell_medicine_detail d"
+            + " JOIN sell_medicine_header h ON h.id = d.sell_medicine_header_id"
+            + " JOIN medicine_stock s ON s.id = d.medicine_stock_id"
+            + " LEFT JOIN purchase_medicine_detail p ON p.id = s.purchase_medicine_detail_id"
+            + " WHERE h.purchase_date >= '%s' AND h.purchase_date < '%s'"
+            + " GROUP BY h.purchase_date, s.medicine_id, s.dosage_form_id;";
+    public final static String REBUILD_MONTHLY_QUERY = "INSERT INTO sales_monthly_rollup"
+            + " (sale_month, medicine_id, dosage_form_id, qty, revenue, cost, line_count)"
+            + " SELECT '%s', medicine_id, dosage_form_id, SUM(qty), SUM(revenue), SUM(cost), SUM(line_count)"
+            + " FROM sales_daily_rollup WHERE sale_date >= '%s' AND sale_date < '%s'"
+            + " GROUP BY medicine_id, dosage_form_id;";
+
+    private static volatile boolean started = false;
+
+    /**
+     * Create the rollup tables if needed, and build them if they are empty,
+     * else rebuild the current month. The database must be connected.
+     */
+    public static synchronized void start() throws SQLException {
+        if (started)
+            return;
+
+        ClinicConnection.execute(CREATE_DAILY_QUERY);
+        ClinicConnection.execute(CREATE_MONTHLY_QUERY);
+        boolean empty;
+        try (Cursor cursor = ClinicConnection.openCursor(EMPTY_QUERY)) {
+            empty = !cursor.getResultSet().next();
+        }
+        started = true;
+        if (empty)
+            rebuild();
+        else
+            rebuild(LocalDate.now(), LocalDate.now());
+    }
+
+    public static boolean isStarted() {
+        return started;
+    }
+
+    /**
+     * Add a sell detail to the rollups, in the transaction of the sale.
+     * Nothing is done before <code>start()</code>, which
+     * <code>MedicineTransactionService.saveSell()</code> calls first.
+     * @param saleDate the date of the sale
+     * @param medicineId the medicine of the stock sold
+     * @param dosageFormId the dosage form of the stock sold
+     * @param purchaseDetailId the purchase of the stock sold, for its cost
+     * @param qty the quantity sold, in qty unit
+     * @param pricePerUnit the price of one qty unit
+     */
+    static void add(LocalDate saleDate, Integer medicineId, Integer dosageFormId, Integer purchaseDetailId,
+            BigDecimal qty, Integer pricePerUnit) throws SQLException {
+        if (!started || saleDate == null || medicineId == null || dosageFormId == null || qty == null)
+            return;
+
+        String values = medicineId + ", " + dosageFormId + ", " + qty.toPlainString() + ", "
+                + qty.multiply(BigDecimal.valueOf(pricePerUnit != null ? pricePerUnit : 0)).toPlainString() + ", "
+                + qty.toPlainString() + " * COALESCE((SELECT price_per_unit FROM purchase_medicine_detail WHERE id = "
+                + purchaseDetailId + "), 0), 1)"
+                + " ON DUPLICATE KEY UPDATE qty = qty + VALUES(qty), revenue = revenue + VALUES(revenue),"
+                + " cost = cost + VALUES(cost), line_count = line_count + VALUES(line_count);";
+        ClinicConnection.execute("INSERT INTO sales_daily_rollup"
+                + " (sale_date, medicine_id, dosage_form_id, qty, revenue, cost, line_count)"
+                + " VALUES ('" + saleDate + "', " + values);
+        ClinicConnection.execute("INSERT INTO sales_monthly_rollup"
+                + " (sale_month, medicine_id, dosage_form_id, qty, revenue, cost, line_count)"
+                + " VALUES ('" + saleDate.withDayOfMonth(1) + "', " + values);
+    }
+
+    /**
+     * Rebuild the rollups of the months of sale dates once the current
+     * transaction is committed, nothing is done if it is rolled back. The
+     * rollups are started first if needed.
+     * @param saleDates the dates of the sales, <code>null</code> ones are
+     * ignored
+     */
+    public static void rebuildAfterCommit(LocalDate... saleDates) {
+        TreeSet<LocalDate> months = new TreeSet<>();
+        for (LocalDate saleDate : saleDates) {
+            if (saleDate != null)
+                months.add(saleDate.withDayOfMonth(1));
+        }
+        if (months.isEmpty())
+            return;
+
+        ClinicConnection.afterCommit(() -> {
+            try {
+                if (!started)
+                    start();
+                for (LocalDate month : months)
+                    rebuild(month, month);
+            } catch (SQLException e) {
+                System.out.println("Exception caught in SalesRollup.rebuildAfterCommit(): " + e.toString());
+            }
+        });
+    }
+
+    /**
+     * Rebuild the rollups of every month with sales
+     */
+    public static void rebuild() throws SQLException {
+        LocalDate firstDate;
+        LocalDate lastDate;
+        try (Cursor cursor = ClinicConnection.openCursor(SALE_DATES_QUERY)) {
+            ResultSet result = cursor.getResultSet();
+            result.next();
+            Date first = result.getDate("first_date");
+            Date last = result.getDate("last_date");
+            if (first == null || last == null)
+                return;
+            firstDate = first.toLocalDate();
+            lastDate = last.toLocalDate();
+        }
+        rebuild(firstDate, lastDate);
+    }
+
+    /**
+     * Rebuild the rollups of the months of a range of dates from the sell
+     * details, every month in its own transaction and the months in parallel
+     * @param from a date in the first month to rebuild
+     * @param to a date in the last month to rebuild
+     */
+    public static void rebuild(LocalDate from, LocalDate to) throws SQLException {
+        List<LocalDate> months = new ArrayList<>();
+        for (LocalDate month = from.withDayOfMonth(1); !month.isAfter(to); month = month.plusMonths(1))
+            months.add(month);
+
+        ForkJoinPool rebuildPool = new ForkJoinPool(PARALLELISM);
+        try {
+            rebuildPool.invoke(new RebuildMonths(months, 0, months.size()));
+        } catch (RebuildException e) {
+            throw e.getCause();
+        } finally {
+            rebuildPool.shutdown();
+        }
+    }
+
+    /**
+     * Get the sales of a range of dates, both included
+     * @param groupBy <code>TOTAL</code>, <code>BY_MEDICINE</code>,
+     * <code>BY_DOSAGE_FORM</code>, <code>BY_MEDICINE_AND_DOSAGE_FORM</code>,
+     * <code>BY_DAY</code> or <code>BY_MONTH</code>
+     * @param from the first date
+     * @param to the last date
+     * @return the sales of every group, the highest revenue first, or by
+     * date when grouped by day or month
+     */
+    public static List<SalesTotal> getSales(int groupBy, LocalDate from, LocalDate to) throws SQLException {
+        String query = buildReportQuery(groupBy, from, to);
+        return ClinicConnection.readFromReplica(() -> {
+            List<SalesTotal> totals = new ArrayList<>();
+            try (Cursor cursor = ClinicConnection.openCursor(query)) {
+                ResultSet result = cursor.getResultSet();
+                while (result.next()) {
+                    Date day = result.getDate("day");
+                    totals.add(new SalesTotal(
+                            result.getObject("medicine_id", Integer.class),
+                            result.getObject("dosage_form_id", Integer.class),
+                            day != null ? day.toLocalDate() : null,
+                            nonNull(result.getBigDecimal("qty")),
+                            nonNull(result.getBigDecimal("revenue")),
+                            nonNull(result.getBigDecimal("cost")),
+                            result.getInt("line_count")));
+                }
+            }
+            return totals;
+        });
+    }
+
+    /**
+     * Get the total sales of a range of dates, both included
+     */
+    public static SalesTotal getTotal(LocalDate from, LocalDate to) throws SQLException {
+        return getSales(TOTAL, from, to).get(0);
+    }
+
+    /**
+     * Build the query of a report. The whole months of the range are read
+     * from the monthly rollup, the days before and after them from the daily
+     * rollup.
+     */
+    static String buildReportQuery(int groupBy, LocalDate from, LocalDate to) {
+        LocalDate firstWholeMonth = from.getDayOfMonth() == 1 ? from : from.withDayOfMonth(1).plusMonths(1);
+        LocalDate afterWholeMonths = to.plusDays(1).withDayOfMonth(1);
+        List<String> parts = new ArrayList<>();
+        if (groupBy == BY_DAY || !firstWholeMonth.isBefore(afterWholeMonths)) {
+            parts.add(dailyPart(from, to.plusDays(1)));
+        } else {
+            if (from.isBefore(firstWholeMonth))
+                parts.add(dailyPart(from, firstWholeMonth));
+            parts.add("SELECT sale_month AS day, medicine_id, dosage_form_id, qty, revenue, cost, line_count"
+                    + " FROM sales_monthly_rollup WHERE sale_month >= '" + firstWholeMonth + "' AND sale_month < '"
+                    + afterWholeMonths + "'");
+            if (!to.isBefore(afterWholeMonths))
+                parts.add(dailyPart(afterWholeMonths, to.plusDays(1)));
+        }
+
+        String keys;
+        String groupAndOrder;
+        switch (groupBy) {
+            case BY_MEDICINE:
+                keys = "medicine_id, NULL AS dosage_form_id, NULL AS day";
+                groupAndOrder = " GROUP BY medicine_id ORDER BY revenue DESC";
+                break;
+            case BY_DOSAGE_FORM:
+                keys = "NULL AS medicine_id, dosage_form_id, NULL AS day";
+                groupAndOrder = " GROUP BY dosage_form_id ORDER BY revenue DESC";
+                break;
+            case BY_MEDICINE_AND_DOSAGE_FORM:
+                keys = "medicine_id, dosage_form_id, NULL AS day";
+                groupAndOrder = " GROUP BY medicine_id, dosage_form_id ORDER BY revenue DESC";
+                break;
+            case BY_DAY:
+                keys = "NULL AS medicine_id, NULL AS dosage_form_id, day";
+                groupAndOrder = " GROUP BY day ORDER BY day";
+                break;
+            case BY_MONTH:
+                keys = "NULL AS medicine_id, NULL AS dosage_form_id, DATE_FORMAT(day, '%Y-%m-01') AS day";
+                groupAndOrder = " GROUP BY DATE_FORMAT(day, '%Y-%m-01') ORDER BY day";
+                break;
+            default:
+                keys = "NULL AS medicine_id, NULL AS dosage_form_id, NULL AS day";
+                groupAndOrder = "";
+        }
+        return "SELECT " + keys + ", SUM(qty) AS qty, SUM(revenue) AS revenue, SUM(cost) AS cost,"
+                + " COALESCE(SUM(line_count), 0) AS line_count FROM (" + String.join(" UNION ALL ", parts)
+                + ") r" + groupAndOrder + ";";
+    }
+
+    private static String dailyPart(LocalDate from, LocalDate until) {
+        return "SELECT sale_date AS day, medicine_id, dosage_form_id, qty, revenue, cost, line_count"
+                + " FROM sales_daily_rollup WHERE sale_date >= '" + from + "' AND sale_date < '" + until + "'";
+    }
+
+    private static void rebuildMonth(LocalDate month) throws SQLException {
+        LocalDate nextMonth = month.plusMonths(1);
+        ClinicConnection.inTransaction(() -> {
+            ClinicConnection.execute("DELETE FROM sales_daily_rollup WHERE sale_date >= '" + month
+                    + "' AND sale_date < '" + nextMonth + "';");
+            ClinicConnection.execute("DELETE FROM sales_monthly_rollup WHERE sale_month = '" + month + "';");
+            ClinicConnection.execute(String.format(REBUILD_DAILY_QUERY, month, nextMonth));
+            ClinicConnection.execute(String.format(REBUILD_MONTHLY_QUERY, month, month, nextMonth));
+            return null;
+        });
+    }
+
+    private static BigDecimal nonNull(BigDecimal value) {
+        return value != null ? value : BigDecimal.ZERO;
+    }
+
+    /**
+     * Rebuilds a slice of the months, split in halves down to one month
+     */
+    private static class RebuildMonths extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final List<LocalDate> months;
+        private final int start;
+        private final int end;
+
+        private RebuildMonths(List<LocalDate> months, int start, int end) {
+            this.months = months;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        protected void compute() {
+            if (end - start <= 1) {
+                if (start < end) {
+                    try {
+                        rebuildMonth(months.get(start));
+                    } catch (SQLException e) {
+                        throw new RebuildException(e);
+                    }
+                }
+                return;
+            }
+            int middle = (start + end) / 2;
+            invokeAll(new RebuildMonths(months, start, middle), new RebuildMonths(months, middle, end));
+        }
+    }
+
+    private static class RebuildException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        private RebuildException(SQLException cause) {
+            super(cause);
+        }
+
+        @Override
+        public synchronized SQLException getCause() {
+            return (SQLException) super.getCause();
+        }
+    }
+
+    /**
+     * The sales of a group of a report
+     */
+    public static class SalesTotal {
+        private final Integer medicineId;
+        private final Integer dosageFormId;
+        private final LocalDate date;
+        private final BigDecimal qty;
+        private final BigDecimal revenue;
+        private final BigDecimal cost;
+        private final int lineCount;
+
+        private SalesTotal(Integer medicineId, Integer dosageFormId, LocalDate date, BigDecimal qty,
+                BigDecimal revenue, BigDecimal cost, int lineCount) {
+            this.medicineId = medicineId;
+            this.dosageFormId = dosageFormId;
+            this.date = date;
+            this.qty = qty;
+            this.revenue = revenue;
+            this.cost = cost;
+            this.lineCount = lineCount;
+        }
+
+        /**
+         * Get the medicine of the group, <code>null</code> if not grouped by
+         * medicine
+         */
+        public Integer getMedicineId() {
+            return medicineId;
+        }
+
+        /**
+         * Get the dosage form of the group, <code>null</code> if not grouped
+         * by dosage form
+         */
+        public Integer getDosageFormId() {
+            return dosageFormId;
+        }
+
+        /**
+         * Get the day of the group, or the first day of its month,
+         * <code>null</code> if not grouped by date
+         */
+        public LocalDate getDate() {
+            return date;
+        }
+
+        /**
+         * Get the quantity sold, in qty unit
+         */
+        public BigDecimal getQty() {
+            return qty;
+        }
+
+        public BigDecimal getRevenue() {
+            return revenue;
+        }
+
+        public BigDecimal getCost() {
+            return cost;
+        }
+
+        public BigDecimal getMargin() {
+            return revenue.subtract(cost);
+        }
+
+        /**
+         * Get the number of sell details
+         */
+        public int getLineCount() {
+            return lineCount;
+        }
+    }
+}
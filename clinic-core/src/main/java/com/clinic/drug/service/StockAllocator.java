@@ -0,0 +1,275 @@
+package com.clinic.drug.service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import com.clinic.ClinicConnection;
+import com.clinic.drug.domain.BaseTransactionDetail;
+import com.clinic.drug.domain.MedicineStock;
+import com.clinic.drug.domain.SellMedicineDetail;
+import com.clinic.drug.repository.MedicineStockRepository;
+import com.clinic.factories.EntityRepositoryFactory;
+import com.clinic.interfaces.IRepositoryChangeListener;
+
+/**
+ * Allocates the quantity of a sale to the stocks of a medicine first expiry
+ * first out: the stock expiring first is sold first, and a quantity larger
+ * than one stock is split across the next ones.<br>
+ * The available stocks of every medicine sold are kept in memory ordered by
+ * <code>exp_date</code>, then <code>received_date</code>. The stocks of a
+ * medicine are loaded when it is first sold, and again after they are
+ * written, once they are older than
+ * <code>clinic.stockAllocator.maxAgeSeconds</code> (60 by default) and when
+ * they fall short of a sale, so the sales of other workstations are seen.
+ * Only the stocks of the same dosage form and qty unit are sold together,
+ * and the quantity already allocated to the details of the sale is left out
+ * of the stocks.
+ *
+ * @author Jose Ryu Leonesta <jose.leonesta@student.matanauniversity.ac.id>
+ */
+public class StockAllocator {
+    /**
+     * The order stocks are sold in, stocks without exp date go last
+     */
+    public final static Comparator<MedicineStock> FEFO = Comparator
+            .comparing(MedicineStock::getExpDate, Comparator.nullsLast(Comparator.<LocalDate>naturalOrder()))
+            .thenComparing(MedicineStock::getReceivedDate, Comparator.nullsLast(Comparator.<LocalDateTime>naturalOrder()))
+            .thenComparing(MedicineStock::getId);
+    public final static long MAX_AGE_NANOS = TimeUnit.SECONDS.toNanos(
+            Long.getLong("clinic.stockAllocator.maxAgeSeconds", 60));
+
+    private static Map<Integer, Stocks> stocksByMedicine = new ConcurrentHashMap<>();
+    private static Map<Integer, Integer> medicineByStock = new ConcurrentHashMap<>();
+    private static boolean listening = false;
+
+    /**
+     * Get copies of the available stocks of a medicine in the order they are
+     * sold
+     * @param medicineId the id of the medicine
+     */
+    public static List<MedicineStock> getAvailableStocks(int medicineId) throws SQLException {
+        List<MedicineStock> copies = new ArrayList<>();
+        for (MedicineStock stock : getIndex(medicineId).stocks)
+            copies.add(copyOf(stock));
+        return copies;
+    }
+
+    /**
+     * Allocate a quantity of a medicine to the stocks of the dosage form and
+     * qty unit of the stock expiring first
+     * @see #allocate(int, int, int, BigDecimal, boolean, int, Collection)
+     */
+    public static Map<BaseTransactionDetail, MedicineStock> allocate(int medicineId, BigDecimal qty, int pricePerUnit,
+            Collection<BaseTransactionDetail> basket) throws SQLException {
+        List<MedicineStock> stocks = getIndex(medicineId).stocks;
+        if (stocks.isEmpty())
+            throw new SQLException("Medicine has no available stock");
+        MedicineStock first = stocks.get(0);
+        return allocate(medicineId, first.getDosageFormId(), first.getQtyUnitId(), qty, false, pricePerUnit, basket);
+    }
+
+    /**
+     * Allocate a quantity of a medicine to its stocks first expiry first out.
+     * Nothing is written, the allocation is saved with
+     * <code>MedicineTransactionService.saveSell()</code>.
+     * @param medicineId the id of the medicine
+     * @param dosageFormId the dosage form of the stocks to sell
+     * @param qtyUnitId the qty unit of the stocks to sell
+     * @param qty the quantity to sell
+     * @param inDosageForm <code>true</code> if <code>qty</code> and
+     * <code>pricePerUnit</code> are in dosage form, <code>false</code> if
+     * they are in qty unit
+     * @param pricePerUnit the price of one unit
+     * @param basket the details already allocated to the sale, their
+     * quantity is not allocated again
+     * @return a sell detail for every stock the quantity is taken from, with
+     * a copy of the stock with the quantity left in it. A stock sold in
+     * dosage form whose price does not divide into its qty unit gets two
+     * details, the second one a unit dearer, so the details add up to the
+     * price of the sale.
+     * @throws SQLException if the stocks do not have enough quantity
+     */
+    public static Map<BaseTransactionDetail, MedicineStock> allocate(int medicineId, int dosageFormId, int qtyUnitId,
+            BigDecimal qty, boolean inDosageForm, int pricePerUnit, Collection<BaseTransactionDetail> basket)
+            throws SQLException {
+        try {
+            return allocate(getIndex(medicineId).stocks, dosageFormId, qtyUnitId, qty, inDosageForm, pricePerUnit,
+                    basket);
+        } catch (SQLException e) {
+            // Another workstation may have restocked since the stocks were loaded
+            return allocate(load(medicineId).stocks, dosageFormId, qtyUnitId, qty, inDosageForm, pricePerUnit,
+                    basket);
+        }
+    }
+
+    /**
+     * Allocate a quantity to stocks already in the order they are sold
+     * @see #allocate(int, int, int, BigDecimal, boolean, int, Collection)
+     */
+    static Map<BaseTransactionDetail, MedicineStock> allocate(List<MedicineStock> stocks, int dosageFormId,
+            int qtyUnitId, BigDecimal qty, boolean inDosageForm, int pricePerUnit,
+            Collection<BaseTransactionDetail> basket) throws SQLException {
+        Map<Integer, BigDecimal> allocated = new HashMap<>();
+        for (BaseTransactionDetail detail : basket)
+            if (detail instanceof SellMedicineDetail && detail.getQty() != null)
+                allocated.merge(((SellMedicineDetail) detail).getMedicineStockId(), detail.getQty(), BigDecimal::add);
+
+        Map<BaseTransactionDetail, MedicineStock> allocation = new LinkedHashMap<>();
+        BigDecimal left = qty;
+        for (MedicineStock stock : stocks) {
+            if (left.signum() <= 0)
+                break;
+            if (stock.getDosageFormId() != dosageFormId || stock.getQtyUnitId() != qtyUnitId)
+                continue;
+
+            BigDecimal multiplier = inDosageForm && stock.getQtyToDosageFormMultiplier() != null
+                    ? stock.getQtyToDosageFormMultiplier()
+                    : BigDecimal.ONE;
+            BigDecimal stockQty = stock.getQtyAvailable().subtract(allocated.getOrDefault(stock.getId(), BigDecimal.ZERO));
+            BigDecimal available = inDosageForm
+                    ? stockQty.divide(multiplier, 0, RoundingMode.FLOOR)
+                    : stockQty;
+            BigDecimal taken = left.min(available);
+            if (taken.signum() <= 0)
+                continue;
+
+            BigDecimal detailQty = taken.multiply(multiplier);
+            BigDecimal total = taken.multiply(BigDecimal.valueOf(pricePerUnit));
+            BigDecimal price = total.divide(detailQty, 0, RoundingMode.FLOOR);
+            BigDecimal dearerQty = total.subtract(price.multiply(detailQty));
+            if (dearerQty.signum() == 0 || dearerQty.stripTrailingZeros().scale() > 0
+                    || detailQty.stripTrailingZeros().scale() > 0) {
+                price = total.divide(detailQty, 0, RoundingMode.HALF_UP);
+                dearerQty = BigDecimal.ZERO;
+            }
+
+            BigDecimal qtyLeft = stockQty;
+            qtyLeft = addDetail(allocation, stock, qtyLeft, detailQty.subtract(dearerQty), price.intValue());
+            addDetail(allocation, stock, qtyLeft, dearerQty, price.intValue() + 1);
+            left = left.subtract(taken);
+        }
+
+        if (left.signum() > 0)
+            throw new SQLException("Medicine available stock is not enough, only "
+                    + qty.subtract(left).toPlainString() + " of " + qty.toPlainString() + " is available");
+        return allocation;
+    }
+
+    private static BigDecimal addDetail(Map<BaseTransactionDetail, MedicineStock> allocation, MedicineStock stock,
+            BigDecimal qtyAvailable, BigDecimal qty, int pricePerUnit) {
+        if (qty.signum() <= 0)
+            return qtyAvailable;
+        SellMedicineDetail detail = new SellMedicineDetail();
+        detail.setMedicineStockId(stock.getId());
+        detail.setQty(qty);
+        detail.setPricePerUnit(pricePerUnit);
+        MedicineStock stockLeft = copyOf(stock);
+        stockLeft.setQtyAvailable(qtyAvailable.subtract(qty));
+        allocation.put(detail, stockLeft);
+        return stockLeft.getQtyAvailable();
+    }
+
+    /**
+     * Forget the stocks of a medicine, they are loaded again when sold. Called
+     * when a stock allocated from them turns out to have less quantity, as
+     * another workstation sold it.
+     * @param medicineId the id of the medicine
+     */
+    public static void forget(int medicineId) {
+        stocksByMedicine.remove(medicineId);
+    }
+
+    /**
+     * Forget the stocks of every medicine, they are loaded again when sold
+     */
+    public static void invalidateAll() {
+        stocksByMedicine.clear();
+        medicineByStock.clear();
+    }
+
+    private static Stocks getIndex(int medicineId) throws SQLException {
+        listen();
+        Stocks index = stocksByMedicine.get(medicineId);
+        if (index != null && System.nanoTime() - index.loadedAt <= MAX_AGE_NANOS)
+            return index;
+        return load(medicineId);
+    }
+
+    private static Stocks load(int medicineId) throws SQLException {
+        List<MedicineStock> stocks = EntityRepositoryFactory.getRepository(MedicineStockRepository.class)
+                .getAvailable(medicineId);
+        stocks.sort(FEFO);
+        for (MedicineStock stock : stocks)
+            medicineByStock.put(stock.getId(), medicineId);
+        Stocks index = new Stocks(stocks);
+        stocksByMedicine.put(medicineId, index);
+        return index;
+    }
+
+    /**
+     * Copy the columns of a stock, the joined entities are not copied
+     */
+    private static MedicineStock copyOf(MedicineStock stock) {
+        return new MedicineStock(stock.getId())
+                .setReceivedDate(stock.getReceivedDate())
+                .setExpDate(stock.getExpDate())
+                .setQtyAvailable(stock.getQtyAvailable())
+                .setQtyToDosageFormMultiplier(stock.getQtyToDosageFormMultiplier())
+                .setMedicineId(stock.getMedicineId())
+                .setBatchNumber(stock.getBatchNumber())
+                .setDosageFormId(stock.getDosageFormId())
+                .setQtyUnitId(stock.getQtyUnitId())
+                .setPurchaseMedicineDetailId(stock.getPurchaseMedicineDetailId())
+                .setHighestRetailPrice(stock.getHighestRetailPrice());
+    }
+
+    /**
+     * The available stocks of a medicine in the order they are sold, with the
+     * time they were loaded
+     */
+    private static class Stocks {
+        private final List<MedicineStock> stocks;
+        private final long loadedAt = System.nanoTime();
+
+        private Stocks(List<MedicineStock> stocks) {
+            this.stocks = stocks;
+        }
+    }
+
+    /**
+     * Forget the stocks of a medicine when one of them is written, and again
+     * once the transaction writing it is committed. A new stock, or a stock
+     * that was not available, may belong to any medicine, so every medicine
+     * is forgotten.
+     */
+    private static synchronized void listen() {
+        if (listening)
+            return;
+        listening = true;
+        EntityRepositoryFactory.getRepository(MedicineStockRepository.class)
+                .addChangeListener((repository, action, id) -> {
+                    Integer medicineId = id != null ? medicineByStock.get(id) : null;
+                    Runnable forget;
+                    if (medicineId != null)
+                        forget = () -> stocksByMedicine.remove(medicineId);
+                    else if (action != IRepositoryChangeListener.DELETED)
+                        forget = StockAllocator::invalidateAll;
+                    else
+                        return;
+                    forget.run();
+                    ClinicConnection.afterCommit(forget);
+                });
+    }
+}
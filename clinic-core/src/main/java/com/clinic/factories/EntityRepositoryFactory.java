@@ -7,7 +7,8 @@ import com.clinic.abstracts.AbstractEntityRepository;
 
 /**
  * A factory for getting entity repositories. This class was made to make sure
- * that there is only one entity's repository instance in the whole application
+ * that there is only one entity's repository instance in the whole application.
+ * Repositories may be requested from background threads during startup.
  * 
  * @author Jose Ryu Leonesta <jose.leonesta@student.matanauniversity.ac.id>
  */
@@ -16,15 +17,17 @@ public class EntityRepositoryFactory {
 
     /**
      * Get a repository object which should extend 
-     * <code>AbstractEntityRepository</code>.
+     * <code>AbstractEntityRepository</code>. Repositories in
+     * <code>EntityRegistry</code> are instantiated without reflection.
      * @param theClass example: MedicineRepository.class
      * @return instance of <code>theClass</code>
      */
     @SuppressWarnings("unchecked")
-    public static <T extends AbstractEntityRepository<?>> T getRepository(Class<T> theClass) {
+    public static synchronized <T extends AbstractEntityRepository<?>> T getRepository(Class<T> theClass) {
         if (!repositories.containsKey(theClass))
             try {
-                repositories.put(theClass, theClass.getConstructor().newInstance());
+                AbstractEntityRepository<?> repository = EntityRegistry.newRepository(theClass);
+                repositories.put(theClass, repository != null ? repository : theClass.getConstructor().newInstance());
             } catch (Exception e) {
                 System.out.println(
                         "Exception in EntityRepositoryFactory.getRepository(Class<T> theClass): " + e.toString());
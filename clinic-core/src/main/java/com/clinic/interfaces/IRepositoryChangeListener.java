@@ -0,0 +1,18 @@
+package com.clinic.interfaces;
+
+import com.clinic.abstracts.AbstractEntityRepository;
+
+/**
+ * Listener that is notified after a repository writes into its table
+ */
+public interface IRepositoryChangeListener {
+    public final static int CREATED = 1, UPDATED = 2, DELETED = 3;
+
+    /**
+     * Called after a record has been written into the repository's table
+     * @param repository the repository that did the write
+     * @param action <code>CREATED</code>, <code>UPDATED</code> or <code>DELETED</code>
+     * @param id the id of the written record
+     */
+    public abstract void onRepositoryChanged(AbstractEntityRepository<?> repository, int action, Integer id);
+}
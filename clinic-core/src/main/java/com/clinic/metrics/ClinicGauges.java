@@ -0,0 +1,181 @@
+package com.clinic.metrics;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import com.clinic.ClinicConnection;
+import com.clinic.Cursor;
+import com.clinic.drug.domain.PrescriptionQueue;
+import com.clinic.drug.repository.MedicineRepository;
+import com.clinic.drug.repository.MedicineStockRepository;
+import com.clinic.drug.repository.PrescriptionQueueRepository;
+import com.clinic.factories.EntityRepositoryFactory;
+import com.clinic.receptionist.domain.Appointment;
+import com.clinic.receptionist.repository.AppointmentRepository;
+
+/**
+ * The clinic gauges that can only be counted in the database: today's
+ * appointments by status, the prescription queue by status and the medicines
+ * low on stock.<br>
+ * The counts are kept in memory so a scrape never queries the database. They
+ * are recounted in the background at most every <code>REFRESH_SECONDS</code>,
+ * and only after the appointment, prescription queue, medicine or stock
+ * tables have been written.
+ *
+ * @author Jose Ryu Leonesta <jose.leonesta@student.matanauniversity.ac.id>
+ */
+public class ClinicGauges {
+    public final static int REFRESH_SECONDS = 15;
+    /**
+     * A medicine is low on stock when the available quantity of all its
+     * batches is below this, it can be set by the
+     * <code>clinic.metrics.lowStock</code> system property
+     */
+    public final static int LOW_STOCK_QTY = Integer.getInteger("clinic.metrics.lowStock", 10);
+
+    public final static String APPOINTMENT_STATUS_QUERY = "SELECT status, COUNT(*) AS number FROM appointment"
+            + " WHERE appointment_date_time >= CURDATE() AND appointment_date_time < CURDATE() + INTERVAL 1 DAY"
+            + " GROUP BY status;";
+    public final static String PRESCRIPTION_QUEUE_STATUS_QUERY = "SELECT status, COUNT(*) AS number"
+            + " FROM prescription_queue GROUP BY status;";
+    public final static String LOW_STOCK_QUERY = "SELECT COUNT(*) AS number FROM medicine m"
+            + " LEFT JOIN (SELECT medicine_id, SUM(qty_available) AS qty FROM medicine_stock GROUP BY medicine_id) s"
+            + " ON s.medicine_id = m.id WHERE COALESCE(s.qty, 0) < ?;";
+
+    private final static Map<Integer, String> APPOINTMENT_STATUSES = new HashMap<>();
+    private final static Map<Integer, String> PRESCRIPTION_QUEUE_STATUSES = new HashMap<>();
+    static {
+        APPOINTMENT_STATUSES.put(Appointment.NOT_PRESENT, "not_present");
+        APPOINTMENT_STATUSES.put(Appointment.WAITING, "waiting");
+        APPOINTMENT_STATUSES.put(Appointment.CONSULTING, "consulting");
+        APPOINTMENT_STATUSES.put(Appointment.DONE, "done");
+        PRESCRIPTION_QUEUE_STATUSES.put(PrescriptionQueue.WAITING_TO_MAKE, "waiting_to_make");
+        PRESCRIPTION_QUEUE_STATUSES.put(PrescriptionQueue.MAKING, "making");
+        PRESCRIPTION_QUEUE_STATUSES.put(PrescriptionQueue.WAITING_TO_PATIENT, "waiting_to_patient");
+        PRESCRIPTION_QUEUE_STATUSES.put(PrescriptionQueue.DONE, "done");
+    }
+
+    private static AtomicBoolean dirty = new AtomicBoolean(true);
+    private static ScheduledExecutorService refresher;
+    private static volatile Snapshot snapshot = new Snapshot();
+
+    /**
+     * Start recounting the gauges in the background. The database must be
+     * connected.
+     */
+    public static synchronized void start() {
+        if (refresher != null)
+            return;
+
+        EntityRepositoryFactory.getRepository(AppointmentRepository.class)
+                .addChangeListener((repository, action, id) -> dirty.set(true));
+        EntityRepositoryFactory.getRepository(PrescriptionQueueRepository.class)
+                .addChangeListener((repository, action, id) -> dirty.set(true));
+        EntityRepositoryFactory.getRepository(MedicineRepository.class)
+                .addChangeListener((repository, action, id) -> dirty.set(true));
+        EntityRepositoryFactory.getRepository(MedicineStockRepository.class)
+                .addChangeListener((repository, action, id) -> dirty.set(true));
+
+        refresher = Executors.newSingleThreadScheduledExecutor((runnable) -> {
+            Thread thread = new Thread(runnable, "clinic-metrics");
+            thread.setDaemon(true);
+            return thread;
+        });
+        refresher.scheduleWithFixedDelay(ClinicGauges::refreshIfDirty, 0, REFRESH_SECONDS, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Mark the gauges to be recounted, for writes that do not go through
+     * the repositories
+     */
+    public static void invalidate() {
+        dirty.set(true);
+    }
+
+    /**
+     * Get the last counts, never queries the database
+     */
+    public static Snapshot getSnapshot() {
+        return snapshot;
+    }
+
+    private static void refreshIfDirty() {
+        if (!dirty.getAndSet(false))
+            return;
+
+        try {
+            Snapshot counted = new Snapshot();
+            counted.appointments = countByStatus(APPOINTMENT_STATUS_QUERY, APPOINTMENT_STATUSES);
+            counted.prescriptionQueue = countByStatus(PRESCRIPTION_QUEUE_STATUS_QUERY, PRESCRIPTION_QUEUE_STATUSES);
+            PreparedStatement statement = ClinicConnection.prepare(LOW_STOCK_QUERY);
+            statement.setInt(1, LOW_STOCK_QTY);
+            try (Cursor cursor = ClinicConnection.openCursor(statement, LOW_STOCK_QUERY)) {
+                counted.lowStockMedicines = cursor.next() ? cursor.getResultSet().getLong("number") : 0;
+            }
+            counted.countedAt = System.currentTimeMillis();
+            snapshot = counted;
+        } catch (SQLException e) {
+            dirty.set(true);
+            System.out.println("Exception caught in ClinicGauges.refreshIfDirty(): " + e.toString());
+        }
+    }
+
+    private static Map<String, Long> countByStatus(String sqlQuery, Map<Integer, String> statuses)
+            throws SQLException {
+        Map<String, Long> counts = new HashMap<>();
+        for (String status : statuses.values())
+            counts.put(status, 0L);
+
+        PreparedStatement statement = ClinicConnection.prepare(sqlQuery);
+        try (Cursor cursor = ClinicConnection.openCursor(statement, sqlQuery)) {
+            ResultSet result = cursor.getResultSet();
+            while (result.next()) {
+                String status = statuses.getOrDefault(result.getInt("status"), "unknown");
+                counts.merge(status, result.getLong("number"), Long::sum);
+            }
+        }
+        return counts;
+    }
+
+    /**
+     * The gauges counted at one time
+     */
+    public static class Snapshot {
+        private Map<String, Long> appointments = new HashMap<>();
+        private Map<String, Long> prescriptionQueue = new HashMap<>();
+        private long lowStockMedicines = 0;
+        private long countedAt = 0;
+
+        /**
+         * Get today's appointments by status name, example: "waiting"
+         */
+        public Map<String, Long> getAppointments() {
+            return appointments;
+        }
+
+        /**
+         * Get the prescription queue by status name, example: "making"
+         */
+        public Map<String, Long> getPrescriptionQueue() {
+            return prescriptionQueue;
+        }
+
+        public long getLowStockMedicines() {
+            return lowStockMedicines;
+        }
+
+        /**
+         * Get the time of the count in epoch milliseconds, 0 if never counted
+         */
+        public long getCountedAt() {
+            return countedAt;
+        }
+    }
+}
@@ -0,0 +1,312 @@
+package com.clinic.metrics;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryUsage;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import com.clinic.ClinicConnection;
+import com.clinic.CursorTracker;
+import com.clinic.ExecutionLane;
+import com.clinic.ReplicaRouter;
+import com.clinic.cache.CacheStats;
+import com.clinic.drug.service.ExpiryScanner;
+import com.clinic.stats.QueryStats;
+import com.clinic.stats.ShapeStats;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import org.HdrHistogram.Histogram;
+
+/**
+ * An HTTP endpoint on the loopback address exporting the metrics of the
+ * application in the Prometheus text format at <code>/metrics</code>.<br>
+ * A scrape only reads the in-memory counters: the connection pool,
+ * <code>QueryStats</code>, <code>CacheStats</code>,
+ * <code>ClinicGauges</code> and the JVM.
+ *
+ * @author Jose Ryu Leonesta <jose.leonesta@student.matanauniversity.ac.id>
+ */
+public class MetricsServer {
+    /**
+     * The system property with the port of the endpoint, the endpoint is
+     * not started when it is not set
+     */
+    public final static String PORT_PROPERTY = "clinic.metrics.port";
+    /**
+     * Upper bounds of the query duration buckets in seconds
+     */
+    public final static double[] DURATION_BUCKETS = { 0.001, 0.0025, 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1,
+            2.5, 5, 10 };
+
+    private static HttpServer server;
+
+    /**
+     * Start the endpoint if the <code>clinic.metrics.port</code> system
+     * property is set
+     */
+    public static void startFromProperty() {
+        Integer port = Integer.getInteger(PORT_PROPERTY);
+        if (port == null)
+            return;
+
+        try {
+            start(port);
+        } catch (IOException e) {
+            System.out.println("Exception caught in MetricsServer.startFromProperty(): " + e.toString());
+        }
+    }
+
+    /**
+     * Start the endpoint on the loopback address and the counting of the
+     * clinic gauges
+     * @param port the port, 0 for any free port
+     * @return the port the endpoint listens on
+     */
+    public static synchronized int start(int port) throws IOException {
+        if (server != null)
+            return server.getAddress().getPort();
+
+        // The dispatcher thread of the server inherits the daemon status of
+        // the thread creating it, so the endpoint does not keep the JVM alive
+        IOException[] failure = { null };
+        Thread starter = new Thread(() -> {
+            try {
+                server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+                server.createContext("/metrics", MetricsServer::handle);
+                server.setExecutor(Executors.newSingleThreadExecutor((runnable) -> {
+                    Thread thread = new Thread(runnable, "clinic-metrics-http");
+                    thread.setDaemon(true);
+                    return thread;
+                }));
+                server.start();
+            } catch (IOException e) {
+                failure[0] = e;
+            }
+        }, "clinic-metrics-start");
+        starter.setDaemon(true);
+        starter.start();
+        try {
+            starter.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (failure[0] != null) {
+            server = null;
+            throw failure[0];
+        }
+        ClinicGauges.start();
+        System.out.println("Metrics: http://" + server.getAddress().getHostString() + ":"
+                + server.getAddress().getPort() + "/metrics");
+        return server.getAddress().getPort();
+    }
+
+    public static synchronized void stop() {
+        if (server == null)
+            return;
+        server.stop(0);
+        server = null;
+    }
+
+    private static void handle(HttpExchange exchange) throws IOException {
+        try {
+            byte[] body = "GET".equals(exchange.getRequestMethod())
+                    ? scrape().getBytes(StandardCharsets.UTF_8)
+                    : new byte[0];
+            exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+            exchange.sendResponseHeaders("GET".equals(exchange.getRequestMethod()) ? 200 : 405,
+                    body.length == 0 ? -1 : body.length);
+            try (OutputStream output = exchange.getResponseBody()) {
+                output.write(body);
+            }
+        } catch (RuntimeException e) {
+            System.out.println("Exception caught in MetricsServer.handle(): " + e.toString());
+            exchange.sendResponseHeaders(500, -1);
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * Write every metric in the Prometheus text format
+     */
+    public static String scrape() {
+        PrometheusWriter writer = new PrometheusWriter();
+        writeDatabase(writer);
+        writeLanes(writer);
+        writeCaches(writer);
+        writeQueries(writer);
+        writeClinic(writer);
+        writeJvm(writer);
+        return writer.toString();
+    }
+
+    private static void writeDatabase(PrometheusWriter writer) {
+        writer.family("clinic_db_pool_connections", PrometheusWriter.GAUGE, "Connections in the pool.")
+                .sample("clinic_db_pool_connections", ClinicConnection.getPoolSize());
+        writer.family("clinic_db_queries_running", PrometheusWriter.GAUGE, "Queries waiting for the database.")
+                .sample("clinic_db_queries_running", ClinicConnection.getRunningQueryCount());
+        writer.family("clinic_db_executor_queue_length", PrometheusWriter.GAUGE,
+                "Tasks waiting for the database executor.")
+                .sample("clinic_db_executor_queue_length", ClinicConnection.getExecutorQueueLength());
+        writer.family("clinic_db_cursors_open", PrometheusWriter.GAUGE, "Cursors not closed yet.")
+                .sample("clinic_db_cursors_open", CursorTracker.getOpenCount());
+        writer.family("clinic_db_cursor_leaks_total", PrometheusWriter.COUNTER,
+                "Cursors garbage collected without being closed.")
+                .sample("clinic_db_cursor_leaks_total", CursorTracker.getLeakCount());
+        if (!ReplicaRouter.isConfigured())
+            return;
+        writer.family("clinic_db_replica_healthy", PrometheusWriter.GAUGE,
+                "1 when reads may go to the replica, 0 when they go to the primary.")
+                .sample("clinic_db_replica_healthy", ReplicaRouter.isHealthy() ? 1 : 0);
+        writer.family("clinic_db_replica_lag_seconds", PrometheusWriter.GAUGE,
+                "Replication lag of the replica, -1 when unknown.")
+                .sample("clinic_db_replica_lag_seconds", ReplicaRouter.getLagMillis() < 0 ? -1
+                        : ReplicaRouter.getLagMillis() / 1000.0);
+        writer.family("clinic_db_routed_reads_total", PrometheusWriter.COUNTER,
+                "Reads allowed to go to the replica by where they went.")
+                .sample("clinic_db_routed_reads_total", ReplicaRouter.getReplicaReadCount(), "target", "replica")
+                .sample("clinic_db_routed_reads_total", ReplicaRouter.getPrimaryReadCount(), "target", "primary");
+    }
+
+    private static void writeLanes(PrometheusWriter writer) {
+        writer.family("clinic_lane_active", PrometheusWriter.GAUGE, "Tasks running in an execution lane.");
+        for (ExecutionLane lane : ExecutionLane.LANES)
+            writer.sample("clinic_lane_active", lane.getActiveCount(), "lane", lane.getName());
+        writer.family("clinic_lane_queue_length", PrometheusWriter.GAUGE, "Tasks waiting in an execution lane.");
+        for (ExecutionLane lane : ExecutionLane.LANES)
+            writer.sample("clinic_lane_queue_length", lane.getQueueLength(), "lane", lane.getName());
+        writer.family("clinic_lane_rejected_total", PrometheusWriter.COUNTER,
+                "Tasks rejected because an execution lane was full.");
+        for (ExecutionLane lane : ExecutionLane.LANES)
+            writer.sample("clinic_lane_rejected_total", lane.getRejectedCount(), "lane", lane.getName());
+    }
+
+    private static void writeCaches(PrometheusWriter writer) {
+        writer.family("clinic_cache_hits_total", PrometheusWriter.COUNTER, "Cache lookups that were hits.");
+        for (CacheStats stats : CacheStats.all())
+            writer.sample("clinic_cache_hits_total", stats.getHits(), "cache", stats.getName());
+        writer.family("clinic_cache_misses_total", PrometheusWriter.COUNTER, "Cache lookups that were misses.");
+        for (CacheStats stats : CacheStats.all())
+            writer.sample("clinic_cache_misses_total", stats.getMisses(), "cache", stats.getName());
+    }
+
+    /**
+     * Write the query statistics by entity and operation, the shapes are
+     * merged to keep the number of series small
+     */
+    private static void writeQueries(PrometheusWriter writer) {
+        Map<String, QueryGroup> groups = new HashMap<>();
+        for (ShapeStats stats : QueryStats.all()) {
+            QueryGroup group = groups.computeIfAbsent(stats.getEntity() + '\0' + stats.getOperation(),
+                    (key) -> new QueryGroup(stats.getEntity(), stats.getOperation()));
+            group.dbTime.add(stats.getDbTime());
+            group.dbSeconds += stats.getTotalDbMillis() / 1e3;
+            group.mappingSeconds += stats.getTotalMappingMillis() / 1e3;
+            group.failures += stats.getFailures();
+            group.rows += stats.getRows();
+        }
+
+        writer.family("clinic_query_duration_seconds", PrometheusWriter.HISTOGRAM,
+                "Time spent in the database driver per query.");
+        for (QueryGroup group : groups.values()) {
+            for (double bucket : DURATION_BUCKETS) {
+                long micros = (long) (bucket * 1e6);
+                writer.sample("clinic_query_duration_seconds_bucket", group.dbTime.getCountBetweenValues(0, micros),
+                        "entity", group.entity, "operation", group.operation, "le", Double.toString(bucket));
+            }
+            writer.sample("clinic_query_duration_seconds_bucket", group.dbTime.getTotalCount(),
+                    "entity", group.entity, "operation", group.operation, "le", "+Inf");
+            writer.sample("clinic_query_duration_seconds_count", group.dbTime.getTotalCount(),
+                    "entity", group.entity, "operation", group.operation);
+            writer.sample("clinic_query_duration_seconds_sum", group.dbSeconds,
+                    "entity", group.entity, "operation", group.operation);
+        }
+        writer.family("clinic_query_mapping_seconds_total", PrometheusWriter.COUNTER,
+                "Time spent processing the query results.");
+        for (QueryGroup group : groups.values())
+            writer.sample("clinic_query_mapping_seconds_total", group.mappingSeconds,
+                    "entity", group.entity, "operation", group.operation);
+        writer.family("clinic_query_failures_total", PrometheusWriter.COUNTER, "Queries that threw an exception.");
+        for (QueryGroup group : groups.values())
+            writer.sample("clinic_query_failures_total", group.failures,
+                    "entity", group.entity, "operation", group.operation);
+        writer.family("clinic_query_rows_total", PrometheusWriter.COUNTER, "Rows returned or written.");
+        for (QueryGroup group : groups.values())
+            writer.sample("clinic_query_rows_total", group.rows,
+                    "entity", group.entity, "operation", group.operation);
+    }
+
+    private static void writeClinic(PrometheusWriter writer) {
+        ClinicGauges.Snapshot snapshot = ClinicGauges.getSnapshot();
+        writer.family("clinic_appointments_today", PrometheusWriter.GAUGE, "Today's appointments by status.");
+        for (Map.Entry<String, Long> count : snapshot.getAppointments().entrySet())
+            writer.sample("clinic_appointments_today", count.getValue(), "status", count.getKey());
+        writer.family("clinic_prescription_queue", PrometheusWriter.GAUGE, "Prescriptions in the queue by status.");
+        for (Map.Entry<String, Long> count : snapshot.getPrescriptionQueue().entrySet())
+            writer.sample("clinic_prescription_queue", count.getValue(), "status", count.getKey());
+        writer.family("clinic_medicines_low_stock", PrometheusWriter.GAUGE,
+                "Medicines with less than " + ClinicGauges.LOW_STOCK_QTY + " available.")
+                .sample("clinic_medicines_low_stock", snapshot.getLowStockMedicines());
+        writer.family("clinic_medicine_stocks_expiring", PrometheusWriter.GAUGE,
+                "Available medicine stocks expiring within a number of days, or expired.");
+        for (Map.Entry<Integer, Integer> count : ExpiryScanner.countByHorizon().entrySet())
+            writer.sample("clinic_medicine_stocks_expiring", count.getValue(), "days", String.valueOf(count.getKey()));
+        writer.family("clinic_gauges_counted_timestamp_seconds", PrometheusWriter.GAUGE,
+                "Time the clinic gauges were counted in the database.")
+                .sample("clinic_gauges_counted_timestamp_seconds", snapshot.getCountedAt() / 1e3);
+    }
+
+    private static void writeJvm(PrometheusWriter writer) {
+        MemoryUsage heap = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage();
+        MemoryUsage nonHeap = ManagementFactory.getMemoryMXBean().getNonHeapMemoryUsage();
+        writer.family("jvm_memory_bytes_used", PrometheusWriter.GAUGE, "Used memory of an area.")
+                .sample("jvm_memory_bytes_used", heap.getUsed(), "area", "heap")
+                .sample("jvm_memory_bytes_used", nonHeap.getUsed(), "area", "nonheap");
+        writer.family("jvm_memory_bytes_committed", PrometheusWriter.GAUGE, "Committed memory of an area.")
+                .sample("jvm_memory_bytes_committed", heap.getCommitted(), "area", "heap")
+                .sample("jvm_memory_bytes_committed", nonHeap.getCommitted(), "area", "nonheap");
+        writer.family("jvm_memory_bytes_max", PrometheusWriter.GAUGE, "Maximum memory of an area, -1 if unbounded.")
+                .sample("jvm_memory_bytes_max", heap.getMax(), "area", "heap")
+                .sample("jvm_memory_bytes_max", nonHeap.getMax(), "area", "nonheap");
+
+        writer.family("jvm_gc_collection_seconds", PrometheusWriter.COUNTER, "Time spent in a garbage collector.");
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            writer.sample("jvm_gc_collection_seconds_count", collector.getCollectionCount(),
+                    "gc", collector.getName());
+            writer.sample("jvm_gc_collection_seconds_sum", collector.getCollectionTime() / 1e3,
+                    "gc", collector.getName());
+        }
+
+        writer.family("jvm_threads_current", PrometheusWriter.GAUGE, "Live threads.")
+                .sample("jvm_threads_current", ManagementFactory.getThreadMXBean().getThreadCount());
+        writer.family("jvm_classes_loaded", PrometheusWriter.GAUGE, "Loaded classes.")
+                .sample("jvm_classes_loaded", ManagementFactory.getClassLoadingMXBean().getLoadedClassCount());
+        writer.family("process_uptime_seconds", PrometheusWriter.GAUGE, "Time since the JVM started.")
+                .sample("process_uptime_seconds",
+                        TimeUnit.MILLISECONDS.toSeconds(ManagementFactory.getRuntimeMXBean().getUptime()));
+    }
+
+    private static class QueryGroup {
+        private String entity;
+        private String operation;
+        private Histogram dbTime = new Histogram(2);
+        private double dbSeconds = 0;
+        private double mappingSeconds = 0;
+        private long failures = 0;
+        private long rows = 0;
+
+        private QueryGroup(String entity, String operation) {
+            this.entity = entity;
+            this.operation = operation;
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.clinic.metrics;
+
+/**
+ * Writes metrics in the Prometheus text exposition format.
+ *
+ * @author Jose Ryu Leonesta <jose.leonesta@student.matanauniversity.ac.id>
+ */
+public class PrometheusWriter {
+    public final static String COUNTER = "counter", GAUGE = "gauge", HISTOGRAM = "histogram";
+
+    private StringBuilder text = new StringBuilder();
+
+    /**
+     * Start a metric family, its samples follow with <code>sample()</code>
+     * @param name example: "clinic_db_pool_connections"
+     * @param type <code>COUNTER</code>, <code>GAUGE</code> or <code>HISTOGRAM</code>
+     * @param help description of the metric
+     */
+    public PrometheusWriter family(String name, String type, String help) {
+        text.append("# HELP ").append(name).append(' ').append(help.replace("\\", "\\\\").replace("\n", "\\n"))
+                .append('\n');
+        text.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+        return this;
+    }
+
+    /**
+     * Add a sample without labels
+     */
+    public PrometheusWriter sample(String name, double value) {
+        return sample(name, value, new String[0]);
+    }
+
+    /**
+     * Add a sample
+     * @param name the name of the sample, example: "clinic_query_duration_seconds_bucket"
+     * @param value the value
+     * @param labels pairs of label name and value, example: "entity", "Patient"
+     */
+    public PrometheusWriter sample(String name, double value, String... labels) {
+        text.append(name);
+        if (labels.length > 0) {
+            text.append('{');
+            for (int i = 0; i + 1 < labels.length; i += 2) {
+                if (i > 0)
+                    text.append(',');
+                text.append(labels[i]).append("=\"").append(escapeLabel(labels[i + 1])).append('"');
+            }
+            text.append('}');
+        }
+        text.append(' ').append(formatValue(value)).append('\n');
+        return this;
+    }
+
+    @Override
+    public String toString() {
+        return text.toString();
+    }
+
+    private static String escapeLabel(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    private static String formatValue(double value) {
+        if (Double.isNaN(value))
+            return "NaN";
+        if (Double.isInfinite(value))
+            return value > 0 ? "+Inf" : "-Inf";
+        if (value == Math.rint(value) && Math.abs(value) < 1e15)
+            return Long.toString((long) value);
+        return Double.toString(value);
+    }
+}
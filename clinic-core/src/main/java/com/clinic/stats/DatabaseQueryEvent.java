@@ -0,0 +1,27 @@
+package com.clinic.stats;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Threshold;
+
+/**
+ * Flight recorder event of a query sent to the database by
+ * <code>ClinicConnection</code>
+ * 
+ * @author Jose Ryu Leonesta <jose.leonesta@student.matanauniversity.ac.id>
+ */
+@Name("com.clinic.DatabaseQuery")
+@Label("Database Query")
+@Category({ "Clinic", "Database" })
+@Description("A query sent to the database, with the literals stripped")
+@Threshold("1 ms")
+public class DatabaseQueryEvent extends Event {
+    @Label("Query Shape")
+    public String shape;
+
+    @Label("Failed")
+    public boolean failed;
+}
@@ -0,0 +1,253 @@
+package com.clinic.stats;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counts the queries of one unit of work, such as a button handler, a page
+ * flip or opening a form, by query shape to find N+1 patterns.<br>
+ * When the same shape runs more than <code>REPEAT_THRESHOLD</code> times in a
+ * scope, a warning with the call sites of the query is printed the first time
+ * it happens for that scope name and shape. In the test mode a
+ * <code>RepeatedQueryException</code> is thrown instead of running the query.
+ * <br>
+ * A scope belongs to the thread that opened it, tasks started on the database
+ * executor run in the scope of the thread that submitted them.
+ *
+ * @author Jose Ryu Leonesta <jose.leonesta@student.matanauniversity.ac.id>
+ */
+public class QueryScope implements AutoCloseable {
+    /**
+     * Times a shape may run in a scope, set by the
+     * <code>clinic.repeat.threshold</code> system property
+     */
+    public final static int REPEAT_THRESHOLD = Integer.getInteger("clinic.repeat.threshold", 5);
+    public final static int MAX_CALL_SITES = 10;
+
+    private static volatile boolean failOnRepeat = Boolean.getBoolean("clinic.repeat.fail");
+    private static ThreadLocal<QueryScope> currentScope = new ThreadLocal<>();
+    private static Map<String, RepeatedQuery> repeatedQueries = new ConcurrentHashMap<>();
+    private static StackWalker stackWalker = StackWalker.getInstance();
+
+    private String name;
+    private QueryScope outer;
+    private volatile boolean closed = false;
+    private Map<String, ShapeCount> shapes = new ConcurrentHashMap<>();
+
+    private QueryScope(String name, QueryScope outer) {
+        this.name = name;
+        this.outer = outer;
+    }
+
+    /**
+     * Open a scope on the current thread, the scope should be closed with
+     * <code>close()</code>
+     * @param name the unit of work, example: "PrescriptionCreationController save"
+     */
+    public static QueryScope open(String name) {
+        QueryScope scope = new QueryScope(name, currentScope.get());
+        currentScope.set(scope);
+        return scope;
+    }
+
+    /**
+     * Fail on repeated queries instead of warning, for tests
+     */
+    public static void setFailOnRepeat(boolean fail) {
+        failOnRepeat = fail;
+    }
+
+    /**
+     * Make a task run in the scope of the current thread, for tasks run by
+     * another thread on its behalf
+     * @param task the task
+     * @return the task running in the scope
+     */
+    public static Runnable propagate(Runnable task) {
+        QueryScope scope = currentScope.get();
+        if (scope == null)
+            return task;
+
+        return () -> {
+            QueryScope previous = currentScope.get();
+            currentScope.set(scope);
+            try {
+                task.run();
+            } finally {
+                if (previous != null)
+                    currentScope.set(previous);
+                else
+                    currentScope.remove();
+            }
+        };
+    }
+
+    /**
+     * Count a query in the scope of the current thread, called by
+     * <code>ClinicConnection</code> before running it
+     * @param sqlQuery the query
+     * @throws RepeatedQueryException in the test mode, when the shape has
+     * run too many times in the scope
+     */
+    public static void recordQuery(String sqlQuery) {
+        QueryScope scope = currentScope.get();
+        if (scope == null || scope.closed)
+            return;
+
+        String shape = QueryShape.normalize(sqlQuery);
+        ShapeCount count = scope.shapes.computeIfAbsent(shape, (key) -> new ShapeCount());
+        int runs = count.add(callSite());
+        if (runs != REPEAT_THRESHOLD + 1)
+            return;
+
+        String key = scope.name + '\0' + shape;
+        boolean first = !repeatedQueries.containsKey(key);
+        RepeatedQuery repeated = repeatedQueries.computeIfAbsent(key,
+                (newKey) -> new RepeatedQuery(scope.name, shape));
+        repeated.scopes.incrementAndGet();
+        if (failOnRepeat)
+            throw new RepeatedQueryException(scope.name, shape, count.getCallSites());
+        if (first)
+            System.out.println("Repeated query in " + scope.name + ": more than " + REPEAT_THRESHOLD
+                    + " runs of " + shape + System.lineSeparator() + formatCallSites(count.getCallSites()));
+    }
+
+    /**
+     * Get the repeated queries found in the most scopes
+     * @param count the number of repeated queries to return
+     */
+    public static List<RepeatedQuery> top(int count) {
+        List<RepeatedQuery> result = new ArrayList<>(repeatedQueries.values());
+        result.sort(Comparator.comparingLong(RepeatedQuery::getScopes).reversed());
+        return new ArrayList<>(result.subList(0, Math.min(count, result.size())));
+    }
+
+    /**
+     * Format the repeated queries found in the most scopes as a text table
+     * @param count the number of repeated queries
+     */
+    public static String report(int count) {
+        StringBuilder report = new StringBuilder(String.format("%8s  %s%n", "scopes", "scope / shape"));
+        for (RepeatedQuery repeated : top(count))
+            report.append(String.format("%8d  %s: %s%n", repeated.getScopes(), repeated.getScope(),
+                    repeated.getShape()));
+        return report.toString();
+    }
+
+    public static void reset() {
+        repeatedQueries.clear();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Get the number of runs of every shape in the scope
+     */
+    public Map<String, Integer> getCounts() {
+        Map<String, Integer> counts = new ConcurrentHashMap<>();
+        for (Map.Entry<String, ShapeCount> shape : shapes.entrySet())
+            counts.put(shape.getKey(), shape.getValue().runs.get());
+        return counts;
+    }
+
+    /**
+     * Close the scope, queries still running for it on other threads are no
+     * longer counted
+     */
+    @Override
+    public void close() {
+        closed = true;
+        if (currentScope.get() != this)
+            return;
+        if (outer != null && !outer.closed)
+            currentScope.set(outer);
+        else
+            currentScope.remove();
+    }
+
+    /**
+     * Get the first method on the stack outside the connection, the
+     * repositories' base class and the JDK
+     */
+    private static String callSite() {
+        return stackWalker.walk((frames) -> frames
+                .filter((frame) -> !isInfrastructure(frame.getClassName()))
+                .findFirst()
+                .map((frame) -> frame.getClassName() + "." + frame.getMethodName() + ":" + frame.getLineNumber())
+                .orElse("-"));
+    }
+
+    private static boolean isInfrastructure(String className) {
+        return className.startsWith("com.clinic.ClinicConnection")
+                || className.startsWith("com.clinic.abstracts.AbstractEntityRepository")
+                || className.startsWith("com.clinic.stats.")
+                || className.startsWith("com.clinic.cache.")
+                || className.startsWith("java.")
+                || className.startsWith("jdk.");
+    }
+
+    static String formatCallSites(Map<String, Integer> callSites) {
+        StringBuilder text = new StringBuilder();
+        for (Map.Entry<String, Integer> callSite : callSites.entrySet())
+            text.append("    ").append(callSite.getValue()).append("x at ").append(callSite.getKey())
+                    .append(System.lineSeparator());
+        return text.toString();
+    }
+
+    /**
+     * The runs of a shape in a scope with their call sites
+     */
+    private static class ShapeCount {
+        private AtomicInteger runs = new AtomicInteger();
+        private Map<String, AtomicInteger> callSites = new ConcurrentHashMap<>();
+
+        private int add(String callSite) {
+            if (callSites.size() < MAX_CALL_SITES || callSites.containsKey(callSite))
+                callSites.computeIfAbsent(callSite, (key) -> new AtomicInteger()).incrementAndGet();
+            return runs.incrementAndGet();
+        }
+
+        private Map<String, Integer> getCallSites() {
+            Map<String, Integer> counts = new ConcurrentHashMap<>();
+            for (Map.Entry<String, AtomicInteger> callSite : callSites.entrySet())
+                counts.put(callSite.getKey(), callSite.getValue().get());
+            return counts;
+        }
+    }
+
+    /**
+     * A shape found repeating in the scopes of a name
+     */
+    public static class RepeatedQuery {
+        private String scope;
+        private String shape;
+        private AtomicLong scopes = new AtomicLong();
+
+        private RepeatedQuery(String scope, String shape) {
+            this.scope = scope;
+            this.shape = shape;
+        }
+
+        public String getScope() {
+            return scope;
+        }
+
+        public String getShape() {
+            return shape;
+        }
+
+        /**
+         * Get the number of scopes the shape repeated in
+         */
+        public long getScopes() {
+            return scopes.get();
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.clinic.stats;
+
+import java.util.regex.Pattern;
+
+/**
+ * Normalizes SQL queries into their shape: the literals are replaced by
+ * <code>?</code>, lists of literals are collapsed and the whitespace is
+ * squeezed, so queries differing only by their values share a shape.<br>
+ * Example: <code>SELECT * FROM patient a WHERE a.id IN (1, 2, 3) LIMIT 0,10;</code>
+ * becomes <code>SELECT * FROM patient a WHERE a.id IN (?, ...) LIMIT ?,?;</code>
+ * 
+ * @author Jose Ryu Leonesta <jose.leonesta@student.matanauniversity.ac.id>
+ */
+public class QueryShape {
+    private final static Pattern VALUE_LIST = Pattern.compile("\\(\\s*\\?(\\s*,\\s*\\?)+\\s*\\)");
+    private final static Pattern REPEATED_LISTS = Pattern.compile("\\(\\?, \\.\\.\\.\\)(\\s*,\\s*\\(\\?, \\.\\.\\.\\))+");
+
+    public static String normalize(String sqlQuery) {
+        StringBuilder shape = new StringBuilder(sqlQuery.length());
+        int length = sqlQuery.length();
+        int i = 0;
+        while (i < length) {
+            char c = sqlQuery.charAt(i);
+            if (c == '\'' || c == '"') {
+                // String literal, quotes are escaped by doubling or a backslash
+                i++;
+                while (i < length) {
+                    char inside = sqlQuery.charAt(i);
+                    if (inside == '\\') {
+                        i += 2;
+                    } else if (inside == c) {
+                        if (i + 1 < length && sqlQuery.charAt(i + 1) == c) {
+                            i += 2;
+                        } else {
+                            i++;
+                            break;
+                        }
+                    } else {
+                        i++;
+                    }
+                }
+                shape.append('?');
+            } else if (Character.isDigit(c) && !isIdentifierPart(shape)) {
+                while (i < length && (Character.isDigit(sqlQuery.charAt(i)) || sqlQuery.charAt(i) == '.'))
+                    i++;
+                shape.append('?');
+            } else if (Character.isWhitespace(c)) {
+                while (i < length && Character.isWhitespace(sqlQuery.charAt(i)))
+                    i++;
+                if (shape.length() != 0)
+                    shape.append(' ');
+            } else {
+                shape.append(c);
+                i++;
+            }
+        }
+
+        String result = VALUE_LIST.matcher(shape.toString().trim()).replaceAll("(?, ...)");
+        return REPEATED_LISTS.matcher(result).replaceAll("(?, ...), ...");
+    }
+
+    /**
+     * Check whether the last character written is part of an identifier, so
+     * a digit that follows it is not a literal, like in <code>table2</code>
+     */
+    private static boolean isIdentifierPart(StringBuilder shape) {
+        if (shape.length() == 0)
+            return false;
+        char last = shape.charAt(shape.length() - 1);
+        return Character.isLetterOrDigit(last) || last == '_' || last == '`';
+    }
+}
@@ -0,0 +1,175 @@
+package com.clinic.stats;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-app statistics of the queries, grouped by entity, operation and query
+ * shape, like <code>pg_stat_statements</code>.<br>
+ * <code>ClinicConnection</code> reports the database time of every query. A
+ * repository wraps its work in an <code>Operation</code>, so the queries run
+ * inside it are recorded with its entity, operation, rows and the time spent
+ * mapping the result. Both are also recorded as flight recorder events.
+ * 
+ * @author Jose Ryu Leonesta <jose.leonesta@student.matanauniversity.ac.id>
+ */
+public class QueryStats {
+    /**
+     * Shapes recorded at most, the queries of new shapes beyond it are
+     * grouped into <code>OTHER_SHAPE</code>
+     */
+    public final static int MAX_SHAPES = 1000;
+    public final static String OTHER_SHAPE = "(other)";
+
+    private static Map<String, ShapeStats> shapes = new ConcurrentHashMap<>();
+    private static ThreadLocal<Operation> currentOperation = new ThreadLocal<>();
+
+    /**
+     * Start an operation of a repository on the current thread. An operation
+     * started while another one runs on the thread joins it.
+     * @param entity the entity name, example: "Patient"
+     * @param operation example: "get", "join", "create"
+     * @return the operation, which must be finished with <code>finish()</code>
+     */
+    public static Operation start(String entity, String operation) {
+        Operation current = currentOperation.get();
+        if (current != null) {
+            current.depth++;
+            return current;
+        }
+        current = new Operation(entity, operation);
+        currentOperation.set(current);
+        return current;
+    }
+
+    /**
+     * Record a query run by <code>ClinicConnection</code>. Inside an
+     * operation it is recorded when the operation finishes.
+     * @param sqlQuery the query
+     * @param dbNanos time spent in the database driver
+     * @param failed whether the query threw an exception
+     */
+    public static void recordQuery(String sqlQuery, long dbNanos, boolean failed) {
+        Operation current = currentOperation.get();
+        if (current != null) {
+            current.addQuery(sqlQuery, dbNanos, failed);
+        } else {
+            String keyword = sqlQuery.trim().split("\\s", 2)[0].toLowerCase();
+            get("-", keyword, QueryShape.normalize(sqlQuery)).record(dbNanos, -1, 0, failed);
+        }
+    }
+
+    private static ShapeStats get(String entity, String operation, String shape) {
+        String key = entity + '\0' + operation + '\0' + shape;
+        ShapeStats stats = shapes.get(key);
+        if (stats != null)
+            return stats;
+        if (shapes.size() >= MAX_SHAPES)
+            return shapes.computeIfAbsent(entity + '\0' + operation + '\0' + OTHER_SHAPE,
+                    (otherKey) -> new ShapeStats(entity, operation, OTHER_SHAPE));
+        return shapes.computeIfAbsent(key, (newKey) -> new ShapeStats(entity, operation, shape));
+    }
+
+    /**
+     * Get the shapes with the highest total time
+     * @param count the number of shapes to return
+     */
+    public static List<ShapeStats> top(int count) {
+        List<ShapeStats> result = new ArrayList<>(shapes.values());
+        result.sort(Comparator.comparingDouble(ShapeStats::getTotalMillis).reversed());
+        return new ArrayList<>(result.subList(0, Math.min(count, result.size())));
+    }
+
+    /**
+     * Get the statistics of every recorded shape
+     */
+    public static List<ShapeStats> all() {
+        return new ArrayList<>(shapes.values());
+    }
+
+    public static void reset() {
+        shapes.clear();
+    }
+
+    /**
+     * Format the shapes with the highest total time as a text table
+     * @param count the number of shapes
+     */
+    public static String report(int count) {
+        StringBuilder report = new StringBuilder(String.format("%10s %8s %10s %9s %9s %9s %10s  %s%n",
+                "total ms", "calls", "rows", "db p50", "db p99", "map p99", "entity", "operation / shape"));
+        for (ShapeStats stats : top(count)) {
+            report.append(String.format("%10.1f %8d %10d %9.2f %9.2f %9.2f %10s  %s: %s%n", stats.getTotalMillis(),
+                    stats.getCalls(), stats.getRows(), stats.getDbPercentileMillis(50),
+                    stats.getDbPercentileMillis(99), stats.getMappingPercentileMillis(99), stats.getEntity(),
+                    stats.getOperation(), stats.getShape()));
+        }
+        return report.toString();
+    }
+
+    /**
+     * A repository operation running on a thread
+     */
+    public static class Operation {
+        private String entity;
+        private String operation;
+        private int depth = 1;
+        private long start = System.nanoTime();
+        private long rows = 0;
+        private List<String> queries = new ArrayList<>(2);
+        private List<long[]> queryTimes = new ArrayList<>(2);
+        private RepositoryOperationEvent event = new RepositoryOperationEvent();
+
+        private Operation(String entity, String operation) {
+            this.entity = entity;
+            this.operation = operation;
+            event.begin();
+        }
+
+        private void addQuery(String sqlQuery, long dbNanos, boolean failed) {
+            queries.add(sqlQuery);
+            queryTimes.add(new long[] { dbNanos, failed ? 1 : 0 });
+        }
+
+        /**
+         * Add rows returned or written by the operation
+         */
+        public void addRows(long rowCount) {
+            rows += rowCount;
+        }
+
+        /**
+         * Finish the operation and record its queries. The rows and the
+         * time not spent in the database are attributed to the last query.
+         */
+        public void finish() {
+            if (--depth > 0)
+                return;
+            currentOperation.remove();
+
+            long elapsed = System.nanoTime() - start;
+            event.end();
+            if (event.shouldCommit()) {
+                event.entity = entity;
+                event.operation = operation;
+                event.shape = queries.isEmpty() ? "" : QueryShape.normalize(queries.get(queries.size() - 1));
+                event.queries = queries.size();
+                event.rows = rows;
+                event.commit();
+            }
+
+            long dbNanos = 0;
+            for (long[] times : queryTimes)
+                dbNanos += times[0];
+            for (int i = 0; i < queries.size(); i++) {
+                boolean last = i == queries.size() - 1;
+                ShapeStats stats = get(entity, operation, QueryShape.normalize(queries.get(i)));
+                stats.record(queryTimes.get(i)[0], last ? Math.max(0, elapsed - dbNanos) : -1,
+                        last ? rows : 0, queryTimes.get(i)[1] != 0);
+            }
+        }
+    }
+}
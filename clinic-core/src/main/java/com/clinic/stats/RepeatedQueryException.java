@@ -0,0 +1,31 @@
+package com.clinic.stats;
+
+import java.util.Map;
+
+/**
+ * Thrown in the test mode of <code>QueryScope</code> when a query shape runs
+ * more than <code>QueryScope.REPEAT_THRESHOLD</code> times in one scope.
+ *
+ * @author Jose Ryu Leonesta <jose.leonesta@student.matanauniversity.ac.id>
+ */
+public class RepeatedQueryException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    private String scope;
+    private String shape;
+
+    public RepeatedQueryException(String scope, String shape, Map<String, Integer> callSites) {
+        super("More than " + QueryScope.REPEAT_THRESHOLD + " runs of " + shape + " in " + scope
+                + System.lineSeparator() + QueryScope.formatCallSites(callSites));
+        this.scope = scope;
+        this.shape = shape;
+    }
+
+    public String getScope() {
+        return scope;
+    }
+
+    public String getShape() {
+        return shape;
+    }
+}
@@ -0,0 +1,37 @@
+package com.clinic.stats;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Threshold;
+
+/**
+ * Flight recorder event of a repository operation, containing the
+ * <code>DatabaseQueryEvent</code>s it runs
+ * 
+ * @author Jose Ryu Leonesta <jose.leonesta@student.matanauniversity.ac.id>
+ */
+@Name("com.clinic.RepositoryOperation")
+@Label("Repository Operation")
+@Category({ "Clinic", "Database" })
+@Description("A repository call: its queries and the mapping of their result")
+@Threshold("1 ms")
+public class RepositoryOperationEvent extends Event {
+    @Label("Entity")
+    public String entity;
+
+    @Label("Operation")
+    public String operation;
+
+    @Label("Query Shape")
+    @Description("The shape of the last query of the operation")
+    public String shape;
+
+    @Label("Queries")
+    public int queries;
+
+    @Label("Rows")
+    public long rows;
+}
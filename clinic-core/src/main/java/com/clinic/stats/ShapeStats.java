@@ -0,0 +1,124 @@
+package com.clinic.stats;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+/**
+ * The statistics of one query shape of an entity's operation. The times are
+ * recorded in microseconds into HDR histograms.
+ * 
+ * @author Jose Ryu Leonesta <jose.leonesta@student.matanauniversity.ac.id>
+ */
+public class ShapeStats {
+    private final static int SIGNIFICANT_DIGITS = 2;
+
+    private String entity;
+    private String operation;
+    private String shape;
+    private LongAdder calls = new LongAdder();
+    private LongAdder failures = new LongAdder();
+    private LongAdder rows = new LongAdder();
+    private LongAdder totalDbNanos = new LongAdder();
+    private LongAdder totalMappingNanos = new LongAdder();
+    private Histogram dbTime = new ConcurrentHistogram(SIGNIFICANT_DIGITS);
+    private Histogram mappingTime = new ConcurrentHistogram(SIGNIFICANT_DIGITS);
+
+    public ShapeStats(String entity, String operation, String shape) {
+        this.entity = entity;
+        this.operation = operation;
+        this.shape = shape;
+    }
+
+    /**
+     * Record a run of the query
+     * @param dbNanos time spent in the database driver
+     * @param mappingNanos time spent processing the result, negative if
+     * not measured
+     * @param rowCount rows returned or written
+     * @param failed whether the query threw an exception
+     */
+    void record(long dbNanos, long mappingNanos, long rowCount, boolean failed) {
+        calls.increment();
+        if (failed)
+            failures.increment();
+        rows.add(rowCount);
+        totalDbNanos.add(dbNanos);
+        dbTime.recordValue(TimeUnit.NANOSECONDS.toMicros(dbNanos));
+        if (mappingNanos >= 0) {
+            totalMappingNanos.add(mappingNanos);
+            mappingTime.recordValue(TimeUnit.NANOSECONDS.toMicros(mappingNanos));
+        }
+    }
+
+    public String getEntity() {
+        return entity;
+    }
+
+    public String getOperation() {
+        return operation;
+    }
+
+    public String getShape() {
+        return shape;
+    }
+
+    public long getCalls() {
+        return calls.sum();
+    }
+
+    public long getFailures() {
+        return failures.sum();
+    }
+
+    public long getRows() {
+        return rows.sum();
+    }
+
+    /**
+     * Get the database and mapping time of all the calls in milliseconds
+     */
+    public double getTotalMillis() {
+        return (totalDbNanos.sum() + totalMappingNanos.sum()) / 1e6;
+    }
+
+    public double getTotalDbMillis() {
+        return totalDbNanos.sum() / 1e6;
+    }
+
+    public double getTotalMappingMillis() {
+        return totalMappingNanos.sum() / 1e6;
+    }
+
+    /**
+     * Get a percentile of the database time in milliseconds
+     * @param percentile between 0 and 100
+     */
+    public double getDbPercentileMillis(double percentile) {
+        return dbTime.getValueAtPercentile(percentile) / 1e3;
+    }
+
+    /**
+     * Get a percentile of the mapping time in milliseconds
+     * @param percentile between 0 and 100
+     */
+    public double getMappingPercentileMillis(double percentile) {
+        return mappingTime.getValueAtPercentile(percentile) / 1e3;
+    }
+
+    /**
+     * Get a copy of the database time histogram, in microseconds
+     */
+    public Histogram getDbTime() {
+        return dbTime.copy();
+    }
+
+    /**
+     * Get a copy of the mapping time histogram, in microseconds
+     */
+    public Histogram getMappingTime() {
+        return mappingTime.copy();
+    }
+}
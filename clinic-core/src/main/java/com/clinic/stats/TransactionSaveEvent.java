@@ -0,0 +1,30 @@
+package com.clinic.stats;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight recorder event of saving a medicine transaction or a prescription
+ * 
+ * @author Jose Ryu Leonesta <jose.leonesta@student.matanauniversity.ac.id>
+ */
+@Name("com.clinic.TransactionSave")
+@Label("Transaction Save")
+@Category({ "Clinic", "Transaction" })
+@Description("Saving a purchase, a sale or a prescription with all its details")
+public class TransactionSaveEvent extends Event {
+    public final static String PURCHASE = "purchase", SELL = "sell", PRESCRIPTION = "prescription";
+
+    @Label("Kind")
+    public String kind;
+
+    @Label("Details")
+    public int details;
+
+    @Label("Error")
+    @Description("The message of the failed step, empty if saved")
+    public String error = "";
+}
@@ -0,0 +1,23 @@
+module com.clinic.core {
+    requires transitive javafx.base;
+    requires transitive java.sql;
+    requires transitive HdrHistogram;
+    requires jdk.jfr;
+    requires jdk.httpserver;
+    requires java.management;
+
+    exports com.clinic;
+    exports com.clinic.abstracts;
+    exports com.clinic.cache;
+    exports com.clinic.factories;
+    exports com.clinic.interfaces;
+    exports com.clinic.stats;
+    exports com.clinic.metrics;
+    exports com.clinic.receptionist.domain;
+    exports com.clinic.receptionist.repository;
+    exports com.clinic.doctor.domain;
+    exports com.clinic.doctor.repository;
+    exports com.clinic.drug.domain;
+    exports com.clinic.drug.repository;
+    exports com.clinic.drug.service;
+}
@@ -0,0 +1,43 @@
+package com.clinic.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+public class PageCacheTest {
+    @Test
+    public void cachedEntitiesAreNeverHandedOut() {
+        PageCache<StringBuilder> cache = new PageCache<>(4, StringBuilder::new);
+        PageCache.Page<StringBuilder> fetched = page("row 1");
+        cache.put("page 1", fetched, cache.getGeneration());
+        fetched.getEntities().get(0).append(" edited");
+        PageCache.Page<StringBuilder> first = cache.get("page 1");
+        first.getEntities().get(0).append(" edited");
+        PageCache.Page<StringBuilder> second = cache.get("page 1");
+
+        assertNotSame(first.getEntities().get(0), second.getEntities().get(0));
+        assertEquals("row 1", second.getEntities().get(0).toString());
+        assertEquals(7, second.getTotalRecords());
+    }
+
+    @Test
+    public void pageFetchedBeforeAnInvalidationIsNotStored() {
+        PageCache<StringBuilder> cache = new PageCache<>(4, StringBuilder::new);
+        long generation = cache.getGeneration();
+        cache.invalidate();
+        cache.put("page 1", page("row 1"), generation);
+
+        assertNull(cache.get("page 1"));
+    }
+
+    private static PageCache.Page<StringBuilder> page(String row) {
+        List<StringBuilder> rows = new ArrayList<>();
+        rows.add(new StringBuilder(row));
+        return new PageCache.Page<>(rows, 7);
+    }
+}
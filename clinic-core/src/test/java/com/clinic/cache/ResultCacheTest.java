@@ -0,0 +1,104 @@
+package com.clinic.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.clinic.Pagination;
+
+public class ResultCacheTest {
+    private AtomicInteger fetchCount = new AtomicInteger();
+
+    @BeforeEach
+    public void clearCache() {
+        ResultCache.invalidateAll();
+    }
+
+    @Test
+    public void normalizeCollapsesWhitespaceOutsideLiterals() {
+        assertEquals("SELECT * FROM medicine a WHERE a.brand_name LIKE '%para  mol%' LIMIT 0, 10",
+                ResultCache.normalize("  SELECT *\n  FROM medicine a\tWHERE a.brand_name LIKE '%para  mol%'\n LIMIT 0, 10 ;\n"));
+    }
+
+    @Test
+    public void normalizeKeepsQuotesOfTheOtherKind() {
+        assertEquals("WHERE a.name = \"it's  here\" AND b.code = 'say \"hi\"'",
+                ResultCache.normalize("WHERE a.name = \"it's  here\"   AND b.code = 'say \"hi\"';;"));
+    }
+
+    @Test
+    public void samePageIsFetchedOnce() throws SQLException {
+        List<StringBuilder> first = get("SELECT * FROM medicine a LIMIT 0, 10;", () -> {}, "medicine");
+        List<StringBuilder> second = get("SELECT *  FROM medicine a\nLIMIT 0, 10", () -> {}, "medicine");
+
+        assertEquals(1, fetchCount.get());
+        assertEquals(first.get(0).toString(), second.get(0).toString());
+    }
+
+    @Test
+    public void callersGetTheirOwnCopies() throws SQLException {
+        List<StringBuilder> first = get("SELECT * FROM medicine a;", () -> {}, "medicine");
+        first.get(0).append(" edited");
+        List<StringBuilder> second = get("SELECT * FROM medicine a;", () -> {}, "medicine");
+
+        assertNotSame(first.get(0), second.get(0));
+        assertEquals("row 1", second.get(0).toString());
+    }
+
+    @Test
+    public void invalidateRemovesThePagesOfTheTable() throws SQLException {
+        get("SELECT * FROM medicine a;", () -> {}, "medicine");
+        get("SELECT * FROM patient a;", () -> {}, "patient");
+        ResultCache.invalidate("medicine");
+        get("SELECT * FROM medicine a;", () -> {}, "medicine");
+        get("SELECT * FROM patient a;", () -> {}, "patient");
+
+        assertEquals(3, fetchCount.get());
+    }
+
+    @Test
+    public void pageFetchedWhileItsTableIsWrittenIsNotStored() throws SQLException {
+        get("SELECT * FROM medicine a JOIN medicine_stock b;", () -> ResultCache.invalidate("medicine_stock"),
+                "medicine", "medicine_stock");
+        get("SELECT * FROM medicine a JOIN medicine_stock b;", () -> {}, "medicine", "medicine_stock");
+        get("SELECT * FROM medicine a JOIN medicine_stock b;", () -> {}, "medicine", "medicine_stock");
+
+        assertEquals(2, fetchCount.get());
+    }
+
+    @Test
+    public void pageFetchedWhileEverythingIsInvalidatedIsNotStored() throws SQLException {
+        get("SELECT * FROM medicine a;", ResultCache::invalidateAll, "medicine");
+        get("SELECT * FROM medicine a;", () -> {}, "medicine");
+
+        assertEquals(2, fetchCount.get());
+    }
+
+    @Test
+    public void totalRecordsAreSetOnHits() throws SQLException {
+        get("SELECT * FROM medicine a;", () -> {}, "medicine");
+        Pagination pagination = new Pagination();
+        ResultCache.<StringBuilder>get("Medicine", "SELECT * FROM medicine a;", pagination, (requestPage) -> null,
+                StringBuilder::new, "medicine");
+
+        assertEquals(42, pagination.getTotalRecords());
+    }
+
+    private List<StringBuilder> get(String query, Runnable duringFetch, String... tables) throws SQLException {
+        return ResultCache.get("Medicine", query, new Pagination(), (requestPage) -> {
+            fetchCount.incrementAndGet();
+            duringFetch.run();
+            requestPage.setTotalRecords(42);
+            List<StringBuilder> rows = new ArrayList<>();
+            rows.add(new StringBuilder("row 1"));
+            return rows;
+        }, StringBuilder::new, tables);
+    }
+}
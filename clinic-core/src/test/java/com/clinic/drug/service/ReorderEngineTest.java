@@ -0,0 +1,73 @@
+package com.clinic.drug.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+public class ReorderEngineTest {
+    private final static LocalDate FIRST_DAY = LocalDate.of(2026, 3, 1);
+    private final static double DELTA = 1e-9;
+
+    @Test
+    public void firstDayRateIsItsQty() {
+        ReorderEngine.Consumption consumption = new ReorderEngine.Consumption();
+        consumption.add(FIRST_DAY, 4);
+        consumption.add(FIRST_DAY, 6);
+
+        assertEquals(10, consumption.getDailyRate(FIRST_DAY), DELTA);
+    }
+
+    @Test
+    public void steadyConsumptionIsNotReadAsSlowerWhenHistoryIsShort() {
+        ReorderEngine.Consumption consumption = new ReorderEngine.Consumption();
+        for (int day = 0; day < 5; day++)
+            consumption.add(FIRST_DAY.plusDays(day), 10);
+
+        assertEquals(10, consumption.getDailyRate(FIRST_DAY.plusDays(5)), DELTA);
+        assertEquals(10, consumption.getDailyRate(FIRST_DAY.plusDays(1)), DELTA);
+    }
+
+    @Test
+    public void daysWithoutSalesCountAsZero() {
+        ReorderEngine.Consumption consumption = new ReorderEngine.Consumption();
+        consumption.add(FIRST_DAY, 10);
+
+        double alpha = ReorderEngine.ALPHA;
+        double expected = (1 - alpha) * alpha * 10 / (1 - Math.pow(1 - alpha, 2));
+        assertEquals(expected, consumption.getDailyRate(FIRST_DAY.plusDays(2)), DELTA);
+    }
+
+    @Test
+    public void saleDatedBeforeTheOpenDayIsAddedToIt() {
+        ReorderEngine.Consumption consumption = new ReorderEngine.Consumption();
+        consumption.add(FIRST_DAY, 10);
+        consumption.add(FIRST_DAY.plusDays(1), 10);
+        consumption.add(FIRST_DAY, 10);
+
+        double alpha = ReorderEngine.ALPHA;
+        double expected = ((1 - alpha) * alpha * 10 + alpha * 20) / (1 - Math.pow(1 - alpha, 2));
+        assertEquals(expected, consumption.getDailyRate(FIRST_DAY.plusDays(2)), DELTA);
+    }
+
+    @Test
+    public void salesCommittedWhileTheHistoryIsReadAreAddedUnlessInTheHistory() {
+        LocalDate today = LocalDate.now();
+        Map<Integer, ReorderEngine.Consumption> loaded = new HashMap<>();
+        ReorderEngine.Consumption history = new ReorderEngine.Consumption();
+        history.add(today, 10);
+        loaded.put(-1, history);
+
+        ReorderEngine.beginLoading();
+        long historyReadAt = System.nanoTime();
+        ReorderEngine.recordCommittedSale(-1, today, 4, historyReadAt - 1);
+        ReorderEngine.recordCommittedSale(-1, today, 6, historyReadAt + 1);
+        ReorderEngine.finishLoading(loaded, historyReadAt);
+        ReorderEngine.recordCommittedSale(-1, today, 5, System.nanoTime());
+
+        assertEquals(21, ReorderEngine.getDailyRate(-1), DELTA);
+    }
+}
@@ -0,0 +1,82 @@
+package com.clinic.drug.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.junit.jupiter.api.Test;
+
+public class SalesRollupTest {
+    private final static Pattern PART = Pattern.compile(
+            "FROM sales_(daily|monthly)_rollup WHERE sale_(?:date|month) >= '([0-9-]+)' AND sale_(?:date|month) < '([0-9-]+)'");
+
+    @Test
+    public void wholeMonthsAreReadFromTheMonthlyRollup() {
+        String query = SalesRollup.buildReportQuery(SalesRollup.BY_MEDICINE, LocalDate.of(2026, 1, 15),
+                LocalDate.of(2026, 4, 10));
+
+        assertEquals(List.of("daily 2026-01-15 2026-02-01", "monthly 2026-02-01 2026-04-01",
+                "daily 2026-04-01 2026-04-11"), parts(query));
+        assertTrue(query.endsWith(") r GROUP BY medicine_id ORDER BY revenue DESC;"));
+    }
+
+    @Test
+    public void rangeOfWholeMonthsReadsOnlyTheMonthlyRollup() {
+        String query = SalesRollup.buildReportQuery(SalesRollup.TOTAL, LocalDate.of(2026, 2, 1),
+                LocalDate.of(2026, 3, 31));
+
+        assertEquals(List.of("monthly 2026-02-01 2026-04-01"), parts(query));
+        assertFalse(query.contains("GROUP BY"));
+    }
+
+    @Test
+    public void rangeInsideAMonthReadsOnlyTheDailyRollup() {
+        String query = SalesRollup.buildReportQuery(SalesRollup.BY_MEDICINE_AND_DOSAGE_FORM,
+                LocalDate.of(2026, 2, 3), LocalDate.of(2026, 2, 27));
+
+        assertEquals(List.of("daily 2026-02-03 2026-02-28"), parts(query));
+    }
+
+    @Test
+    public void rangeCrossingOneMonthEndWithoutWholeMonthsReadsTheDailyRollup() {
+        String query = SalesRollup.buildReportQuery(SalesRollup.BY_DOSAGE_FORM, LocalDate.of(2026, 1, 20),
+                LocalDate.of(2026, 2, 10));
+
+        assertEquals(List.of("daily 2026-01-20 2026-02-11"), parts(query));
+    }
+
+    @Test
+    public void rangeEndingOnTheLastDayOfAMonthHasNoDailyTail() {
+        String query = SalesRollup.buildReportQuery(SalesRollup.BY_MONTH, LocalDate.of(2025, 12, 10),
+                LocalDate.of(2026, 2, 28));
+
+        assertEquals(List.of("daily 2025-12-10 2026-01-01", "monthly 2026-01-01 2026-03-01"), parts(query));
+        assertTrue(query.endsWith(" GROUP BY DATE_FORMAT(day, '%Y-%m-01') ORDER BY day;"));
+    }
+
+    @Test
+    public void reportByDayReadsOnlyTheDailyRollup() {
+        String query = SalesRollup.buildReportQuery(SalesRollup.BY_DAY, LocalDate.of(2026, 1, 15),
+                LocalDate.of(2026, 4, 10));
+
+        assertEquals(List.of("daily 2026-01-15 2026-04-11"), parts(query));
+        assertTrue(query.endsWith(" GROUP BY day ORDER BY day;"));
+    }
+
+    /**
+     * Get the rollup and the range of every part of a report query
+     */
+    private static List<String> parts(String query) {
+        List<String> parts = new ArrayList<>();
+        Matcher matcher = PART.matcher(query);
+        while (matcher.find())
+            parts.add(matcher.group(1) + " " + matcher.group(2) + " " + matcher.group(3));
+        return parts;
+    }
+}
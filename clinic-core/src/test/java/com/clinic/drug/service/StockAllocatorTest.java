@@ -0,0 +1,170 @@
+package com.clinic.drug.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.math.BigDecimal;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import com.clinic.drug.domain.BaseTransactionDetail;
+import com.clinic.drug.domain.MedicineStock;
+import com.clinic.drug.domain.SellMedicineDetail;
+
+public class StockAllocatorTest {
+    private final static int TABLET = 1, SYRUP = 2, STRIP = 10, BOTTLE = 20;
+    private final static List<BaseTransactionDetail> NO_BASKET = new ArrayList<>();
+
+    @Test
+    public void stocksExpiringFirstAreSoldFirst() {
+        List<MedicineStock> stocks = new ArrayList<>(Arrays.asList(
+                stock(1, null, "2026-01-01T08:00", "10"),
+                stock(2, "2027-06-01", "2026-01-01T08:00", "10"),
+                stock(3, "2027-01-01", "2026-03-01T08:00", "10"),
+                stock(4, "2027-01-01", "2026-02-01T08:00", "10")));
+        stocks.sort(StockAllocator.FEFO);
+
+        assertEquals(Arrays.asList(4, 3, 2, 1), ids(stocks));
+    }
+
+    @Test
+    public void qtyIsSplitAcrossStocksFirstExpiryFirstOut() throws SQLException {
+        List<MedicineStock> stocks = sorted(
+                stock(1, "2027-06-01", "2026-01-01T08:00", "10"),
+                stock(2, "2027-01-01", "2026-01-01T08:00", "4"));
+        Map<BaseTransactionDetail, MedicineStock> allocation = StockAllocator.allocate(stocks, TABLET, STRIP,
+                new BigDecimal("6"), false, 1500, NO_BASKET);
+
+        List<BaseTransactionDetail> details = new ArrayList<>(allocation.keySet());
+        assertEquals(2, details.size());
+        assertEquals(2, ((SellMedicineDetail) details.get(0)).getMedicineStockId());
+        assertEquals(new BigDecimal("4"), details.get(0).getQty());
+        assertEquals(0, allocation.get(details.get(0)).getQtyAvailable().signum());
+        assertEquals(1, ((SellMedicineDetail) details.get(1)).getMedicineStockId());
+        assertEquals(new BigDecimal("2"), details.get(1).getQty());
+        assertEquals(new BigDecimal("8"), allocation.get(details.get(1)).getQtyAvailable());
+        assertEquals(1500, details.get(1).getPricePerUnit());
+    }
+
+    @Test
+    public void stocksOfOtherDosageFormsAreSkipped() throws SQLException {
+        List<MedicineStock> stocks = sorted(
+                stock(1, "2027-01-01", "2026-01-01T08:00", "10").setDosageFormId(SYRUP).setQtyUnitId(BOTTLE),
+                stock(2, "2027-06-01", "2026-01-01T08:00", "10"));
+        Map<BaseTransactionDetail, MedicineStock> allocation = StockAllocator.allocate(stocks, TABLET, STRIP,
+                new BigDecimal("3"), false, 1500, NO_BASKET);
+
+        assertEquals(Arrays.asList(2), ids(new ArrayList<>(allocation.values())));
+    }
+
+    @Test
+    public void dosageFormQtyIsConvertedToQtyUnit() throws SQLException {
+        // 10 tablets available in a stock sold 4 tablets per strip
+        List<MedicineStock> stocks = sorted(stock(1, "2027-01-01", "2026-01-01T08:00", "10")
+                .setQtyToDosageFormMultiplier(new BigDecimal("4")));
+        Map<BaseTransactionDetail, MedicineStock> allocation = StockAllocator.allocate(stocks, TABLET, STRIP,
+                new BigDecimal("2"), true, 2000, NO_BASKET);
+
+        BaseTransactionDetail detail = allocation.keySet().iterator().next();
+        assertEquals(1, allocation.size());
+        assertEquals(new BigDecimal("8"), detail.getQty());
+        assertEquals(500, detail.getPricePerUnit());
+        assertEquals(new BigDecimal("2"), allocation.get(detail).getQtyAvailable());
+    }
+
+    @Test
+    public void dosageFormPriceRemainderIsKeptInTheTotal() throws SQLException {
+        List<MedicineStock> stocks = sorted(stock(1, "2027-01-01", "2026-01-01T08:00", "30")
+                .setQtyToDosageFormMultiplier(new BigDecimal("3")));
+        Map<BaseTransactionDetail, MedicineStock> allocation = StockAllocator.allocate(stocks, TABLET, STRIP,
+                new BigDecimal("2"), true, 1000, NO_BASKET);
+
+        List<BaseTransactionDetail> details = new ArrayList<>(allocation.keySet());
+        assertEquals(2, details.size());
+        assertEquals(new BigDecimal("4"), details.get(0).getQty());
+        assertEquals(333, details.get(0).getPricePerUnit());
+        assertEquals(new BigDecimal("2"), details.get(1).getQty());
+        assertEquals(334, details.get(1).getPricePerUnit());
+        assertEquals(new BigDecimal("2000"), total(details));
+        assertEquals(new BigDecimal("24"), allocation.get(details.get(1)).getQtyAvailable());
+    }
+
+    @Test
+    public void qtyInTheBasketIsNotAllocatedAgain() throws SQLException {
+        List<MedicineStock> stocks = sorted(
+                stock(1, "2027-01-01", "2026-01-01T08:00", "5"),
+                stock(2, "2027-06-01", "2026-01-01T08:00", "10"));
+        Map<BaseTransactionDetail, MedicineStock> first = StockAllocator.allocate(stocks, TABLET, STRIP,
+                new BigDecimal("4"), false, 1500, NO_BASKET);
+        Map<BaseTransactionDetail, MedicineStock> second = StockAllocator.allocate(stocks, TABLET, STRIP,
+                new BigDecimal("4"), false, 1500, first.keySet());
+
+        List<BaseTransactionDetail> details = new ArrayList<>(second.keySet());
+        assertEquals(2, details.size());
+        assertEquals(1, ((SellMedicineDetail) details.get(0)).getMedicineStockId());
+        assertEquals(new BigDecimal("1"), details.get(0).getQty());
+        assertEquals(0, second.get(details.get(0)).getQtyAvailable().signum());
+        assertEquals(2, ((SellMedicineDetail) details.get(1)).getMedicineStockId());
+        assertEquals(new BigDecimal("3"), details.get(1).getQty());
+        assertEquals(new BigDecimal("7"), second.get(details.get(1)).getQtyAvailable());
+    }
+
+    @Test
+    public void basketCanExhaustTheStocks() throws SQLException {
+        List<MedicineStock> stocks = sorted(stock(1, "2027-01-01", "2026-01-01T08:00", "5"));
+        Map<BaseTransactionDetail, MedicineStock> first = StockAllocator.allocate(stocks, TABLET, STRIP,
+                new BigDecimal("4"), false, 1500, NO_BASKET);
+        SQLException e = assertThrows(SQLException.class, () -> StockAllocator.allocate(stocks, TABLET, STRIP,
+                new BigDecimal("2"), false, 1500, first.keySet()));
+
+        assertEquals("Medicine available stock is not enough, only 1 of 2 is available", e.getMessage());
+    }
+
+    @Test
+    public void shortfallReportsTheAvailableQty() {
+        List<MedicineStock> stocks = sorted(
+                stock(1, "2027-01-01", "2026-01-01T08:00", "2"),
+                stock(2, "2027-06-01", "2026-01-01T08:00", "3"));
+        SQLException e = assertThrows(SQLException.class,
+                () -> StockAllocator.allocate(stocks, TABLET, STRIP, new BigDecimal("7"), false, 1500, NO_BASKET));
+
+        assertEquals("Medicine available stock is not enough, only 5 of 7 is available", e.getMessage());
+    }
+
+    private static MedicineStock stock(int id, String expDate, String receivedDate, String qtyAvailable) {
+        return new MedicineStock(id)
+                .setExpDate(expDate != null ? LocalDate.parse(expDate) : null)
+                .setReceivedDate(LocalDateTime.parse(receivedDate))
+                .setQtyAvailable(new BigDecimal(qtyAvailable))
+                .setMedicineId(1)
+                .setDosageFormId(TABLET)
+                .setQtyUnitId(STRIP);
+    }
+
+    private static List<MedicineStock> sorted(MedicineStock... stocks) {
+        List<MedicineStock> sorted = new ArrayList<>(Arrays.asList(stocks));
+        sorted.sort(StockAllocator.FEFO);
+        return sorted;
+    }
+
+    private static List<Integer> ids(List<MedicineStock> stocks) {
+        List<Integer> ids = new ArrayList<>();
+        for (MedicineStock stock : stocks)
+            ids.add(stock.getId());
+        return ids;
+    }
+
+    private static BigDecimal total(List<BaseTransactionDetail> details) {
+        BigDecimal total = BigDecimal.ZERO;
+        for (BaseTransactionDetail detail : details)
+            total = total.add(detail.getQty().multiply(BigDecimal.valueOf(detail.getPricePerUnit())));
+        return total;
+    }
+}
@@ -7,9 +7,10 @@ import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.Map;
 
-import com.clinic.abstracts.AbstractCrudController;
+import com.clinic.InputFormat;
 import com.clinic.abstracts.AbstractEntity;
 import com.clinic.extension.DateTimePicker;
+import com.clinic.fx.abstracts.AbstractCrudController;
 import com.clinic.interfaces.ICopyable;
 
 import io.github.palexdev.materialfx.controls.MFXButton;
@@ -71,7 +72,7 @@ public class GridFormBuilder {
         MFXTextField field = generateStyledTextField();
         field.setFloatingText(fieldPrompt);
         field.textProperty().addListener((observable, oldVal, newVal) -> {
-            if (!newVal.matches("\\d{0,9}")) {
+            if (!InputFormat.isInteger(newVal)) {
                 field.setText(oldVal);
             }
         });
@@ -79,7 +80,7 @@ public class GridFormBuilder {
         field.textProperty().bindBidirectional(property, new StringConverter<Number>() {
             @Override
             public Number fromString(String value) {
-                return value.length() == 0 ? 0 : Integer.parseInt(value);
+                return InputFormat.parseInteger(value);
             }
 
             @Override
@@ -100,7 +101,7 @@ public class GridFormBuilder {
         MFXTextField field = generateStyledTextField();
         field.setFloatingText(fieldPrompt);
         field.textProperty().addListener((observable, oldVal, newVal) -> {
-            if (!newVal.matches("\\d{0,7}([\\.]\\d{0,4})?")) {
+            if (!InputFormat.isDecimal(newVal)) {
                 field.setText(oldVal);
             }
         });
@@ -113,9 +114,7 @@ public class GridFormBuilder {
 
             @Override
             public BigDecimal fromString(String value) {
-                if (value.matches("\\d{0,7}([\\.])"))
-                    value = value.replaceAll("[^\\d]", "");
-                return value.length() == 0 ? new BigDecimal(0) : new BigDecimal(value);
+                return InputFormat.parseDecimal(value);
             }
         });
         currentRow++;
@@ -200,7 +199,6 @@ public class GridFormBuilder {
 
                 @Override
                 public void handle(ActionEvent arg0) {
-                    controller.fetchEntitiesToTable();
                     localEntity = controller.pickEntity();
 
                     if (localEntity == null)
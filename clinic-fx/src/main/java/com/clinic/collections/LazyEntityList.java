@@ -0,0 +1,176 @@
+package com.clinic.collections;
+
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+import com.clinic.ClinicConnection;
+import com.clinic.cache.PageCache;
+
+import javafx.application.Platform;
+import javafx.collections.ObservableListBase;
+
+/**
+ * A sparse observable list over a repository. The list has the size of the
+ * whole table but only keeps the blocks of records that have been viewed
+ * recently. <code>get()</code> of an index which block is not loaded returns
+ * <code>null</code> and loads the block on the given executor, a replace
+ * change is fired once the block is loaded.<br>
+ * When more than <code>maxBlocks</code> blocks are loaded, the least recently
+ * used block is dropped.<br>
+ * This list should only be used from the JavaFX Application Thread by a
+ * virtualized control, anything that iterates over the list loads every block.
+ */
+public class LazyEntityList<T> extends ObservableListBase<T> {
+    private final int blockSize;
+    private final int maxBlocks;
+    private final BlockLoader<T> loader;
+    private final Executor executor;
+    private final Map<Integer, List<T>> blocks = new LinkedHashMap<>(16, 0.75f, true);
+    private final Set<Integer> pendingBlocks = new HashSet<>();
+    private int size = 0;
+    private long generation = 0;
+
+    /**
+     * @param blockSize the number of records loaded by one query
+     * @param maxBlocks the maximum number of blocks kept in memory
+     * @param loader the loader of a block
+     */
+    public LazyEntityList(int blockSize, int maxBlocks, BlockLoader<T> loader) {
+        this(blockSize, maxBlocks, loader, ClinicConnection.getExecutor());
+    }
+
+    /**
+     * @param blockSize the number of records loaded by one query
+     * @param maxBlocks the maximum number of blocks kept in memory
+     * @param loader the loader of a block
+     * @param executor the executor loading the blocks
+     */
+    public LazyEntityList(int blockSize, int maxBlocks, BlockLoader<T> loader, Executor executor) {
+        this.blockSize = blockSize;
+        this.maxBlocks = maxBlocks;
+        this.loader = loader;
+        this.executor = executor;
+        requestBlock(0);
+    }
+
+    @Override
+    public T get(int index) {
+        if (index < 0 || index >= size)
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+
+        int blockNumber = index / blockSize;
+        List<T> block = blocks.get(blockNumber);
+        if (block == null) {
+            requestBlock(blockNumber);
+            return null;
+        }
+
+        int offset = index % blockSize;
+        if (offset >= blockSize * 3 / 4)
+            requestBlock(blockNumber + 1);
+        return offset < block.size() ? block.get(offset) : null;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Drop every loaded block and reload the records that are displayed
+     */
+    public void refresh() {
+        generation++;
+        blocks.clear();
+        pendingBlocks.clear();
+        requestBlock(0);
+        if (size == 0)
+            return;
+
+        beginChange();
+        nextReplace(0, size, Collections.<T>nCopies(size, null));
+        endChange();
+    }
+
+    /**
+     * Get the number of blocks in memory
+     */
+    public int getLoadedBlockCount() {
+        return blocks.size();
+    }
+
+    /**
+     * Load a block on the database executor if it is not loaded or being
+     * loaded
+     */
+    private void requestBlock(int blockNumber) {
+        if (blockNumber < 0
+                || (blockNumber > 0 && blockNumber * blockSize >= size)
+                || blocks.containsKey(blockNumber)
+                || pendingBlocks.contains(blockNumber))
+            return;
+
+        pendingBlocks.add(blockNumber);
+        long requestGeneration = generation;
+        try {
+            executor.execute(() -> {
+                try {
+                    PageCache.Page<T> page = loader.load(blockNumber, blockSize);
+                    Platform.runLater(() -> onBlockLoaded(blockNumber, page, requestGeneration));
+                } catch (SQLException e) {
+                    System.out.println("Exception caught in LazyEntityList.requestBlock(): " + e.toString());
+                    Platform.runLater(() -> pendingBlocks.remove(blockNumber));
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            System.out.println("Exception caught in LazyEntityList.requestBlock(): " + e.toString());
+            pendingBlocks.remove(blockNumber);
+        }
+    }
+
+    private void onBlockLoaded(int blockNumber, PageCache.Page<T> page, long requestGeneration) {
+        if (requestGeneration != generation || page == null)
+            return;
+
+        pendingBlocks.remove(blockNumber);
+        blocks.put(blockNumber, page.getEntities());
+        Iterator<Integer> leastRecentlyUsed = blocks.keySet().iterator();
+        while (blocks.size() > maxBlocks) {
+            leastRecentlyUsed.next();
+            leastRecentlyUsed.remove();
+        }
+
+        int oldSize = size;
+        size = page.getTotalRecords();
+        int from = blockNumber * blockSize;
+        int to = Math.min(from + page.getEntities().size(), Math.min(oldSize, size));
+        beginChange();
+        if (size > oldSize)
+            nextAdd(oldSize, size);
+        else if (size < oldSize)
+            nextRemove(size, Collections.<T>nCopies(oldSize - size, null));
+        if (from < to)
+            nextReplace(from, to, Collections.<T>nCopies(to - from, null));
+        endChange();
+    }
+
+    /**
+     * Loads a block of records, called from the database executor
+     */
+    public interface BlockLoader<T> {
+        /**
+         * @param blockNumber the block number, starting from 0
+         * @param blockSize the number of records in a block
+         * @return the records of the block along with the total records
+         */
+        public abstract PageCache.Page<T> load(int blockNumber, int blockSize) throws SQLException;
+    }
+}
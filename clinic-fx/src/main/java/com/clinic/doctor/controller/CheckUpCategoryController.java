@@ -1,9 +1,9 @@
 package com.clinic.doctor.controller;
 
-import com.clinic.abstracts.AbstractCrudController;
 import com.clinic.builder.GridFormBuilder;
 import com.clinic.doctor.domain.CheckUpCategory;
 import com.clinic.doctor.repository.CheckUpCategoryRepository;
+import com.clinic.fx.abstracts.AbstractCrudController;
 
 import io.github.palexdev.materialfx.controls.MFXTableView;
 import javafx.scene.layout.GridPane;
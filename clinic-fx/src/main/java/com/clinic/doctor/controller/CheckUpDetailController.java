@@ -1,8 +1,9 @@
 package com.clinic.doctor.controller;
 
 import java.sql.SQLException;
+import java.util.List;
 
-import com.clinic.abstracts.AbstractCrudController;
+import com.clinic.Pagination;
 import com.clinic.builder.GridFormBuilder;
 import com.clinic.doctor.domain.CheckUpCategory;
 import com.clinic.doctor.domain.CheckUpDetail;
@@ -10,17 +11,18 @@ import com.clinic.doctor.domain.MedicalRecord;
 import com.clinic.doctor.repository.CheckUpCategoryRepository;
 import com.clinic.doctor.repository.CheckUpDetailRepository;
 import com.clinic.doctor.repository.MedicalRecordRepository;
-import com.clinic.factories.CrudControllerFactory;
 import com.clinic.factories.EntityRepositoryFactory;
+import com.clinic.fx.abstracts.AbstractCrudController;
+import com.clinic.fx.factories.CrudControllerFactory;
 
 import io.github.palexdev.materialfx.controls.MFXTableView;
-import javafx.collections.FXCollections;
-import javafx.collections.ObservableList;
 import javafx.scene.layout.GridPane;
 
 public class CheckUpDetailController extends AbstractCrudController<CheckUpDetail, CheckUpDetailRepository>{
     public CheckUpDetailController() {
         super(CheckUpDetail.class, CheckUpDetailRepository.class, "CHECK UP DETAIL");
+        addPageCacheDependency(EntityRepositoryFactory.getRepository(MedicalRecordRepository.class));
+        addPageCacheDependency(EntityRepositoryFactory.getRepository(CheckUpCategoryRepository.class));
     }
 
     @Override
@@ -41,15 +43,8 @@ public class CheckUpDetailController extends AbstractCrudController<CheckUpDetai
     }
 
     @Override
-    public void fetchEntitiesToTable(MFXTableView<CheckUpDetail> entityTable, String whereClause) {
-        ObservableList<CheckUpDetail> entities;
-        try {
-            entities = FXCollections.observableArrayList(repo.join(EntityRepositoryFactory.getRepository(MedicalRecordRepository.class), EntityRepositoryFactory.getRepository(CheckUpCategoryRepository.class), "medical_record_id", "check_up_category_id"));
-            entityTable.setItems(entities);
-            entityTable.autosize();
-        } catch (SQLException e) {
-            System.out.println("Exception caught in AbstractController.fetchEntitiesToTable(): " + e.toString());
-        }
+    protected List<CheckUpDetail> fetchEntities(Pagination page, String whereClause) throws SQLException {
+        return repo.join(EntityRepositoryFactory.getRepository(MedicalRecordRepository.class), EntityRepositoryFactory.getRepository(CheckUpCategoryRepository.class), "medical_record_id", "check_up_category_id", whereClause, page);
     }
 
     @Override
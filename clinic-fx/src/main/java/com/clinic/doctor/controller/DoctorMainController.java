@@ -0,0 +1,46 @@
+package com.clinic.doctor.controller;
+
+import java.io.IOException;
+
+import com.clinic.fx.abstracts.AbstractCrudController;
+import com.clinic.fx.factories.CrudControllerFactory;
+
+import javafx.scene.Scene;
+import javafx.scene.control.Tab;
+import javafx.scene.control.TabPane;
+import javafx.scene.control.TabPane.TabClosingPolicy;
+import javafx.stage.Stage;
+
+public class DoctorMainController {
+    public void start(Stage stage) throws IOException{        
+        TabPane tabPane = new TabPane();
+        tabPane.setTabClosingPolicy(TabClosingPolicy.UNAVAILABLE);
+        tabPane.getTabs().addAll(
+            createLazyTab("Medical Record", MedicalRecordController.class),
+            createLazyTab("Check Up Category", CheckUpCategoryController.class),
+            createLazyTab("Check Up Detail", CheckUpDetailController.class));
+        
+        stage.setTitle("Doctor");
+        stage.setScene(new Scene(tabPane, 1250, 600));
+        stage.show();
+    }
+
+    /**
+     * Create a tab which controller scene is only built and fetched when the
+     * tab is selected
+     * @param text the text of the tab
+     * @param controllerClass the controller of the tab content
+     */
+    private Tab createLazyTab(String text, Class<? extends AbstractCrudController<?, ?>> controllerClass) {
+        Tab tab = new Tab(text);
+        tab.setStyle("-fx-pref-width: 110");
+        tab.selectedProperty().addListener((obs, oldValue, selected) -> {
+            if (!selected)
+                return;
+            AbstractCrudController<?, ?> controller = CrudControllerFactory.getController(controllerClass);
+            controller.fetchEntitiesToTable();
+            tab.setContent(controller.getMainScene().getRoot());
+        });
+        return tab;
+    }
+}
@@ -1,23 +1,23 @@
 package com.clinic.doctor.controller;
 
 import java.sql.SQLException;
+import java.util.List;
 
-import com.clinic.abstracts.AbstractCrudController;
+import com.clinic.Pagination;
 import com.clinic.builder.GridFormBuilder;
 import com.clinic.doctor.domain.CheckUpDetail;
 import com.clinic.doctor.domain.MedicalRecord;
 import com.clinic.doctor.repository.CheckUpDetailRepository;
 import com.clinic.doctor.repository.MedicalRecordRepository;
-import com.clinic.factories.CrudControllerFactory;
 import com.clinic.factories.EntityRepositoryFactory;
+import com.clinic.fx.abstracts.AbstractCrudController;
+import com.clinic.fx.factories.CrudControllerFactory;
 import com.clinic.receptionist.controller.DoctorController;
 import com.clinic.receptionist.controller.PatientController;
 import com.clinic.receptionist.repository.DoctorRepository;
 import com.clinic.receptionist.repository.PatientRepository;
 
 import io.github.palexdev.materialfx.controls.MFXTableView;
-import javafx.collections.FXCollections;
-import javafx.collections.ObservableList;
 import javafx.scene.control.DatePicker;
 import javafx.scene.control.Label;
 import javafx.scene.control.TextField;
@@ -26,6 +26,8 @@ import javafx.scene.layout.GridPane;
 public class MedicalRecordController extends AbstractCrudController<MedicalRecord, MedicalRecordRepository>{
     public MedicalRecordController() {
         super(MedicalRecord.class, MedicalRecordRepository.class, "MEDICAL RECORD");
+        addPageCacheDependency(EntityRepositoryFactory.getRepository(DoctorRepository.class));
+        addPageCacheDependency(EntityRepositoryFactory.getRepository(PatientRepository.class));
     }
 
     @Override
@@ -41,15 +43,8 @@ public class MedicalRecordController extends AbstractCrudController<MedicalRecor
     }
 
     @Override
-    public void fetchEntitiesToTable(MFXTableView<MedicalRecord> entityTable, String whereClause) {
-        ObservableList<MedicalRecord> entities;
-        try {
-            entities = FXCollections.observableArrayList(repo.join(EntityRepositoryFactory.getRepository(DoctorRepository.class), EntityRepositoryFactory.getRepository(PatientRepository.class), "doctor_id", "patient_id"));
-            entityTable.setItems(entities);
-            entityTable.autosize();
-        } catch (SQLException e) {
-            System.out.println("Exception caught in AbstractController.fetchEntitiesToTable(): " + e.toString());
-        }
+    protected List<MedicalRecord> fetchEntities(Pagination page, String whereClause) throws SQLException {
+        return repo.join(EntityRepositoryFactory.getRepository(DoctorRepository.class), EntityRepositoryFactory.getRepository(PatientRepository.class), "doctor_id", "patient_id", whereClause, page);
     }
 
     @Override 
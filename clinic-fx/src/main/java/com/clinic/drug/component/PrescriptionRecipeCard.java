@@ -23,8 +23,8 @@ import com.clinic.drug.domain.QtyUnit;
 import com.clinic.drug.repository.DosageFormRepository;
 import com.clinic.drug.repository.MedicineRepository;
 import com.clinic.drug.repository.QtyUnitRepository;
-import com.clinic.factories.CrudControllerFactory;
 import com.clinic.factories.EntityRepositoryFactory;
+import com.clinic.fx.factories.CrudControllerFactory;
 
 import io.github.palexdev.materialfx.controls.MFXButton;
 import javafx.beans.property.IntegerProperty;
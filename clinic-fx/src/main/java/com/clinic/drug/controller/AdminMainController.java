@@ -1,14 +1,11 @@
 package com.clinic.drug.controller;
 
 import java.io.IOException;
-import java.util.Set;
 
-import com.clinic.abstracts.AbstractCrudController;
 import com.clinic.drug.domain.BaseTransactionDetail;
-import com.clinic.factories.CrudControllerFactory;
-import com.clinic.interfaces.IBaseController;
-
-import org.reflections.Reflections;
+import com.clinic.fx.abstracts.AbstractCrudController;
+import com.clinic.fx.factories.CrudControllerFactory;
+import com.clinic.fx.interfaces.IBaseController;
 
 import io.github.palexdev.materialfx.controls.MFXRectangleToggleNode;
 import io.github.palexdev.materialfx.controls.MFXScrollPane;
@@ -57,6 +54,14 @@ public class AdminMainController {
             controllerButton.setSelected(true);
         });
         menus.getChildren().add(controllerButton);
+
+        QueryStatsController queryStatsController = new QueryStatsController();
+        ToggleButton queryStatsButton = createToggle("Query statistics");
+        queryStatsButton.setOnAction((event) -> {
+            layout.setCenter(queryStatsController.getNode());
+            queryStatsButton.setSelected(true);
+        });
+        menus.getChildren().add(queryStatsButton);
     }
 
     private ToggleButton createToggle(String text) {
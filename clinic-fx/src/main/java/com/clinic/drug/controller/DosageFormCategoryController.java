@@ -1,10 +1,9 @@
 package com.clinic.drug.controller;
 
-import com.clinic.abstracts.AbstractCrudController;
 import com.clinic.builder.GridFormBuilder;
 import com.clinic.drug.domain.DosageFormCategory;
 import com.clinic.drug.repository.DosageFormCategoryRepository;
-import com.clinic.factories.CrudControllerFactory;
+import com.clinic.fx.abstracts.AbstractCrudController;
 
 import io.github.palexdev.materialfx.controls.MFXTableView;
 import javafx.scene.layout.GridPane;
@@ -12,7 +11,7 @@ import javafx.scene.layout.GridPane;
 public class DosageFormCategoryController extends AbstractCrudController<DosageFormCategory, DosageFormCategoryRepository> {
     public DosageFormCategoryController() {
         super(DosageFormCategory.class, DosageFormCategoryRepository.class);
-        childControllers.add(CrudControllerFactory.getController(DosageFormController.class));
+        childControllers.add(DosageFormController.class);
     }
 
     @Override
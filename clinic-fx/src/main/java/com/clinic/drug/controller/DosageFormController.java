@@ -1,23 +1,25 @@
 package com.clinic.drug.controller;
 
 import java.sql.SQLException;
+import java.util.List;
 
-import com.clinic.abstracts.AbstractCrudController;
+import com.clinic.Pagination;
 import com.clinic.builder.GridFormBuilder;
 import com.clinic.drug.domain.DosageForm;
 import com.clinic.drug.domain.DosageFormCategory;
 import com.clinic.drug.repository.DosageFormCategoryRepository;
 import com.clinic.drug.repository.DosageFormRepository;
 import com.clinic.factories.EntityRepositoryFactory;
+import com.clinic.fx.abstracts.AbstractCrudController;
+import com.clinic.fx.factories.CrudControllerFactory;
 
 import io.github.palexdev.materialfx.controls.MFXTableView;
-import javafx.collections.FXCollections;
-import javafx.collections.ObservableList;
 import javafx.scene.layout.GridPane;
 
 public class DosageFormController extends AbstractCrudController<DosageForm, DosageFormRepository> {
     public DosageFormController() {
         super(DosageForm.class, DosageFormRepository.class);
+        addPageCacheDependency(EntityRepositoryFactory.getRepository(DosageFormCategoryRepository.class));
     }
 
     @Override
@@ -27,21 +29,14 @@ public class DosageFormController extends AbstractCrudController<DosageForm, Dos
                 .addPickField(
                         "Category",
                         entity.dosageFormCategoryIdProperty(),
-                        new DosageFormCategoryController(),
+                        CrudControllerFactory.getController(DosageFormCategoryController.class),
                         "getName")
                 .addButton(generateSubmitButton("Submit", entity));
     }
 
     @Override
-    public void fetchEntitiesToTable(MFXTableView<DosageForm> entityTable, String whereClause) {
-        ObservableList<DosageForm> entities;
-        try {
-            entities = FXCollections.observableArrayList(repo.join(EntityRepositoryFactory.getRepository(DosageFormCategoryRepository.class), "dosage_form_category_id"));
-            entityTable.setItems(entities);
-            entityTable.autosize();
-        } catch (SQLException e) {
-            System.out.println("Exception caught in AbstractController.fetchEntitiesToTable(): " + e.toString());
-        }
+    protected List<DosageForm> fetchEntities(Pagination page, String whereClause) throws SQLException {
+        return repo.join(EntityRepositoryFactory.getRepository(DosageFormCategoryRepository.class), "dosage_form_category_id", whereClause, page);
     }
 
     @Override
@@ -1,15 +1,15 @@
 package com.clinic.drug.controller;
 
 import java.io.IOException;
-import java.util.Set;
+import java.util.ArrayList;
+import java.util.List;
 
 import com.clinic.ClinicConnection;
-import com.clinic.abstracts.AbstractCrudController;
 import com.clinic.drug.domain.BaseTransactionDetail;
-import com.clinic.factories.CrudControllerFactory;
-import com.clinic.interfaces.IBaseController;
-
-import org.reflections.Reflections;
+import com.clinic.fx.abstracts.AbstractCrudController;
+import com.clinic.fx.factories.ControllerRegistry;
+import com.clinic.fx.factories.CrudControllerFactory;
+import com.clinic.fx.interfaces.IBaseController;
 
 import io.github.palexdev.materialfx.controls.MFXRectangleToggleNode;
 import io.github.palexdev.materialfx.controls.MFXScrollPane;
@@ -43,6 +43,8 @@ public class DrugMainController {
 		this.toggleGroup = new ToggleGroup();
 		ToggleButtonsUtil.addAlwaysOneSelectedSupport(toggleGroup);
         setCrudMenuButton("com.clinic.drug.controller");
+        menus.getChildren().add(createToggleControllerButton("Expiring Soon", new ExpiringStockController()));
+        menus.getChildren().add(createToggleControllerButton("Reorder Suggestions", new ReorderController()));
         // setMenuButtons();
         layout.setCenter(new MedicineTransactionController(BaseTransactionDetail.PURCHASE).getNode());
         stage.setScene(new Scene(layout));
@@ -59,7 +61,7 @@ public class DrugMainController {
     }
 
     public void setCrudMenuButton(String packageName) {
-        for (Class<? extends AbstractCrudController> controllerClass : findAllClassesInPackage(
+        for (Class<? extends AbstractCrudController<?, ?>> controllerClass : findAllClassesInPackage(
                 packageName)) {
             ToggleButton controllerButton = createToggle(controllerClass.getSimpleName());
             controllerButton.setOnAction((event) -> {
@@ -74,8 +76,19 @@ public class DrugMainController {
         }
     }
 
-    private Set<Class<? extends AbstractCrudController>> findAllClassesInPackage(String packageName) {
-        return new Reflections(packageName).getSubTypesOf(AbstractCrudController.class);
+    /**
+     * Find the CRUD controllers in a package and its subpackages using the
+     * registry generated at build time
+     * @param packageName example: "com.clinic.drug.controller"
+     */
+    private List<Class<? extends AbstractCrudController<?, ?>>> findAllClassesInPackage(String packageName) {
+        List<Class<? extends AbstractCrudController<?, ?>>> result = new ArrayList<>();
+        for (Class<? extends AbstractCrudController<?, ?>> controllerClass : ControllerRegistry.CRUD_CONTROLLERS) {
+            String controllerPackage = controllerClass.getPackageName();
+            if (controllerPackage.equals(packageName) || controllerPackage.startsWith(packageName + "."))
+                result.add(controllerClass);
+        }
+        return result;
     }
 
     private ToggleButton createToggle(String text) {
@@ -0,0 +1,81 @@
+package com.clinic.drug.controller;
+
+import java.io.Serializable;
+import java.util.Map;
+import java.util.function.Function;
+
+import com.clinic.drug.service.ExpiryScanner;
+import com.clinic.drug.service.ExpiryScanner.ExpiringStock;
+import com.clinic.fx.interfaces.IBaseController;
+
+import io.github.palexdev.materialfx.controls.MFXButton;
+import io.github.palexdev.materialfx.controls.MFXTableColumn;
+import io.github.palexdev.materialfx.controls.MFXTableView;
+import io.github.palexdev.materialfx.controls.cell.MFXTableRowCell;
+import javafx.application.Platform;
+import javafx.collections.FXCollections;
+import javafx.geometry.Insets;
+import javafx.geometry.Pos;
+import javafx.scene.Node;
+import javafx.scene.control.Button;
+import javafx.scene.control.Label;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.Priority;
+import javafx.scene.layout.VBox;
+
+/**
+ * Shows the medicine stocks expiring within the largest horizon of the
+ * <code>ExpiryScanner</code>, the first to expire first. The list is
+ * refreshed whenever the scanner finds it changed.
+ *
+ * @author Jose Ryu Leonesta <jose.leonesta@student.matanauniversity.ac.id>
+ */
+public class ExpiringStockController implements IBaseController {
+    private MFXTableView<ExpiringStock> stockTable = new MFXTableView<>();
+    private Label countLabel = new Label();
+    private VBox mainContainer = new VBox();
+
+    public ExpiringStockController() {
+        addColumn("Exp Date", ExpiringStock::getExpDate);
+        addColumn("Days Left", ExpiringStock::getDaysLeft);
+        addColumn("Medicine", ExpiringStock::getBrandName);
+        addColumn("Batch Number", ExpiringStock::getBatchNumber);
+        addColumn("Qty Available", (stock) -> stock.getQtyAvailable().stripTrailingZeros().toPlainString());
+        addColumn("Stock Id", ExpiringStock::getStockId);
+        stockTable.setFooterVisible(false);
+        VBox.setVgrow(stockTable, Priority.ALWAYS);
+
+        Button refreshButton = new MFXButton("Refresh");
+        refreshButton.setOnAction((event) -> ExpiryScanner.checkSoon());
+        HBox toolbar = new HBox(10, refreshButton, countLabel);
+        toolbar.setAlignment(Pos.CENTER_LEFT);
+
+        mainContainer.setSpacing(10);
+        mainContainer.setPadding(new Insets(10));
+        mainContainer.getChildren().addAll(toolbar, stockTable);
+        ExpiryScanner.addChangeListener(() -> Platform.runLater(this::refresh));
+        refresh();
+    }
+
+    private void addColumn(String columnLabel, Function<ExpiringStock, Serializable> extractor) {
+        MFXTableColumn<ExpiringStock> tableColumn = new MFXTableColumn<>(columnLabel);
+        tableColumn.setRowCellFactory(stock -> new MFXTableRowCell<>(extractor));
+        tableColumn.setColumnResizable(true);
+        stockTable.getTableColumns().add(tableColumn);
+    }
+
+    public void refresh() {
+        stockTable.setItems(FXCollections.observableArrayList(ExpiryScanner.getExpiringSoon()));
+        StringBuilder counts = new StringBuilder();
+        for (Map.Entry<Integer, Integer> count : ExpiryScanner.countByHorizon().entrySet())
+            counts.append(counts.length() == 0 ? "" : ", ").append(count.getValue()).append(" within ")
+                    .append(count.getKey()).append(" days");
+        countLabel.setText(counts.toString());
+    }
+
+    @Override
+    public Node getNode() {
+        refresh();
+        return mainContainer;
+    }
+}
@@ -1,9 +1,10 @@
 package com.clinic.drug.controller;
 
-import com.clinic.abstracts.AbstractCrudController;
 import com.clinic.builder.GridFormBuilder;
 import com.clinic.drug.domain.Medicine;
 import com.clinic.drug.repository.MedicineRepository;
+import com.clinic.drug.repository.MedicineStockSummary;
+import com.clinic.fx.abstracts.AbstractCrudController;
 
 import io.github.palexdev.materialfx.controls.MFXTableView;
 import javafx.scene.layout.GridPane;
@@ -27,5 +28,6 @@ public class MedicineController extends AbstractCrudController<Medicine, Medicin
         addTableColumn(entityTable, "Brand Name", Medicine::getBrandName);
         addTableColumn(entityTable, "Generic Name", Medicine::getGenericName);
         addTableColumn(entityTable, "Medicine Type", Medicine::getMedicineType);
+        addTableColumn(entityTable, "Qty Available", (medicine) -> MedicineStockSummary.getQtyAvailable(medicine.getId()));
     }
 }
@@ -1,8 +1,9 @@
 package com.clinic.drug.controller;
 
 import java.sql.SQLException;
+import java.util.List;
 
-import com.clinic.abstracts.AbstractCrudController;
+import com.clinic.Pagination;
 import com.clinic.builder.GridFormBuilder;
 import com.clinic.drug.domain.DosageForm;
 import com.clinic.drug.domain.Medicine;
@@ -10,17 +11,18 @@ import com.clinic.drug.domain.MedicineStock;
 import com.clinic.drug.repository.DosageFormRepository;
 import com.clinic.drug.repository.MedicineRepository;
 import com.clinic.drug.repository.MedicineStockRepository;
-import com.clinic.factories.CrudControllerFactory;
 import com.clinic.factories.EntityRepositoryFactory;
+import com.clinic.fx.abstracts.AbstractCrudController;
+import com.clinic.fx.factories.CrudControllerFactory;
 
 import io.github.palexdev.materialfx.controls.MFXTableView;
-import javafx.collections.FXCollections;
-import javafx.collections.ObservableList;
 import javafx.scene.layout.GridPane;
 
 public class MedicineStockController extends AbstractCrudController<MedicineStock, MedicineStockRepository> {
     public MedicineStockController() {
         super(MedicineStock.class, MedicineStockRepository.class);
+        addPageCacheDependency(EntityRepositoryFactory.getRepository(MedicineRepository.class));
+        addPageCacheDependency(EntityRepositoryFactory.getRepository(DosageFormRepository.class));
     }
 
     @Override
@@ -54,23 +56,15 @@ public class MedicineStockController extends AbstractCrudController<MedicineStoc
     }
 
     @Override
-    public void fetchEntitiesToTable(MFXTableView<MedicineStock> entityTable, String whereClause) {
-        ObservableList<MedicineStock> entities;
-        try {
-            entities = FXCollections
-                .observableArrayList(repo
-                    .join(
-                        EntityRepositoryFactory.getRepository(MedicineRepository.class),
-                        EntityRepositoryFactory.getRepository(DosageFormRepository.class),
-                        "medicine_id", 
-                        "dosage_form_id", 
-                        whereClause)
-                );
-            entityTable.setItems(entities);
-            entityTable.autosize();
-        } catch (SQLException e) {
-            System.out.println("Exception caught in AbstractController.fetchEntitiesToTable(): " + e.toString());
-        }
+    protected List<MedicineStock> fetchEntities(Pagination page, String whereClause) throws SQLException {
+        return repo
+            .join(
+                EntityRepositoryFactory.getRepository(MedicineRepository.class),
+                EntityRepositoryFactory.getRepository(DosageFormRepository.class),
+                "medicine_id", 
+                "dosage_form_id", 
+                whereClause,
+                page);
     }
 
     @Override
@@ -4,6 +4,7 @@ import java.math.BigDecimal;
 import java.sql.SQLException;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -19,18 +20,14 @@ import com.clinic.drug.domain.MedicineStock;
 import com.clinic.drug.domain.PurchaseMedicineDetail;
 import com.clinic.drug.domain.PurchaseMedicineHeader;
 import com.clinic.drug.domain.QtyUnit;
-import com.clinic.drug.domain.SellMedicineDetail;
 import com.clinic.drug.domain.SellMedicineHeader;
 import com.clinic.drug.repository.DosageFormRepository;
-import com.clinic.drug.repository.MedicineStockRepository;
-import com.clinic.drug.repository.PurchaseMedicineDetailRepository;
-import com.clinic.drug.repository.PurchaseMedicineHeaderRepository;
 import com.clinic.drug.repository.QtyUnitRepository;
-import com.clinic.drug.repository.SellMedicineDetailRepository;
-import com.clinic.drug.repository.SellMedicineHeaderRepository;
-import com.clinic.factories.CrudControllerFactory;
+import com.clinic.drug.service.MedicineTransactionService;
+import com.clinic.drug.service.StockAllocator;
 import com.clinic.factories.EntityRepositoryFactory;
-import com.clinic.interfaces.IBaseController;
+import com.clinic.fx.factories.CrudControllerFactory;
+import com.clinic.fx.interfaces.IBaseController;
 
 import io.github.palexdev.materialfx.controls.MFXButton;
 import javafx.beans.property.IntegerProperty;
@@ -56,10 +53,6 @@ public class MedicineTransactionController implements IBaseController {
         completeTransactionButton = new MFXButton("Complete transaction");
     private VBox mainContainer = new VBox();
     private SelectedMedicineGrid detailGrid;
-    private MedicineStockController medicineStockController = CrudControllerFactory
-        .getController(MedicineStockController.class);
-    private MedicineController medicineController = CrudControllerFactory
-        .getController(MedicineController.class);
     private BaseTransactionHeader transactionHeader;
 
     public MedicineTransactionController(int transactionType) {
@@ -104,7 +97,7 @@ public class MedicineTransactionController implements IBaseController {
     public void addTransactionDetail() throws SQLException {
         String buttonStyle = "-fx-background-color: -mfx-purple;" +
                 "-fx-text-fill: white;";
-        Medicine selectedMedicine = medicineController.pickEntity();
+        Medicine selectedMedicine = CrudControllerFactory.getController(MedicineController.class).pickEntity();
         IntegerProperty showDetailInWhat = new SimpleIntegerProperty(SelectedMedicineCard.IN_QTY_UNIT);
         if (selectedMedicine == null)
             return;
@@ -190,73 +183,123 @@ public class MedicineTransactionController implements IBaseController {
             });
             purchaseStage.showAndWait();
         } else {
-            SellMedicineDetail sellDetail = new SellMedicineDetail();
-            transactionDetail = sellDetail;
-            medicineStock = medicineStockController.pickEntity("WHERE a.medicine_id=" + selectedMedicine.getId() + " AND a.qty_available > 0");
-            GridPane sellForm = new GridPane();
-            ObjectProperty<BigDecimal> qtyInForm = new SimpleObjectProperty<>();
-            IntegerProperty pricePerUnitInForm = new SimpleIntegerProperty(medicineStock.getHighestRetailPrice());
-            Button submitSellDetailButton = new MFXButton("Submit");
-            submitSellDetailButton.setStyle(buttonStyle);
-            Stage sellStage = new Stage();
-            submitSellDetailButton.setOnAction((event) -> {
-                if (showDetailInWhat.get() == SelectedMedicineCard.IN_DOSAGE_FORM) {
-                    sellDetail
-                            .setQty(qtyInForm.get().multiply(medicineStock.getQtyToDosageFormMultiplier()));
-                    sellDetail
-                            .setPricePerUnit(
-                                    pricePerUnitInForm.get() / medicineStock.getQtyToDosageFormMultiplier().intValue());
-                } else {
-                    sellDetail.setQty(qtyInForm.get());
-                    sellDetail.setPricePerUnit(pricePerUnitInForm.get());
-                }
+            addSellDetails(selectedMedicine, showDetailInWhat);
+            return;
+        }
+        medicineStock.setMedicine(selectedMedicine);
+        if (medicineStock != null && transactionDetail != null)
+            detailGrid.addTransactionDetail(medicineStock, transactionDetail, showDetailInWhat.get());
+    }
 
-                if (sellDetail.getQty().compareTo(medicineStock.getQtyAvailable()) == 1) {
-                    Alert qtyNotAvailableAlert = new Alert(Alert.AlertType.ERROR);
-                    qtyNotAvailableAlert.setContentText("Medicine available stock is not enough");
-                    qtyNotAvailableAlert.showAndWait();
-                    return;
-                }
+    /**
+     * Add details prepared elsewhere, such as a purchase drafted by
+     * <code>ReorderEngine</code>, shown in qty unit
+     * @param transactionAndStockMap the details with their stock, the stocks
+     * with their medicine, dosage form and qty unit
+     */
+    public void addTransactionDetails(Map<BaseTransactionDetail, MedicineStock> transactionAndStockMap) {
+        for (Map.Entry<BaseTransactionDetail, MedicineStock> detail : transactionAndStockMap.entrySet())
+            detailGrid.addTransactionDetail(detail.getValue(), detail.getKey(), SelectedMedicineCard.IN_QTY_UNIT);
+    }
+
+    /**
+     * Ask the quantity to sell of a medicine and add the sell details it is
+     * split into by <code>StockAllocator</code>, first expiry first out
+     * @param selectedMedicine the medicine to sell
+     * @param showDetailInWhat receives whether the quantity is in qty unit or
+     * in dosage form
+     */
+    private void addSellDetails(Medicine selectedMedicine, IntegerProperty showDetailInWhat) throws SQLException {
+        String buttonStyle = "-fx-background-color: -mfx-purple;" +
+                "-fx-text-fill: white;";
+        List<MedicineStock> availableStocks = StockAllocator.getAvailableStocks(selectedMedicine.getId());
+        if (availableStocks.isEmpty()) {
+            Alert noStockAlert = new Alert(Alert.AlertType.ERROR);
+            noStockAlert.setContentText("Medicine has no available stock");
+            noStockAlert.showAndWait();
+            return;
+        }
+
+        // The stocks sold together have the same dosage form and qty unit
+        List<MedicineStock> variants = new ArrayList<>();
+        Map<String, Integer> variantItems = new LinkedHashMap<>();
+        for (MedicineStock stock : availableStocks) {
+            boolean known = false;
+            for (MedicineStock variant : variants)
+                known |= variant.getDosageFormId().equals(stock.getDosageFormId())
+                        && variant.getQtyUnitId().equals(stock.getQtyUnitId());
+            if (known)
+                continue;
+            stock.setDosageForm(EntityRepositoryFactory.getRepository(DosageFormRepository.class)
+                    .get(stock.getDosageFormId()));
+            stock.setQtyUnit(EntityRepositoryFactory.getRepository(QtyUnitRepository.class)
+                    .get(stock.getQtyUnitId()));
+            variantItems.put(stock.getDosageForm().getName() + " (" + stock.getQtyUnit().getName() + ")",
+                    variants.size());
+            variants.add(stock);
+        }
+
+        IntegerProperty variantInForm = new SimpleIntegerProperty(0);
+        ObjectProperty<BigDecimal> qtyInForm = new SimpleObjectProperty<>();
+        IntegerProperty pricePerUnitInForm = new SimpleIntegerProperty(availableStocks.get(0).getHighestRetailPrice());
+        Map<BaseTransactionDetail, MedicineStock> allocation = new LinkedHashMap<>();
+        Button submitSellDetailButton = new MFXButton("Submit");
+        submitSellDetailButton.setStyle(buttonStyle);
+        Stage sellStage = new Stage();
+        submitSellDetailButton.setOnAction((event) -> {
+            if (qtyInForm.get() == null)
+                return;
+            MedicineStock variant = variants.get(variantInForm.get());
+            Map<BaseTransactionDetail, MedicineStock> allocated;
+            try {
+                allocated = StockAllocator.allocate(selectedMedicine.getId(), variant.getDosageFormId(),
+                        variant.getQtyUnitId(), qtyInForm.get(),
+                        showDetailInWhat.get() == SelectedMedicineCard.IN_DOSAGE_FORM, pricePerUnitInForm.get(),
+                        detailGrid.getTransactionDetailList());
+            } catch (SQLException e) {
+                Alert qtyNotAvailableAlert = new Alert(Alert.AlertType.ERROR);
+                qtyNotAvailableAlert.setContentText(e.getMessage());
+                qtyNotAvailableAlert.showAndWait();
+                return;
+            }
 
-                if (sellDetail.getPricePerUnit() > medicineStock.getHighestRetailPrice()) {
+            for (Map.Entry<BaseTransactionDetail, MedicineStock> detail : allocated.entrySet()) {
+                if (detail.getKey().getPricePerUnit() > detail.getValue().getHighestRetailPrice()) {
                     Alert priceHigherThanHRPAlert = new Alert(Alert.AlertType.ERROR);
                     priceHigherThanHRPAlert.setContentText("Medicine price cannot be higher than HRP");
                     priceHigherThanHRPAlert.showAndWait();
                     return;
                 }
-
-                medicineStock.setQtyAvailable(medicineStock.getQtyAvailable().subtract(sellDetail.getQty()));
-                sellStage.close();
-            });
-            try {
-                QtyUnit qtyUnit = EntityRepositoryFactory
-                        .getRepository(QtyUnitRepository.class)
-                        .get(medicineStock.getQtyUnitId());
-                DosageForm dosageForm = EntityRepositoryFactory
-                        .getRepository(DosageFormRepository.class)
-                        .get(medicineStock.getDosageFormId());
-                medicineStock.setQtyUnit(qtyUnit);
-                medicineStock.setDosageForm(dosageForm);
-                Map<String, Integer> items = new LinkedHashMap<>();
-                items.put(qtyUnit.getName(), SelectedMedicineCard.IN_QTY_UNIT);
-                items.put(dosageForm.getName(), SelectedMedicineCard.IN_DOSAGE_FORM);
-                new GridFormBuilder(sellForm)
-                        .addBigDecimalField("Qty to sell", qtyInForm)
-                        .addComboBox("Qty in what", showDetailInWhat.asObject(), items)
-                        .addIntegerField("Price per unit", pricePerUnitInForm)
-                        .addButton(submitSellDetailButton);
-                
-                VBox sellFormContainer = new VBox(new Label("Fill sell information"), sellForm);
-                sellFormContainer.setPadding(new Insets(20));
-                sellStage.setScene(new Scene(sellFormContainer));
-                sellStage.showAndWait();
-            } catch (SQLException e) {
-                System.out.println(e);
+                detail.getValue()
+                        .setMedicine(selectedMedicine)
+                        .setDosageForm(variant.getDosageForm())
+                        .setQtyUnit(variant.getQtyUnit());
             }
-        }
-        medicineStock.setMedicine(selectedMedicine);
-        if (medicineStock != null && transactionDetail != null)
-            detailGrid.addTransactionDetail(medicineStock, transactionDetail, showDetailInWhat.get());
+            allocation.putAll(allocated);
+            sellStage.close();
+        });
+
+        Map<String, Integer> items = new LinkedHashMap<>();
+        items.put("Qty unit", SelectedMedicineCard.IN_QTY_UNIT);
+        items.put("Dosage form", SelectedMedicineCard.IN_DOSAGE_FORM);
+        GridPane sellForm = new GridPane();
+        GridFormBuilder sellFormBuilder = new GridFormBuilder(sellForm);
+        if (variants.size() > 1)
+            sellFormBuilder.addComboBox("Dosage form (qty unit)", variantInForm.asObject(), variantItems);
+        sellFormBuilder
+                .addBigDecimalField("Qty to sell", qtyInForm)
+                .addComboBox("Qty in what", showDetailInWhat.asObject(), items)
+                .addIntegerField("Price per unit", pricePerUnitInForm)
+                .addButton(submitSellDetailButton);
+
+        VBox sellFormContainer = new VBox(new Label("Fill sell information, the stocks expiring first are sold first"),
+                sellForm);
+        sellFormContainer.setPadding(new Insets(20));
+        sellStage.setScene(new Scene(sellFormContainer));
+        sellStage.showAndWait();
+
+        for (Map.Entry<BaseTransactionDetail, MedicineStock> detail : allocation.entrySet())
+            detailGrid.addTransactionDetail(detail.getValue(), detail.getKey(), showDetailInWhat.get());
     }
 
     public void saveChanges() {
@@ -268,97 +311,26 @@ public class MedicineTransactionController implements IBaseController {
     }
 
     public void savePurchaseTransaction(Map<BaseTransactionDetail, MedicineStock> transactionAndStockMap) {
-        PurchaseMedicineHeader purchaseHeader = (PurchaseMedicineHeader) transactionHeader;
-        PurchaseMedicineHeaderRepository purchaseHeaderRepo = EntityRepositoryFactory
-                .getRepository(PurchaseMedicineHeaderRepository.class);
-        PurchaseMedicineDetailRepository purchaseDetailRepo = EntityRepositoryFactory
-                .getRepository(PurchaseMedicineDetailRepository.class);
-        MedicineStockRepository medicineStockRepo = EntityRepositoryFactory
-                .getRepository(MedicineStockRepository.class);
-        int purchaseHeaderId = -1;
         try {
-            purchaseHeaderId = purchaseHeaderRepo.create(purchaseHeader);
+            MedicineTransactionService.savePurchase((PurchaseMedicineHeader) transactionHeader, transactionAndStockMap);
         } catch (SQLException e) {
-            System.out.println(e);
-            Alert errorAlert = new Alert(AlertType.ERROR);
-            errorAlert.setContentText("Failed to save purchase header");
-            errorAlert.showAndWait();
-            return;
-        }
-
-        for (BaseTransactionDetail baseDetail : transactionAndStockMap.keySet()) {
-            PurchaseMedicineDetail purchaseDetail = (PurchaseMedicineDetail) baseDetail;
-            MedicineStock medicineStock = transactionAndStockMap.get(purchaseDetail);
-            purchaseDetail.setPurchaseMedicineHeaderId(purchaseHeaderId);
-            try {
-                int purchaseDetailId = purchaseDetailRepo.create(purchaseDetail);
-                medicineStock.setPurchaseMedicineDetailId(purchaseDetailId);
-            } catch (SQLException e) {
-                System.out.println(e);
-                Alert errorAlert = new Alert(AlertType.ERROR);
-                errorAlert.setContentText("Failed to save purchase header");
-                errorAlert.showAndWait();
-                return;
-            }
-
-            try {
-                medicineStockRepo.create(medicineStock);
-            } catch (SQLException e) {
-                System.out.println(e);
-                Alert errorAlert = new Alert(AlertType.ERROR);
-                errorAlert.setContentText("Failed to save medicine stock");
-                errorAlert.showAndWait();
-                return;
-            }
+            showSaveError(e);
         }
     }
 
     public void saveSellTransaction(Map<BaseTransactionDetail, MedicineStock> transactionAndStockMap) {
-        SellMedicineHeader sellHeader = (SellMedicineHeader) transactionHeader;
-        SellMedicineHeaderRepository sellHeaderRepo = EntityRepositoryFactory
-                .getRepository(SellMedicineHeaderRepository.class);
-        SellMedicineDetailRepository sellDetailRepo = EntityRepositoryFactory
-                .getRepository(SellMedicineDetailRepository.class);
-        MedicineStockRepository medicineStockRepo = EntityRepositoryFactory
-                .getRepository(MedicineStockRepository.class);
-        int purchaseHeaderId = -1;
-
         try {
-            purchaseHeaderId = sellHeaderRepo.create(sellHeader);
+            MedicineTransactionService.saveSell((SellMedicineHeader) transactionHeader, transactionAndStockMap);
         } catch (SQLException e) {
-            System.out.println(e);
-            Alert errorAlert = new Alert(AlertType.ERROR);
-            errorAlert.setContentText("Failed to save purchase header");
-            errorAlert.showAndWait();
-            return;
+            showSaveError(e);
         }
+    }
 
-        for (BaseTransactionDetail baseDetail : transactionAndStockMap.keySet()) {
-            SellMedicineDetail sellDetail = (SellMedicineDetail) baseDetail;
-            MedicineStock medicineStock = transactionAndStockMap.get(sellDetail);
-            sellDetail.setSellMedicineHeaderId(purchaseHeaderId);
-            sellDetail.setMedicineStockId(medicineStock.getId());
-
-            try {
-                sellDetailRepo.create(sellDetail);
-            } catch (SQLException e) {
-                System.out.println(e);
-                Alert errorAlert = new Alert(AlertType.ERROR);
-                errorAlert.setContentText("Failed to save purchase header");
-                errorAlert.showAndWait();
-                return;
-            }
-
-            try {
-                medicineStockRepo.edit(medicineStock);
-            } catch (SQLException e) {
-                System.out.println(e);
-                Alert errorAlert = new Alert(AlertType.ERROR);
-                errorAlert.setContentText("Failed to save medicine stock");
-                errorAlert.showAndWait();
-                return;
-            }
-        }
+    private void showSaveError(SQLException e) {
+        System.out.println(e.getCause() != null ? e.getCause() : e);
+        Alert errorAlert = new Alert(AlertType.ERROR);
+        errorAlert.setContentText(e.getMessage());
+        errorAlert.showAndWait();
     }
 
     @Override
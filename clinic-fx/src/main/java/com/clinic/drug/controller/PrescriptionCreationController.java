@@ -3,17 +3,16 @@ package com.clinic.drug.controller;
 import java.sql.SQLException;
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import com.clinic.drug.component.PrescriptionRecipeCard;
 import com.clinic.drug.domain.PrescriptionHeader;
 import com.clinic.drug.domain.PrescriptionIngredient;
 import com.clinic.drug.domain.PrescriptionRecipe;
-import com.clinic.drug.repository.PrescriptionHeaderRepository;
-import com.clinic.drug.repository.PrescriptionIngredientRepository;
-import com.clinic.drug.repository.PrescriptionRecipeRepository;
-import com.clinic.factories.EntityRepositoryFactory;
-import com.clinic.interfaces.IBaseController;
+import com.clinic.drug.service.PrescriptionService;
+import com.clinic.fx.interfaces.IBaseController;
 
 import io.github.palexdev.materialfx.controls.MFXButton;
 import io.github.palexdev.materialfx.controls.MFXScrollPane;
@@ -75,36 +74,15 @@ public class PrescriptionCreationController implements IBaseController {
     }
 
     private void saveChanges() {
-        int prescriptionHeaderId = 0;
-        try {
-            prescriptionHeaderId = EntityRepositoryFactory.getRepository(PrescriptionHeaderRepository.class).create(theHeader);
-        } catch (SQLException e) {
-            System.out.println("Failed to save prescription header: " + e.toString());
-            return;
-        }
-
+        Map<PrescriptionRecipe, List<PrescriptionIngredient>> recipes = new LinkedHashMap<>();
         for (PrescriptionRecipeCard theCard : recipeCards) {
-            PrescriptionRecipe recipe = theCard.getRecipe();
-            recipe.setPrescriptionHeaderId(prescriptionHeaderId);
-            int recipeId = 0;
-            try {
-                recipeId = EntityRepositoryFactory
-                    .getRepository(PrescriptionRecipeRepository.class)
-                    .create(recipe);
-            } catch (SQLException e) {
-                System.out.println("Failed to save recipe" + e.toString());
-                return;
-            }
+            recipes.put(theCard.getRecipe(), theCard.getIngredients());
+        }
 
-            for (PrescriptionIngredient ingredient : theCard.getIngredients()) {
-                ingredient.setPrescriptionRecipeId(recipeId);
-                try {
-                    EntityRepositoryFactory.getRepository(PrescriptionIngredientRepository.class)
-                        .create(ingredient);
-                } catch (SQLException e) {
-                    System.out.println("Failed to save ingredient: " + e.toString());
-                }
-            }
+        try {
+            PrescriptionService.save(theHeader, recipes);
+        } catch (SQLException e) {
+            System.out.println(e.getMessage() + ": " + e.getCause());
         }
     }
 
@@ -1,9 +1,9 @@
 package com.clinic.drug.controller;
 
-import com.clinic.abstracts.AbstractCrudController;
 import com.clinic.builder.GridFormBuilder;
 import com.clinic.drug.domain.PrescriptionHeader;
 import com.clinic.drug.repository.PrescriptionHeaderRepository;
+import com.clinic.fx.abstracts.AbstractCrudController;
 
 import io.github.palexdev.materialfx.controls.MFXTableView;
 import javafx.scene.layout.GridPane;
@@ -1,10 +1,10 @@
 package com.clinic.drug.controller;
 
-import com.clinic.abstracts.AbstractCrudController;
 import com.clinic.builder.GridFormBuilder;
 import com.clinic.drug.domain.PrescriptionIngredient;
 import com.clinic.drug.repository.PrescriptionIngredientRepository;
-import com.clinic.factories.CrudControllerFactory;
+import com.clinic.fx.abstracts.AbstractCrudController;
+import com.clinic.fx.factories.CrudControllerFactory;
 
 import io.github.palexdev.materialfx.controls.MFXTableView;
 import javafx.scene.layout.GridPane;
@@ -1,9 +1,10 @@
 package com.clinic.drug.controller;
 
-import com.clinic.abstracts.AbstractCrudController;
 import com.clinic.builder.GridFormBuilder;
 import com.clinic.drug.domain.PurchaseMedicineDetail;
 import com.clinic.drug.repository.PurchaseMedicineDetailRepository;
+import com.clinic.fx.abstracts.AbstractCrudController;
+import com.clinic.fx.factories.CrudControllerFactory;
 
 import io.github.palexdev.materialfx.controls.MFXTableView;
 import javafx.scene.layout.GridPane;
@@ -21,7 +22,7 @@ public class PurchaseMedicineDetailController extends AbstractCrudController<Pur
             .addPickField(
                 "Header Id",
                 entity.purchaseMedicineHeaderIdProperty(),
-                new PurchaseMedicineHeaderController(),
+                CrudControllerFactory.getController(PurchaseMedicineHeaderController.class),
                 "getId"
             )
             .addButton(generateSubmitButton("Submit", entity));
@@ -0,0 +1,78 @@
+package com.clinic.drug.controller;
+
+import java.io.Serializable;
+import java.util.function.Function;
+
+import com.clinic.fx.interfaces.IBaseController;
+import com.clinic.stats.QueryStats;
+import com.clinic.stats.ShapeStats;
+
+import io.github.palexdev.materialfx.controls.MFXButton;
+import io.github.palexdev.materialfx.controls.MFXTableColumn;
+import io.github.palexdev.materialfx.controls.MFXTableView;
+import io.github.palexdev.materialfx.controls.cell.MFXTableRowCell;
+import javafx.collections.FXCollections;
+import javafx.geometry.Insets;
+import javafx.scene.Node;
+import javafx.scene.control.Button;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.Priority;
+import javafx.scene.layout.VBox;
+
+/**
+ * Shows the query shapes with the highest total time, recorded by
+ * <code>QueryStats</code> since the application started or was reset.
+ * 
+ * @author Jose Ryu Leonesta <jose.leonesta@student.matanauniversity.ac.id>
+ */
+public class QueryStatsController implements IBaseController {
+    public final static int TOP_SHAPES = 50;
+
+    private MFXTableView<ShapeStats> statsTable = new MFXTableView<>();
+    private VBox mainContainer = new VBox();
+
+    public QueryStatsController() {
+        addColumn("Total ms", (stats) -> String.format("%.1f", stats.getTotalMillis()));
+        addColumn("Calls", ShapeStats::getCalls);
+        addColumn("Rows", ShapeStats::getRows);
+        addColumn("Failed", ShapeStats::getFailures);
+        addColumn("DB p50 ms", (stats) -> String.format("%.2f", stats.getDbPercentileMillis(50)));
+        addColumn("DB p99 ms", (stats) -> String.format("%.2f", stats.getDbPercentileMillis(99)));
+        addColumn("Mapping p99 ms", (stats) -> String.format("%.2f", stats.getMappingPercentileMillis(99)));
+        addColumn("Entity", ShapeStats::getEntity);
+        addColumn("Operation", ShapeStats::getOperation);
+        addColumn("Query shape", ShapeStats::getShape);
+        statsTable.setFooterVisible(false);
+        VBox.setVgrow(statsTable, Priority.ALWAYS);
+
+        Button refreshButton = new MFXButton("Refresh");
+        refreshButton.setOnAction((event) -> refresh());
+        Button resetButton = new MFXButton("Reset");
+        resetButton.setOnAction((event) -> {
+            QueryStats.reset();
+            refresh();
+        });
+
+        mainContainer.setSpacing(10);
+        mainContainer.setPadding(new Insets(10));
+        mainContainer.getChildren().addAll(new HBox(10, refreshButton, resetButton), statsTable);
+        refresh();
+    }
+
+    private void addColumn(String columnLabel, Function<ShapeStats, Serializable> extractor) {
+        MFXTableColumn<ShapeStats> tableColumn = new MFXTableColumn<>(columnLabel);
+        tableColumn.setRowCellFactory(stats -> new MFXTableRowCell<>(extractor));
+        tableColumn.setColumnResizable(true);
+        statsTable.getTableColumns().add(tableColumn);
+    }
+
+    public void refresh() {
+        statsTable.setItems(FXCollections.observableArrayList(QueryStats.top(TOP_SHAPES)));
+    }
+
+    @Override
+    public Node getNode() {
+        refresh();
+        return mainContainer;
+    }
+}
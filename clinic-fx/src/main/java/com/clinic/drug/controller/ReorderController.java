@@ -0,0 +1,135 @@
+package com.clinic.drug.controller;
+
+import java.io.Serializable;
+import java.util.List;
+import java.util.function.Function;
+
+import com.clinic.ExecutionLane;
+import com.clinic.drug.domain.BaseTransactionDetail;
+import com.clinic.drug.domain.MedicineRequest;
+import com.clinic.drug.service.ReorderEngine;
+import com.clinic.drug.service.ReorderEngine.DraftPurchase;
+import com.clinic.drug.service.ReorderEngine.Suggestion;
+import com.clinic.fx.interfaces.IBaseController;
+
+import io.github.palexdev.materialfx.controls.MFXButton;
+import io.github.palexdev.materialfx.controls.MFXTableColumn;
+import io.github.palexdev.materialfx.controls.MFXTableView;
+import io.github.palexdev.materialfx.controls.cell.MFXTableRowCell;
+import javafx.application.Platform;
+import javafx.collections.FXCollections;
+import javafx.geometry.Insets;
+import javafx.geometry.Pos;
+import javafx.scene.Node;
+import javafx.scene.Scene;
+import javafx.scene.control.Alert;
+import javafx.scene.control.Button;
+import javafx.scene.control.Label;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.Priority;
+import javafx.scene.layout.VBox;
+import javafx.stage.Stage;
+
+/**
+ * Shows the medicines <code>ReorderEngine</code> suggests to reorder, and
+ * drafts their purchase into the restocking screen.
+ *
+ * @author Jose Ryu Leonesta <jose.leonesta@student.matanauniversity.ac.id>
+ */
+public class ReorderController implements IBaseController {
+    private MFXTableView<Suggestion> suggestionTable = new MFXTableView<>();
+    private Label statusLabel = new Label();
+    private VBox mainContainer = new VBox();
+    private List<Suggestion> suggestions = FXCollections.observableArrayList();
+
+    public ReorderController() {
+        addColumn("Medicine", Suggestion::getBrandName);
+        addColumn("Generic Name", Suggestion::getGenericName);
+        addColumn("Qty On Hand", (suggestion) -> suggestion.getQtyOnHand().stripTrailingZeros().toPlainString());
+        addColumn("Daily Use", (suggestion) -> String.format("%.2f", suggestion.getDailyRate()));
+        addColumn("Reorder Point", (suggestion) -> suggestion.getReorderPoint().toPlainString());
+        addColumn("Suggested Qty", (suggestion) -> suggestion.getSuggestedQty().toPlainString());
+        addColumn("Requests", (suggestion) -> suggestion.getRequests().size());
+        suggestionTable.setFooterVisible(false);
+        VBox.setVgrow(suggestionTable, Priority.ALWAYS);
+
+        Button refreshButton = new MFXButton("Refresh");
+        refreshButton.setOnAction((event) -> refresh());
+        Button draftButton = new MFXButton("Draft purchase");
+        draftButton.setOnAction((event) -> draftPurchase());
+        HBox toolbar = new HBox(10, refreshButton, draftButton, statusLabel);
+        toolbar.setAlignment(Pos.CENTER_LEFT);
+
+        mainContainer.setSpacing(10);
+        mainContainer.setPadding(new Insets(10));
+        mainContainer.getChildren().addAll(toolbar, suggestionTable);
+    }
+
+    private void addColumn(String columnLabel, Function<Suggestion, Serializable> extractor) {
+        MFXTableColumn<Suggestion> tableColumn = new MFXTableColumn<>(columnLabel);
+        tableColumn.setRowCellFactory(suggestion -> new MFXTableRowCell<>(extractor));
+        tableColumn.setColumnResizable(true);
+        suggestionTable.getTableColumns().add(tableColumn);
+    }
+
+    public void refresh() {
+        statusLabel.setText("Loading...");
+        ExecutionLane.REPORTING.submit(ReorderEngine::suggest)
+                .whenComplete((found, e) -> Platform.runLater(() -> {
+                    if (e != null) {
+                        System.out.println("Exception caught in ReorderController.refresh(): " + e.toString());
+                        statusLabel.setText("Failed to load the suggestions");
+                        return;
+                    }
+                    suggestions = found;
+                    suggestionTable.setItems(FXCollections.observableArrayList(found));
+                    statusLabel.setText(found.size() + " medicines to reorder");
+                }));
+    }
+
+    /**
+     * Open the restocking screen with the selected suggestions, or every
+     * suggestion if none is selected
+     */
+    private void draftPurchase() {
+        List<Suggestion> selected = suggestionTable.getSelectionModel().getSelectedValues();
+        List<Suggestion> toDraft = selected.isEmpty() ? suggestions : selected;
+        ExecutionLane.REPORTING.submit(() -> ReorderEngine.draftPurchase(toDraft))
+                .whenComplete((draft, e) -> Platform.runLater(() -> {
+                    if (e != null) {
+                        System.out.println("Exception caught in ReorderController.draftPurchase(): " + e.toString());
+                        statusLabel.setText("Failed to draft the purchase");
+                        return;
+                    }
+                    showDraft(draft);
+                }));
+    }
+
+    private void showDraft(DraftPurchase draft) {
+        if (!draft.getUnmatchedRequests().isEmpty()) {
+            StringBuilder requests = new StringBuilder("Requested medicines never stocked, buy them by hand:");
+            for (MedicineRequest request : draft.getUnmatchedRequests())
+                requests.append("\n").append(request.getBrandName()).append(" (").append(request.getGenericName())
+                        .append(")");
+            new Alert(Alert.AlertType.INFORMATION, requests.toString()).showAndWait();
+        }
+        if (draft.getDetails().isEmpty())
+            return;
+
+        MedicineTransactionController purchaseController = new MedicineTransactionController(
+                BaseTransactionDetail.PURCHASE);
+        purchaseController.addTransactionDetails(draft.getDetails());
+        Stage purchaseStage = new Stage();
+        purchaseStage.setTitle("Drafted purchase");
+        VBox purchaseContainer = new VBox(purchaseController.getNode());
+        purchaseContainer.setPadding(new Insets(20));
+        purchaseStage.setScene(new Scene(purchaseContainer));
+        purchaseStage.show();
+    }
+
+    @Override
+    public Node getNode() {
+        refresh();
+        return mainContainer;
+    }
+}
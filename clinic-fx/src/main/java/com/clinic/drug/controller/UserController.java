@@ -3,11 +3,11 @@ package com.clinic.drug.controller;
 import java.util.LinkedHashMap;
 import java.util.Map;
 
-import com.clinic.abstracts.AbstractCrudController;
 import com.clinic.builder.GridFormBuilder;
 import com.clinic.drug.domain.User;
 import com.clinic.drug.repository.UserRepository;
-import com.clinic.factories.CrudControllerFactory;
+import com.clinic.fx.abstracts.AbstractCrudController;
+import com.clinic.fx.factories.CrudControllerFactory;
 import com.clinic.receptionist.controller.DoctorController;
 
 import io.github.palexdev.materialfx.controls.MFXTableView;
@@ -0,0 +1,114 @@
+package com.clinic.fx;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import com.clinic.ClinicConnection;
+import com.clinic.builder.GridFormBuilder;
+import com.clinic.doctor.controller.DoctorMainController;
+import com.clinic.drug.controller.AdminMainController;
+import com.clinic.drug.controller.DrugMainController;
+import com.clinic.drug.domain.User;
+import com.clinic.drug.repository.UserRepository;
+import com.clinic.factories.EntityRepositoryFactory;
+import com.clinic.fx.diagnostics.StallWatchdog;
+import com.clinic.receptionist.controller.ReceptionistMainController;
+
+import io.github.palexdev.materialfx.controls.MFXButton;
+import javafx.application.Application;
+import javafx.application.Platform;
+import javafx.beans.property.SimpleStringProperty;
+import javafx.beans.property.StringProperty;
+import javafx.geometry.Insets;
+import javafx.geometry.Pos;
+import javafx.scene.Scene;
+import javafx.scene.control.Button;
+import javafx.scene.control.Label;
+import javafx.scene.layout.GridPane;
+import javafx.scene.layout.VBox;
+import javafx.stage.Stage;
+/**
+ * JavaFX App
+ */
+public class App extends Application {
+    private static StartupPipeline startup;
+
+    @Override
+    public void start(Stage stage) throws IOException {
+        startup.mark("JavaFX toolkit started");
+        StallWatchdog.start();
+        StringProperty username = new SimpleStringProperty();
+        StringProperty password = new SimpleStringProperty();
+        GridPane loginForm = new GridPane();
+        Button loginButton = new MFXButton("Login");
+        Label loginLabel = new Label("Login");
+        Label startupLabel = new Label();
+        VBox loginContainer = new VBox();
+        loginContainer.setPadding(new Insets(20));
+        loginContainer.setAlignment(Pos.CENTER);
+        loginButton.setDisable(true);
+        startup.addProgressListener((message) -> Platform.runLater(() -> startupLabel.setText(message)));
+        startup.whenConnected().thenRunAsync(() -> {
+            loginButton.setDisable(false);
+            startup.preloadModules();
+        }, Platform::runLater);
+        loginButton.setOnAction((event) -> {
+            loginButton.setDisable(true);
+            CompletableFuture.supplyAsync(() -> {
+                try {
+                    return EntityRepositoryFactory
+                        .getRepository(UserRepository.class)
+                        .login(username.get(), password.get());
+                } catch (SQLException e) {
+                    throw new CompletionException(e);
+                }
+            }, ClinicConnection.getExecutor()).whenCompleteAsync((user, e) -> {
+                loginButton.setDisable(false);
+                if (e != null) {
+                    System.out.println("Failed to do user query");
+                    return;
+                }
+                if (user == null) {
+                    loginLabel.setText("Credential not correct");
+                    return;
+                }
+                startup.setLastRole(user.getUserRole());
+                try {
+                    if (user.getUserRole() == User.PHARMACIST) {
+                        new DrugMainController().start(stage);;
+                    } else if (user.getUserRole() == User.RECEPTIONIST) {
+                        new ReceptionistMainController().start(stage);;
+                    } else if (user.getUserRole() == User.DOCTOR) {
+                        new DoctorMainController().start(stage);;
+                    } else if (user.getUserRole() == User.ADMIN) {
+                        new AdminMainController().start(stage);;
+                    }
+                } catch (IOException ioException) {
+                    System.out.println("Failed to open the main screen");
+                }
+            }, Platform::runLater);
+        });
+
+        new GridFormBuilder(loginForm)
+            .addTextField("Username", username)
+            .addTextField("Password", password)
+            .addButton(loginButton);
+
+        loginContainer.getChildren().addAll(loginLabel, loginForm, startupLabel);
+        stage.setScene(new Scene(loginContainer));
+        stage.show();
+    }
+
+    @Override
+    public void stop() {
+        StallWatchdog.stop();
+    }
+
+    public static void main(String[] args) throws SQLException {
+        startup = new StartupPipeline().start();
+        launch();
+    }
+
+}
\ No newline at end of file
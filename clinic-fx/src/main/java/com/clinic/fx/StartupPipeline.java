@@ -0,0 +1,208 @@
+package com.clinic.fx;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
+import java.util.prefs.Preferences;
+
+import com.clinic.ClinicConnection;
+import com.clinic.abstracts.AbstractEntityRepository;
+import com.clinic.doctor.controller.CheckUpCategoryController;
+import com.clinic.doctor.controller.MedicalRecordController;
+import com.clinic.drug.controller.DosageFormCategoryController;
+import com.clinic.drug.controller.DosageFormController;
+import com.clinic.drug.controller.MedicineController;
+import com.clinic.drug.controller.QtyUnitController;
+import com.clinic.drug.controller.UserController;
+import com.clinic.drug.domain.User;
+import com.clinic.drug.repository.MedicineStockSummary;
+import com.clinic.drug.repository.UserRepository;
+import com.clinic.drug.service.ExpiryScanner;
+import com.clinic.drug.service.ReorderEngine;
+import com.clinic.drug.service.SalesRollup;
+import com.clinic.factories.EntityRegistry;
+import com.clinic.factories.EntityRepositoryFactory;
+import com.clinic.fx.abstracts.AbstractCrudController;
+import com.clinic.fx.factories.CrudControllerFactory;
+import com.clinic.metrics.MetricsServer;
+import com.clinic.receptionist.controller.AppointmentController;
+
+/**
+ * Starts the application work that does not need the JavaFX toolkit in
+ * parallel with the toolkit initialization. The stages are:
+ * <ol>
+ *  <li>loading the repositories of the registry, while</li>
+ *  <li>opening the connection pool, followed by</li>
+ *  <li>warming the connections and preparing the hot statements, and</li>
+ *  <li>starting the metrics endpoint when <code>clinic.metrics.port</code> is set</li>
+ * </ol>
+ * Once the toolkit is up, <code>preloadModules()</code> preloads the first
+ * page of the reference tables and of the screens of the role that logged in
+ * last time. Every stage reports its timing to the progress listeners.
+ */
+public class StartupPipeline {
+    private final static String LAST_ROLE_KEY = "lastRole";
+    /**
+     * Small lookup tables that are picked from most forms
+     */
+    private final static List<Class<? extends AbstractCrudController<?, ?>>> REFERENCE_CONTROLLERS = Arrays.asList(
+            QtyUnitController.class,
+            DosageFormCategoryController.class,
+            CheckUpCategoryController.class);
+    private final static Map<Integer, List<Class<? extends AbstractCrudController<?, ?>>>> ROLE_CONTROLLERS = new HashMap<>();
+    static {
+        ROLE_CONTROLLERS.put(User.ADMIN, Arrays.asList(UserController.class));
+        ROLE_CONTROLLERS.put(User.DOCTOR, Arrays.asList(MedicalRecordController.class));
+        ROLE_CONTROLLERS.put(User.RECEPTIONIST, Arrays.asList(AppointmentController.class));
+        ROLE_CONTROLLERS.put(User.PHARMACIST, Arrays.asList(MedicineController.class, DosageFormController.class));
+    }
+
+    private final long startTime = System.nanoTime();
+    private final List<Consumer<String>> progressListeners = new CopyOnWriteArrayList<>();
+    private final Preferences preferences = Preferences.userNodeForPackage(StartupPipeline.class);
+    private CompletableFuture<Void> connected;
+    private CompletableFuture<Void> ready;
+
+    /**
+     * Start the stages in the background
+     * @return this pipeline
+     */
+    public StartupPipeline start() {
+        Executor startupExecutor = ForkJoinPool.commonPool();
+        CompletableFuture<Void> registryLoaded = runStage("Loading registry", CompletableFuture.completedFuture(null),
+                startupExecutor, this::loadRegistry);
+        connected = runStage("Connecting to database", CompletableFuture.completedFuture(null),
+                startupExecutor, ClinicConnection::connect);
+        CompletableFuture<Void> warmed = runStage("Warming connections", connected,
+                startupExecutor, ClinicConnection::warmUp);
+        // Prepared on the database executor, which runs the login query
+        CompletableFuture<Void> prepared = runStage("Preparing statements", connected,
+                ClinicConnection.getExecutor(), () -> ClinicConnection.prepare(UserRepository.LOGIN_QUERY));
+        CompletableFuture<Void> metrics = runStage("Starting metrics endpoint", connected,
+                startupExecutor, MetricsServer::startFromProperty);
+        CompletableFuture<Void> stockSummary = runStage("Loading stock summary", connected,
+                startupExecutor, MedicineStockSummary::start);
+        CompletableFuture<Void> expiryScanner = runStage("Starting expiry scanner", connected,
+                startupExecutor, ExpiryScanner::start);
+        CompletableFuture<Void> consumption = runStage("Loading consumption rates", connected,
+                startupExecutor, ReorderEngine::start);
+        CompletableFuture<Void> salesRollup = runStage("Loading sales rollups", connected,
+                startupExecutor, SalesRollup::start);
+        ready = CompletableFuture.allOf(registryLoaded, warmed, prepared, metrics, stockSummary,
+                expiryScanner, consumption, salesRollup)
+                .thenRun(() -> reportProgress("Ready in " + elapsedMillis(startTime) + " ms"));
+        return this;
+    }
+
+    /**
+     * Add a listener of the progress messages, the listener is called from
+     * the thread of the stage
+     */
+    public void addProgressListener(Consumer<String> listener) {
+        progressListeners.add(listener);
+    }
+
+    /**
+     * Get the future completed when the database can be queried
+     */
+    public CompletableFuture<Void> whenConnected() {
+        return connected;
+    }
+
+    /**
+     * Get the future completed when every stage is done
+     */
+    public CompletableFuture<Void> whenReady() {
+        return ready;
+    }
+
+    /**
+     * Report the time from the start of the pipeline to a milestone
+     * @param milestone example: "JavaFX toolkit started"
+     */
+    public void mark(String milestone) {
+        reportProgress(milestone + " after " + elapsedMillis(startTime) + " ms");
+    }
+
+    /**
+     * Create the controllers of the reference tables and of the role that
+     * logged in last time, and preload their first page. This should be
+     * called from the JavaFX Application Thread once the database is
+     * connected.
+     */
+    public void preloadModules() {
+        long stageStart = System.nanoTime();
+        List<Class<? extends AbstractCrudController<?, ?>>> controllerClasses = new ArrayList<>(REFERENCE_CONTROLLERS);
+        controllerClasses.addAll(ROLE_CONTROLLERS.getOrDefault(getLastRole(), new ArrayList<>()));
+
+        List<CompletableFuture<?>> preloads = new ArrayList<>();
+        for (Class<? extends AbstractCrudController<?, ?>> controllerClass : controllerClasses) {
+            preloads.add(CrudControllerFactory.getController(controllerClass).preloadFirstPage());
+        }
+        CompletableFuture.allOf(preloads.toArray(new CompletableFuture<?>[0])).whenComplete((result, e) -> {
+            if (e != null)
+                System.out.println("Exception caught in StartupPipeline.preloadModules(): " + e.toString());
+            reportProgress("Preloading modules done in " + elapsedMillis(stageStart) + " ms");
+        });
+    }
+
+    /**
+     * Get the role of the user that logged in last time
+     * @return the role, or -1 if nobody has logged in
+     */
+    public int getLastRole() {
+        return preferences.getInt(LAST_ROLE_KEY, -1);
+    }
+
+    public void setLastRole(int role) {
+        preferences.putInt(LAST_ROLE_KEY, role);
+    }
+
+    private void loadRegistry() {
+        for (Class<? extends AbstractEntityRepository<?>> repositoryClass : EntityRegistry.REPOSITORIES) {
+            EntityRepositoryFactory.getRepository(repositoryClass);
+        }
+    }
+
+    /**
+     * Run a stage after another stage is done
+     * @param name the name of the stage to report
+     * @param previous the stage to wait for
+     * @param executor the executor running the stage
+     * @param task the work of the stage
+     */
+    private CompletableFuture<Void> runStage(String name, CompletableFuture<Void> previous, Executor executor,
+            StageTask task) {
+        return previous.thenRunAsync(() -> {
+            long stageStart = System.nanoTime();
+            try {
+                task.run();
+                reportProgress(name + " done in " + elapsedMillis(stageStart) + " ms");
+            } catch (Exception e) {
+                System.out.println("Exception caught in StartupPipeline." + name + ": " + e.toString());
+            }
+        }, executor);
+    }
+
+    private void reportProgress(String message) {
+        System.out.println("Startup: " + message);
+        for (Consumer<String> listener : progressListeners) {
+            listener.accept(message);
+        }
+    }
+
+    private static long elapsedMillis(long since) {
+        return (System.nanoTime() - since) / 1_000_000;
+    }
+
+    private interface StageTask {
+        public abstract void run() throws Exception;
+    }
+}
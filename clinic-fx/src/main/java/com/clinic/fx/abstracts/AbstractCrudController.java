@@ -0,0 +1,984 @@
+package com.clinic.fx.abstracts;
+
+import java.io.Serializable;
+import java.lang.ref.SoftReference;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import com.clinic.ClinicConnection;
+import com.clinic.ExecutionLane;
+import com.clinic.Pagination;
+import com.clinic.abstracts.AbstractEntity;
+import com.clinic.abstracts.AbstractEntityRepository;
+import com.clinic.cache.PageCache;
+import com.clinic.cache.ResultCache;
+import com.clinic.cache.SingleFlight;
+import com.clinic.collections.LazyEntityList;
+import com.clinic.factories.EntityRepositoryFactory;
+import com.clinic.fx.diagnostics.UiActions;
+import com.clinic.fx.events.PickEntityEvent;
+import com.clinic.fx.events.TableFetchEvent;
+import com.clinic.fx.factories.CrudControllerFactory;
+import com.clinic.interfaces.ICopyable;
+
+import io.github.palexdev.materialfx.controls.MFXButton;
+import io.github.palexdev.materialfx.controls.MFXPagination;
+import io.github.palexdev.materialfx.controls.MFXScrollPane;
+import io.github.palexdev.materialfx.controls.MFXTableView;
+import io.github.palexdev.materialfx.controls.MFXTableColumn;
+import io.github.palexdev.materialfx.controls.MFXTextField;
+import io.github.palexdev.materialfx.controls.cell.MFXTableRowCell;
+import javafx.animation.PauseTransition;
+import javafx.application.Platform;
+import javafx.beans.property.ObjectProperty;
+import javafx.beans.property.SimpleObjectProperty;
+import javafx.beans.value.ChangeListener;
+import javafx.beans.value.WeakChangeListener;
+import javafx.collections.FXCollections;
+import javafx.collections.MapChangeListener;
+import javafx.collections.ObservableList;
+import javafx.geometry.Insets;
+import javafx.geometry.Pos;
+import javafx.scene.Scene;
+import javafx.scene.control.Alert;
+import javafx.scene.control.ButtonType;
+import javafx.scene.control.Label;
+import javafx.scene.control.TableColumn;
+import javafx.scene.control.TableView;
+import javafx.scene.layout.AnchorPane;
+import javafx.scene.layout.GridPane;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.VBox;
+import javafx.stage.Stage;
+import javafx.util.Duration;
+
+/**
+ * A GUI controller to do CRUD operation for an entity.<br>
+ * The entity should extend <code>AbstractEntity</code> and implements 
+ * <code>Copyable</code> interface. The <code>copy()<code> method will be used
+ * when creating entity's form.
+ * The entity should have corresponding repository for this controller to do
+ * CRUD operation into database.<br>
+ * The controller itself is cheap to create, its main scene is only built when
+ * it is first needed and is softly referenced while it is not displayed, so it
+ * can be released under memory pressure and built again later.
+ * 
+ * @author Jose Ryu Leonesta <jose.leonesta@student.matanauniversity.ac.id>
+ */
+public abstract class AbstractCrudController<T extends AbstractEntity & ICopyable<T>, S extends AbstractEntityRepository<T>> {
+    public final static int CREATE_ACTION = 1, UPDATE_ACTION = 2, DELETE_ACTION = 3;
+    /**
+     * How many pages before and after the displayed page are prefetched
+     */
+    public final static int PREFETCH_DISTANCE = 1;
+    public final static int PAGED_MODE = 1, SCROLL_MODE = 2;
+    private final static int PAGE_CACHE_CAPACITY = 6;
+    private final static int SCROLL_BLOCK_SIZE = 100, SCROLL_MAX_BLOCKS = 20;
+    /**
+     * How long the typing should pause before the search is queried
+     */
+    public final static int SEARCH_DEBOUNCE_MILLIS = 300;
+    public Pagination page;
+
+    private Class<T> entityClass;
+    private String sceneTitle;
+    private GridPane formGrid;
+    private ObjectProperty<T> selectedItemProperty;
+    private T pickResult;
+    private String currentFetchWhereClause;
+    private PageCache<T> pageCache;
+    private Map<String, Function<T, ?>> columnExtractors = new LinkedHashMap<>();
+    private SingleFlight<String, PageCache.Page<T>> pageFetches = new SingleFlight<>(ClinicConnection::cancelRunningQuery);
+    private SoftReference<MainView> mainView = new SoftReference<>(null);
+
+    protected S repo;
+    /**
+     * Controllers of the entities that belong to this entity, they are
+     * filtered by the id of the entity when its form is shown
+     */
+    protected List<Class<? extends AbstractCrudController<?, ?>>> childControllers;
+
+    protected AbstractCrudController(Class<T> entityClass, Class<S> repoClass, String sceneTitle) {
+        this.entityClass = entityClass;
+        this.sceneTitle = sceneTitle;
+        this.repo = EntityRepositoryFactory.getRepository(repoClass);
+        this.selectedItemProperty = new SimpleObjectProperty<>();
+        this.childControllers = new ArrayList<>();
+        this.currentFetchWhereClause = "";
+        this.page = new Pagination();
+        this.pageCache = new PageCache<>(PAGE_CACHE_CAPACITY, AbstractEntity::copyOf);
+        addPageCacheDependency(repo);
+    }
+
+    protected AbstractCrudController(Class<T> entityClass, Class<S> repoClass) {
+        this(entityClass, repoClass, entityClass.getSimpleName());
+    }
+
+    /**
+     * Binds selection model of a table to an <code>ObjectProperty</code>
+     * @param table the table
+     * @param entity the entity that should have the selected value
+     */
+    private void bindTableToSingleSelectedItemProperty(MFXTableView<T> table, ObjectProperty<T> entity) {
+        table.getSelectionModel()
+                .selectionProperty()
+                .addListener((MapChangeListener<? super Integer, ? super T>) change -> {
+                    entity.setValue(change.getValueAdded());
+                });
+    }
+
+    /**
+     * Binds the clinic's pagination with the MFXPagination and set listener to 
+     * fetch entities
+     * @param page the clinic pagination
+     * @param pagination the MFXPagination component
+     * @param search the search of the table which the pagination applies to
+     */
+    private void bindPagination(Pagination page, MFXPagination pagination, TableSearch search) {
+        page.pageNumberProperty().bindBidirectional(pagination.currentPageProperty());
+        ChangeListener<Number> totalRecordsListener = (obs, oldValue, newValue) -> {
+            int maxPage = (int)newValue % page.getRecordsPerPage() == 0
+                ? (int)newValue / page.getRecordsPerPage()
+                : (int) newValue / page.getRecordsPerPage() + 1;
+            pagination.setMaxPage(maxPage);
+        };
+        ChangeListener<Number> pageNumberListener = (obs, oldValue, newValue) -> {
+            UiActions.begin(getClass().getSimpleName() + " page " + newValue);
+            search.fetch();
+        };
+        // The page may outlive the view, so it only holds weak listeners
+        // while the pagination component holds the listeners
+        pagination.getProperties().put(ChangeListener.class, List.of(totalRecordsListener, pageNumberListener));
+        page.totalRecordsProperty().addListener(new WeakChangeListener<>(totalRecordsListener));
+        page.pageNumberProperty().addListener(new WeakChangeListener<>(pageNumberListener));
+    }
+
+    /**
+     * Invalidate the cached pages of this controller whenever
+     * <code>repository</code> writes into its table. The controller's own
+     * repository is always a dependency, repositories of joined entities
+     * should be added by the controller.
+     * @param repository the repository which the displayed entities depend on
+     */
+    protected void addPageCacheDependency(AbstractEntityRepository<?> repository) {
+        if (repository != null)
+            repository.addChangeListener((changedRepository, action, id) -> {
+                pageCache.invalidate();
+                Platform.runLater(() -> {
+                    MainView view = mainView.get();
+                    if (view != null && view.scrollItems != null)
+                        view.scrollItems.refresh();
+                });
+            });
+    }
+
+    /**
+     * Set the form fields in the grid for creating and updating entities.<br>
+     * This method is meant to bind form fields to an <code>entity</code>
+     * provided by the method.<br>
+     * IMPORTANT: form SHOULD contain submit button generated by the method
+     * <code>generateSubmitButton()</code>
+     * @param formGrid the form grid for form fields to be placed
+     * @param entity the entity that should be binded to the form fields
+     */
+    protected abstract void setFormGrid(GridPane formGrid, T entity);
+
+    /**
+     * Set the current fetching where clause for controller to query
+     * @param whereClause
+     */
+    public void setCurrentFetchWhereClause(String whereClause) {
+        this.currentFetchWhereClause = whereClause;
+    }
+
+    /**
+     * Add a condition to a where clause
+     * @param whereClause the where clause, example: "WHERE foreign_id=1", may
+     * be empty
+     * @param condition the condition to add, example: "a.category = 1", may be
+     * empty
+     * @return the where clause with both conditions
+     */
+    protected static String combineWhereClause(String whereClause, String condition) {
+        if (condition == null || condition.length() == 0)
+            return whereClause;
+        if (whereClause == null || whereClause.trim().length() == 0)
+            return "WHERE " + condition;
+        return whereClause + " AND " + condition;
+    }
+
+    /**
+     * Fetch entity data and set it into the table view.
+     * @param whereClause the where clause on the query to perform, example: "WHERE foreign_id=1"
+     * @param entityTable the table which data should went to
+     */
+    public void fetchEntitiesToTable(MFXTableView<T> entityTable, String whereClause) {
+        fetchEntitiesToTable(entityTable, page, whereClause);
+    }
+
+    /**
+     * Fetch a page of entity data and set it into the table view. The page
+     * is taken from the page cache when it is cached, then the neighbour
+     * pages are prefetched in the background.
+     * @param entityTable the table which data should went to
+     * @param page the page to fetch
+     * @param whereClause the where clause on the query to perform, example: "WHERE foreign_id=1"
+     */
+    public void fetchEntitiesToTable(MFXTableView<T> entityTable, Pagination page, String whereClause) {
+        TableFetchEvent event = new TableFetchEvent();
+        event.begin();
+        String key = PageCache.key(page, whereClause);
+        PageCache.Page<T> fetchedPage = pageCache.get(key);
+        event.cached = fetchedPage != null;
+        if (fetchedPage == null) {
+            try {
+                // Joins the fetch of the same page when it is already running
+                long generation = pageCache.getGeneration();
+                Pagination requestPage = page.copy();
+                fetchedPage = pageFetches
+                        .submit(key, Runnable::run, () -> fetchPage(requestPage, whereClause, generation))
+                        .get();
+            } catch (InterruptedException | ExecutionException | CancellationException e) {
+                System.out.println("Exception caught in AbstractController.fetchEntitiesToTable(): " + e.toString());
+            }
+            if (fetchedPage == null)
+                return;
+        }
+
+        showPage(entityTable, page, fetchedPage, whereClause);
+        event.end();
+        if (event.shouldCommit()) {
+            event.controller = getClass().getSimpleName();
+            event.pageNumber = page.getPageNumber();
+            event.recordsPerPage = page.getRecordsPerPage();
+            event.rows = fetchedPage.getEntities().size();
+            event.commit();
+        }
+    }
+
+    /**
+     * Set a fetched page into the table and prefetch its neighbour pages
+     * @param entityTable the table which data should went to
+     * @param page the pagination of the table
+     * @param fetchedPage the fetched page
+     * @param whereClause the where clause of the fetch
+     */
+    private void showPage(MFXTableView<T> entityTable, Pagination page, PageCache.Page<T> fetchedPage, String whereClause) {
+        page.setTotalRecords(fetchedPage.getTotalRecords());
+        patchTableItems(entityTable, fetchedPage.getEntities());
+        prefetchNeighbourPages(page, whereClause);
+    }
+
+    /**
+     * Fetch a page and store it into the page cache
+     * @param page the page to fetch, it should not be used by a table as the
+     * total records are set into it
+     * @param whereClause the where clause of the fetch
+     * @param generation the generation of the page cache when the fetch is
+     * requested
+     * @return the fetched page, or <code>null</code> if the fetch failed
+     */
+    private PageCache.Page<T> fetchPage(Pagination page, String whereClause, long generation) throws SQLException {
+        List<T> entities = ClinicConnection.readFromReplica(() -> fetchEntities(page, whereClause));
+        if (entities == null)
+            return null;
+        PageCache.Page<T> fetchedPage = new PageCache.Page<>(entities, page.getTotalRecords());
+        pageCache.put(PageCache.key(page, whereClause), fetchedPage, generation);
+        return fetchedPage;
+    }
+
+    /**
+     * Query the entities of a page to display in the table. Override this
+     * method when the table needs joined entities.<br>
+     * This method is also called from the database executor to prefetch
+     * pages, so it should not touch the scene graph. Its reads may go to the
+     * read replica.
+     * @param page the page to fetch, the total records should be set into it
+     * @param whereClause the where clause on the query to perform, example: "WHERE foreign_id=1"
+     * @return the entities of the page
+     */
+    protected List<T> fetchEntities(Pagination page, String whereClause) throws SQLException {
+        return repo.get(page, whereClause);
+    }
+
+    /**
+     * Fetch the first page of the main table into the page cache using the
+     * database executor, so the main scene shows it at once when it is built
+     * @return the future of the fetched page
+     */
+    public CompletableFuture<PageCache.Page<T>> preloadFirstPage() {
+        Pagination firstPage = page.copy().setPageNumber(1);
+        String whereClause = currentFetchWhereClause;
+        String key = PageCache.key(firstPage, whereClause);
+        PageCache.Page<T> cachedPage = pageCache.get(key);
+        if (cachedPage != null)
+            return CompletableFuture.completedFuture(cachedPage);
+
+        long generation = pageCache.getGeneration();
+        return pageFetches.submit(key, getLane(),
+                () -> fetchPage(firstPage, whereClause, generation));
+    }
+
+    /**
+     * Fetch the pages next to <code>page</code> into the page cache using
+     * the database executor
+     * @param page the displayed page
+     * @param whereClause the where clause of the displayed page
+     */
+    private void prefetchNeighbourPages(Pagination page, String whereClause) {
+        int recordsPerPage = page.getRecordsPerPage() != 0 ? page.getRecordsPerPage() : 10;
+        int maxPage = (page.getTotalRecords() + recordsPerPage - 1) / recordsPerPage;
+        int pageNumber = page.getPageNumber() != 0 ? page.getPageNumber() : 1;
+        List<Pagination> neighbours = new ArrayList<>();
+        for (int distance = 1; distance <= PREFETCH_DISTANCE; distance++) {
+            for (int neighbourNumber : new int[] { pageNumber + distance, pageNumber - distance }) {
+                if (neighbourNumber < 1 || neighbourNumber > maxPage)
+                    continue;
+                Pagination neighbour = page.copy().setPageNumber(neighbourNumber);
+                String key = PageCache.key(neighbour, whereClause);
+                if (!pageCache.contains(key) && pageFetches.get(key) == null)
+                    neighbours.add(neighbour);
+            }
+        }
+
+        long generation = pageCache.getGeneration();
+        for (Pagination neighbour : neighbours) {
+            pageFetches.submit(PageCache.key(neighbour, whereClause), getLane(),
+                    () -> fetchPage(neighbour, whereClause, generation))
+                    .exceptionally(e -> {
+                        System.out.println("Exception caught in AbstractController.prefetchNeighbourPages(): " + e.toString());
+                        return null;
+                    });
+        }
+    }
+
+    /**
+     * Apply the difference between the table items and the fetched entities
+     * to the items list of the table. Rows are matched by entity id and a row
+     * is only replaced when its <code>contentHash()</code> changed, so the
+     * selection and the rows that did not change are kept.
+     * @param entityTable the table to be patched
+     * @param entities the fetched entities, in display order
+     */
+    protected void patchTableItems(MFXTableView<T> entityTable, List<T> entities) {
+        ObservableList<T> items = entityTable.getItems();
+        if (items == null) {
+            entityTable.setItems(FXCollections.observableArrayList(entities));
+            entityTable.autosize();
+            return;
+        }
+        if (items.isEmpty()) {
+            items.setAll(entities);
+            entityTable.autosize();
+            return;
+        }
+
+        Set<Integer> fetchedIds = new HashSet<>();
+        for (T entity : entities)
+            fetchedIds.add(entity.getId());
+        items.removeIf(item -> !fetchedIds.contains(item.getId()));
+
+        Map<Integer, T> currentItems = new HashMap<>();
+        for (T item : items)
+            currentItems.put(item.getId(), item);
+
+        for (int i = 0; i < entities.size(); i++) {
+            T entity = entities.get(i);
+            T current = i < items.size() ? items.get(i) : null;
+            if (current != null && current.getId().equals(entity.getId())) {
+                if (current.contentHash() != entity.contentHash())
+                    items.set(i, entity);
+            } else if (currentItems.containsKey(entity.getId())) {
+                items.remove(currentItems.get(entity.getId()));
+                items.add(i, entity);
+            } else {
+                items.add(i, entity);
+            }
+        }
+        if (items.size() > entities.size())
+            items.remove(entities.size(), items.size());
+    }
+
+    /**
+     * Fetch entity data and set it into the table view.
+     * @param entityTable the table which data should went to
+     */
+    public void fetchEntitiesToTable(MFXTableView<T> entityTable) {
+        fetchEntitiesToTable(entityTable, "");
+    }
+
+    /**
+     * Fetch entity data and set it into the table view. Nothing is fetched
+     * when the main scene is not built, it fetches its data when it is built.
+     */
+    public void fetchEntitiesToTable() {
+        MainView view = mainView.get();
+        if (view == null)
+            return;
+        view.search.cancelPendingFetch();
+        fetchEntitiesToTable(view.entityTable, view.search.getWhereClause());
+    }
+
+    /**
+     * Show a table and a pick button to pick an entity from the table
+     * @param whereClause the where clause to apply to the query
+     * @return the selected entity
+     */
+    public T pickEntity(String whereClause) {
+        PickEntityEvent pickEvent = new PickEntityEvent();
+        pickEvent.begin();
+        UiActions.begin(getClass().getSimpleName() + " pick");
+        ObjectProperty<T> selectedItemProperty = new SimpleObjectProperty<>();
+        VBox pickLayout = new VBox();
+        pickLayout.setAlignment(Pos.TOP_LEFT);
+        pickLayout.setSpacing(10.0);
+        pickLayout.setPadding(new Insets(20));
+
+        MFXButton pickButton = new MFXButton("Pick");
+        pickButton.disableProperty().bind(selectedItemProperty.isNull());
+
+        MFXTableView<T> pickTable = new MFXTableView<>();
+        Pagination pickPage = new Pagination();
+        MFXPagination pickPagination = new MFXPagination();
+        MFXTextField pickSearchField = new MFXTextField();
+        TableSearch pickSearch = new TableSearch(pickTable, pickPage, () -> whereClause, pickSearchField, null);
+
+        initTableViewSchema(pickTable);
+        bindPagination(pickPage, pickPagination, pickSearch);
+        fetchEntitiesToTable(pickTable, pickPage, whereClause);
+        bindTableToSingleSelectedItemProperty(pickTable, selectedItemProperty);
+        HBox pickToolbar = new HBox();
+        pickToolbar.setSpacing(5.0);
+        pickToolbar.getChildren().addAll(pickButton, pickSearchField);
+        pickLayout.getChildren().addAll(
+                pickToolbar,
+                pickTable,
+                pickPagination);
+        Scene pickScene = new Scene(pickLayout);
+        Stage pickStage = new Stage();
+        pickButton.setOnAction((event) -> {
+            T selectedItem = selectedItemProperty.get();
+            pickResult = selectedItem;
+            pickStage.close();
+        });
+        pickStage.setTitle("Pick " + entityClass.getSimpleName());
+        pickStage.setScene(pickScene);
+        pickEvent.end();
+        if (pickEvent.shouldCommit()) {
+            pickEvent.controller = getClass().getSimpleName();
+            pickEvent.pageNumber = pickPage.getPageNumber();
+            pickEvent.recordsPerPage = pickPage.getRecordsPerPage();
+            pickEvent.commit();
+        }
+        pickStage.showAndWait();
+        pickSearch.stop();
+        return pickResult;
+    }
+
+    /**
+     * Show a table and a pick button to pick an entity from the table
+     */
+    public T pickEntity() {
+        return pickEntity("");
+    }
+
+    /**
+     * Get the main CRUD scene of the controller, building it if it is not
+     * built yet. <br>
+     * A newly built scene fetches its entity data in the background, an
+     * existing one is refreshed with <code>fetchEntitiesToTable()</code>
+     * @return scene containing table view and button actions
+     */
+    public Scene getMainScene() {
+        return getMainView().scene;
+    }
+
+    /**
+     * Get the table of the main scene, building the scene if it is not built
+     * yet
+     */
+    public MFXTableView<T> getEntityTable() {
+        return getMainView().entityTable;
+    }
+
+    /**
+     * Get the view of the main scene, the view is built if it has not been
+     * built or if it has been released
+     */
+    private MainView getMainView() {
+        MainView view = mainView.get();
+        if (view == null) {
+            view = new MainView();
+            mainView = new SoftReference<>(view);
+            view.search.fetch();
+        }
+        return view;
+    }
+
+    /**
+     * Show a stage to create an entity
+     */
+    public void showCreateForm() {
+        showForm(CREATE_ACTION);
+    }
+
+    /**
+     * Show a stage to update an entity
+     */
+    public void showUpdateForm() {
+        showForm(UPDATE_ACTION);
+    }
+
+    /**
+     * Show a confirmation dialog to delete an entity
+     */
+    public void showDeleteForm() {
+        Alert confirmation = new Alert(Alert.AlertType.CONFIRMATION, "Delete data?");
+        confirmation.showAndWait();
+        if (confirmation.getResult() == ButtonType.OK) {
+            actEntity(selectedItemProperty.get(), DELETE_ACTION);
+            fetchEntitiesToTable();
+        }
+    }
+
+    /**
+     * Initializes new grid object and show a stage to do entity creation
+     * or update.
+     * @param action <code>CREATE_ACTION</code> or <code>UPDATE_ACTION</code>
+     */
+    private void showForm(int action) {
+        UiActions.begin(getClass().getSimpleName() + (action == CREATE_ACTION ? " create" : " update") + " form");
+        initFormGrid();
+        T entity = action == CREATE_ACTION
+                ? getNewEntityInstance(null)
+                : getCopyOfSelectedItem();
+        setFormGrid(formGrid, entity);
+        if (!childControllers.isEmpty())
+            for (Class<? extends AbstractCrudController<?, ?>> controllerClass : childControllers) {
+                AbstractCrudController<?, ?> controller = CrudControllerFactory.getController(controllerClass);
+                if (entity.getId() != null)
+                    controller.setCurrentFetchWhereClause("WHERE " +
+                            AbstractEntityRepository
+                                    .normalizeFieldName(entityClass.getSimpleName())
+                            + "_id=" + entity.getId());
+                controller.fetchEntitiesToTable();
+            }
+        MFXScrollPane scrollPane = new MFXScrollPane(formGrid); // Veronica
+        scrollPane.setPrefHeight(500);
+        Stage formStage = new Stage();
+        formStage.setScene(new Scene(scrollPane));
+        formStage.setTitle(action == CREATE_ACTION ? "Create "
+                : "Update " +
+                        entityClass.getSimpleName());
+        formStage.showAndWait();
+    }
+
+    /**
+     * Generates a button that handle form submission
+     * @param text text to be displayed on the button
+     * @param entity the entity that should be created or updated
+     * @return <code>MFXButton</code> that has handler that handles form submission
+     */
+    protected MFXButton generateSubmitButton(String text, T entity) {
+        MFXButton submitButton = new MFXButton();
+        submitButton.setText(text);
+        submitButton.setOnAction((event) -> {
+            int action = entity.getId() != 0 ? UPDATE_ACTION : CREATE_ACTION;
+            actEntity(entity, action);
+            Stage stage = (Stage) submitButton.getScene().getWindow();
+            stage.close();
+            fetchEntitiesToTable();
+        });
+        return submitButton;
+    }
+
+    /**
+     * Do database operation on an entity
+     * @param entity entity to be acted upon
+     * @param action <code>CREATE_ACTION</code> or <code>UPDATE_ACTION</code> or <code>DELETE_ACTION</code>
+     */
+    protected void actEntity(T entity, int action) {
+        try {
+            if (action == CREATE_ACTION)
+                repo.create(entity);
+            else if (action == UPDATE_ACTION)
+                repo.edit(entity);
+            else if (action == DELETE_ACTION)
+                repo.delete(entity.getId());
+            else
+                System.out.println("AbstractController.actEntity(): Invalid action");
+        } catch (SQLException e) {
+            System.out.println("Exception caught in AbstractController.actEntity(): " + e.toString());
+        }
+    }
+
+    /**
+     * Switch how the entities are listed in the main scene.<br>
+     * <code>PAGED_MODE</code> shows a page of entities with a pagination,
+     * <code>SCROLL_MODE</code> shows every entity in a virtualized table that
+     * loads blocks of entities as they are scrolled into view.
+     * @param mode <code>PAGED_MODE</code> or <code>SCROLL_MODE</code>
+     */
+    public void setListingMode(int mode) {
+        getMainView().setListingMode(mode);
+    }
+
+    public int getListingMode() {
+        MainView view = mainView.get();
+        return view != null ? view.listingMode : PAGED_MODE;
+    }
+
+    /**
+     * Initialize a <code>MFXTableView</code> columns
+     * @param entityTable the table to be initialized
+     */
+    protected abstract void initTableViewSchema(MFXTableView<T> entityTable);
+
+    /**
+     * Add a column to the current table using property of entity
+     * @param columnLabel the label to display in the table heading
+     * @param tableColumnKey the column key for the <code>PropertyValueFactory</code>
+     * @param prefWidth the prefWidth of the table column
+     */
+    protected void addTableColumn(MFXTableView<T> entityTable, String columnLabel, Function<T, Serializable> extractor) {
+        MFXTableColumn<T> tableColumn = new MFXTableColumn<>(columnLabel);
+        tableColumn.setRowCellFactory(entity -> new MFXTableRowCell<>(extractor));
+        tableColumn.setColumnResizable(true);
+        entityTable.getTableColumns().add(tableColumn);
+        columnExtractors.putIfAbsent(columnLabel, extractor);
+    }
+
+    protected <C> void addTableColumn(MFXTableView<T> entityTable, String columnLabel, Function<T, C> childExtractor, Function<C, Serializable> extractor) {
+        MFXTableColumn<T> tableColumn = new MFXTableColumn<>(columnLabel);
+        tableColumn.setRowCellFactory(entity -> new MFXTableRowCell<>(childExtractor.andThen((t) -> extractor.apply(t))));
+        tableColumn.setColumnResizable(true);
+        entityTable.getTableColumns().add(tableColumn);
+        columnExtractors.putIfAbsent(columnLabel, childExtractor.andThen((t) -> extractor.apply(t)));
+    }
+
+    /**
+     * Get copy of selected item in the table.
+     * @return new identical entity object with the selected item.
+     */
+    private T getCopyOfSelectedItem() {
+        T selectedItem = selectedItemProperty.get();
+        try {
+            return entityClass
+                    .getConstructor(Integer.class)
+                    .newInstance(selectedItem.getId())
+                    .copy(selectedItem);
+        } catch (Exception e) {
+            System.out.println("Exception caught in AbstractCrudController.getCopyOfSelectedItem(): " + e.toString());
+        }
+        return null;
+    }
+
+    /**
+     * Generates new entity instance
+     * @param id id of entity
+     */
+    private T getNewEntityInstance(Integer id) {
+        try {
+            return entityClass.getConstructor(Integer.class).newInstance(id);
+        } catch (Exception e) {
+            System.out.println("Exception caught in AbstractCrudController.getNewEntityInstance(): " + e.toString());
+        }
+        return null;
+    }
+
+    /**
+     * Set form grid alignments and spaces.
+     */
+    private void initFormGrid() {
+        formGrid = new GridPane();
+    }
+
+    /**
+     * Get the execution lane running the queries of this controller, by
+     * default the lane of its module
+     */
+    protected ExecutionLane getLane() {
+        return ExecutionLane.forPackage(getClass().getPackageName());
+    }
+
+    /**
+     * Get class of the entity for picking entity purpose
+     */
+    public Class<T> getEntityClass() {
+        return entityClass;
+    }
+
+    /**
+     * Get repository of the entity
+     */
+    public S getRepo() {
+        return repo;
+    }
+
+    /**
+     * The search of a table. Typing in the search field is debounced, then
+     * the page is fetched on the database executor. A newer fetch of the
+     * table abandons the previous one, which query is cancelled unless the
+     * same page is also requested elsewhere.
+     */
+    private class TableSearch {
+        private final MFXTableView<T> table;
+        private final Pagination page;
+        private final Supplier<String> baseWhereClause;
+        private final PauseTransition debounce = new PauseTransition(Duration.millis(SEARCH_DEBOUNCE_MILLIS));
+        private final MainView owner;
+        private String word = "";
+        private String pendingKey;
+        private CompletableFuture<PageCache.Page<T>> pendingFetch;
+
+        /**
+         * @param table the searched table
+         * @param page the pagination of the table
+         * @param baseWhereClause the where clause of the table without the
+         * search
+         * @param searchField the field to type the searched word in
+         * @param owner the main view of the table, <code>null</code> for a
+         * pick table
+         */
+        private TableSearch(MFXTableView<T> table, Pagination page, Supplier<String> baseWhereClause,
+                MFXTextField searchField, MainView owner) {
+            this.table = table;
+            this.owner = owner;
+            this.page = page;
+            this.baseWhereClause = baseWhereClause;
+            searchField.setPromptText("Search");
+            searchField.setPrefWidth(200);
+            searchField.textProperty().addListener((obs, oldValue, newValue) -> debounce.playFromStart());
+            debounce.setOnFinished(event -> search(searchField.getText()));
+        }
+
+        /**
+         * Get the where clause of the table with the search condition
+         */
+        private String getWhereClause() {
+            return combineWhereClause(baseWhereClause.get(), repo.searchCondition(word));
+        }
+
+        private void search(String word) {
+            word = word == null ? "" : word.trim();
+            if (word.equals(this.word))
+                return;
+
+            this.word = word;
+            if (owner != null && owner.listingMode == SCROLL_MODE) {
+                owner.resetScrollItems();
+                return;
+            }
+            if (page.getPageNumber() > 1)
+                page.setPageNumber(1);
+            else
+                fetch();
+        }
+
+        /**
+         * Fetch the current page of the table in the background, the page is
+         * shown at once when it is cached
+         */
+        private void fetch() {
+            cancelPendingFetch();
+            String whereClause = getWhereClause();
+            String key = PageCache.key(page, whereClause);
+            PageCache.Page<T> cachedPage = pageCache.get(key);
+            if (cachedPage != null) {
+                showPage(table, page, cachedPage, whereClause);
+                return;
+            }
+
+            long generation = pageCache.getGeneration();
+            Pagination requestPage = page.copy();
+            CompletableFuture<PageCache.Page<T>> fetch = pageFetches.submit(key, getLane(),
+                    () -> fetchPage(requestPage, whereClause, generation));
+            pendingKey = key;
+            pendingFetch = fetch;
+            fetch.whenComplete((fetchedPage, e) -> Platform.runLater(() -> {
+                if (fetch != pendingFetch)
+                    return;
+                pendingFetch = null;
+                if (e != null)
+                    System.out.println("Exception caught in AbstractController.TableSearch.fetch(): " + e.toString());
+                else if (fetchedPage != null)
+                    showPage(table, page, fetchedPage, whereClause);
+            }));
+        }
+
+        private void cancelPendingFetch() {
+            if (pendingFetch == null)
+                return;
+            pageFetches.abandon(pendingKey, pendingFetch);
+            pendingFetch = null;
+        }
+
+        /**
+         * Stop the search when the table is not displayed anymore
+         */
+        private void stop() {
+            debounce.stop();
+            cancelPendingFetch();
+        }
+    }
+
+    /**
+     * The nodes of the main scene. The root of the scene holds the view, so
+     * the view stays in memory while the scene is displayed.
+     */
+    private class MainView {
+        private final MFXTableView<T> entityTable = new MFXTableView<>();
+        private final MFXPagination pagination = new MFXPagination();
+        private final MFXTextField searchField = new MFXTextField();
+        private final MFXButton listingModeButton = new MFXButton("Scroll view");
+        private final TableSearch search;
+        private final VBox layout = new VBox();
+        private final MFXScrollPane entityTablePane;
+        private final Scene scene;
+        private TableView<T> scrollTable;
+        private LazyEntityList<T> scrollItems;
+        private int listingMode = PAGED_MODE;
+
+        /**
+         * Initialize main scene which configures button and adds them along
+         * with table view.
+         */
+        private MainView() {
+            search = new TableSearch(entityTable, page, () -> currentFetchWhereClause, searchField, this);
+            initTableViewSchema(entityTable);
+            entityTable.getSelectionModel().setAllowsMultipleSelection(true);
+            bindTableToSingleSelectedItemProperty(entityTable, selectedItemProperty);
+            bindPagination(page, pagination, search);
+            // Leaving the screen cancels the fetch it is waiting for
+            layout.parentProperty().addListener((obs, oldParent, newParent) -> {
+                if (oldParent != null && newParent == null)
+                    search.stop();
+            });
+
+            MFXButton createButton = new MFXButton("Create");
+            MFXButton updateButton = new MFXButton("Update");
+            MFXButton deleteButton = new MFXButton("Delete");
+            MFXButton refreshButton = new MFXButton("Refresh");
+            createButton.setOnAction(event -> showCreateForm());
+            updateButton.setOnAction(event -> showUpdateForm());
+            deleteButton.setOnAction(event -> showDeleteForm());
+            refreshButton.setOnAction(event -> {
+                // Also drops the pages of the writes of other workstations
+                ResultCache.invalidateAll();
+                pageCache.invalidate();
+                if (listingMode == SCROLL_MODE)
+                    scrollItems.refresh();
+                else
+                    fetchEntitiesToTable();
+            });
+            listingModeButton.setOnAction(event -> setListingMode(listingMode == PAGED_MODE ? SCROLL_MODE : PAGED_MODE));
+
+            updateButton.disableProperty().bind(selectedItemProperty.isNull());
+            deleteButton.disableProperty().bind(selectedItemProperty.isNull());
+
+            HBox buttonLayout = new HBox();
+            buttonLayout.setSpacing(5.0);
+            buttonLayout.getChildren().addAll(createButton, updateButton, deleteButton, refreshButton, listingModeButton, searchField);
+
+            layout.setAlignment(Pos.BASELINE_LEFT);
+            layout.setSpacing(10.0);
+            layout.setPadding(new Insets(20));
+            entityTable.setPrefHeight(425);
+            entityTable.setPrefWidth(700);
+            entityTable.autosize();
+            Label label = new Label(sceneTitle);
+            label.setMaxWidth(Double.MAX_VALUE);
+            AnchorPane.setLeftAnchor(label, 0.0);
+            AnchorPane.setRightAnchor(label, 0.0);
+            label.setAlignment(Pos.CENTER);
+            label.setStyle("-fx-font-weight: bold");
+
+            entityTablePane = new MFXScrollPane(entityTable);
+            entityTablePane.setPrefHeight(427);
+            layout.getChildren().addAll(
+                    label,
+                    buttonLayout,
+                    entityTablePane,
+                    pagination);
+            layout.getProperties().put(MainView.class, this);
+            scene = new Scene(layout);
+        }
+
+        private void setListingMode(int mode) {
+            if (mode == listingMode)
+                return;
+
+            listingMode = mode;
+            int tableIndex = layout.getChildren().indexOf(mode == SCROLL_MODE ? entityTablePane : scrollTable);
+            if (mode == SCROLL_MODE) {
+                if (scrollTable == null)
+                    initScrollTable();
+                search.cancelPendingFetch();
+                resetScrollItems();
+                layout.getChildren().set(tableIndex, scrollTable);
+                layout.getChildren().remove(pagination);
+                listingModeButton.setText("Page view");
+            } else {
+                scrollTable.setItems(null);
+                scrollItems = null;
+                layout.getChildren().set(tableIndex, entityTablePane);
+                layout.getChildren().add(pagination);
+                listingModeButton.setText("Scroll view");
+                fetchEntitiesToTable();
+            }
+            selectedItemProperty.set(null);
+        }
+
+        /**
+         * Set new lazy items into the scroll table, loading the entities that
+         * match the current where clause and search
+         */
+        private void resetScrollItems() {
+            String whereClause = search.getWhereClause();
+            String sortBy = page.getSortBy();
+            String sortOrder = page.getSortOrder();
+            scrollItems = new LazyEntityList<>(SCROLL_BLOCK_SIZE, SCROLL_MAX_BLOCKS, (blockNumber, blockSize) -> {
+                Pagination block = new Pagination()
+                        .setRecordsPerPage(blockSize)
+                        .setPageNumber(blockNumber + 1)
+                        .setSortBy(sortBy)
+                        .setSortOrder(sortOrder);
+                List<T> entities = ClinicConnection.readFromReplica(() -> fetchEntities(block, whereClause));
+                return entities == null ? null : new PageCache.Page<>(entities, block.getTotalRecords());
+            }, getLane());
+            scrollTable.setItems(scrollItems);
+        }
+
+        /**
+         * Initialize the virtualized table of the scroll listing mode using
+         * the columns of the main table
+         */
+        private void initScrollTable() {
+            scrollTable = new TableView<>();
+            scrollTable.setPrefHeight(427);
+            scrollTable.setPrefWidth(700);
+            for (Map.Entry<String, Function<T, ?>> column : columnExtractors.entrySet()) {
+                TableColumn<T, Object> tableColumn = new TableColumn<>(column.getKey());
+                Function<T, ?> extractor = column.getValue();
+                tableColumn.setCellValueFactory(cell -> new SimpleObjectProperty<>(
+                        cell.getValue() == null ? null : extractor.apply(cell.getValue())));
+                tableColumn.setSortable(false);
+                scrollTable.getColumns().add(tableColumn);
+            }
+            scrollTable.getSelectionModel().selectedItemProperty().addListener((obs, oldValue, newValue) -> {
+                selectedItemProperty.setValue(newValue);
+            });
+        }
+    }
+}
@@ -0,0 +1,296 @@
+package com.clinic.fx.diagnostics;
+
+import java.io.File;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.FileHandler;
+import java.util.logging.Formatter;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+import com.clinic.ClinicConnection;
+import com.clinic.stats.QueryShape;
+
+import javafx.application.Platform;
+
+/**
+ * Detects the JavaFX Application Thread not answering for longer than a
+ * threshold and finds out what it was doing.<br>
+ * Every <code>SAMPLE_MILLIS</code> a heartbeat is posted to the thread with
+ * <code>Platform.runLater()</code>. When a heartbeat is late beyond the
+ * threshold the thread is stalled, and its stack is sampled until it answers.
+ * The stall is attributed to the <code>UiActions</code> action, the query the
+ * thread was waiting for and the clinic method blocking it, and written with
+ * the count of the same stall to a rolling log.<br>
+ * The threshold in milliseconds is set by <code>clinic.stall.thresholdMillis</code>
+ * (500 by default), the log is <code>~/.clinic/stalls.N.log</code> unless
+ * <code>clinic.stall.log</code> is set.
+ *
+ * @author Jose Ryu Leonesta <jose.leonesta@student.matanauniversity.ac.id>
+ */
+public class StallWatchdog {
+    public final static int SAMPLE_MILLIS = 100;
+    public final static int THRESHOLD_MILLIS = Integer.getInteger("clinic.stall.thresholdMillis", 500);
+    public final static int LOG_FILE_BYTES = 1024 * 1024, LOG_FILES = 5;
+    public final static int STACK_DEPTH = 40;
+
+    private static Logger log = Logger.getLogger("com.clinic.fx.stalls");
+    private static Map<String, StallStats> stalls = new ConcurrentHashMap<>();
+    private static Thread fxThread;
+    private static Thread watchdog;
+
+    private static volatile boolean beatPending = false;
+    private static volatile long beatPostedAt;
+    private static volatile long beatAnsweredAt;
+
+    /**
+     * Start watching the JavaFX Application Thread, this should be called
+     * from it
+     */
+    public static synchronized void start() {
+        if (watchdog != null)
+            return;
+
+        fxThread = Thread.currentThread();
+        openLog();
+        UiActions.install();
+        watchdog = new Thread(StallWatchdog::watch, "clinic-stall-watchdog");
+        watchdog.setDaemon(true);
+        watchdog.start();
+    }
+
+    /**
+     * Stop watching and write the stalls ranked by total time to the log
+     */
+    public static synchronized void stop() {
+        if (watchdog == null)
+            return;
+
+        watchdog.interrupt();
+        watchdog = null;
+        if (!stalls.isEmpty())
+            log.info("Stalls ranked by total time:" + System.lineSeparator() + report(20));
+    }
+
+    /**
+     * Get the stalls with the highest total time
+     * @param count the number of stalls to return
+     */
+    public static List<StallStats> top(int count) {
+        List<StallStats> result = new ArrayList<>(stalls.values());
+        result.sort(Comparator.comparingLong(StallStats::getTotalMillis).reversed());
+        return new ArrayList<>(result.subList(0, Math.min(count, result.size())));
+    }
+
+    /**
+     * Format the stalls with the highest total time as a text table
+     * @param count the number of stalls
+     */
+    public static String report(int count) {
+        StringBuilder report = new StringBuilder(String.format("%10s %6s %8s  %s%n",
+                "total ms", "count", "max ms", "action / blocked at / query"));
+        for (StallStats stats : top(count)) {
+            report.append(String.format("%10d %6d %8d  %s / %s / %s%n", stats.getTotalMillis(), stats.getCount(),
+                    stats.getMaxMillis(), stats.getAction(), stats.getBlockedAt(), stats.getQueryShape()));
+        }
+        return report.toString();
+    }
+
+    private static void watch() {
+        Stall stall = null;
+        while (true) {
+            try {
+                Thread.sleep(SAMPLE_MILLIS);
+            } catch (InterruptedException e) {
+                return;
+            }
+
+            long now = System.nanoTime();
+            if (!beatPending) {
+                if (stall != null) {
+                    record(stall, TimeUnit.NANOSECONDS.toMillis(beatAnsweredAt - beatPostedAt));
+                    stall = null;
+                }
+                beatPending = true;
+                beatPostedAt = now;
+                Platform.runLater(() -> {
+                    beatAnsweredAt = System.nanoTime();
+                    beatPending = false;
+                });
+            } else if (TimeUnit.NANOSECONDS.toMillis(now - beatPostedAt) >= THRESHOLD_MILLIS) {
+                if (stall == null)
+                    stall = new Stall(UiActions.current());
+                stall.sample(fxThread.getStackTrace(), runningQuery());
+            }
+        }
+    }
+
+    /**
+     * Get the query the JavaFX Application Thread waits for, either run by
+     * itself or by another thread it may be waiting on
+     */
+    private static String runningQuery() {
+        Map<Thread, String> queries = ClinicConnection.getRunningQueries();
+        String query = queries.get(fxThread);
+        if (query == null && !queries.isEmpty())
+            query = queries.values().iterator().next();
+        return query;
+    }
+
+    private static void record(Stall stall, long millis) {
+        String[] blocking = stall.getBlocking();
+        String blockedAt = blocking[0];
+        String queryShape = blocking[1] != null ? QueryShape.normalize(blocking[1]) : "-";
+        StallStats stats = stalls.computeIfAbsent(stall.action + '\0' + blockedAt + '\0' + queryShape,
+                (key) -> new StallStats(stall.action, blockedAt, queryShape));
+        stats.add(millis);
+
+        StringBuilder message = new StringBuilder(String.format(
+                "UI stall of %d ms (%d times, %d ms in total) in %s%n  blocked at %s%n  query %s%n",
+                millis, stats.getCount(), stats.getTotalMillis(), stall.action, blockedAt,
+                blocking[1] != null ? blocking[1] : "-"));
+        for (StackTraceElement frame : stall.getStack())
+            message.append("    at ").append(frame).append('\n');
+        log.warning(message.toString());
+    }
+
+    private static void openLog() {
+        log.setUseParentHandlers(false);
+        String pattern = System.getProperty("clinic.stall.log",
+                System.getProperty("user.home") + File.separator + ".clinic" + File.separator + "stalls.%g.log");
+        try {
+            File directory = new File(pattern).getParentFile();
+            if (directory != null)
+                directory.mkdirs();
+            FileHandler handler = new FileHandler(pattern, LOG_FILE_BYTES, LOG_FILES, true);
+            handler.setFormatter(new Formatter() {
+                private DateTimeFormatter timeFormatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSS");
+
+                @Override
+                public String format(LogRecord record) {
+                    return timeFormatter.format(LocalDateTime.now()) + " " + record.getLevel() + " "
+                            + record.getMessage() + System.lineSeparator();
+                }
+            });
+            log.addHandler(handler);
+        } catch (IOException e) {
+            System.out.println("Exception caught in StallWatchdog.openLog(): " + e.toString());
+            log.setLevel(Level.OFF);
+        }
+    }
+
+    /**
+     * The samples of one stall in progress
+     */
+    private static class Stall {
+        private String action;
+        private Map<String, Integer> frameSamples = new HashMap<>();
+        private Map<String, StackTraceElement[]> frameStacks = new HashMap<>();
+        private Map<String, String> frameQueries = new HashMap<>();
+
+        private Stall(String action) {
+            this.action = action;
+        }
+
+        /**
+         * Add a sample of the stack, grouped by the innermost clinic method
+         * on it
+         */
+        private void sample(StackTraceElement[] stack, String query) {
+            String frame = blockingFrame(stack);
+            frameSamples.merge(frame, 1, Integer::sum);
+            frameStacks.putIfAbsent(frame, stack);
+            if (query != null)
+                frameQueries.putIfAbsent(frame, query);
+        }
+
+        /**
+         * Get the method most samples were blocked at and its query
+         */
+        private String[] getBlocking() {
+            String frame = "-";
+            int samples = 0;
+            for (Map.Entry<String, Integer> entry : frameSamples.entrySet()) {
+                if (entry.getValue() > samples) {
+                    frame = entry.getKey();
+                    samples = entry.getValue();
+                }
+            }
+            return new String[] { frame, frameQueries.get(frame) };
+        }
+
+        private List<StackTraceElement> getStack() {
+            StackTraceElement[] stack = frameStacks.getOrDefault(getBlocking()[0], new StackTraceElement[0]);
+            List<StackTraceElement> frames = new ArrayList<>();
+            for (int i = 0; i < stack.length && i < STACK_DEPTH; i++)
+                frames.add(stack[i]);
+            return frames;
+        }
+
+        private static String blockingFrame(StackTraceElement[] stack) {
+            for (StackTraceElement frame : stack) {
+                if (frame.getClassName().startsWith("com.clinic.")
+                        && !frame.getClassName().startsWith("com.clinic.fx.diagnostics."))
+                    return frame.getClassName() + "." + frame.getMethodName() + ":" + frame.getLineNumber();
+            }
+            return stack.length > 0 ? stack[0].getClassName() + "." + stack[0].getMethodName() : "-";
+        }
+    }
+
+    /**
+     * The count and time of the stalls of the same action, method and query
+     */
+    public static class StallStats {
+        private String action;
+        private String blockedAt;
+        private String queryShape;
+        private long count = 0;
+        private long totalMillis = 0;
+        private long maxMillis = 0;
+
+        private StallStats(String action, String blockedAt, String queryShape) {
+            this.action = action;
+            this.blockedAt = blockedAt;
+            this.queryShape = queryShape;
+        }
+
+        private synchronized void add(long millis) {
+            count++;
+            totalMillis += millis;
+            maxMillis = Math.max(maxMillis, millis);
+        }
+
+        public String getAction() {
+            return action;
+        }
+
+        public String getBlockedAt() {
+            return blockedAt;
+        }
+
+        public String getQueryShape() {
+            return queryShape;
+        }
+
+        public synchronized long getCount() {
+            return count;
+        }
+
+        public synchronized long getTotalMillis() {
+            return totalMillis;
+        }
+
+        public synchronized long getMaxMillis() {
+            return maxMillis;
+        }
+    }
+}
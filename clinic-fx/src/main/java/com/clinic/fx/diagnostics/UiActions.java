@@ -0,0 +1,94 @@
+package com.clinic.fx.diagnostics;
+
+import com.clinic.stats.QueryScope;
+
+import javafx.collections.ListChangeListener;
+import javafx.event.ActionEvent;
+import javafx.event.EventHandler;
+import javafx.scene.Node;
+import javafx.scene.control.Labeled;
+import javafx.stage.Stage;
+import javafx.stage.Window;
+
+/**
+ * Keeps the name of the user action the JavaFX Application Thread is working
+ * on, so diagnostics can tell which button or screen caused a piece of work.
+ * <br>
+ * Every button of every window is tracked once <code>install()</code> is
+ * called, controllers name their own actions with <code>begin()</code>, for
+ * example a page flip or opening a form. Repeated queries are detected per
+ * action.
+ *
+ * @author Jose Ryu Leonesta <jose.leonesta@student.matanauniversity.ac.id>
+ */
+public class UiActions {
+    public final static String IDLE = "(idle)";
+
+    private static volatile String current = IDLE;
+    private static QueryScope scope;
+    private static volatile long startedAt = System.nanoTime();
+    private static EventHandler<ActionEvent> actionFilter = (event) -> begin(describe(event));
+
+    /**
+     * Track the buttons of every window, this should be called from the
+     * JavaFX Application Thread
+     */
+    public static void install() {
+        for (Window window : Window.getWindows())
+            window.addEventFilter(ActionEvent.ACTION, actionFilter);
+        Window.getWindows().addListener((ListChangeListener<Window>) (change) -> {
+            while (change.next()) {
+                for (Window window : change.getAddedSubList())
+                    window.addEventFilter(ActionEvent.ACTION, actionFilter);
+                for (Window window : change.getRemoved())
+                    window.removeEventFilter(ActionEvent.ACTION, actionFilter);
+            }
+        });
+    }
+
+    /**
+     * Start an action, the action lasts until the next one starts. The
+     * queries of the action are counted in a <code>QueryScope</code>, this
+     * should be called from the JavaFX Application Thread.
+     * @param action example: "MedicineStockController page 3"
+     */
+    public static void begin(String action) {
+        current = action;
+        startedAt = System.nanoTime();
+        if (scope != null)
+            scope.close();
+        scope = QueryScope.open(action);
+    }
+
+    /**
+     * Get the action the JavaFX Application Thread is working on
+     */
+    public static String current() {
+        return current;
+    }
+
+    /**
+     * Get the time the current action started, from <code>System.nanoTime()</code>
+     */
+    public static long getStartedAt() {
+        return startedAt;
+    }
+
+    private static String describe(ActionEvent event) {
+        StringBuilder action = new StringBuilder();
+        if (event.getSource() instanceof Window) {
+            Window window = (Window) event.getSource();
+            if (window instanceof Stage && ((Stage) window).getTitle() != null)
+                action.append(((Stage) window).getTitle()).append(": ");
+        }
+        Object target = event.getTarget();
+        if (target instanceof Labeled && ((Labeled) target).getText() != null
+                && !((Labeled) target).getText().isEmpty())
+            action.append('"').append(((Labeled) target).getText()).append('"');
+        else if (target instanceof Node && ((Node) target).getId() != null)
+            action.append('#').append(((Node) target).getId());
+        else
+            action.append(target.getClass().getSimpleName());
+        return action.toString();
+    }
+}
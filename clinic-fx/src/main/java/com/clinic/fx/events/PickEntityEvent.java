@@ -0,0 +1,28 @@
+package com.clinic.fx.events;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight recorder event of opening the pick dialog of a CRUD controller,
+ * until the dialog is about to be shown
+ * 
+ * @author Jose Ryu Leonesta <jose.leonesta@student.matanauniversity.ac.id>
+ */
+@Name("com.clinic.PickEntity")
+@Label("Pick Entity")
+@Category({ "Clinic", "User Interface" })
+@Description("pickEntity(): building the pick dialog and fetching its first page")
+public class PickEntityEvent extends Event {
+    @Label("Controller")
+    public String controller;
+
+    @Label("Page Number")
+    public int pageNumber;
+
+    @Label("Records Per Page")
+    public int recordsPerPage;
+}
@@ -0,0 +1,34 @@
+package com.clinic.fx.events;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight recorder event of fetching a page of a CRUD controller into a table
+ * 
+ * @author Jose Ryu Leonesta <jose.leonesta@student.matanauniversity.ac.id>
+ */
+@Name("com.clinic.TableFetch")
+@Label("Table Fetch")
+@Category({ "Clinic", "User Interface" })
+@Description("fetchEntitiesToTable(): fetching a page and showing it in a table")
+public class TableFetchEvent extends Event {
+    @Label("Controller")
+    public String controller;
+
+    @Label("Page Number")
+    public int pageNumber;
+
+    @Label("Records Per Page")
+    public int recordsPerPage;
+
+    @Label("Cached")
+    @Description("Whether the page was taken from the page cache")
+    public boolean cached;
+
+    @Label("Rows")
+    public int rows;
+}
@@ -1,15 +1,17 @@
-package com.clinic.factories;
+package com.clinic.fx.factories;
 
 import java.util.HashMap;
 import java.util.Map;
 
-import com.clinic.abstracts.AbstractCrudController;
+import com.clinic.fx.abstracts.AbstractCrudController;
 
 public class CrudControllerFactory {
     private static Map<Class<?>, AbstractCrudController<?, ?>> controllers = new HashMap<>();
 
     /**
      * Get a controller object which should extend 
+     * <code>AbstractCrudController</code>. Controllers in
+     * <code>ControllerRegistry</code> are instantiated without reflection.
      * @param theClass example: MedicineController.class
      * @return instance of a controller
      */
@@ -17,7 +19,8 @@ public class CrudControllerFactory {
     public static <T extends AbstractCrudController<?, ?>> T getController(Class<T> theClass) {
         if (!controllers.containsKey(theClass))
             try {
-                controllers.put(theClass, theClass.getConstructor().newInstance());
+                AbstractCrudController<?, ?> controller = ControllerRegistry.newController(theClass);
+                controllers.put(theClass, controller != null ? controller : theClass.getConstructor().newInstance());
             } catch (Exception e) {
                 System.out.println(
                     "Exception in CrudControllerFactory.getController(Class<T> theClass): " + e.toString());
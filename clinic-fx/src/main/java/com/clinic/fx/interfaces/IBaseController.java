@@ -1,4 +1,4 @@
-package com.clinic.interfaces;
+package com.clinic.fx.interfaces;
 
 import javafx.scene.Node;
 
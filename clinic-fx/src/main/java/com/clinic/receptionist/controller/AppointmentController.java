@@ -2,12 +2,14 @@ package com.clinic.receptionist.controller;
 
 import java.sql.SQLException;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 
-import com.clinic.abstracts.AbstractCrudController;
+import com.clinic.Pagination;
 import com.clinic.builder.GridFormBuilder;
-import com.clinic.factories.CrudControllerFactory;
 import com.clinic.factories.EntityRepositoryFactory;
+import com.clinic.fx.abstracts.AbstractCrudController;
+import com.clinic.fx.factories.CrudControllerFactory;
 import com.clinic.receptionist.domain.Appointment;
 import com.clinic.receptionist.domain.Doctor;
 import com.clinic.receptionist.domain.Patient;
@@ -16,8 +18,6 @@ import com.clinic.receptionist.repository.DoctorRepository;
 import com.clinic.receptionist.repository.PatientRepository;
 
 import io.github.palexdev.materialfx.controls.MFXTableView;
-import javafx.collections.FXCollections;
-import javafx.collections.ObservableList;
 import javafx.scene.layout.GridPane;
 
 
@@ -25,6 +25,8 @@ public class AppointmentController extends AbstractCrudController<Appointment, A
 
     public AppointmentController() {
         super(Appointment.class, AppointmentRepository.class);
+        addPageCacheDependency(EntityRepositoryFactory.getRepository(DoctorRepository.class));
+        addPageCacheDependency(EntityRepositoryFactory.getRepository(PatientRepository.class));
     }
     @Override
     protected void setFormGrid(GridPane formGrid, Appointment entity) {
@@ -44,15 +46,9 @@ public class AppointmentController extends AbstractCrudController<Appointment, A
     }
     
     @Override
-    public void fetchEntitiesToTable(MFXTableView<Appointment> entityTable, String whereClause){
-        try{
-            ObservableList<Appointment> entities;
-            entities = FXCollections.observableArrayList(repo.join(EntityRepositoryFactory.getRepository(DoctorRepository.class), 
-            EntityRepositoryFactory.getRepository(PatientRepository.class),"doctor_id", "patient_id", " WHERE category = " + 1 + " ORDER BY appointment_date_time"));
-            entityTable.setItems(entities);
-        } catch (SQLException e){
-            System.out.println("Exception caught in AbstractController.fetchEntitiesToTable(): " + e.toString());
-        }
+    protected List<Appointment> fetchEntities(Pagination page, String whereClause) throws SQLException {
+        return repo.join(EntityRepositoryFactory.getRepository(DoctorRepository.class), 
+            EntityRepositoryFactory.getRepository(PatientRepository.class),"doctor_id", "patient_id", combineWhereClause(whereClause, "a.category = " + 1) + " ORDER BY a.appointment_date_time", page);
     }
     
     @Override
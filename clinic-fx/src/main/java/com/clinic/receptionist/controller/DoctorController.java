@@ -3,9 +3,8 @@ package com.clinic.receptionist.controller;
 import java.util.LinkedHashMap;
 import java.util.Map;
 
-import com.clinic.abstracts.AbstractCrudController;
 import com.clinic.builder.GridFormBuilder;
-import com.clinic.factories.CrudControllerFactory;
+import com.clinic.fx.abstracts.AbstractCrudController;
 import com.clinic.receptionist.domain.Doctor;
 import com.clinic.receptionist.repository.DoctorRepository;
 
@@ -16,7 +15,7 @@ public class DoctorController extends AbstractCrudController<Doctor, DoctorRepos
 
     public DoctorController() {
         super(Doctor.class, DoctorRepository.class);
-        childControllers.add(CrudControllerFactory.getController(DoctorScheduleController.class));
+        childControllers.add(DoctorScheduleController.class);
     }
 
     @Override
@@ -2,26 +2,27 @@ package com.clinic.receptionist.controller;
 
 import java.sql.SQLException;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 
-import com.clinic.abstracts.AbstractCrudController;
+import com.clinic.Pagination;
 import com.clinic.builder.GridFormBuilder;
-import com.clinic.factories.CrudControllerFactory;
 import com.clinic.factories.EntityRepositoryFactory;
+import com.clinic.fx.abstracts.AbstractCrudController;
+import com.clinic.fx.factories.CrudControllerFactory;
 import com.clinic.receptionist.domain.Doctor;
 import com.clinic.receptionist.domain.DoctorSchedule;
 import com.clinic.receptionist.repository.DoctorRepository;
 import com.clinic.receptionist.repository.DoctorScheduleRepository;
 
 import io.github.palexdev.materialfx.controls.MFXTableView;
-import javafx.collections.FXCollections;
-import javafx.collections.ObservableList;
 import javafx.scene.layout.GridPane;
 
 public class DoctorScheduleController extends AbstractCrudController<DoctorSchedule, DoctorScheduleRepository>{
 
     public DoctorScheduleController() {
         super(DoctorSchedule.class, DoctorScheduleRepository.class, "Doctor Schedule");
+        addPageCacheDependency(EntityRepositoryFactory.getRepository(DoctorRepository.class));
     }
     @Override
     protected void setFormGrid(GridPane formGrid, DoctorSchedule entity) {
@@ -40,14 +41,8 @@ public class DoctorScheduleController extends AbstractCrudController<DoctorSched
             .addButton(generateSubmitButton("Submit", entity));
     }
     @Override
-    public void fetchEntitiesToTable(MFXTableView<DoctorSchedule> entityTable, String whereClause){
-        ObservableList<DoctorSchedule> entities;
-        try{
-            entities = FXCollections.observableArrayList(repo.join(EntityRepositoryFactory.getRepository(DoctorRepository.class), "doctor_id"));
-            entityTable.setItems(entities);
-        } catch (SQLException e){
-            System.out.println("Exception caught in AbstractController.fetchEntitiesToTable(): " + e.toString());
-        }
+    protected List<DoctorSchedule> fetchEntities(Pagination page, String whereClause) throws SQLException {
+        return repo.join(EntityRepositoryFactory.getRepository(DoctorRepository.class), "doctor_id", whereClause, page);
     }
 
     @Override
@@ -3,8 +3,8 @@ package com.clinic.receptionist.controller;
 import java.util.LinkedHashMap;
 import java.util.Map;
 
-import com.clinic.abstracts.AbstractCrudController;
 import com.clinic.builder.GridFormBuilder;
+import com.clinic.fx.abstracts.AbstractCrudController;
 import com.clinic.receptionist.domain.Patient;
 import com.clinic.receptionist.repository.PatientRepository;
 
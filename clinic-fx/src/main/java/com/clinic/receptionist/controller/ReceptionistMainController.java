@@ -0,0 +1,49 @@
+package com.clinic.receptionist.controller;
+
+import java.io.IOException;
+
+import com.clinic.fx.abstracts.AbstractCrudController;
+import com.clinic.fx.factories.CrudControllerFactory;
+
+import javafx.scene.Scene;
+import javafx.scene.control.Tab;
+import javafx.scene.control.TabPane;
+import javafx.scene.control.TabPane.TabClosingPolicy;
+import javafx.stage.Stage;
+
+public class ReceptionistMainController {
+    public void start(Stage stage) throws IOException{        
+        TabPane tabPane = new TabPane();
+        tabPane.setTabClosingPolicy(TabClosingPolicy.UNAVAILABLE);
+        tabPane.getTabs().addAll(
+            createLazyTab("Appointment", AppointmentController.class),
+            createLazyTab("Queue", QueueController.class),
+            createLazyTab("Control", ControlController.class),
+            createLazyTab("Doctor", DoctorController.class),
+            createLazyTab("Patient", PatientController.class),
+            createLazyTab("Doctor Schedule", DoctorScheduleController.class));
+        
+        stage.setTitle("Receptionist");
+        stage.setScene(new Scene(tabPane, 1250, 600));
+        stage.show();
+    }
+
+    /**
+     * Create a tab which controller scene is only built and fetched when the
+     * tab is selected
+     * @param text the text of the tab
+     * @param controllerClass the controller of the tab content
+     */
+    private Tab createLazyTab(String text, Class<? extends AbstractCrudController<?, ?>> controllerClass) {
+        Tab tab = new Tab(text);
+        tab.setStyle("-fx-pref-width: 110");
+        tab.selectedProperty().addListener((obs, oldValue, selected) -> {
+            if (!selected)
+                return;
+            AbstractCrudController<?, ?> controller = CrudControllerFactory.getController(controllerClass);
+            controller.fetchEntitiesToTable();
+            tab.setContent(controller.getMainScene().getRoot());
+        });
+        return tab;
+    }
+}
@@ -0,0 +1,25 @@
+module com.clinic.fx {
+    requires transitive com.clinic.core;
+    requires transitive javafx.controls;
+    requires javafx.fxml;
+    requires transitive javafx.graphics;
+    requires java.prefs;
+    requires java.logging;
+    requires jdk.jfr;
+    requires transitive MaterialFX;
+
+    opens com.clinic.fx to javafx.fxml;
+    exports com.clinic.fx;
+    exports com.clinic.fx.abstracts;
+    exports com.clinic.fx.diagnostics;
+    exports com.clinic.fx.events;
+    exports com.clinic.fx.factories;
+    exports com.clinic.fx.interfaces;
+    exports com.clinic.builder;
+    exports com.clinic.collections;
+    exports com.clinic.extension;
+    exports com.clinic.receptionist.controller;
+    exports com.clinic.doctor.controller;
+    exports com.clinic.drug.component;
+    exports com.clinic.drug.controller;
+}
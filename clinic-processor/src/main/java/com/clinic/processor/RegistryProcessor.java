@@ -0,0 +1,183 @@
+package com.clinic.processor;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeMap;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+
+/**
+ * Generates static indexes of the classes of the application, so they can be
+ * listed and instantiated without scanning the classpath at runtime:
+ * <ul>
+ *  <li>
+ *      <code>com.clinic.factories.EntityRegistry</code> with the entities and
+ *      repositories, generated in clinic-core
+ *  </li>
+ *  <li>
+ *      <code>com.clinic.fx.factories.ControllerRegistry</code> with the CRUD
+ *      controllers, generated in clinic-fx
+ *  </li>
+ * </ul>
+ * Every concrete public class that extends <code>AbstractCrudController</code>,
+ * <code>AbstractEntity</code> or <code>AbstractEntityRepository</code> is
+ * registered, no annotation is needed. A registry is only generated by the
+ * compilation that contains its classes.
+ * 
+ * @author Jose Ryu Leonesta <jose.leonesta@student.matanauniversity.ac.id>
+ */
+@SupportedAnnotationTypes("*")
+public class RegistryProcessor extends AbstractProcessor {
+    private final static String CONTROLLER_CLASS = "com.clinic.fx.abstracts.AbstractCrudController";
+    private final static String ENTITY_CLASS = "com.clinic.abstracts.AbstractEntity";
+    private final static String REPOSITORY_CLASS = "com.clinic.abstracts.AbstractEntityRepository";
+
+    private TreeMap<String, TypeElement> controllers = new TreeMap<>();
+    private TreeMap<String, TypeElement> entities = new TreeMap<>();
+    private TreeMap<String, TypeElement> repositories = new TreeMap<>();
+    private List<TypeElement> originatingElements = new ArrayList<>();
+    private boolean generated = false;
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        if (generated || roundEnv.processingOver())
+            return false;
+
+        TypeMirror controllerType = erasureOf(CONTROLLER_CLASS);
+        TypeMirror entityType = erasureOf(ENTITY_CLASS);
+        TypeMirror repositoryType = erasureOf(REPOSITORY_CLASS);
+        for (TypeElement type : ElementFilter.typesIn(roundEnv.getRootElements())) {
+            if (type.getKind() != ElementKind.CLASS
+                    || !type.getModifiers().contains(Modifier.PUBLIC)
+                    || type.getModifiers().contains(Modifier.ABSTRACT))
+                continue;
+
+            TypeMirror erasure = processingEnv.getTypeUtils().erasure(type.asType());
+            String name = type.getQualifiedName().toString();
+            if (isSubtype(erasure, controllerType))
+                controllers.put(name, type);
+            else if (isSubtype(erasure, entityType))
+                entities.put(name, type);
+            else if (isSubtype(erasure, repositoryType))
+                repositories.put(name, type);
+            else
+                continue;
+            originatingElements.add(type);
+        }
+
+        // Generated in the first round so the registries are compiled along
+        // with the classes that use them
+        generated = true;
+        try {
+            if (!entities.isEmpty() || !repositories.isEmpty())
+                writeEntityRegistry();
+            if (!controllers.isEmpty())
+                writeControllerRegistry();
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                    "Failed to generate the registry: " + e.toString());
+        }
+        return false;
+    }
+
+    private TypeMirror erasureOf(String className) {
+        TypeElement type = processingEnv.getElementUtils().getTypeElement(className);
+        return type != null ? processingEnv.getTypeUtils().erasure(type.asType()) : null;
+    }
+
+    private boolean isSubtype(TypeMirror type, TypeMirror superType) {
+        return superType != null && processingEnv.getTypeUtils().isSubtype(type, superType);
+    }
+
+    private void writeEntityRegistry() throws IOException {
+        try (Writer writer = openRegistry("com.clinic.factories", "EntityRegistry", "entities and repositories")) {
+            writeClassList(writer, "ENTITIES", ENTITY_CLASS, entities);
+            writeClassList(writer, "REPOSITORIES", REPOSITORY_CLASS + "<?>", repositories);
+            writer.write("\n    private EntityRegistry() {\n    }\n");
+            writeFactoryMethod(writer, "newRepository", REPOSITORY_CLASS + "<?>", repositories);
+            writer.write("}\n");
+        }
+    }
+
+    private void writeControllerRegistry() throws IOException {
+        try (Writer writer = openRegistry("com.clinic.fx.factories", "ControllerRegistry", "CRUD controllers")) {
+            writeClassList(writer, "CRUD_CONTROLLERS", CONTROLLER_CLASS + "<?, ?>", controllers);
+            writer.write("\n    private ControllerRegistry() {\n    }\n");
+            writeFactoryMethod(writer, "newController", CONTROLLER_CLASS + "<?, ?>", controllers);
+            writer.write("}\n");
+        }
+    }
+
+    /**
+     * Create a registry source file and write its header
+     */
+    private Writer openRegistry(String packageName, String className, String content) throws IOException {
+        JavaFileObject file = processingEnv.getFiler().createSourceFile(packageName + "." + className,
+                originatingElements.toArray(new TypeElement[0]));
+        Writer writer = file.openWriter();
+        writer.write("package " + packageName + ";\n\n");
+        writer.write("import java.util.List;\n\n");
+        writer.write("/**\n");
+        writer.write(" * Index of the " + content + ", generated by\n");
+        writer.write(" * <code>" + RegistryProcessor.class.getName() + "</code> at build time.\n");
+        writer.write(" * Do not edit.\n");
+        writer.write(" */\n");
+        writer.write("public final class " + className + " {\n");
+        return writer;
+    }
+
+    private void writeClassList(Writer writer, String fieldName, String baseType, TreeMap<String, TypeElement> types)
+            throws IOException {
+        writer.write("    public final static List<Class<? extends " + baseType + ">> " + fieldName + " = List.of(");
+        String separator = "\n";
+        for (String name : types.keySet()) {
+            writer.write(separator + "            " + name + ".class");
+            separator = ",\n";
+        }
+        writer.write(");\n");
+    }
+
+    /**
+     * Write a method that instantiates a registered class with its public
+     * no-arg constructor, returning <code>null</code> for other classes
+     */
+    private void writeFactoryMethod(Writer writer, String methodName, String baseType,
+            TreeMap<String, TypeElement> types) throws IOException {
+        writer.write("\n    static " + baseType + " " + methodName + "(Class<?> theClass) {\n");
+        for (TypeElement type : types.values()) {
+            if (!hasPublicNoArgConstructor(type))
+                continue;
+            String name = type.getQualifiedName().toString();
+            writer.write("        if (theClass == " + name + ".class)\n");
+            writer.write("            return new " + name + "();\n");
+        }
+        writer.write("        return null;\n    }\n");
+    }
+
+    private boolean hasPublicNoArgConstructor(TypeElement type) {
+        for (ExecutableElement constructor : ElementFilter.constructorsIn(type.getEnclosedElements())) {
+            if (constructor.getParameters().isEmpty() && constructor.getModifiers().contains(Modifier.PUBLIC))
+                return true;
+        }
+        return false;
+    }
+}
@@ -1,15 +0,0 @@
-package com.clinic.drug.repository;
-
-import com.clinic.abstracts.AbstractEntityRepository;
-import com.clinic.drug.domain.SellMedicineDetail;
-
-public class SellMedicineDetailRepository extends AbstractEntityRepository<SellMedicineDetail> {
-    public SellMedicineDetailRepository() {
-        super(SellMedicineDetail.class);
-    }
-
-    @Override
-    protected String tableName() {
-        return "sell_medicine_detail";
-    }
-}